@@ -0,0 +1,16 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+    private int maxConcurrent = 16;
+    private int maxQueued = 64;
+    private Duration queueTimeout = Duration.ofMillis(100);
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,10 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.batch")
+public class BatchProperties {
+    private int maxEntries = 10_000;
+}
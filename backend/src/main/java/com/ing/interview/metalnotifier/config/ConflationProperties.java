@@ -0,0 +1,14 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.conflation")
+public class ConflationProperties {
+    private boolean enabled = false;
+    private Duration window = Duration.ofMillis(250);
+    private int maxAttempts = 3;
+}
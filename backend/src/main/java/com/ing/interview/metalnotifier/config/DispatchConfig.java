@@ -0,0 +1,64 @@
+package com.ing.interview.metalnotifier.config;
+
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.service.EmailService;
+import com.ing.interview.metalnotifier.service.MessageRenderer;
+import com.ing.interview.metalnotifier.repository.OutboxMessageRepository;
+import com.ing.interview.metalnotifier.service.NotificationDispatcher;
+import com.ing.interview.metalnotifier.service.OutboxNotificationDispatcher;
+import com.ing.interview.metalnotifier.service.OutboxRelay;
+import com.ing.interview.metalnotifier.service.QueuedNotificationDispatcher;
+import com.ing.interview.metalnotifier.service.SyncNotificationDispatcher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+@EnableConfigurationProperties(DispatchProperties.class)
+public class DispatchConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.dispatch", name = "mode", havingValue = "sync", matchIfMissing = true)
+    public NotificationDispatcher syncNotificationDispatcher(EmailService emailService, NotifierMetrics metrics) {
+        return new SyncNotificationDispatcher(emailService, metrics);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.dispatch", name = "mode", havingValue = "async")
+    public NotificationDispatcher queuedNotificationDispatcher(EmailService emailService, NotifierMetrics metrics,
+                                                               DispatchProperties properties) {
+        return new QueuedNotificationDispatcher(emailService, metrics, properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.dispatch", name = "mode", havingValue = "outbox")
+    public NotificationDispatcher outboxNotificationDispatcher(OutboxMessageRepository outboxRepository,
+                                                               MessageRenderer messageRenderer) {
+        return new OutboxNotificationDispatcher(outboxRepository, messageRenderer);
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(prefix = "metal-notifier.dispatch", name = "mode", havingValue = "outbox")
+    public OutboxRelay outboxRelay(OutboxMessageRepository outboxRepository, EmailService emailService, NotifierMetrics metrics,
+                                   PlatformTransactionManager transactionManager, DispatchProperties properties) {
+        return new OutboxRelay(outboxRepository, emailService, metrics, transactionManager, properties);
+    }
+
+    @Bean
+    public MeterBinder dispatchQueueMetrics(NotificationDispatcher dispatcher) {
+        return registry -> {
+            Gauge.builder("metal.notifier.dispatch.queue.depth", dispatcher, d -> d.getStats().getQueueDepth())
+                    .description("Notification jobs waiting for a worker")
+                    .register(registry);
+            Gauge.builder("metal.notifier.dispatch.queue.capacity", dispatcher, d -> d.getStats().getQueueCapacity())
+                    .register(registry);
+            Gauge.builder("metal.notifier.dispatch.workers.busy", dispatcher, d -> d.getStats().getBusyWorkers())
+                    .description("Workers currently sending an email")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.dispatch")
+public class DispatchProperties {
+
+    public enum Mode {
+        SYNC,
+        ASYNC,
+        OUTBOX
+    }
+
+    public enum ThreadType {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private Mode mode = Mode.SYNC;
+    private int workers = 4;
+    private int queueCapacity = 10_000;
+    private ThreadType threadType = ThreadType.PLATFORM;
+    private Duration offerTimeout = Duration.ofMillis(100);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    private Outbox outbox = new Outbox();
+    private Digest digest = new Digest();
+
+    @Data
+    public static class Outbox {
+        private int batchSize = 100;
+        private Duration pollInterval = Duration.ofMillis(500);
+        private Duration leaseTimeout = Duration.ofMinutes(1);
+        private int maxAttempts = 5;
+        private Duration retryBackoff = Duration.ofSeconds(1);
+        private Duration maxRetryBackoff = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Digest {
+        private boolean enabled = true;
+        private int maxTemplates = 20;
+        private int maxContentLength = 10_000;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ing.interview.metalnotifier.config;
+
+import com.ing.interview.metalnotifier.feed.BinaryPriceFeed;
+import com.ing.interview.metalnotifier.feed.FrameBatch;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.PriceConflator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+public class FeedConfig {
+
+    /**
+     * Feeds the frames into the same pipeline as {@code /api/new-prices}: the conflator when it is enabled,
+     * otherwise one {@link NotificationService#processBatch} per read.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "metal-notifier.feed", name = "enabled", havingValue = "true")
+    public BinaryPriceFeed binaryPriceFeed(FeedProperties properties, NotificationService notificationService,
+                                           PriceConflator priceConflator, NotifierMetrics metrics) {
+        MeterRegistry registry = metrics.getRegistry();
+        Timer lag = Timer.builder("metal.notifier.feed.lag")
+                .description("Time from the frame timestamp until the tick was read from the binary feed")
+                .register(registry);
+        BinaryPriceFeed feed = new BinaryPriceFeed(new InetSocketAddress(properties.getHost(), properties.getPort()),
+                properties.getMaxBatch(), properties.getMaxConnections(), batch -> {
+            recordLag(lag, batch);
+            List<MetalPrice> metalPrices = batch.toMetalPrices();
+            if (priceConflator.isEnabled()) {
+                priceConflator.offerAll(metalPrices);
+                return 0;
+            }
+            return (int) notificationService.processBatch(metalPrices).stream().filter(TickResult::isRejected).count();
+        });
+        FunctionCounter.builder("metal.notifier.feed.frames", feed, BinaryPriceFeed::getFrames)
+                .description("Price frames read from the binary feed and processed")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.feed.rejected", feed, BinaryPriceFeed::getRejected)
+                .description("Price frames skipped for an unknown metal id or a price out of range")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.feed.failed", feed, BinaryPriceFeed::getFailed)
+                .description("Price frames whose processing failed or whose notifications were rejected")
+                .register(registry);
+        Gauge.builder("metal.notifier.feed.connections", feed, BinaryPriceFeed::getConnections).register(registry);
+        return feed;
+    }
+
+    private static void recordLag(Timer lag, FrameBatch batch) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            lag.record(Math.max(0, now - batch.timestampAt(i)), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.feed")
+public class FeedProperties {
+    private boolean enabled = false;
+    private String host = "127.0.0.1";
+    private int port = 7070;
+    /** Most frames read and processed together, also the read buffer of every connection in frames. */
+    private int maxBatch = 1024;
+    private int maxConnections = 16;
+}
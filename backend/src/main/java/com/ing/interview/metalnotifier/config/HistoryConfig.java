@@ -0,0 +1,32 @@
+package com.ing.interview.metalnotifier.config;
+
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(HistoryProperties.class)
+public class HistoryConfig {
+
+    @Bean
+    public PriceHistoryStore priceHistoryStore(HistoryProperties properties, NotifierMetrics metrics) throws IOException {
+        if (!properties.isEnabled()) {
+            return PriceHistoryStore.disabled();
+        }
+        PriceHistoryStore store = PriceHistoryStore.open(Path.of(properties.getDirectory()), properties.getSegmentRecords(),
+                properties.getSegmentDuration(), properties.getRetention());
+        FunctionCounter.builder("metal.notifier.history.appended", store, PriceHistoryStore::getAppended)
+                .description("Price ticks appended to the history store")
+                .register(metrics.getRegistry());
+        Gauge.builder("metal.notifier.history.segments", store, PriceHistoryStore::getSegmentCount)
+                .register(metrics.getRegistry());
+        return store;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.history")
+public class HistoryProperties {
+    private boolean enabled = true;
+    private String directory = "./data/price-history";
+    /** Records per segment file; a segment is also rolled once it spans {@code segmentDuration}. */
+    private int segmentRecords = 1_000_000;
+    private Duration segmentDuration = Duration.ofHours(1);
+    private Duration retention = Duration.ofDays(7);
+    private int maxQueryResults = 10_000;
+}
@@ -0,0 +1,71 @@
+package com.ing.interview.metalnotifier.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves the id sequences of the template graph and the outbox past the ids already in use.
+ * <p>
+ * Templates, recipients, rules, rule groups and outbox rows used to take their ids from identity columns. A database
+ * created back then already has rows 1..N, while the sequences that replaced the identity columns start at
+ * 1, so the first inserts after the upgrade would collide with them. Runs while the context starts, before
+ * the web server takes requests, and only restarts a sequence whose next block of ids is not past the
+ * highest id of its table, so it never moves a sequence back.
+ */
+@Slf4j
+@Component
+public class IdSequenceMigration implements InitializingBean {
+
+    /** The {@code allocationSize} of the entities' sequence generators and the sequences' {@code INCREMENT BY}. */
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> TABLES_BY_SEQUENCE = new LinkedHashMap<>();
+
+    static {
+        TABLES_BY_SEQUENCE.put("notification_template_seq", "notification_template");
+        TABLES_BY_SEQUENCE.put("recipient_seq", "recipient");
+        TABLES_BY_SEQUENCE.put("rule_group_seq", "rule_group");
+        TABLES_BY_SEQUENCE.put("rule_seq", "rule");
+        TABLES_BY_SEQUENCE.put("notification_outbox_seq", "notification_outbox");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public IdSequenceMigration(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        TABLES_BY_SEQUENCE.forEach(this::migrate);
+    }
+
+    /**
+     * @return whether the sequence was restarted
+     */
+    boolean migrate(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        if (maxId == null || maxId == 0) {
+            return false;
+        }
+        // The pooled optimizer hands out the ALLOCATION_SIZE ids up to and including the value it reads.
+        Long next = jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+        if (next != null && next - ALLOCATION_SIZE >= maxId) {
+            return false;
+        }
+        long restart = maxId + ALLOCATION_SIZE;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+        log.info("Restarted {} at {}, past the highest id {} of {}", sequence, restart, maxId, table);
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.idempotency")
+public class IdempotencyProperties {
+    private boolean enabled = true;
+    private int maxKeys = 100_000;
+    private Duration ttl = Duration.ofMinutes(10);
+    private int stripes = 16;
+    /** How long a retry waits for the result of its first attempt while that is still being processed. */
+    private Duration inFlightWait = Duration.ofSeconds(5);
+}
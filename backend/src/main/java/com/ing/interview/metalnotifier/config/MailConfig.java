@@ -0,0 +1,40 @@
+package com.ing.interview.metalnotifier.config;
+
+import com.ing.interview.metalnotifier.mail.EmailSender;
+import com.ing.interview.metalnotifier.mail.LoggingEmailSender;
+import com.ing.interview.metalnotifier.mail.SmtpEmailSender;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.mail", name = "sender", havingValue = "logging", matchIfMissing = true)
+    public EmailSender loggingEmailSender() {
+        return new LoggingEmailSender();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.mail", name = "sender", havingValue = "smtp")
+    public SmtpEmailSender smtpEmailSender(MailProperties properties) {
+        return new SmtpEmailSender(properties.getSmtp());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "metal-notifier.mail", name = "sender", havingValue = "smtp")
+    public MeterBinder smtpPoolMetrics(SmtpEmailSender sender) {
+        return registry -> {
+            Gauge.builder("metal.notifier.smtp.connections.open", sender, SmtpEmailSender::getOpenConnections)
+                    .description("SMTP connections currently open")
+                    .register(registry);
+            Gauge.builder("metal.notifier.smtp.connections.idle", sender, SmtpEmailSender::getIdleConnections)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.mail")
+public class MailProperties {
+
+    public enum Sender {
+        LOGGING,
+        SMTP
+    }
+
+    private Sender sender = Sender.LOGGING;
+    private Smtp smtp = new Smtp();
+
+    @Data
+    public static class Smtp {
+        private String host = "localhost";
+        private int port = 25;
+        private String username;
+        private String password;
+        private String from = "metal-notifier@localhost";
+        /** Name sent with EHLO, the local host name when empty. */
+        private String heloName;
+        private int poolSize = 4;
+        private int maxMessagesPerConnection = 100;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private Duration borrowTimeout = Duration.ofSeconds(10);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+    }
+}
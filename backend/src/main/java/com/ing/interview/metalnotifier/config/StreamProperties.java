@@ -0,0 +1,16 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.stream")
+public class StreamProperties {
+    private int queueCapacity = 256;
+    private int maxSubscribers = 100;
+    private Duration sendTimeout = Duration.ofSeconds(10);
+    private Duration heartbeat = Duration.ofSeconds(15);
+    private Duration timeout = Duration.ofMinutes(30);
+}
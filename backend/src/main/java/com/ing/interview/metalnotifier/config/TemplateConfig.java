@@ -0,0 +1,9 @@
+package com.ing.interview.metalnotifier.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({TemplateProperties.class, TemplateSnapshotProperties.class})
+public class TemplateConfig {
+}
@@ -0,0 +1,11 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.templates")
+public class TemplateProperties {
+    private int importChunkSize = 1000;
+    private int exportPageSize = 500;
+}
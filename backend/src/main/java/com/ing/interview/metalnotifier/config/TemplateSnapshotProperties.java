@@ -0,0 +1,14 @@
+package com.ing.interview.metalnotifier.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "metal-notifier.template-snapshot")
+public class TemplateSnapshotProperties {
+    private boolean enabled = true;
+    private String file = "./data/template-snapshot.bin";
+    private Duration refreshInterval = Duration.ofMinutes(1);
+}
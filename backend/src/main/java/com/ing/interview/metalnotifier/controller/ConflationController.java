@@ -0,0 +1,26 @@
+package com.ing.interview.metalnotifier.controller;
+
+import com.ing.interview.metalnotifier.model.ConflationStats;
+import com.ing.interview.metalnotifier.service.PriceConflator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/conflation")
+public class ConflationController {
+
+    private final PriceConflator priceConflator;
+
+    @Autowired
+    public ConflationController(PriceConflator priceConflator) {
+        this.priceConflator = priceConflator;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ConflationStats> getStats() {
+        return ResponseEntity.ok(priceConflator.getStats());
+    }
+}
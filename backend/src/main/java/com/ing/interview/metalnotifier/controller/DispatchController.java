@@ -0,0 +1,26 @@
+package com.ing.interview.metalnotifier.controller;
+
+import com.ing.interview.metalnotifier.model.DispatchStats;
+import com.ing.interview.metalnotifier.service.NotificationDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/dispatch")
+public class DispatchController {
+
+    private final NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    public DispatchController(NotificationDispatcher notificationDispatcher) {
+        this.notificationDispatcher = notificationDispatcher;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<DispatchStats> getStats() {
+        return ResponseEntity.ok(notificationDispatcher.getStats());
+    }
+}
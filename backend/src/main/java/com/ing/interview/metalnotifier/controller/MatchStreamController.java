@@ -0,0 +1,41 @@
+package com.ing.interview.metalnotifier.controller;
+
+import com.ing.interview.metalnotifier.config.StreamProperties;
+import com.ing.interview.metalnotifier.service.MatchBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/api/matches")
+public class MatchStreamController {
+
+    private final MatchBroadcaster matchBroadcaster;
+    private final Duration streamTimeout;
+
+    @Autowired
+    public MatchStreamController(MatchBroadcaster matchBroadcaster, StreamProperties properties) {
+        this.matchBroadcaster = matchBroadcaster;
+        this.streamTimeout = properties.getTimeout();
+    }
+
+    /**
+     * Server-sent events named {@code match}, one per firing template, with a {@link com.ing.interview.metalnotifier.model.MatchEvent}
+     * as JSON data. The stream ends after the configured timeout and clients are expected to reconnect.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = matchBroadcaster.subscribe(() -> new SseEmitter(streamTimeout.toMillis()));
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
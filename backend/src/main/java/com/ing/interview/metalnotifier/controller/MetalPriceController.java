@@ -1,26 +1,91 @@
 package com.ing.interview.metalnotifier.controller;
 
+import com.ing.interview.metalnotifier.model.BatchResult;
 import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import com.ing.interview.metalnotifier.service.AdmissionControl;
 import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.PriceBatchReader;
+import com.ing.interview.metalnotifier.service.PriceConflator;
+import com.ing.interview.metalnotifier.service.TickDeduplicator;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 public class MetalPriceController {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
     
     private final NotificationService notificationService;
+    private final PriceBatchReader priceBatchReader;
+    private final AdmissionControl admissionControl;
+    private final PriceConflator priceConflator;
+    private final TickDeduplicator tickDeduplicator;
     
     @Autowired
-    public MetalPriceController(NotificationService notificationService) {
+    public MetalPriceController(NotificationService notificationService, PriceBatchReader priceBatchReader,
+                                AdmissionControl admissionControl, PriceConflator priceConflator,
+                                TickDeduplicator tickDeduplicator) {
         this.notificationService = notificationService;
+        this.priceBatchReader = priceBatchReader;
+        this.admissionControl = admissionControl;
+        this.priceConflator = priceConflator;
+        this.tickDeduplicator = tickDeduplicator;
     }
     
+    /**
+     * A tick with an {@code Idempotency-Key} header, or else a {@code tickId}, that was already processed is
+     * answered with the original result and an {@code Idempotent-Replayed} header. Replays skip admission.
+     */
     @PostMapping("/new-price")
-    public ResponseEntity<String> receiveNewPrice(@RequestBody @Valid MetalPrice metalPrice) {
-        notificationService.processNewPrice(metalPrice);
-        return ResponseEntity.ok("Notification processed");
+    public ResponseEntity<?> receiveNewPrice(@RequestBody @Valid MetalPrice metalPrice,
+                                             @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        String key = idempotencyKey != null ? idempotencyKey : metalPrice.getTickId();
+        TickDeduplicator.Outcome outcome = tickDeduplicator.execute(key, metalPrice, () -> {
+            try (AdmissionControl.Permit ignored = admissionControl.acquire()) {
+                return priceConflator.isEnabled()
+                        ? priceConflator.offer(metalPrice)
+                        : notificationService.processNewPrice(metalPrice);
+            }
+        });
+        ResponseEntity.BodyBuilder response = outcome.getResult().isAsynchronous()
+                ? ResponseEntity.accepted()
+                : ResponseEntity.ok();
+        if (outcome.isReplayed()) {
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        if (outcome.getResult().isAsynchronous()) {
+            return response.body(outcome.getResult());
+        }
+        return response.body("Notification processed");
+    }
+
+    @PostMapping(value = "/new-prices", consumes = {MediaType.APPLICATION_JSON_VALUE, PriceBatchReader.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BatchResult> receiveNewPrices(InputStream body,
+                                                        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) throws IOException {
+        // Read and validated before admission, so a slow client does not hold a processing slot while it uploads.
+        PriceBatchReader.PriceBatch batch = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)
+                ? priceBatchReader.readJsonArray(body)
+                : priceBatchReader.readNdjson(body);
+        List<TickResult> ticks;
+        try (AdmissionControl.Permit ignored = admissionControl.acquire()) {
+            ticks = priceConflator.isEnabled()
+                    ? priceConflator.offerAll(batch.getAccepted())
+                    : notificationService.processBatch(batch.getAccepted());
+        }
+        boolean asynchronous = ticks.stream().anyMatch(TickResult::isAsynchronous);
+        BatchResult result = batch.complete(ticks, asynchronous);
+        return ResponseEntity.status(asynchronous ? HttpStatus.ACCEPTED : HttpStatus.OK).body(result);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.ing.interview.metalnotifier.controller;
+
+import com.ing.interview.metalnotifier.config.HistoryProperties;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.PricePoint;
+import jakarta.validation.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/prices")
+public class PriceHistoryController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofHours(1);
+
+    private final PriceHistoryStore priceHistory;
+    private final int maxResults;
+
+    @Autowired
+    public PriceHistoryController(PriceHistoryStore priceHistory, HistoryProperties properties) {
+        this.priceHistory = priceHistory;
+        this.maxResults = properties.getMaxQueryResults();
+    }
+
+    /**
+     * Ticks of one metal between {@code from} and {@code to} (inclusive, ISO-8601 instants), oldest first.
+     * Without bounds the last hour is returned.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<List<PricePoint>> getHistory(
+            @RequestParam String itemType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Integer limit) {
+        Metal metal = Metal.fromCode(itemType);
+        if (metal == null) {
+            throw new ValidationException("Unknown item type: " + itemType);
+        }
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(DEFAULT_RANGE) : from;
+        if (start.isAfter(end)) {
+            throw new ValidationException("'from' must not be after 'to'");
+        }
+        int max = limit == null ? maxResults : Math.max(1, Math.min(limit, maxResults));
+        return ResponseEntity.ok(priceHistory.query(metal, start, end, max));
+    }
+}
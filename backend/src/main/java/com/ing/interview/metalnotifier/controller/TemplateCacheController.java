@@ -0,0 +1,26 @@
+package com.ing.interview.metalnotifier.controller;
+
+import com.ing.interview.metalnotifier.model.TemplateCacheStats;
+import com.ing.interview.metalnotifier.service.TemplateCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/template-cache")
+public class TemplateCacheController {
+
+    private final TemplateCache templateCache;
+
+    @Autowired
+    public TemplateCacheController(TemplateCache templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<TemplateCacheStats> getStats() {
+        return ResponseEntity.ok(templateCache.getStats());
+    }
+}
@@ -1,29 +1,40 @@
 package com.ing.interview.metalnotifier.controller;
 
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.model.TemplateImportResult;
+import com.ing.interview.metalnotifier.model.TemplatePage;
+import com.ing.interview.metalnotifier.model.TemplatePatch;
 import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.PriceBatchReader;
+import com.ing.interview.metalnotifier.service.TemplateBulkService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/templates")
 public class TemplateController {
     
     private final NotificationService notificationService;
+    private final TemplateBulkService templateBulkService;
     
     @Autowired
-    public TemplateController(NotificationService notificationService) {
+    public TemplateController(NotificationService notificationService, TemplateBulkService templateBulkService) {
         this.notificationService = notificationService;
+        this.templateBulkService = templateBulkService;
     }
     
     @GetMapping
-    public ResponseEntity<List<NotificationTemplate>> getAllTemplates() {
-        List<NotificationTemplate> templates = notificationService.getAllTemplates();
-        return ResponseEntity.ok(templates);
+    public ResponseEntity<TemplatePage> getTemplates(@RequestParam(required = false) Long after,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        TemplatePage page = notificationService.getTemplateSummaries(after, limit);
+        return ResponseEntity.ok(page);
     }
     
     @GetMapping("/{id}")
@@ -42,6 +53,18 @@ public class TemplateController {
         return ResponseEntity.ok(savedTemplate);
     }
     
+    @PostMapping(value = "/import", consumes = PriceBatchReader.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<TemplateImportResult> importTemplates(InputStream body) throws IOException {
+        return ResponseEntity.ok(templateBulkService.importNdjson(body));
+    }
+
+    @GetMapping(value = "/export", produces = PriceBatchReader.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTemplates() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PriceBatchReader.APPLICATION_NDJSON_VALUE))
+                .body(templateBulkService::exportNdjson);
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<NotificationTemplate> updateTemplate(@PathVariable Long id, @RequestBody NotificationTemplate template) {
         NotificationTemplate existingTemplate = notificationService.getTemplateById(id);
@@ -49,10 +72,23 @@ public class TemplateController {
             return ResponseEntity.notFound().build();
         }
         template.setId(id);
+        if (template.getVersion() == null) {
+            // Clients that do not send the version they read keep last-writer-wins replacement.
+            template.setVersion(existingTemplate.getVersion());
+        }
         NotificationTemplate updatedTemplate = notificationService.saveTemplate(template);
         return ResponseEntity.ok(updatedTemplate);
     }
     
+    @PatchMapping("/{id}")
+    public ResponseEntity<NotificationTemplate> patchTemplate(@PathVariable Long id, @RequestBody @Valid TemplatePatch patch) {
+        NotificationTemplate patchedTemplate = notificationService.patchTemplate(id, patch);
+        if (patchedTemplate == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(patchedTemplate);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTemplate(@PathVariable Long id) {
 
@@ -1,11 +1,20 @@
 package com.ing.interview.metalnotifier.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.model.Metal;
 import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+import com.ing.interview.metalnotifier.rendering.CompiledMessage;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,19 +25,48 @@ import java.util.List;
 @NoArgsConstructor
 public class NotificationTemplate {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids are taken from the sequence 50 at a time, so inserts of new templates and their children can be
+    // JDBC-batched; with IDENTITY every insert would have to run on its own to read back its key.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_template_seq")
+    @SequenceGenerator(name = "notification_template_seq", sequenceName = "notification_template_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Optimistic lock: every update, including recipient and rule changes made through a patch, increments it,
+     * and an update based on an older version is rejected.
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     @NotNull
     private String title;
     private String content;
+
+    @Enumerated(EnumType.STRING)
+    private TriggerMode triggerMode = TriggerMode.LEVEL;
     
     @OneToMany(mappedBy = "template", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<Recipient> recipients = new ArrayList<>();
     
     @OneToMany(mappedBy = "template", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<Rule> rules = new ArrayList<>();
 
+    /** Rule expressions AND-ed with {@link #rules}; see {@link RuleGroup}. */
+    @OneToMany(mappedBy = "template", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    @OrderBy("id")
+    private List<RuleGroup> ruleGroups = new ArrayList<>();
+
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile CompiledMessage compiledMessage;
+
 
     public Long getId() {
         return id;
@@ -42,25 +80,74 @@ public class NotificationTemplate {
         return title;
     }
 
+    public void setTitle(String title) {
+        this.title = title;
+        this.compiledMessage = null;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+        this.compiledMessage = null;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+        this.compiledMessage = null;
+    }
+
+    public void setRuleGroups(List<RuleGroup> ruleGroups) {
+        this.ruleGroups = ruleGroups;
+        this.compiledMessage = null;
+    }
 
     public String getContent() {
         return content;
     }
 
+    public TriggerMode getTriggerMode() {
+        return triggerMode == null ? TriggerMode.LEVEL : triggerMode;
+    }
+
     public List<Recipient> getRecipients() {
         return recipients;
     }
 
+    /**
+     * Title and content parsed for placeholder rendering; compiled on first use and dropped when the
+     * title, content, rules or rule groups are replaced.
+     */
+    @JsonIgnore
+    public CompiledMessage getCompiledMessage() {
+        CompiledMessage compiled = compiledMessage;
+        if (compiled == null) {
+            compiled = CompiledMessage.compile(this);
+            compiledMessage = compiled;
+        }
+        return compiled;
+    }
+
     public boolean matchesAllRules(MetalPrice metalPrice) {
-        if (rules.isEmpty()) {
+        return matchesAllRules(Metal.fromCode(metalPrice.getItemType()), PriceScale.toScaled(metalPrice.getPrice()));
+    }
+
+    public boolean matchesAllRules(Metal metal, long scaledPrice) {
+        if (rules.isEmpty() && (ruleGroups == null || ruleGroups.isEmpty())) {
             return false;
         }
         
         for (Rule rule : rules) {
-            if (!rule.evaluate(metalPrice)) {
+            if (!rule.getPredicate().test(metal, scaledPrice)) {
                 return false;
             }
         }
+
+        if (ruleGroups != null) {
+            for (RuleGroup group : ruleGroups) {
+                if (!group.matches(metal, scaledPrice)) {
+                    return false;
+                }
+            }
+        }
         
         return true;
     }
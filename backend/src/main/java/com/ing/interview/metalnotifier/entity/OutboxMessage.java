@@ -0,0 +1,58 @@
+package com.ing.interview.metalnotifier.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Durable record of one email to send. Recipient address, title and content are copied from the
+ * template when the row is written, so a row can be delivered even after its template changed or
+ * was deleted.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "notification_outbox",
+        indexes = @Index(name = "idx_notification_outbox_status_id", columnList = "status, id"))
+public class OutboxMessage {
+
+    public enum Status {
+        PENDING,
+        CLAIMED,
+        SENT,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Version
+    private long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private String tickId;
+    private Long templateId;
+    private Long recipientId;
+    private String email;
+    private String title;
+    @Column(length = 10_000)
+    private String content;
+    private String itemType;
+    private BigDecimal price;
+
+    private int attempts;
+    private String claimToken;
+    private Instant claimedAt;
+    /** Earliest time a failed send is retried, {@code null} before the first attempt. */
+    private Instant nextAttemptAt;
+    private Instant createdAt;
+    private Instant sentAt;
+}
@@ -3,21 +3,27 @@ package com.ing.interview.metalnotifier.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = @Index(name = "idx_recipient_template_id", columnList = "template_id"))
 public class Recipient {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipient_seq")
+  @SequenceGenerator(name = "recipient_seq", sequenceName = "recipient_seq", allocationSize = 50)
   private Long id;
 
   private String email;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "template_id")
   @JsonIgnore
   private NotificationTemplate template;
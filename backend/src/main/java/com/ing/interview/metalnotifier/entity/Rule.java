@@ -2,15 +2,22 @@ package com.ing.interview.metalnotifier.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.matching.RulePredicate;
+import com.ing.interview.metalnotifier.model.Metal;
 import com.ing.interview.metalnotifier.model.MetalPrice;
 import com.ing.interview.metalnotifier.model.Operator;
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_rule_template_id", columnList = "template_id"),
+        @Index(name = "idx_rule_group_id", columnList = "group_id")
+})
 public class Rule {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rule_seq")
+    @SequenceGenerator(name = "rule_seq", sequenceName = "rule_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -18,10 +25,19 @@ public class Rule {
     
     private String operand;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "template_id")
     @JsonIgnore
     private NotificationTemplate template;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id")
+    @JsonIgnore
+    private RuleGroup group;
+
+    @Transient
+    @JsonIgnore
+    private volatile RulePredicate predicate;
     
     public Rule() {}
     
@@ -44,6 +60,7 @@ public class Rule {
 
     public void setOperator(Operator operator) {
         this.operator = operator;
+        this.predicate = null;
     }
 
     public String getOperand() {
@@ -52,6 +69,7 @@ public class Rule {
 
     public void setOperand(String operand) {
         this.operand = operand;
+        this.predicate = null;
     }
 
     public NotificationTemplate getTemplate() {
@@ -61,26 +79,33 @@ public class Rule {
     public void setTemplate(NotificationTemplate template) {
         this.template = template;
     }
+
+    public RuleGroup getGroup() {
+        return group;
+    }
+
+    public void setGroup(RuleGroup group) {
+        this.group = group;
+    }
     
-    public boolean evaluate(MetalPrice metalPrice) {
-        switch (operator) {
-            case ITEM_IS:
-                return metalPrice.getItemType().equals(operand);
-            case ITEM_IS_NOT:
-                return !metalPrice.getItemType().equals(operand);
-            case PRICE_IS_EQUAL_TO:
-                return metalPrice.getPrice().compareTo(new BigDecimal(operand)) == 0;
-            case PRICE_IS_GREATER_THAN:
-                return metalPrice.getPrice().compareTo(new BigDecimal(operand)) > 0;
-            case PRICE_IS_GREATER_THAN_OR_EQUAL_TO:
-                return metalPrice.getPrice().compareTo(new BigDecimal(operand)) >= 0;
-            case PRICE_IS_LESS_THAN:
-                return metalPrice.getPrice().compareTo(new BigDecimal(operand)) < 0;
-            case PRICE_IS_LESS_THAN_OR_EQUAL_TO:
-                return metalPrice.getPrice().compareTo(new BigDecimal(operand)) <= 0;
-            default:
-                return false;
+    @PostLoad
+    @PrePersist
+    @PreUpdate
+    void compile() {
+        predicate = RulePredicate.compile(operator, operand);
+    }
+
+    @JsonIgnore
+    public RulePredicate getPredicate() {
+        RulePredicate compiled = predicate;
+        if (compiled == null) {
+            compiled = RulePredicate.compile(operator, operand);
+            predicate = compiled;
         }
+        return compiled;
     }
-}
 
+    public boolean evaluate(MetalPrice metalPrice) {
+        return getPredicate().test(Metal.fromCode(metalPrice.getItemType()), PriceScale.toScaled(metalPrice.getPrice()));
+    }
+}
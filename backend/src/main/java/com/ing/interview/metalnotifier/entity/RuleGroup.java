@@ -0,0 +1,134 @@
+package com.ing.interview.metalnotifier.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.Metal;
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Node of a template's rule expression: its rules and subgroups combined with {@link GroupOperator}.
+ * Top-level groups belong to the template and are AND-ed with the template's plain rules; nested groups
+ * only reference their parent.
+ */
+@Entity
+// Groups referenced by a rule's lazy parent can be handed out as proxies, also inside a template's ruleGroups.
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(indexes = {
+        @Index(name = "idx_rule_group_template_id", columnList = "template_id"),
+        @Index(name = "idx_rule_group_parent_id", columnList = "parent_id")
+})
+public class RuleGroup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rule_group_seq")
+    @SequenceGenerator(name = "rule_group_seq", sequenceName = "rule_group_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8, nullable = false)
+    private GroupOperator operator = GroupOperator.AND;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "template_id")
+    @JsonIgnore
+    private NotificationTemplate template;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    @JsonIgnore
+    private RuleGroup parent;
+
+    @OneToMany(mappedBy = "group", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    @OrderBy("id")
+    private List<Rule> rules = new ArrayList<>();
+
+    @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    @OrderBy("id")
+    private List<RuleGroup> groups = new ArrayList<>();
+
+    public RuleGroup() {}
+
+    public RuleGroup(GroupOperator operator, List<Rule> rules, List<RuleGroup> groups) {
+        this.operator = operator;
+        this.rules = new ArrayList<>(rules);
+        this.groups = new ArrayList<>(groups);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public GroupOperator getOperator() {
+        return operator == null ? GroupOperator.AND : operator;
+    }
+
+    public void setOperator(GroupOperator operator) {
+        this.operator = operator;
+    }
+
+    public NotificationTemplate getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(NotificationTemplate template) {
+        this.template = template;
+    }
+
+    public RuleGroup getParent() {
+        return parent;
+    }
+
+    public void setParent(RuleGroup parent) {
+        this.parent = parent;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public List<RuleGroup> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<RuleGroup> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Plain recursive evaluation; the matching index runs the flattened {@code RuleProgram} instead.
+     * Window rules never match here.
+     */
+    public boolean matches(Metal metal, long scaledPrice) {
+        boolean all = true;
+        boolean any = false;
+        for (Rule rule : rules) {
+            boolean matched = rule.getPredicate().test(metal, scaledPrice);
+            all &= matched;
+            any |= matched;
+        }
+        for (RuleGroup group : groups) {
+            boolean matched = group.matches(metal, scaledPrice);
+            all &= matched;
+            any |= matched;
+        }
+        return switch (getOperator()) {
+            case AND -> all;
+            case OR -> any;
+            case NOT -> !all;
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.ing.interview.metalnotifier.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of the template change log: the template was created, updated or deleted in the transaction
+ * that took {@code version} from {@link TemplateChangeCounter}. Caches that hold templates as of some
+ * version catch up by reloading the templates changed after it.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "template_change", indexes = @Index(name = "idx_template_change_version", columnList = "version"))
+public class TemplateChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "template_change_seq")
+    @SequenceGenerator(name = "template_change_seq", sequenceName = "template_change_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "template_id", nullable = false)
+    private long templateId;
+
+    public TemplateChange(long version, long templateId) {
+        this.version = version;
+        this.templateId = templateId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ing.interview.metalnotifier.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row holding the database change version of the templates. Every transaction that changes templates
+ * increments it and keeps the row locked until it ends, so versions are handed out in commit order and a
+ * committed version implies all lower ones are committed too.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "template_change_counter")
+public class TemplateChangeCounter {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long version;
+}
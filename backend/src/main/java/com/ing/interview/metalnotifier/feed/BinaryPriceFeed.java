@@ -0,0 +1,266 @@
+package com.ing.interview.metalnotifier.feed;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * TCP listener for {@link PriceFrame binary price frames}, an alternative to posting JSON to the REST endpoint.
+ * <p>
+ * One selector thread serves all connections. Each connection reads into its own direct buffer sized for
+ * {@code maxBatch} frames, the complete frames of every read are decoded into one reused {@link FrameBatch}
+ * and handed to the sink as a batch, and a partial frame waits for the next read. The sink runs on the
+ * selector thread, so while it is busy nothing is read and TCP flow control slows the feed down instead of
+ * ticks queueing up in memory.
+ * <p>
+ * A failing connection is closed on its own; the loop only ends when the listener is closed. When accepting
+ * fails, for instance because the process ran out of file descriptors, accepting pauses for
+ * {@value #ACCEPT_PAUSE_MS} ms instead of spinning on the still pending connection.
+ */
+@Slf4j
+public final class BinaryPriceFeed implements AutoCloseable {
+
+    static final long ACCEPT_PAUSE_MS = 100;
+
+    private final InetSocketAddress address;
+    private final int maxConnections;
+    private final ToIntFunction<FrameBatch> sink;
+    private final FrameBatch batch;
+    private final int bufferSize;
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile int connections;
+    private volatile boolean closed;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private SelectionKey serverKey;
+    private long acceptPausedUntil;
+
+    /**
+     * @param address        where to listen, port 0 picks a free port
+     * @param maxBatch       most frames handed to the sink at once
+     * @param maxConnections connections beyond this are closed right after they are accepted
+     * @param sink           processes a batch and returns how many of its frames failed; it must not keep the
+     *                       batch after returning
+     */
+    public BinaryPriceFeed(InetSocketAddress address, int maxBatch, int maxConnections, ToIntFunction<FrameBatch> sink) {
+        this.address = address;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.sink = sink;
+        this.batch = new FrameBatch(Math.max(1, maxBatch));
+        this.bufferSize = Math.max(1, maxBatch) * PriceFrame.SIZE;
+    }
+
+    public synchronized void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        serverKey = server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "price-feed");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Listening for binary price frames on {}", server.getLocalAddress());
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Frames the sink processed. */
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    /** Frames skipped for an unknown metal or a price out of range. */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /** Frames the sink failed on, all frames of a batch when it threw. */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                if (acceptPausedUntil == 0) {
+                    selector.select();
+                } else {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(acceptPausedUntil - System.nanoTime())));
+                    resumeAccepting();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                log.error("Binary price feed stopped", e);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+            } else if (key.isReadable()) {
+                read(key);
+            }
+        } catch (ClosedSelectorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (key == serverKey) {
+                log.warn("Accepting a price feed connection failed", e);
+                pauseAccepting();
+            } else {
+                log.warn("Price feed connection failed, closing it", e);
+                disconnect(key);
+            }
+        }
+    }
+
+    /**
+     * Accepts one connection. A failure only affects that connection, such as running out of file
+     * descriptors, and is logged; the listener keeps serving the open connections and accepting new ones.
+     */
+    private void accept() {
+        SocketChannel channel;
+        try {
+            channel = server.accept();
+        } catch (IOException e) {
+            log.warn("Accepting a price feed connection failed", e);
+            pauseAccepting();
+            return;
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (connections >= maxConnections) {
+                log.warn("Refusing price feed connection from {}, {} connections open", channel.getRemoteAddress(), connections);
+                channel.close();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(bufferSize));
+            connections++;
+        } catch (IOException e) {
+            log.warn("Setting up a price feed connection failed", e);
+            try {
+                channel.close();
+            } catch (IOException closeFailed) {
+                log.debug("Closing price feed connection failed", closeFailed);
+            }
+        }
+    }
+
+    private void pauseAccepting() {
+        if (serverKey.isValid()) {
+            serverKey.interestOps(0);
+        }
+        acceptPausedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_PAUSE_MS);
+    }
+
+    private void resumeAccepting() {
+        if (System.nanoTime() - acceptPausedUntil >= 0) {
+            acceptPausedUntil = 0;
+            if (serverKey.isValid()) {
+                serverKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= PriceFrame.SIZE) {
+                rejected.add(PriceFrame.decode(buffer, batch));
+                deliver();
+            }
+            buffer.compact();
+        } else if (read < 0) {
+            disconnect(key);
+        }
+    }
+
+    private void deliver() {
+        int size = batch.size();
+        if (size == 0) {
+            return;
+        }
+        try {
+            int failedFrames = sink.applyAsInt(batch);
+            frames.add(size - failedFrames);
+            failed.add(failedFrames);
+        } catch (RuntimeException e) {
+            failed.add(size);
+            log.error("Processing {} price frames from the binary feed failed", size, e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void disconnect(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Closing price feed connection failed", e);
+        }
+        connections--;
+    }
+
+    @Override
+    public synchronized void close() throws IOException, InterruptedException {
+        if (closed || selector == null) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        connections = 0;
+    }
+}
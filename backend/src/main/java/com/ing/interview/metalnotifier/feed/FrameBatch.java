@@ -0,0 +1,67 @@
+package com.ing.interview.metalnotifier.feed;
+
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ticks decoded from the feed, kept in parallel arrays that are reused for every read.
+ */
+public final class FrameBatch {
+
+    private final Metal[] metals;
+    private final long[] scaledPrices;
+    private final long[] timestamps;
+    private int size;
+
+    public FrameBatch(int capacity) {
+        this.metals = new Metal[capacity];
+        this.scaledPrices = new long[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    void add(Metal metal, long scaledPrice, long timestamp) {
+        metals[size] = metal;
+        scaledPrices[size] = scaledPrice;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    public boolean isFull() {
+        return size == metals.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Metal metalAt(int index) {
+        return metals[index];
+    }
+
+    public long scaledPriceAt(int index) {
+        return scaledPrices[index];
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * The ticks as the price processing pipeline takes them; the batch itself is reused after the sink returns.
+     */
+    public List<MetalPrice> toMetalPrices() {
+        List<MetalPrice> metalPrices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            metalPrices.add(new MetalPrice(metals[i].getCode(), PriceScale.toBigDecimal(scaledPrices[i])));
+        }
+        return metalPrices;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ing.interview.metalnotifier.feed;
+
+import com.ing.interview.metalnotifier.model.Metal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary price frame of the TCP feed, the same layout as a price history record:
+ * {@code timestamp millis (8) | scaled price (8) | metal id (4)}, big-endian, with the price in
+ * {@link com.ing.interview.metalnotifier.matching.PriceScale PriceScale} units and the metal as
+ * {@link Metal#getId()}. Frames carry no length prefix or delimiter: every {@link #SIZE} bytes are a frame.
+ */
+public final class PriceFrame {
+
+    public static final int SIZE = 20;
+
+    /** Largest scaled price accepted, the same bound as the {@code MetalPrice} validation (10 integer digits). */
+    public static final long MAX_SCALED_PRICE = 999_999_999_999L;
+
+    private PriceFrame() {
+    }
+
+    public static void encode(ByteBuffer out, Metal metal, long scaledPrice, long timestamp) {
+        encode(out, metal.getId(), scaledPrice, timestamp);
+    }
+
+    public static void encode(ByteBuffer out, int metalId, long scaledPrice, long timestamp) {
+        out.putLong(timestamp);
+        out.putLong(scaledPrice);
+        out.putInt(metalId);
+    }
+
+    /**
+     * Decodes the complete frames of {@code in} into {@code batch} until it is full; a trailing partial frame
+     * is left in the buffer. Nothing is allocated, so this can run for every read of a connection.
+     *
+     * @return number of frames skipped because of an unknown metal or a price out of range
+     */
+    public static int decode(ByteBuffer in, FrameBatch batch) {
+        int rejected = 0;
+        while (in.remaining() >= SIZE && !batch.isFull()) {
+            long timestamp = in.getLong();
+            long scaledPrice = in.getLong();
+            Metal metal = Metal.fromId(in.getInt());
+            if (metal == null || scaledPrice < 0 || scaledPrice > MAX_SCALED_PRICE) {
+                rejected++;
+            } else {
+                batch.add(metal, scaledPrice, timestamp);
+            }
+        }
+        return rejected;
+    }
+}
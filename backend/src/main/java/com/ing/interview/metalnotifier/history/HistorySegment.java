@@ -0,0 +1,142 @@
+package com.ing.interview.metalnotifier.history;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped segment file: a 32 byte header followed by fixed-width records of
+ * {@code timestamp millis (8) | scaled price (8) | metal id (4)}. Records are appended with
+ * non-decreasing timestamps, so a time range is found by binary search.
+ * <p>
+ * Only the store's writer thread appends. Readers see records up to {@link #count}, which is
+ * volatile and published after the record bytes.
+ */
+final class HistorySegment {
+
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 20;
+
+    private static final int MAGIC = 0x4D4E5048; // "MNPH"
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int PRICE_OFFSET = 8;
+    private static final int METAL_OFFSET = 16;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private volatile int count;
+
+    private HistorySegment(Path path, MappedByteBuffer buffer, int capacity, int count) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    static HistorySegment create(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putLong(COUNT_OFFSET, 0);
+            return new HistorySegment(path, buffer, capacity, 0);
+        }
+    }
+
+    /**
+     * Maps an existing segment; {@code writable} keeps it open for appends.
+     */
+    static HistorySegment open(Path path, boolean writable) throws IOException {
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated history segment " + path);
+            }
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Not a price history segment: " + path);
+            }
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            long count = buffer.getLong(COUNT_OFFSET);
+            if (capacity < 0 || count < 0 || count > capacity || HEADER_SIZE + (long) capacity * RECORD_SIZE > channel.size()) {
+                throw new IOException("Corrupt price history segment header: " + path);
+            }
+            return new HistorySegment(path, buffer, capacity, (int) count);
+        }
+    }
+
+    void append(long timestamp, long scaledPrice, int metalId) {
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putLong(offset, timestamp);
+        buffer.putLong(offset + PRICE_OFFSET, scaledPrice);
+        buffer.putInt(offset + METAL_OFFSET, metalId);
+        int next = count + 1;
+        // The header count is what survives a restart, so it is only advanced after the record.
+        buffer.putLong(COUNT_OFFSET, next);
+        count = next;
+    }
+
+    /**
+     * @return index of the first record with a timestamp of at least {@code timestamp}, {@code count} if none
+     */
+    int lowerBound(long timestamp, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    long timestampAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    long priceAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE + PRICE_OFFSET);
+    }
+
+    int metalAt(int index) {
+        return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + METAL_OFFSET);
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        // The mapping is released once the buffer is garbage collected; the file is gone already.
+        Files.deleteIfExists(path);
+    }
+}
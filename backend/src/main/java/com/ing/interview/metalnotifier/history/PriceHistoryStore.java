@@ -0,0 +1,237 @@
+package com.ing.interview.metalnotifier.history;
+
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.PricePoint;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of price ticks in memory-mapped segment files under one directory. Ticks of known
+ * metals are stamped with their arrival time (never earlier than the previous tick) and appended to the
+ * active segment; the segment is rolled when it is full or spans {@code segmentDuration}, and segments
+ * whose newest tick is older than {@code retention} are deleted when rolling.
+ * <p>
+ * Appends are serialised; queries run concurrently with them and only map-read the segments that overlap
+ * the requested range. Records reach the page cache on append and the disk when the OS flushes them or a
+ * segment is rolled, so a process crash loses nothing and a machine crash at most the unflushed tail.
+ */
+@Slf4j
+public class PriceHistoryStore implements AutoCloseable {
+
+    private static final String SUFFIX = ".seg";
+    private static final int MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - HistorySegment.HEADER_SIZE) / HistorySegment.RECORD_SIZE;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long segmentMillis;
+    private final long retentionMillis;
+    private final Clock clock;
+    private final LongAdder appended = new LongAdder();
+
+    /** Oldest first; replaced as a whole so queries can iterate a stable snapshot. */
+    private volatile List<HistorySegment> segments = List.of();
+    private HistorySegment active;
+    private long activeFirstTimestamp;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long nextSequence = 1;
+    private boolean closed;
+
+    private PriceHistoryStore(Path directory, int segmentRecords, Duration segmentDuration, Duration retention, Clock clock) {
+        this.directory = directory;
+        this.segmentRecords = Math.max(1, Math.min(segmentRecords, MAX_SEGMENT_RECORDS));
+        this.segmentMillis = segmentDuration.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.clock = clock;
+    }
+
+    public static PriceHistoryStore open(Path directory, int segmentRecords, Duration segmentDuration, Duration retention)
+            throws IOException {
+        return open(directory, segmentRecords, segmentDuration, retention, Clock.systemUTC());
+    }
+
+    static PriceHistoryStore open(Path directory, int segmentRecords, Duration segmentDuration, Duration retention,
+                                  Clock clock) throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(directory, segmentRecords, segmentDuration, retention, clock);
+        store.recover();
+        return store;
+    }
+
+    /**
+     * A store that keeps nothing, for when history is switched off.
+     */
+    public static PriceHistoryStore disabled() {
+        PriceHistoryStore store = new PriceHistoryStore(null, 1, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+        store.closed = true;
+        return store;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        List<HistorySegment> recovered = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean last = i == files.size() - 1;
+            try {
+                long sequence = sequenceOf(file);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                HistorySegment segment = HistorySegment.open(file, last);
+                if (segment.count() > 0) {
+                    recovered.add(segment);
+                    lastTimestamp = Math.max(lastTimestamp, segment.timestampAt(segment.count() - 1));
+                } else if (last) {
+                    recovered.add(segment);
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Skipping unreadable price history segment {}", file, e);
+            }
+        }
+        segments = List.copyOf(recovered);
+        if (!recovered.isEmpty()) {
+            HistorySegment newest = recovered.get(recovered.size() - 1);
+            if (!newest.isFull() && newest.path().equals(files.get(files.size() - 1))) {
+                active = newest;
+                activeFirstTimestamp = newest.count() > 0 ? newest.timestampAt(0) : clock.millis();
+            }
+        }
+        deleteExpired(clock.millis());
+        log.info("Price history in {}: {} segments", directory, segments.size());
+    }
+
+    public void record(MetalPrice metalPrice) {
+        record(List.of(metalPrice));
+    }
+
+    /**
+     * Appends the ticks of known metals; other item types are not kept.
+     */
+    public synchronized void record(List<MetalPrice> metalPrices) {
+        if (closed) {
+            return;
+        }
+        long now = clock.millis();
+        try {
+            for (MetalPrice metalPrice : metalPrices) {
+                Metal metal = Metal.fromCode(metalPrice.getItemType());
+                if (metal == null || metalPrice.getPrice() == null) {
+                    continue;
+                }
+                long timestamp = Math.max(now, lastTimestamp);
+                HistorySegment segment = activeSegment(timestamp);
+                segment.append(timestamp, PriceScale.toScaled(metalPrice.getPrice()), metal.getId());
+                lastTimestamp = timestamp;
+                appended.increment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to price history in " + directory, e);
+        }
+    }
+
+    private HistorySegment activeSegment(long timestamp) throws IOException {
+        if (active != null && !active.isFull() && (active.count() == 0 || timestamp - activeFirstTimestamp < segmentMillis)) {
+            return active;
+        }
+        if (active != null) {
+            active.force();
+        }
+        long sequence = nextSequence++;
+        HistorySegment next = HistorySegment.create(directory.resolve(String.format("%019d%s", sequence, SUFFIX)), segmentRecords);
+        List<HistorySegment> updated = new ArrayList<>(segments);
+        updated.add(next);
+        segments = List.copyOf(updated);
+        active = next;
+        activeFirstTimestamp = timestamp;
+        deleteExpired(timestamp);
+        return next;
+    }
+
+    private void deleteExpired(long now) throws IOException {
+        List<HistorySegment> kept = new ArrayList<>(segments.size());
+        for (HistorySegment segment : segments) {
+            int count = segment.count();
+            boolean expired = segment != active && (count == 0 || segment.timestampAt(count - 1) < now - retentionMillis);
+            if (expired) {
+                segment.delete();
+            } else {
+                kept.add(segment);
+            }
+        }
+        if (kept.size() != segments.size()) {
+            segments = List.copyOf(kept);
+        }
+    }
+
+    /**
+     * Ticks of {@code metal} with {@code from <= timestamp <= to}, oldest first, at most {@code limit} of them.
+     */
+    public List<PricePoint> query(Metal metal, Instant from, Instant to, int limit) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        int id = metal.getId();
+        List<PricePoint> points = new ArrayList<>();
+        for (HistorySegment segment : segments) {
+            int count = segment.count();
+            if (count == 0 || segment.timestampAt(0) > toMillis || segment.timestampAt(count - 1) < fromMillis) {
+                continue;
+            }
+            for (int i = segment.lowerBound(fromMillis, count); i < count; i++) {
+                long timestamp = segment.timestampAt(i);
+                if (timestamp > toMillis) {
+                    break;
+                }
+                if (segment.metalAt(i) == id) {
+                    if (points.size() >= limit) {
+                        return points;
+                    }
+                    points.add(new PricePoint(Instant.ofEpochMilli(timestamp), metal.getCode(),
+                            PriceScale.toBigDecimal(segment.priceAt(i))));
+                }
+            }
+        }
+        return points;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
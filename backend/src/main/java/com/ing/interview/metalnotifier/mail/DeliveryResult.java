@@ -0,0 +1,54 @@
+package com.ing.interview.metalnotifier.mail;
+
+/**
+ * Per-message outcome of {@link EmailSender#sendBatch}.
+ */
+public final class DeliveryResult {
+
+    private final boolean[] resolved;
+    private final RuntimeException[] errors;
+
+    public DeliveryResult(int size) {
+        this.resolved = new boolean[size];
+        this.errors = new RuntimeException[size];
+    }
+
+    public void sent(int index) {
+        resolved[index] = true;
+        errors[index] = null;
+    }
+
+    public void failed(int index, RuntimeException error) {
+        resolved[index] = true;
+        errors[index] = error;
+    }
+
+    public boolean isResolved(int index) {
+        return resolved[index];
+    }
+
+    public boolean isSent(int index) {
+        return resolved[index] && errors[index] == null;
+    }
+
+    /**
+     * @return why the message was not sent, {@code null} when it was
+     */
+    public RuntimeException getError(int index) {
+        return errors[index];
+    }
+
+    public int size() {
+        return resolved.length;
+    }
+
+    public int getSentCount() {
+        int sent = 0;
+        for (int i = 0; i < resolved.length; i++) {
+            if (isSent(i)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+}
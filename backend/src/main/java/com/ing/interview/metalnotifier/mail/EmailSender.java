@@ -0,0 +1,33 @@
+package com.ing.interview.metalnotifier.mail;
+
+import com.ing.interview.metalnotifier.model.EmailMessage;
+
+import java.util.List;
+
+/**
+ * Transport for rendered emails.
+ */
+public interface EmailSender {
+
+    /**
+     * @throws MailDeliveryException when the message was not accepted
+     */
+    void send(EmailMessage message);
+
+    /**
+     * Sends several messages, ideally over one connection. A rejected message does not stop the others;
+     * the outcome of every message is in the result, in the order of {@code messages}.
+     */
+    default DeliveryResult sendBatch(List<EmailMessage> messages) {
+        DeliveryResult result = new DeliveryResult(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                send(messages.get(i));
+                result.sent(i);
+            } catch (RuntimeException e) {
+                result.failed(i, e);
+            }
+        }
+        return result;
+    }
+}
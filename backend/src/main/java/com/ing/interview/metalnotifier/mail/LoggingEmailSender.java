@@ -0,0 +1,20 @@
+package com.ing.interview.metalnotifier.mail;
+
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Default sender: writes the email to the log instead of delivering it.
+ */
+@Slf4j
+public class LoggingEmailSender implements EmailSender {
+
+    @Override
+    public void send(EmailMessage message) {
+        log.info("Recipient: {}", message.getTo());
+        log.info("Title: {}", message.getSubject());
+        log.info("Content: {}", message.getBody());
+        log.info("Metal notification: {} : {}", message.getPrice(), message.getItemType());
+        log.info("-----------------------------------");
+    }
+}
@@ -0,0 +1,12 @@
+package com.ing.interview.metalnotifier.mail;
+
+public class MailDeliveryException extends RuntimeException {
+
+    public MailDeliveryException(String message) {
+        super(message);
+    }
+
+    public MailDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
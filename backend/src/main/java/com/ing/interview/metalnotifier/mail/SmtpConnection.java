@@ -0,0 +1,380 @@
+package com.ing.interview.metalnotifier.mail;
+
+import com.ing.interview.metalnotifier.config.MailProperties;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One SMTP session. When the server advertises PIPELINING (RFC 2920) the envelope of a message is
+ * written in one go and the next envelope travels together with the previous message body, so a message
+ * costs one round trip instead of five; otherwise every command waits for its reply.
+ * <p>
+ * Bodies are sent base64-encoded as UTF-8 text, which also means they never need dot-stuffing.
+ */
+final class SmtpConnection implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] END_OF_DATA = ".\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RSET = "RSET\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int ENCODED_WORD_BYTES = 45;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final String from;
+    private final String domain;
+    private final StringBuilder line = new StringBuilder(128);
+    private boolean pipelining;
+    private String lastReply = "";
+    private int messageCount;
+    private long lastUsedNanos;
+
+    private SmtpConnection(Socket socket, String from, String domain) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        this.from = from;
+        this.domain = domain;
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    static SmtpConnection open(MailProperties.Smtp properties) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) properties.getReadTimeout().toMillis());
+            socket.connect(new InetSocketAddress(properties.getHost(), properties.getPort()),
+                    (int) properties.getConnectTimeout().toMillis());
+            String helo = properties.getHeloName() == null || properties.getHeloName().isBlank()
+                    ? InetAddress.getLocalHost().getHostName()
+                    : properties.getHeloName();
+            SmtpConnection connection = new SmtpConnection(socket, properties.getFrom(), helo);
+            connection.handshake(helo, properties.getUsername(), properties.getPassword());
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void handshake(String helo, String username, String password) throws IOException {
+        expect(readReply(), 220, "greeting");
+        writeCommand("EHLO " + helo);
+        out.flush();
+        List<String> capabilities = new ArrayList<>();
+        expect(readReply(capabilities), 250, "EHLO");
+        pipelining = capabilities.stream().anyMatch(capability -> capability.equalsIgnoreCase("PIPELINING"));
+        if (username != null && !username.isEmpty()) {
+            String credentials = "\0" + username + "\0" + (password == null ? "" : password);
+            writeCommand("AUTH PLAIN " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+            out.flush();
+            expect(readReply(), 235, "AUTH");
+        }
+    }
+
+    /**
+     * Sends {@code messages[from, to)} and records the outcome of each in {@code result} under its index.
+     * Rejections are recorded and the session goes on; an {@link IOException} means the connection is
+     * broken and the messages without a recorded outcome were not confirmed.
+     */
+    void send(List<EmailMessage> messages, int from, int to, DeliveryResult result) throws IOException {
+        int[] valid = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            EmailMessage message = messages.get(i);
+            if (isValidAddress(message.getTo())) {
+                valid[count++] = i;
+            } else {
+                result.failed(i, new MailDeliveryException("Invalid recipient address: " + message.getTo()));
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        if (pipelining) {
+            sendPipelined(messages, valid, count, result);
+        } else {
+            for (int i = 0; i < count; i++) {
+                sendSequential(messages.get(valid[i]), valid[i], result);
+            }
+        }
+        lastUsedNanos = System.nanoTime();
+    }
+
+    private void sendPipelined(List<EmailMessage> messages, int[] indices, int count, DeliveryResult result) throws IOException {
+        writeEnvelope(messages.get(indices[0]));
+        out.flush();
+        for (int i = 0; i < count; i++) {
+            EmailMessage message = messages.get(indices[i]);
+            int mail = readReply();
+            String rejection = mail == 250 ? null : lastReply;
+            int rcpt = readReply();
+            if (rejection == null && rcpt != 250 && rcpt != 251) {
+                rejection = lastReply;
+            }
+            int data = readReply();
+            if (rejection == null && data != 354) {
+                rejection = lastReply;
+            }
+            if (data == 354) {
+                // DATA was accepted even though the envelope was not: end it with an empty body.
+                if (rejection == null) {
+                    writeContent(message);
+                }
+                out.write(END_OF_DATA);
+            }
+            boolean reset = rejection != null;
+            if (reset) {
+                out.write(RSET);
+            }
+            if (i + 1 < count) {
+                writeEnvelope(messages.get(indices[i + 1]));
+            }
+            out.flush();
+
+            if (data == 354) {
+                int end = readReply();
+                if (rejection == null && end != 250) {
+                    rejection = lastReply;
+                }
+            }
+            if (reset) {
+                readReply();
+            }
+            messageCount++;
+            if (rejection != null) {
+                result.failed(indices[i], new MailDeliveryException("Rejected by SMTP server: " + rejection));
+            } else {
+                result.sent(indices[i]);
+            }
+        }
+    }
+
+    private void sendSequential(EmailMessage message, int index, DeliveryResult result) throws IOException {
+        String rejection = command("MAIL FROM:<" + from + ">", 250, 250);
+        if (rejection == null) {
+            rejection = command("RCPT TO:<" + message.getTo() + ">", 250, 251);
+        }
+        if (rejection == null) {
+            rejection = command("DATA", 354, 354);
+            if (rejection == null) {
+                writeContent(message);
+                out.write(END_OF_DATA);
+                out.flush();
+                if (readReply() != 250) {
+                    rejection = lastReply;
+                }
+            }
+        }
+        messageCount++;
+        if (rejection != null) {
+            command("RSET", 250, 250);
+            result.failed(index, new MailDeliveryException("Rejected by SMTP server: " + rejection));
+        } else {
+            result.sent(index);
+        }
+    }
+
+    private String command(String command, int accepted, int alsoAccepted) throws IOException {
+        writeCommand(command);
+        out.flush();
+        int code = readReply();
+        return code == accepted || code == alsoAccepted ? null : lastReply;
+    }
+
+    private void writeEnvelope(EmailMessage message) throws IOException {
+        writeCommand("MAIL FROM:<" + from + ">");
+        writeCommand("RCPT TO:<" + message.getTo() + ">");
+        writeCommand("DATA");
+    }
+
+    private void writeContent(EmailMessage message) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(256 + (message.getBody() == null ? 0 : message.getBody().length() * 2));
+        header(content, "From", "<" + from + ">");
+        header(content, "To", "<" + message.getTo() + ">");
+        header(content, "Subject", encodeHeader(message.getSubject() == null ? "" : message.getSubject()));
+        header(content, "Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now()));
+        header(content, "Message-ID", "<" + UUID.randomUUID() + "@" + domain + ">");
+        header(content, "MIME-Version", "1.0");
+        header(content, "Content-Type", "text/plain; charset=UTF-8");
+        header(content, "Content-Transfer-Encoding", "base64");
+        content.write(CRLF);
+        byte[] body = (message.getBody() == null ? "" : message.getBody()).getBytes(StandardCharsets.UTF_8);
+        if (body.length > 0) {
+            content.write(Base64.getMimeEncoder().encode(body));
+            content.write(CRLF);
+        }
+        content.writeTo(out);
+    }
+
+    private static void header(ByteArrayOutputStream content, String name, String value) {
+        content.writeBytes((name + ": " + value).getBytes(StandardCharsets.US_ASCII));
+        content.writeBytes(CRLF);
+    }
+
+    /**
+     * Printable ASCII is sent as is; anything else as RFC 2047 encoded words, split on character
+     * boundaries so that no word exceeds the line limit.
+     */
+    static String encodeHeader(String value) {
+        boolean plain = true;
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            plain = c >= 0x20 && c < 0x7f;
+        }
+        if (plain) {
+            return value;
+        }
+        StringBuilder encoded = new StringBuilder();
+        int start = 0;
+        int bytes = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (bytes + length > ENCODED_WORD_BYTES) {
+                appendEncodedWord(encoded, value.substring(start, i));
+                start = i;
+                bytes = 0;
+            }
+            bytes += length;
+            i += Character.charCount(codePoint);
+        }
+        appendEncodedWord(encoded, value.substring(start));
+        return encoded.toString();
+    }
+
+    private static void appendEncodedWord(StringBuilder encoded, String chunk) {
+        if (encoded.length() > 0) {
+            encoded.append("\r\n ");
+        }
+        encoded.append("=?UTF-8?B?")
+                .append(Base64.getEncoder().encodeToString(chunk.getBytes(StandardCharsets.UTF_8)))
+                .append("?=");
+    }
+
+    private static boolean isValidAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c <= 0x20 || c >= 0x7f || c == '<' || c == '>') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeCommand(String command) throws IOException {
+        out.write(command.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    private int readReply() throws IOException {
+        return readReply(null);
+    }
+
+    /**
+     * Reads a possibly multi-line reply; the text after the code of every line but the first goes to
+     * {@code extraLines} when given.
+     */
+    private int readReply(List<String> extraLines) throws IOException {
+        boolean first = true;
+        while (true) {
+            String reply = readLine();
+            if (reply.length() < 3) {
+                throw new IOException("Malformed SMTP reply: " + reply);
+            }
+            if (!first && extraLines != null) {
+                extraLines.add(reply.length() > 4 ? reply.substring(4).trim() : "");
+            }
+            first = false;
+            if (reply.length() == 3 || reply.charAt(3) != '-') {
+                lastReply = reply;
+                try {
+                    return Integer.parseInt(reply, 0, 3, 10);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed SMTP reply: " + reply, e);
+                }
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        throw new IOException("SMTP server closed the connection");
+    }
+
+    private void expect(int code, int expected, String step) throws IOException {
+        if (code != expected) {
+            throw new IOException("Unexpected SMTP reply to " + step + ": " + lastReply);
+        }
+    }
+
+    /**
+     * @return messages attempted over this session, accepted or not
+     */
+    int getMessageCount() {
+        return messageCount;
+    }
+
+    boolean isIdleLongerThan(long nanos) {
+        return System.nanoTime() - lastUsedNanos > nanos;
+    }
+
+    boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * Ends the session politely; failures are ignored because the connection is discarded anyway.
+     */
+    void quit() {
+        try {
+            writeCommand("QUIT");
+            out.flush();
+            readReply();
+        } catch (IOException ignored) {
+            // already broken
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ing.interview.metalnotifier.mail;
+
+import com.ing.interview.metalnotifier.config.MailProperties;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers emails to an SMTP relay over a pool of at most {@code poolSize} persistent connections.
+ * A batch is sent over one borrowed connection, pipelined when the server allows it; a connection is
+ * retired after {@code maxMessagesPerConnection} messages and re-opened when it sat idle for longer
+ * than {@code idleTimeout}, since servers drop idle sessions.
+ * <p>
+ * Only plain SMTP with optional {@code AUTH PLAIN} is spoken, so point it at a local or trusted relay.
+ */
+@Slf4j
+public class SmtpEmailSender implements EmailSender, AutoCloseable {
+
+    private final MailProperties.Smtp properties;
+    private final BlockingDeque<SmtpConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger open = new AtomicInteger();
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutNanos;
+    private volatile boolean closed;
+
+    public SmtpEmailSender(MailProperties.Smtp properties) {
+        this.properties = properties;
+        this.permits = new Semaphore(Math.max(1, properties.getPoolSize()), true);
+        this.maxMessagesPerConnection = Math.max(1, properties.getMaxMessagesPerConnection());
+        this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+    }
+
+    @Override
+    public void send(EmailMessage message) {
+        DeliveryResult result = sendBatch(List.of(message));
+        if (!result.isSent(0)) {
+            throw result.getError(0);
+        }
+    }
+
+    @Override
+    public DeliveryResult sendBatch(List<EmailMessage> messages) {
+        DeliveryResult result = new DeliveryResult(messages.size());
+        int next = 0;
+        boolean retriedStale = false;
+        while (next < messages.size()) {
+            SmtpConnection connection;
+            try {
+                connection = borrow();
+            } catch (MailDeliveryException e) {
+                for (int i = next; i < messages.size(); i++) {
+                    result.failed(i, e);
+                }
+                break;
+            }
+            boolean reused = connection.getMessageCount() > 0;
+            int end = Math.min(messages.size(), next + maxMessagesPerConnection - connection.getMessageCount());
+            try {
+                connection.send(messages, next, end, result);
+                release(connection, true);
+                next = end;
+            } catch (IOException e) {
+                release(connection, false);
+                int broken = next;
+                while (broken < end && result.isResolved(broken)) {
+                    broken++;
+                }
+                if (reused && broken == next && !retriedStale) {
+                    // The server most likely dropped a pooled session; the other idle ones are suspect too.
+                    log.debug("Pooled SMTP connection broken, reconnecting", e);
+                    closeIdle();
+                    retriedStale = true;
+                    continue;
+                }
+                // The message in flight may or may not have been delivered; report it as failed.
+                if (broken < end) {
+                    result.failed(broken, new MailDeliveryException("SMTP connection broken", e));
+                    broken++;
+                }
+                next = broken;
+            }
+        }
+        return result;
+    }
+
+    private SmtpConnection borrow() {
+        if (closed) {
+            throw new MailDeliveryException("SMTP sender is closed");
+        }
+        try {
+            if (!permits.tryAcquire(properties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MailDeliveryException("No SMTP connection available within " + properties.getBorrowTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailDeliveryException("Interrupted while waiting for an SMTP connection", e);
+        }
+        SmtpConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (!connection.isIdleLongerThan(idleTimeoutNanos)) {
+                return connection;
+            }
+            retire(connection);
+        }
+        try {
+            connection = SmtpConnection.open(properties);
+            open.incrementAndGet();
+            log.debug("Opened SMTP connection to {}:{} (pipelining: {})", properties.getHost(), properties.getPort(),
+                    connection.isPipelining());
+            return connection;
+        } catch (IOException e) {
+            permits.release();
+            throw new MailDeliveryException("Cannot connect to SMTP server " + properties.getHost() + ":" + properties.getPort(), e);
+        }
+    }
+
+    private void release(SmtpConnection connection, boolean healthy) {
+        if (!healthy) {
+            connection.close();
+            open.decrementAndGet();
+        } else if (closed || connection.getMessageCount() >= maxMessagesPerConnection) {
+            retire(connection);
+        } else {
+            // Most recently used first, so surplus connections age out under light load.
+            idle.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    private void retire(SmtpConnection connection) {
+        connection.quit();
+        open.decrementAndGet();
+    }
+
+    private void closeIdle() {
+        SmtpConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+            open.decrementAndGet();
+        }
+    }
+
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        SmtpConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            retire(connection);
+        }
+    }
+}
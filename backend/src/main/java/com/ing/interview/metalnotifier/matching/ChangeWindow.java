@@ -0,0 +1,62 @@
+package com.ing.interview.metalnotifier.matching;
+
+import java.util.Arrays;
+
+/**
+ * Price at the start of a time window. The window is split into {@link #BUCKETS} buckets that remember
+ * only the first price seen in them, so memory is fixed whatever the tick rate, and the reference price
+ * is the opening price of the oldest bucket still inside the window: up to one bucket (1/60 of the
+ * window) younger than the exact window start.
+ */
+final class ChangeWindow implements WindowAggregate {
+
+    static final int BUCKETS = 60;
+
+    private final long bucketMillis;
+    private final long[] bucketIds = new long[BUCKETS];
+    private final long[] openingPrices = new long[BUCKETS];
+    private long oldest = Long.MIN_VALUE;
+
+    ChangeWindow(long windowMillis) {
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return the reference price of the window, the tick's own price when it is the first in the window
+     */
+    @Override
+    public long advance(long timestamp, long scaled) {
+        long bucket = Math.floorDiv(timestamp, bucketMillis);
+        int slot = slot(bucket);
+        if (bucketIds[slot] != bucket) {
+            bucketIds[slot] = bucket;
+            openingPrices[slot] = scaled;
+        }
+        // The oldest bucket only moves forward, so the skipped empty buckets are paid for once.
+        long first = Math.max(oldest, bucket - BUCKETS + 1);
+        while (bucketIds[slot(first)] != first) {
+            first++;
+        }
+        oldest = first;
+        return openingPrices[slot(first)];
+    }
+
+    @Override
+    public long[] checkpoint(long timestamp) {
+        int slot = slot(Math.floorDiv(timestamp, bucketMillis));
+        return new long[]{slot, bucketIds[slot], openingPrices[slot], oldest};
+    }
+
+    @Override
+    public void rollback(long[] checkpoint) {
+        int slot = (int) checkpoint[0];
+        bucketIds[slot] = checkpoint[1];
+        openingPrices[slot] = checkpoint[2];
+        oldest = checkpoint[3];
+    }
+
+    private static int slot(long bucket) {
+        return (int) Math.floorMod(bucket, BUCKETS);
+    }
+}
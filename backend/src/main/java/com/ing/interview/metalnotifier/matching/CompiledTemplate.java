@@ -0,0 +1,205 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rules of a single template reduced to the set of metals it accepts and one inclusive interval of
+ * scaled prices. Because all rules of a template are AND-ed, every item rule narrows the metal set
+ * and every price rule narrows the interval. Window rules and rule groups cannot be folded and are
+ * kept as a residual {@link RuleProgram}, run only for ticks that pass the metal set and the interval.
+ * Each group still narrows both by its envelope: the metals and the interval hull it can possibly
+ * accept, so an OR over a few metals is not evaluated for the others.
+ */
+final class CompiledTemplate {
+
+    private final NotificationTemplate template;
+    private final EnumSet<Metal> metals = EnumSet.allOf(Metal.class);
+    private long lower = Long.MIN_VALUE;
+    private long upper = Long.MAX_VALUE;
+    private final List<RulePredicate> windowRules = new ArrayList<>();
+    private final List<RuleGroup> groups = new ArrayList<>();
+    private final Set<WindowSpec> windows = new HashSet<>();
+    private RuleProgram residual;
+
+    private CompiledTemplate(NotificationTemplate template) {
+        this.template = template;
+    }
+
+    static CompiledTemplate compile(NotificationTemplate template) {
+        CompiledTemplate compiled = new CompiledTemplate(template);
+        List<Rule> rules = template.getRules() == null ? List.of() : template.getRules();
+        List<RuleGroup> groups = template.getRuleGroups() == null ? List.of() : template.getRuleGroups();
+        if (rules.isEmpty() && groups.isEmpty()) {
+            compiled.metals.clear();
+            return compiled;
+        }
+        for (Rule rule : rules) {
+            compiled.apply(rule.getPredicate());
+        }
+        for (RuleGroup group : groups) {
+            Envelope envelope = Envelope.of(group);
+            compiled.metals.retainAll(envelope.metals);
+            compiled.lower = Math.max(compiled.lower, envelope.lower);
+            compiled.upper = Math.min(compiled.upper, envelope.upper);
+            compiled.groups.add(group);
+        }
+        if (compiled.lower > compiled.upper) {
+            compiled.metals.clear();
+        }
+        return compiled;
+    }
+
+    private void apply(RulePredicate predicate) {
+        if (predicate.isWindowRule()) {
+            windowRules.add(predicate);
+        } else if (predicate.isPriceRule()) {
+            lower = Math.max(lower, predicate.getLower());
+            upper = Math.min(upper, predicate.getUpper());
+        } else if (predicate.getOperator() == Operator.ITEM_IS) {
+            metals.removeIf(metal -> metal != predicate.getMetal());
+        } else if (predicate.getMetal() != null) {
+            metals.remove(predicate.getMetal());
+        }
+    }
+
+    /**
+     * Compiles the residual program once the index knows where window values go. Called once, before the
+     * template is handed to an index; indexes share compiled templates afterwards.
+     */
+    void compileResidual(ToIntFunction<WindowSpec> windowSlot) {
+        if (!windowRules.isEmpty() || !groups.isEmpty()) {
+            residual = RuleProgram.compile(windowRules, groups, window -> {
+                windows.add(window);
+                return windowSlot.applyAsInt(window);
+            });
+        }
+    }
+
+    /**
+     * Windows the residual program reads.
+     */
+    Set<WindowSpec> getWindows() {
+        return windows;
+    }
+
+    NotificationTemplate getTemplate() {
+        return template;
+    }
+
+    boolean accepts(Metal metal) {
+        return metals.contains(metal);
+    }
+
+    /**
+     * Window rules and groups left to evaluate per tick, {@code null} when the metal set and the interval
+     * decide alone.
+     */
+    RuleProgram getResidual() {
+        return residual;
+    }
+
+    boolean hasLower() {
+        return lower != Long.MIN_VALUE;
+    }
+
+    boolean hasUpper() {
+        return upper != Long.MAX_VALUE;
+    }
+
+    long getLower() {
+        return lower;
+    }
+
+    long getUpper() {
+        return upper;
+    }
+
+    /**
+     * Over-approximation of what a group accepts: AND intersects the envelopes of its children, OR
+     * unites them (the interval becomes their hull), and NOT or a window rule can accept anything.
+     */
+    private static final class Envelope {
+
+        private final EnumSet<Metal> metals;
+        private long lower;
+        private long upper;
+
+        private Envelope(EnumSet<Metal> metals, long lower, long upper) {
+            this.metals = metals;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        static Envelope all() {
+            return new Envelope(EnumSet.allOf(Metal.class), Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        static Envelope none() {
+            return new Envelope(EnumSet.noneOf(Metal.class), Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+
+        static Envelope of(RuleGroup group) {
+            List<Rule> rules = group.getRules() == null ? List.of() : group.getRules();
+            List<RuleGroup> groups = group.getGroups() == null ? List.of() : group.getGroups();
+            return switch (group.getOperator()) {
+                case NOT -> all();
+                case OR -> {
+                    Envelope union = none();
+                    rules.forEach(rule -> union.unite(of(rule.getPredicate())));
+                    groups.forEach(child -> union.unite(of(child)));
+                    yield union;
+                }
+                default -> {
+                    Envelope intersection = all();
+                    rules.forEach(rule -> intersection.intersect(of(rule.getPredicate())));
+                    groups.forEach(child -> intersection.intersect(of(child)));
+                    yield intersection;
+                }
+            };
+        }
+
+        static Envelope of(RulePredicate predicate) {
+            if (predicate.isWindowRule()) {
+                return all();
+            }
+            if (predicate.isPriceRule()) {
+                return predicate.getLower() > predicate.getUpper()
+                        ? none()
+                        : new Envelope(EnumSet.allOf(Metal.class), predicate.getLower(), predicate.getUpper());
+            }
+            Envelope envelope = all();
+            if (predicate.getOperator() == Operator.ITEM_IS) {
+                envelope.metals.removeIf(metal -> metal != predicate.getMetal());
+            } else if (predicate.getMetal() != null) {
+                envelope.metals.remove(predicate.getMetal());
+            }
+            return envelope;
+        }
+
+        void intersect(Envelope other) {
+            metals.retainAll(other.metals);
+            lower = Math.max(lower, other.lower);
+            upper = Math.min(upper, other.upper);
+        }
+
+        void unite(Envelope other) {
+            if (other.metals.isEmpty() || other.lower > other.upper) {
+                return;
+            }
+            metals.addAll(other.metals);
+            lower = Math.min(lower, other.lower);
+            upper = Math.max(upper, other.upper);
+        }
+    }
+}
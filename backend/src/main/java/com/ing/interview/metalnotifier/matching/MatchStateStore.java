@@ -0,0 +1,203 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.model.Metal;
+
+/**
+ * Last match state of edge-triggered templates, one bit per template and metal.
+ * <p>
+ * Every metal has its own bitset indexed by the dense {@link TemplateSlots} of the index, so the store holds
+ * no object per template and 100k templates cost about 12 KB per metal, however large their ids are. A tick
+ * only clears the words set by the previous tick. Updates for one metal are serialized, which keeps
+ * concurrent ticks of the same metal from both observing the same rising edge. State is keyed by id only,
+ * so replacing a template's content keeps its state and does not re-fire: when a tick brings slots of a newer
+ * generation, the bits are moved to the new slots of their ids, and dropped for ids that no longer have one.
+ * <p>
+ * An advance can be taken back through a {@link TickRollback} as long as the metal's state has not changed
+ * since; every advance and every {@link #forget} moves the metal's version on.
+ */
+public final class MatchStateStore {
+
+    private final MetalState[] states = new MetalState[Metal.values().length];
+    private final Object[] locks = new Object[Metal.values().length];
+    private final long[] versions = new long[Metal.values().length];
+
+    public MatchStateStore() {
+        for (int i = 0; i < locks.length; i++) {
+            states[i] = new MetalState(TemplateSlots.empty());
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Replaces the state of {@code metal} with the given matched template ids.
+     *
+     * @param slots      slots of the index the templates were matched with
+     * @param matchedIds ids of the edge-triggered templates matched by the tick, each at most once
+     * @return for every entry of {@code matchedIds}, whether it did not match on the previous tick
+     */
+    public boolean[] advance(Metal metal, TemplateSlots slots, long[] matchedIds) {
+        return advance(metal, slots, matchedIds, null);
+    }
+
+    /**
+     * Like {@link #advance(Metal, TemplateSlots, long[])}, adding a step to {@code rollback} that restores the
+     * previous state.
+     */
+    public boolean[] advance(Metal metal, TemplateSlots slots, long[] matchedIds, TickRollback rollback) {
+        boolean[] rising = new boolean[matchedIds.length];
+        int[] matchedSlots = new int[matchedIds.length];
+        int slot = metal.ordinal();
+        synchronized (locks[slot]) {
+            MetalState previous = states[slot];
+            // A tick matched with an older index keeps the newer slots; its ids are looked up in them.
+            MetalState state = previous.slots.getGeneration() < slots.getGeneration() ? previous.remap(slots) : previous;
+            for (int i = 0; i < matchedIds.length; i++) {
+                matchedSlots[i] = state.slots.slotOf(matchedIds[i]);
+                rising[i] = matchedSlots[i] < 0 || !state.get(matchedSlots[i]);
+            }
+            if (rollback != null) {
+                long previousVersion = versions[slot];
+                long version = previousVersion + 1;
+                // A remapped state is a new one, the previous state is left as it was.
+                long[] checkpoint = state == previous ? previous.checkpoint() : null;
+                rollback.add(() -> restore(slot, previous, checkpoint, previousVersion, version));
+            }
+            state.clear();
+            for (int matchedSlot : matchedSlots) {
+                if (matchedSlot >= 0) {
+                    state.set(matchedSlot);
+                }
+            }
+            states[slot] = state;
+            versions[slot]++;
+        }
+        return rising;
+    }
+
+    private void restore(int slot, MetalState previous, long[] checkpoint, long previousVersion, long version) {
+        synchronized (locks[slot]) {
+            if (versions[slot] == version) {
+                if (checkpoint != null) {
+                    previous.rollback(checkpoint);
+                }
+                states[slot] = previous;
+                versions[slot] = previousVersion;
+            }
+        }
+    }
+
+    public boolean isMatched(long templateId, Metal metal) {
+        int slot = metal.ordinal();
+        synchronized (locks[slot]) {
+            MetalState state = states[slot];
+            int templateSlot = state.slots.slotOf(templateId);
+            return templateSlot >= 0 && state.get(templateSlot);
+        }
+    }
+
+    public void forget(long templateId) {
+        for (int slot = 0; slot < locks.length; slot++) {
+            synchronized (locks[slot]) {
+                MetalState state = states[slot];
+                int templateSlot = state.slots.slotOf(templateId);
+                if (templateSlot >= 0) {
+                    state.unset(templateSlot);
+                }
+                versions[slot]++;
+            }
+        }
+    }
+
+    /**
+     * The bitset of one metal, with the indexes of its non-zero words.
+     */
+    private static final class MetalState {
+
+        private final TemplateSlots slots;
+        private final long[] words;
+        private final int[] used;
+        private int usedCount;
+
+        MetalState(TemplateSlots slots) {
+            this.slots = slots;
+            this.words = new long[(slots.size() + 63) >>> 6];
+            this.used = new int[words.length];
+        }
+
+        boolean get(int slot) {
+            return (words[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        void set(int slot) {
+            int word = slot >>> 6;
+            if (words[word] == 0) {
+                used[usedCount++] = word;
+            }
+            words[word] |= 1L << slot;
+        }
+
+        void unset(int slot) {
+            int word = slot >>> 6;
+            if (words[word] == 0) {
+                return;
+            }
+            words[word] &= ~(1L << slot);
+            if (words[word] == 0) {
+                for (int i = 0; i < usedCount; i++) {
+                    if (used[i] == word) {
+                        used[i] = used[--usedCount];
+                        break;
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < usedCount; i++) {
+                words[used[i]] = 0;
+            }
+            usedCount = 0;
+        }
+
+        /**
+         * @return the non-zero words as index, value pairs
+         */
+        long[] checkpoint() {
+            long[] checkpoint = new long[usedCount * 2];
+            for (int i = 0; i < usedCount; i++) {
+                checkpoint[2 * i] = used[i];
+                checkpoint[2 * i + 1] = words[used[i]];
+            }
+            return checkpoint;
+        }
+
+        void rollback(long[] checkpoint) {
+            clear();
+            for (int i = 0; i < checkpoint.length; i += 2) {
+                int word = (int) checkpoint[i];
+                words[word] = checkpoint[i + 1];
+                used[usedCount++] = word;
+            }
+        }
+
+        /**
+         * This state on {@code next}, the bits of ids without a slot there are dropped.
+         */
+        MetalState remap(TemplateSlots next) {
+            MetalState remapped = new MetalState(next);
+            for (int i = 0; i < usedCount; i++) {
+                int word = used[i];
+                long bits = words[word];
+                while (bits != 0) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int nextSlot = next.slotOf(slots.idAt(slot));
+                    if (nextSlot >= 0) {
+                        remapped.set(nextSlot);
+                    }
+                }
+            }
+            return remapped;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ing.interview.metalnotifier.matching;
+
+/**
+ * Simple moving average over the last {@code ticks} prices, kept as a ring buffer and a running sum.
+ * Reports whether the tick crossed the average: the previous price was on or below (above) the previous
+ * average and the new price is above (below) the new one. Nothing is reported until the window is full.
+ * Comparisons are done on {@code price * ticks} against the sum, so they are exact.
+ */
+final class MovingAverage implements WindowAggregate {
+
+    static final long CROSSED_ABOVE = 1;
+    static final long CROSSED_BELOW = 2;
+
+    private final long[] prices;
+    private int next;
+    private int count;
+    private long sum;
+    private long lastPrice;
+
+    MovingAverage(int ticks) {
+        this.prices = new long[ticks];
+    }
+
+    @Override
+    public long advance(long timestamp, long scaled) {
+        int ticks = prices.length;
+        boolean full = count == ticks;
+        long previousSum = sum;
+        long previousPrice = lastPrice;
+        if (full) {
+            sum -= prices[next];
+        } else {
+            count++;
+        }
+        prices[next] = scaled;
+        sum += scaled;
+        next = next + 1 == ticks ? 0 : next + 1;
+        lastPrice = scaled;
+        if (!full) {
+            return 0;
+        }
+
+        long crossed = 0;
+        if (previousPrice * ticks <= previousSum && scaled * ticks > sum) {
+            crossed |= CROSSED_ABOVE;
+        }
+        if (previousPrice * ticks >= previousSum && scaled * ticks < sum) {
+            crossed |= CROSSED_BELOW;
+        }
+        return crossed;
+    }
+
+    @Override
+    public long[] checkpoint(long timestamp) {
+        return new long[]{next, prices[next], count, sum, lastPrice};
+    }
+
+    @Override
+    public void rollback(long[] checkpoint) {
+        next = (int) checkpoint[0];
+        prices[next] = checkpoint[1];
+        count = (int) checkpoint[2];
+        sum = checkpoint[3];
+        lastPrice = checkpoint[4];
+    }
+}
@@ -0,0 +1,57 @@
+package com.ing.interview.metalnotifier.matching;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point representation of prices used on the matching path: a price is stored as a long
+ * number of hundredths, which is exact for every price accepted by {@code MetalPrice} validation.
+ */
+public final class PriceScale {
+
+    public static final int FRACTION_DIGITS = 2;
+
+    /** Digits of a price that can be scaled without overflowing a long. */
+    private static final int MAX_EXACT_PRECISION = 16;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100};
+
+    private PriceScale() {
+    }
+
+    public static long toScaled(BigDecimal price) {
+        int scale = price.scale();
+        if (scale >= 0 && scale <= FRACTION_DIGITS && price.precision() <= MAX_EXACT_PRECISION) {
+            // Every validated tick: no rounding, no intermediate BigDecimal, and for compact values at most
+            // the unscaled BigInteger, which usually does not escape.
+            return price.unscaledValue().longValueExact() * POWERS_OF_TEN[FRACTION_DIGITS - scale];
+        }
+        return clamp(price.setScale(FRACTION_DIGITS, RoundingMode.HALF_UP));
+    }
+
+    public static BigDecimal toBigDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, FRACTION_DIGITS);
+    }
+
+    static long floor(BigDecimal value) {
+        return clamp(value.setScale(FRACTION_DIGITS, RoundingMode.FLOOR));
+    }
+
+    static long ceil(BigDecimal value) {
+        return clamp(value.setScale(FRACTION_DIGITS, RoundingMode.CEILING));
+    }
+
+    static boolean isExact(BigDecimal value) {
+        return value.stripTrailingZeros().scale() <= FRACTION_DIGITS;
+    }
+
+    private static long clamp(BigDecimal scaled) {
+        BigDecimal unscaled = scaled.movePointRight(FRACTION_DIGITS);
+        if (unscaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (unscaled.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return unscaled.longValue();
+    }
+}
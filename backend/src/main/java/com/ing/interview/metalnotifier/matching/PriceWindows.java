@@ -0,0 +1,109 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.model.Metal;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling aggregates of every metal for the windows used by the current {@link TemplateIndex}.
+ * <p>
+ * Each tick advances the aggregates of its metal once, in constant time per window, before the index
+ * evaluates window rules against the returned values; history is never re-scanned. An aggregate is
+ * created when a window first appears in the index, so it warms up from that tick on, and dropped once
+ * no template uses it. Ticks of one metal are serialized, the same way as {@link MatchStateStore}, and
+ * can be taken back the same way through a {@link TickRollback}.
+ */
+public final class PriceWindows {
+
+    private static final long[] NO_VALUES = new long[0];
+
+    private final Clock clock;
+    private final Map<WindowSpec, WindowAggregate>[] aggregates;
+    private final long[] lastTimestamps = new long[Metal.values().length];
+    private final long[] versions = new long[Metal.values().length];
+
+    public PriceWindows() {
+        this(Clock.systemUTC());
+    }
+
+    @SuppressWarnings("unchecked")
+    PriceWindows(Clock clock) {
+        this.clock = clock;
+        this.aggregates = new Map[Metal.values().length];
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregates[i] = new HashMap<>();
+        }
+    }
+
+    /**
+     * @param metal   metal of the tick, {@code null} when the item type is not a known metal
+     * @param scaled  tick price in {@link PriceScale} units
+     * @param windows {@link TemplateIndex#getWindows()} of the index the tick is matched against
+     * @return the value of every window for this tick, in the order of {@code windows}
+     */
+    public long[] advance(Metal metal, long scaled, List<WindowSpec> windows) {
+        return advance(metal, scaled, windows, null);
+    }
+
+    /**
+     * Like {@link #advance(Metal, long, List)}, adding a step to {@code rollback} that reverts the aggregates.
+     * Aggregates dropped because no template uses them any more stay dropped.
+     */
+    public long[] advance(Metal metal, long scaled, List<WindowSpec> windows, TickRollback rollback) {
+        if (metal == null || windows.isEmpty()) {
+            return NO_VALUES;
+        }
+        long[] values = new long[windows.size()];
+        int slot = metal.ordinal();
+        Map<WindowSpec, WindowAggregate> metalAggregates = aggregates[slot];
+        synchronized (metalAggregates) {
+            long previousTimestamp = lastTimestamps[slot];
+            long timestamp = Math.max(clock.millis(), previousTimestamp);
+            lastTimestamps[slot] = timestamp;
+            WindowAggregate[] advanced = rollback == null ? null : new WindowAggregate[values.length];
+            long[][] checkpoints = rollback == null ? null : new long[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                WindowAggregate aggregate = metalAggregates.computeIfAbsent(windows.get(i), WindowSpec::newAggregate);
+                if (rollback != null) {
+                    advanced[i] = aggregate;
+                    checkpoints[i] = aggregate.checkpoint(timestamp);
+                }
+                values[i] = aggregate.advance(timestamp, scaled);
+            }
+            if (metalAggregates.size() > values.length) {
+                metalAggregates.keySet().retainAll(windows);
+            }
+            if (rollback != null) {
+                long previousVersion = versions[slot];
+                long version = previousVersion + 1;
+                rollback.add(() -> restore(slot, advanced, checkpoints, previousTimestamp, previousVersion, version));
+            }
+            versions[slot]++;
+        }
+        return values;
+    }
+
+    private void restore(int slot, WindowAggregate[] advanced, long[][] checkpoints, long previousTimestamp,
+                         long previousVersion, long version) {
+        synchronized (aggregates[slot]) {
+            if (versions[slot] != version) {
+                return;
+            }
+            for (int i = 0; i < advanced.length; i++) {
+                advanced[i].rollback(checkpoints[i]);
+            }
+            lastTimestamps[slot] = previousTimestamp;
+            versions[slot] = previousVersion;
+        }
+    }
+
+    public int size(Metal metal) {
+        Map<WindowSpec, WindowAggregate> metalAggregates = aggregates[metal.ordinal()];
+        synchronized (metalAggregates) {
+            return metalAggregates.size();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, pre-parsed form of a single {@code Rule}.
+ * <p>
+ * Item rules keep the resolved {@link Metal}; price rules keep an inclusive interval of scaled
+ * prices, so strict comparisons and operands with more than two fraction digits are folded into
+ * the bounds once and evaluation is two long comparisons.
+ * <p>
+ * Window rules reference a rolling aggregate of the metal ({@link WindowSpec}) and are tested against its
+ * value for the tick with {@link #testWindow}. Their operand is {@code <percent>/<window>} for a price
+ * change, e.g. {@code 2/10m} with {@code s}, {@code m}, {@code h} or {@code d} as the unit, and a number of
+ * ticks for a moving average.
+ */
+@Slf4j
+public final class RulePredicate {
+
+    private static final RulePredicate NEVER = new RulePredicate(null, null, Long.MAX_VALUE, Long.MIN_VALUE);
+    private static final Pattern CHANGE_OPERAND = Pattern.compile("\\s*(\\d+(?:\\.\\d+)?)\\s*%?\\s*/\\s*(\\d+)\\s*([smhd])\\s*");
+    private static final long MAX_CHANGE_BASIS_POINTS = 1_000_000;
+
+    private final Operator operator;
+    private final Metal metal;
+    private final long lower;
+    private final long upper;
+    private final WindowSpec window;
+    private final long threshold;
+
+    private RulePredicate(Operator operator, Metal metal, long lower, long upper) {
+        this(operator, metal, lower, upper, null, 0);
+    }
+
+    private RulePredicate(Operator operator, Metal metal, long lower, long upper, WindowSpec window, long threshold) {
+        this.operator = operator;
+        this.metal = metal;
+        this.lower = lower;
+        this.upper = upper;
+        this.window = window;
+        this.threshold = threshold;
+    }
+
+    public static RulePredicate compile(Operator operator, String operand) {
+        if (operator == null) {
+            return NEVER;
+        }
+        switch (operator) {
+            case ITEM_IS, ITEM_IS_NOT -> {
+                return new RulePredicate(operator, Metal.fromCode(operand), Long.MIN_VALUE, Long.MAX_VALUE);
+            }
+            case PRICE_CHANGE_EXCEEDS_PERCENT -> {
+                return change(operator, operand);
+            }
+            case PRICE_CROSSES_ABOVE_MOVING_AVERAGE, PRICE_CROSSES_BELOW_MOVING_AVERAGE -> {
+                return average(operator, operand);
+            }
+            default -> {
+            }
+        }
+
+        BigDecimal value;
+        try {
+            value = new BigDecimal(operand);
+        } catch (NumberFormatException | NullPointerException e) {
+            log.warn("Rule {} has non-numeric operand '{}', it will never match", operator, operand);
+            return NEVER;
+        }
+        return switch (operator) {
+            case PRICE_IS_EQUAL_TO -> PriceScale.isExact(value)
+                    ? price(operator, PriceScale.floor(value), PriceScale.floor(value))
+                    : NEVER;
+            case PRICE_IS_GREATER_THAN -> price(operator, increment(PriceScale.floor(value)), Long.MAX_VALUE);
+            case PRICE_IS_GREATER_THAN_OR_EQUAL_TO -> price(operator, PriceScale.ceil(value), Long.MAX_VALUE);
+            case PRICE_IS_LESS_THAN -> price(operator, Long.MIN_VALUE, decrement(PriceScale.ceil(value)));
+            case PRICE_IS_LESS_THAN_OR_EQUAL_TO -> price(operator, Long.MIN_VALUE, PriceScale.floor(value));
+            default -> NEVER;
+        };
+    }
+
+    private static RulePredicate price(Operator operator, long lower, long upper) {
+        return new RulePredicate(operator, null, lower, upper);
+    }
+
+    private static RulePredicate change(Operator operator, String operand) {
+        Matcher matcher = operand == null ? null : CHANGE_OPERAND.matcher(operand);
+        if (matcher == null || !matcher.matches()) {
+            log.warn("Rule {} has operand '{}' instead of <percent>/<window>, it will never match", operator, operand);
+            return NEVER;
+        }
+        BigDecimal percent = new BigDecimal(matcher.group(1));
+        long windowMillis;
+        try {
+            windowMillis = Math.multiplyExact(Long.parseLong(matcher.group(2)), switch (matcher.group(3)) {
+                case "s" -> 1_000L;
+                case "m" -> 60_000L;
+                case "h" -> 3_600_000L;
+                default -> 86_400_000L;
+            });
+        } catch (ArithmeticException | NumberFormatException e) {
+            windowMillis = 0;
+        }
+        // The change is compared in basis points, so the percentage may have at most two fraction digits.
+        if (windowMillis <= 0 || !PriceScale.isExact(percent)
+                || percent.movePointRight(2).compareTo(BigDecimal.valueOf(MAX_CHANGE_BASIS_POINTS)) > 0) {
+            log.warn("Rule {} has unsupported operand '{}', it will never match", operator, operand);
+            return NEVER;
+        }
+        return new RulePredicate(operator, null, Long.MIN_VALUE, Long.MAX_VALUE, WindowSpec.change(windowMillis),
+                percent.movePointRight(2).longValueExact());
+    }
+
+    private static RulePredicate average(Operator operator, String operand) {
+        int ticks;
+        try {
+            ticks = Integer.parseInt(operand.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            ticks = 0;
+        }
+        if (ticks < 1 || ticks > WindowSpec.MAX_AVERAGE_TICKS) {
+            log.warn("Rule {} needs a tick count between 1 and {}, got '{}', it will never match", operator,
+                    WindowSpec.MAX_AVERAGE_TICKS, operand);
+            return NEVER;
+        }
+        return new RulePredicate(operator, null, Long.MIN_VALUE, Long.MAX_VALUE, WindowSpec.average(ticks), 0);
+    }
+
+    private static long increment(long value) {
+        return value == Long.MAX_VALUE ? value : value + 1;
+    }
+
+    private static long decrement(long value) {
+        return value == Long.MIN_VALUE ? value : value - 1;
+    }
+
+    /**
+     * @param metal  metal of the tick, {@code null} when the item type is not a known metal
+     * @param scaled tick price in {@link PriceScale} units
+     */
+    public boolean test(Metal metal, long scaled) {
+        if (operator == Operator.ITEM_IS) {
+            return metal != null && metal == this.metal;
+        }
+        if (operator == Operator.ITEM_IS_NOT) {
+            return metal != this.metal;
+        }
+        if (window != null) {
+            // Only the index has the window values of a tick.
+            return false;
+        }
+        return scaled >= lower && scaled <= upper;
+    }
+
+    /**
+     * Tests a window rule.
+     *
+     * @param scaled      tick price in {@link PriceScale} units
+     * @param windowValue value of {@link #getWindow()} for the tick
+     */
+    public boolean testWindow(long scaled, long windowValue) {
+        if (windowValue == WindowSpec.NO_VALUE) {
+            return false;
+        }
+        return switch (operator) {
+            // |price - reference| / reference > threshold / 10 000, without dividing
+            case PRICE_CHANGE_EXCEEDS_PERCENT -> windowValue > 0
+                    && Math.abs(scaled - windowValue) * 10_000 > threshold * windowValue;
+            case PRICE_CROSSES_ABOVE_MOVING_AVERAGE -> (windowValue & MovingAverage.CROSSED_ABOVE) != 0;
+            case PRICE_CROSSES_BELOW_MOVING_AVERAGE -> (windowValue & MovingAverage.CROSSED_BELOW) != 0;
+            default -> false;
+        };
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public Metal getMetal() {
+        return metal;
+    }
+
+    /**
+     * Whether the rule compares the price with a constant; also true for a rule that never matches.
+     */
+    public boolean isPriceRule() {
+        return operator != Operator.ITEM_IS && operator != Operator.ITEM_IS_NOT && window == null;
+    }
+
+    public boolean isWindowRule() {
+        return window != null;
+    }
+
+    /**
+     * Aggregate a window rule is evaluated against, {@code null} for other rules.
+     */
+    public WindowSpec getWindow() {
+        return window;
+    }
+
+    /**
+     * Smallest scaled price accepted by a price rule, inclusive.
+     */
+    public long getLower() {
+        return lower;
+    }
+
+    /**
+     * Largest scaled price accepted by a price rule, inclusive.
+     */
+    public long getUpper() {
+        return upper;
+    }
+}
@@ -0,0 +1,149 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.Metal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A rule expression flattened into a branch table: every rule becomes one step that jumps to the next step
+ * depending on whether it matched, or ends with accept or reject. AND, OR and NOT are resolved into the
+ * jump targets when compiling (NOT by swapping them), so evaluation is a loop over parallel arrays that
+ * tests each rule at most once, stops as soon as the outcome is known and allocates nothing.
+ */
+public final class RuleProgram {
+
+    private static final int ACCEPT = -1;
+    private static final int REJECT = -2;
+
+    private final RulePredicate[] steps;
+    private final int[] windowSlots;
+    private final int[] onMatch;
+    private final int[] onMismatch;
+    private final int entry;
+
+    private RuleProgram(Builder builder, int entry) {
+        int size = builder.steps.size();
+        this.steps = builder.steps.toArray(new RulePredicate[0]);
+        this.windowSlots = new int[size];
+        this.onMatch = new int[size];
+        this.onMismatch = new int[size];
+        for (int i = 0; i < size; i++) {
+            windowSlots[i] = builder.windowSlots.get(i);
+            onMatch[i] = builder.onMatch.get(i);
+            onMismatch[i] = builder.onMismatch.get(i);
+        }
+        this.entry = entry;
+    }
+
+    /**
+     * Compiles the AND of {@code rules} and {@code groups}, rules first.
+     *
+     * @param windowSlot position of a window in the window values passed to {@link #evaluate}
+     */
+    public static RuleProgram compile(List<RulePredicate> rules, List<RuleGroup> groups, ToIntFunction<WindowSpec> windowSlot) {
+        Builder builder = new Builder(windowSlot);
+        int next = ACCEPT;
+        for (int i = groups.size() - 1; i >= 0; i--) {
+            next = builder.group(groups.get(i), next, REJECT);
+        }
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            next = builder.rule(rules.get(i), next, REJECT);
+        }
+        return new RuleProgram(builder, next);
+    }
+
+    /**
+     * @param metal        metal of the tick, {@code null} when the item type is not a known metal
+     * @param scaled       tick price in {@link PriceScale} units
+     * @param windowValues window values of the tick; window rules whose value is missing do not match
+     */
+    public boolean evaluate(Metal metal, long scaled, long[] windowValues) {
+        int step = entry;
+        while (step >= 0) {
+            RulePredicate predicate = steps[step];
+            boolean matched;
+            if (predicate.isWindowRule()) {
+                int slot = windowSlots[step];
+                matched = slot >= 0 && slot < windowValues.length && predicate.testWindow(scaled, windowValues[slot]);
+            } else {
+                matched = predicate.test(metal, scaled);
+            }
+            step = matched ? onMatch[step] : onMismatch[step];
+        }
+        return step == ACCEPT;
+    }
+
+    /**
+     * Number of rule steps, each rule of the expression appears once.
+     */
+    public int size() {
+        return steps.length;
+    }
+
+    /**
+     * Emits steps back to front, so that the continuation of every node is known when it is compiled.
+     * Recursion only happens here, at load time, and is bounded by the nesting depth of the groups.
+     */
+    private static final class Builder {
+
+        private final ToIntFunction<WindowSpec> windowSlot;
+        private final List<RulePredicate> steps = new ArrayList<>();
+        private final List<Integer> windowSlots = new ArrayList<>();
+        private final List<Integer> onMatch = new ArrayList<>();
+        private final List<Integer> onMismatch = new ArrayList<>();
+
+        Builder(ToIntFunction<WindowSpec> windowSlot) {
+            this.windowSlot = windowSlot;
+        }
+
+        /**
+         * @return entry step of the group, or {@code whenTrue}/{@code whenFalse} when it has no rules
+         */
+        int group(RuleGroup group, int whenTrue, int whenFalse) {
+            List<Rule> rules = group.getRules() == null ? List.of() : group.getRules();
+            List<RuleGroup> groups = group.getGroups() == null ? List.of() : group.getGroups();
+            int children = rules.size() + groups.size();
+            int next;
+            switch (group.getOperator()) {
+                case OR -> {
+                    // Each child falls through to the next one on mismatch; the last one rejects.
+                    next = whenFalse;
+                    for (int i = children - 1; i >= 0; i--) {
+                        next = child(rules, groups, i, whenTrue, next);
+                    }
+                }
+                case NOT -> {
+                    next = whenFalse;
+                    for (int i = children - 1; i >= 0; i--) {
+                        next = child(rules, groups, i, next, whenTrue);
+                    }
+                }
+                default -> {
+                    next = whenTrue;
+                    for (int i = children - 1; i >= 0; i--) {
+                        next = child(rules, groups, i, next, whenFalse);
+                    }
+                }
+            }
+            return next;
+        }
+
+        private int child(List<Rule> rules, List<RuleGroup> groups, int index, int whenTrue, int whenFalse) {
+            return index < rules.size()
+                    ? rule(rules.get(index).getPredicate(), whenTrue, whenFalse)
+                    : group(groups.get(index - rules.size()), whenTrue, whenFalse);
+        }
+
+        int rule(RulePredicate predicate, int whenTrue, int whenFalse) {
+            steps.add(predicate);
+            windowSlots.add(predicate.isWindowRule() ? windowSlot.applyAsInt(predicate.getWindow()) : -1);
+            onMatch.add(whenTrue);
+            onMismatch.add(whenFalse);
+            return steps.size() - 1;
+        }
+    }
+}
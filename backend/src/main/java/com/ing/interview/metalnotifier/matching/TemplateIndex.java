@@ -0,0 +1,571 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable matching index over a set of templates.
+ * <p>
+ * Templates are bucketed per metal they can match. Inside a bucket they are split by the shape of
+ * their price interval, so a tick only visits templates whose interval contains the price:
+ * one-sided thresholds and exact prices are kept in sorted arrays and matched with a binary search,
+ * only two-sided ranges are scanned (up to the first lower bound above the price). Matching works
+ * on {@link PriceScale} longs and does not allocate besides the result list.
+ * <p>
+ * Templates with window rules or rule groups are kept apart and scanned: their interval is checked
+ * first and their {@link RuleProgram} only then, with the per-tick values of {@link #getWindows()}
+ * computed by {@link PriceWindows}.
+ * <p>
+ * {@link #with} and {@link #without} derive the index for one saved or deleted template from this one:
+ * only that template is compiled, and it is inserted into or removed from the sorted arrays of the buckets
+ * it belongs to, so a change costs array copies linear in the number of templates but no sorting. Windows
+ * are only appended, so existing programs keep their slots; a change that leaves a window unused rebuilds
+ * the index, so that {@link PriceWindows} stops computing it.
+ * <p>
+ * Edge-triggered templates get dense {@link TemplateSlots} for their state in {@link MatchStateStore}; a
+ * change that adds or removes one derives new slots, any other change keeps them.
+ */
+public final class TemplateIndex {
+
+    private static final TemplateIndex EMPTY = build(List.of());
+    private static final long[] NO_WINDOW_VALUES = new long[0];
+
+    private final List<NotificationTemplate> templates;
+    private final List<CompiledTemplate> compiled;
+    private final MetalBucket[] buckets;
+    private final List<WindowSpec> windows;
+    private final int edgeTriggered;
+    private final TemplateSlots edgeSlots;
+
+    private TemplateIndex(List<CompiledTemplate> compiled, MetalBucket[] buckets, List<WindowSpec> windows,
+                          TemplateSlots edgeSlots) {
+        this.compiled = compiled;
+        this.templates = compiled.stream().map(CompiledTemplate::getTemplate).toList();
+        this.buckets = buckets;
+        this.windows = windows;
+        this.edgeTriggered = (int) templates.stream().filter(TemplateIndex::isEdgeTriggered).count();
+        this.edgeSlots = edgeSlots;
+    }
+
+    public static TemplateIndex empty() {
+        return EMPTY;
+    }
+
+    public static TemplateIndex build(Collection<NotificationTemplate> templates) {
+        List<CompiledTemplate> compiled = new ArrayList<>(templates.size());
+        for (NotificationTemplate template : templates) {
+            compiled.add(CompiledTemplate.compile(template));
+        }
+        Map<WindowSpec, Integer> windowSlots = new LinkedHashMap<>();
+        for (CompiledTemplate template : compiled) {
+            template.compileResidual(window -> windowSlots.computeIfAbsent(window, added -> windowSlots.size()));
+        }
+
+        Metal[] metals = Metal.values();
+        MetalBucket[] buckets = new MetalBucket[metals.length];
+        for (Metal metal : metals) {
+            List<CompiledTemplate> accepted = new ArrayList<>();
+            for (CompiledTemplate template : compiled) {
+                if (template.accepts(metal)) {
+                    accepted.add(template);
+                }
+            }
+            buckets[metal.ordinal()] = new MetalBucket(accepted);
+        }
+        List<Long> edgeIds = new ArrayList<>();
+        for (CompiledTemplate template : compiled) {
+            if (hasEdgeSlot(template)) {
+                edgeIds.add(template.getTemplate().getId());
+            }
+        }
+        return new TemplateIndex(List.copyOf(compiled), buckets, List.copyOf(windowSlots.keySet()), TemplateSlots.of(edgeIds));
+    }
+
+    /**
+     * This index with {@code template} added, or replacing the indexed template with the same id.
+     */
+    public TemplateIndex with(NotificationTemplate template) {
+        int position = indexOf(template.getId());
+        CompiledTemplate added = CompiledTemplate.compile(template);
+        List<WindowSpec> nextWindows = new ArrayList<>(windows);
+        added.compileResidual(window -> {
+            int slot = nextWindows.indexOf(window);
+            if (slot >= 0) {
+                return slot;
+            }
+            nextWindows.add(window);
+            return nextWindows.size() - 1;
+        });
+        List<CompiledTemplate> nextCompiled = new ArrayList<>(compiled);
+        if (position < 0) {
+            nextCompiled.add(added);
+        } else {
+            nextCompiled.set(position, added);
+        }
+        return derive(position < 0 ? null : compiled.get(position), added, nextCompiled, nextWindows);
+    }
+
+    /**
+     * This index without the template with the given id.
+     */
+    public TemplateIndex without(Long id) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return this;
+        }
+        List<CompiledTemplate> nextCompiled = new ArrayList<>(compiled);
+        nextCompiled.remove(position);
+        return derive(compiled.get(position), null, nextCompiled, windows);
+    }
+
+    private TemplateIndex derive(CompiledTemplate removed, CompiledTemplate added, List<CompiledTemplate> nextCompiled,
+                                 List<WindowSpec> nextWindows) {
+        if (removed != null && leavesWindowUnused(removed, nextCompiled)) {
+            return build(nextCompiled.stream().map(CompiledTemplate::getTemplate).toList());
+        }
+        MetalBucket[] nextBuckets = buckets.clone();
+        for (Metal metal : Metal.values()) {
+            CompiledTemplate bucketRemoved = removed != null && removed.accepts(metal) ? removed : null;
+            CompiledTemplate bucketAdded = added != null && added.accepts(metal) ? added : null;
+            if (bucketRemoved != null || bucketAdded != null) {
+                nextBuckets[metal.ordinal()] = buckets[metal.ordinal()].replace(bucketRemoved, bucketAdded);
+            }
+        }
+        return new TemplateIndex(List.copyOf(nextCompiled), nextBuckets, List.copyOf(nextWindows),
+                deriveEdgeSlots(removed, added));
+    }
+
+    private TemplateSlots deriveEdgeSlots(CompiledTemplate removed, CompiledTemplate added) {
+        boolean removesSlot = removed != null && hasEdgeSlot(removed);
+        boolean addsSlot = added != null && hasEdgeSlot(added);
+        if (removesSlot && addsSlot) {
+            // The same template, it keeps its slot.
+            return edgeSlots;
+        }
+        if (removesSlot) {
+            return edgeSlots.without(removed.getTemplate().getId());
+        }
+        if (addsSlot) {
+            return edgeSlots.with(added.getTemplate().getId());
+        }
+        return edgeSlots;
+    }
+
+    private int indexOf(Long id) {
+        for (int i = 0; i < compiled.size(); i++) {
+            if (Objects.equals(compiled.get(i).getTemplate().getId(), id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean leavesWindowUnused(CompiledTemplate removed, List<CompiledTemplate> remaining) {
+        for (WindowSpec window : removed.getWindows()) {
+            if (remaining.stream().noneMatch(template -> template.getWindows().contains(window))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEdgeTriggered(NotificationTemplate template) {
+        return template.getTriggerMode() == TriggerMode.EDGE;
+    }
+
+    private static boolean hasEdgeSlot(CompiledTemplate template) {
+        return isEdgeTriggered(template.getTemplate()) && template.getTemplate().getId() != null;
+    }
+
+    public List<NotificationTemplate> match(MetalPrice metalPrice) {
+        return match(Metal.fromCode(metalPrice.getItemType()), PriceScale.toScaled(metalPrice.getPrice()));
+    }
+
+    /**
+     * @param metal  metal of the tick, {@code null} when the item type is not a known metal
+     * @param scaled tick price in {@link PriceScale} units
+     */
+    public List<NotificationTemplate> match(Metal metal, long scaled) {
+        return match(metal, scaled, NO_WINDOW_VALUES);
+    }
+
+    /**
+     * @param windowValues values of {@link #getWindows()} for this tick; window rules never match without them
+     */
+    public List<NotificationTemplate> match(Metal metal, long scaled, long[] windowValues) {
+        List<NotificationTemplate> matched = new ArrayList<>();
+        if (metal == null) {
+            // Only known metals are indexed; anything else keeps the plain rule semantics.
+            for (NotificationTemplate template : templates) {
+                if (template.matchesAllRules(null, scaled)) {
+                    matched.add(template);
+                }
+            }
+            return matched;
+        }
+        buckets[metal.ordinal()].match(metal, scaled, windowValues, matched);
+        return matched;
+    }
+
+    /**
+     * Distinct windows referenced by the window rules of the indexed templates.
+     */
+    public List<WindowSpec> getWindows() {
+        return windows;
+    }
+
+    /**
+     * @return whether any indexed template uses {@link TriggerMode#EDGE}
+     */
+    public boolean hasEdgeTriggeredTemplates() {
+        return edgeTriggered > 0;
+    }
+
+    /**
+     * Slots of the edge-triggered templates with an id, for {@link MatchStateStore}.
+     */
+    public TemplateSlots getEdgeSlots() {
+        return edgeSlots;
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * How a template is matched within a bucket, which decides the group it goes to.
+     */
+    private enum Shape {
+        UNBOUNDED, LOWER, UPPER, EXACT, RANGE, RESIDUAL;
+
+        static Shape of(CompiledTemplate template) {
+            if (template.getResidual() != null) {
+                return RESIDUAL;
+            } else if (!template.hasLower() && !template.hasUpper()) {
+                return UNBOUNDED;
+            } else if (!template.hasUpper()) {
+                return LOWER;
+            } else if (!template.hasLower()) {
+                return UPPER;
+            } else if (template.getLower() == template.getUpper()) {
+                return EXACT;
+            }
+            return RANGE;
+        }
+    }
+
+    private static final class MetalBucket {
+
+        private final NotificationTemplate[] unbounded;
+        private final ThresholdGroup lowerOnly;
+        private final ThresholdGroup upperOnly;
+        private final ThresholdGroup exact;
+        private final RangeGroup ranges;
+        private final ResidualGroup residual;
+
+        MetalBucket(List<CompiledTemplate> templates) {
+            List<NotificationTemplate> unboundedList = new ArrayList<>();
+            List<CompiledTemplate> lowerList = new ArrayList<>();
+            List<CompiledTemplate> upperList = new ArrayList<>();
+            List<CompiledTemplate> exactList = new ArrayList<>();
+            List<CompiledTemplate> rangeList = new ArrayList<>();
+            List<CompiledTemplate> residualList = new ArrayList<>();
+
+            for (CompiledTemplate template : templates) {
+                switch (Shape.of(template)) {
+                    case RESIDUAL -> residualList.add(template);
+                    case UNBOUNDED -> unboundedList.add(template.getTemplate());
+                    case LOWER -> lowerList.add(template);
+                    case UPPER -> upperList.add(template);
+                    case EXACT -> exactList.add(template);
+                    case RANGE -> rangeList.add(template);
+                }
+            }
+
+            this.unbounded = unboundedList.toArray(new NotificationTemplate[0]);
+            this.lowerOnly = ThresholdGroup.lowerBounds(lowerList);
+            this.upperOnly = ThresholdGroup.upperBounds(upperList);
+            this.exact = ThresholdGroup.lowerBounds(exactList);
+            this.ranges = new RangeGroup(rangeList);
+            this.residual = new ResidualGroup(residualList);
+        }
+
+        private MetalBucket(NotificationTemplate[] unbounded, ThresholdGroup lowerOnly, ThresholdGroup upperOnly,
+                            ThresholdGroup exact, RangeGroup ranges, ResidualGroup residual) {
+            this.unbounded = unbounded;
+            this.lowerOnly = lowerOnly;
+            this.upperOnly = upperOnly;
+            this.exact = exact;
+            this.ranges = ranges;
+            this.residual = residual;
+        }
+
+        /**
+         * This bucket without {@code removed} and with {@code added}, either may be {@code null}. Only the
+         * groups of their shapes are copied, the others are shared.
+         */
+        MetalBucket replace(CompiledTemplate removed, CompiledTemplate added) {
+            NotificationTemplate[] nextUnbounded = unbounded;
+            ThresholdGroup nextLower = lowerOnly;
+            ThresholdGroup nextUpper = upperOnly;
+            ThresholdGroup nextExact = exact;
+            RangeGroup nextRanges = ranges;
+            ResidualGroup nextResidual = residual;
+            if (removed != null) {
+                NotificationTemplate template = removed.getTemplate();
+                switch (Shape.of(removed)) {
+                    case UNBOUNDED -> nextUnbounded = removeAt(nextUnbounded, identityIndexOf(nextUnbounded, template));
+                    case LOWER -> nextLower = nextLower.without(template);
+                    case UPPER -> nextUpper = nextUpper.without(template);
+                    case EXACT -> nextExact = nextExact.without(template);
+                    case RANGE -> nextRanges = nextRanges.without(template);
+                    case RESIDUAL -> nextResidual = nextResidual.without(template);
+                }
+            }
+            if (added != null) {
+                switch (Shape.of(added)) {
+                    case UNBOUNDED -> nextUnbounded = insertAt(nextUnbounded, nextUnbounded.length, added.getTemplate());
+                    case LOWER -> nextLower = nextLower.with(added);
+                    case UPPER -> nextUpper = nextUpper.with(added);
+                    case EXACT -> nextExact = nextExact.with(added);
+                    case RANGE -> nextRanges = nextRanges.with(added);
+                    case RESIDUAL -> nextResidual = nextResidual.with(added);
+                }
+            }
+            return new MetalBucket(nextUnbounded, nextLower, nextUpper, nextExact, nextRanges, nextResidual);
+        }
+
+        void match(Metal metal, long price, long[] windowValues, List<NotificationTemplate> matched) {
+            for (NotificationTemplate template : unbounded) {
+                matched.add(template);
+            }
+            lowerOnly.match(price, matched);
+            upperOnly.match(price, matched);
+            exact.matchEqual(price, matched);
+            ranges.match(price, matched);
+            residual.match(metal, price, windowValues, matched);
+        }
+    }
+
+    /**
+     * One-sided inclusive thresholds ordered so that the templates admitting a price always form a prefix.
+     */
+    private static final class ThresholdGroup {
+
+        private final long[] bounds;
+        private final NotificationTemplate[] templates;
+        private final boolean lower;
+
+        private ThresholdGroup(List<CompiledTemplate> sorted, boolean lower) {
+            int size = sorted.size();
+            this.bounds = new long[size];
+            this.templates = new NotificationTemplate[size];
+            this.lower = lower;
+            for (int i = 0; i < size; i++) {
+                CompiledTemplate template = sorted.get(i);
+                bounds[i] = lower ? template.getLower() : template.getUpper();
+                templates[i] = template.getTemplate();
+            }
+        }
+
+        private ThresholdGroup(long[] bounds, NotificationTemplate[] templates, boolean lower) {
+            this.bounds = bounds;
+            this.templates = templates;
+            this.lower = lower;
+        }
+
+        static ThresholdGroup lowerBounds(List<CompiledTemplate> templates) {
+            templates.sort(Comparator.comparingLong(CompiledTemplate::getLower));
+            return new ThresholdGroup(templates, true);
+        }
+
+        static ThresholdGroup upperBounds(List<CompiledTemplate> templates) {
+            templates.sort(Comparator.comparingLong(CompiledTemplate::getUpper).reversed());
+            return new ThresholdGroup(templates, false);
+        }
+
+        /**
+         * Inserts behind the templates with the same bound, where a stable sort would have put it.
+         */
+        ThresholdGroup with(CompiledTemplate template) {
+            long bound = lower ? template.getLower() : template.getUpper();
+            int position = admittedCount(bound);
+            return new ThresholdGroup(insertAt(bounds, position, bound), insertAt(templates, position, template.getTemplate()), lower);
+        }
+
+        ThresholdGroup without(NotificationTemplate template) {
+            int position = identityIndexOf(templates, template);
+            return new ThresholdGroup(removeAt(bounds, position), removeAt(templates, position), lower);
+        }
+
+        void match(long price, List<NotificationTemplate> matched) {
+            int admitted = admittedCount(price);
+            for (int i = 0; i < admitted; i++) {
+                matched.add(templates[i]);
+            }
+        }
+
+        void matchEqual(long price, List<NotificationTemplate> matched) {
+            for (int i = admittedCount(price) - 1; i >= 0 && bounds[i] == price; i--) {
+                matched.add(templates[i]);
+            }
+        }
+
+        int admittedCount(long price) {
+            int low = 0;
+            int high = bounds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lower ? bounds[mid] <= price : bounds[mid] >= price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Two-sided ranges ordered by lower bound; only the prefix admitted by the lower bound is visited.
+     */
+    private static final class RangeGroup {
+
+        private final ThresholdGroup lowerBounds;
+        private final long[] upper;
+
+        RangeGroup(List<CompiledTemplate> templates) {
+            this.lowerBounds = ThresholdGroup.lowerBounds(templates);
+            this.upper = new long[templates.size()];
+            for (int i = 0; i < templates.size(); i++) {
+                upper[i] = templates.get(i).getUpper();
+            }
+        }
+
+        private RangeGroup(ThresholdGroup lowerBounds, long[] upper) {
+            this.lowerBounds = lowerBounds;
+            this.upper = upper;
+        }
+
+        RangeGroup with(CompiledTemplate template) {
+            int position = lowerBounds.admittedCount(template.getLower());
+            return new RangeGroup(lowerBounds.with(template), insertAt(upper, position, template.getUpper()));
+        }
+
+        RangeGroup without(NotificationTemplate template) {
+            int position = identityIndexOf(lowerBounds.templates, template);
+            return new RangeGroup(lowerBounds.without(template), removeAt(upper, position));
+        }
+
+        void match(long price, List<NotificationTemplate> matched) {
+            int admitted = lowerBounds.admittedCount(price);
+            for (int i = 0; i < admitted; i++) {
+                if (price <= upper[i]) {
+                    matched.add(lowerBounds.templates[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Templates with a residual program, scanned in full: the interval is two comparisons and the program
+     * only runs when it admits the price.
+     */
+    private static final class ResidualGroup {
+
+        private final NotificationTemplate[] templates;
+        private final long[] lower;
+        private final long[] upper;
+        private final RuleProgram[] programs;
+
+        ResidualGroup(List<CompiledTemplate> templates) {
+            int size = templates.size();
+            this.templates = new NotificationTemplate[size];
+            this.lower = new long[size];
+            this.upper = new long[size];
+            this.programs = new RuleProgram[size];
+            for (int i = 0; i < size; i++) {
+                CompiledTemplate template = templates.get(i);
+                this.templates[i] = template.getTemplate();
+                lower[i] = template.getLower();
+                upper[i] = template.getUpper();
+                programs[i] = template.getResidual();
+            }
+        }
+
+        private ResidualGroup(NotificationTemplate[] templates, long[] lower, long[] upper, RuleProgram[] programs) {
+            this.templates = templates;
+            this.lower = lower;
+            this.upper = upper;
+            this.programs = programs;
+        }
+
+        ResidualGroup with(CompiledTemplate template) {
+            int end = templates.length;
+            return new ResidualGroup(insertAt(templates, end, template.getTemplate()), insertAt(lower, end, template.getLower()),
+                    insertAt(upper, end, template.getUpper()), insertAt(programs, end, template.getResidual()));
+        }
+
+        ResidualGroup without(NotificationTemplate template) {
+            int position = identityIndexOf(templates, template);
+            return new ResidualGroup(removeAt(templates, position), removeAt(lower, position),
+                    removeAt(upper, position), removeAt(programs, position));
+        }
+
+        void match(Metal metal, long price, long[] windowValues, List<NotificationTemplate> matched) {
+            for (int i = 0; i < templates.length; i++) {
+                if (price >= lower[i] && price <= upper[i] && programs[i].evaluate(metal, price, windowValues)) {
+                    matched.add(templates[i]);
+                }
+            }
+        }
+    }
+
+    private static int identityIndexOf(Object[] array, Object element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == element) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Template is not in the group its shape belongs to");
+    }
+
+    private static long[] insertAt(long[] array, int position, long value) {
+        long[] copy = new long[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        return copy;
+    }
+
+    private static <T> T[] insertAt(T[] array, int position, T value) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, position, copy, position + 1, array.length - position);
+        copy[position] = value;
+        return copy;
+    }
+
+    private static long[] removeAt(long[] array, int position) {
+        long[] copy = new long[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, position);
+        System.arraycopy(array, position + 1, copy, position, array.length - position - 1);
+        return copy;
+    }
+
+    private static <T> T[] removeAt(T[] array, int position) {
+        T[] copy = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, position + 1, copy, position, array.length - position - 1);
+        return copy;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ing.interview.metalnotifier.matching;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dense slots {@code 0..size-1} of the edge-triggered templates of a {@link TemplateIndex}, the bit positions
+ * of their state in {@link MatchStateStore}. The slot of a template is the rank of its id among the sorted
+ * ids, so the state takes space in proportion to the number of templates, whatever their ids are.
+ * <p>
+ * Every set of slots gets a generation higher than those created before it; the store moves its state to
+ * the slots of the newest generation it has seen.
+ */
+public final class TemplateSlots {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private static final TemplateSlots EMPTY = new TemplateSlots(new long[0]);
+
+    private final long[] ids;
+    private final long generation;
+
+    private TemplateSlots(long[] sortedIds) {
+        this.ids = sortedIds;
+        this.generation = GENERATIONS.incrementAndGet();
+    }
+
+    public static TemplateSlots empty() {
+        return EMPTY;
+    }
+
+    public static TemplateSlots of(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        long[] sorted = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        return new TemplateSlots(sorted);
+    }
+
+    /**
+     * These slots with {@code id} added; the slots of the ids above it move up by one.
+     */
+    TemplateSlots with(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        long[] next = new long[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, position);
+        next[position] = id;
+        System.arraycopy(ids, position, next, position + 1, ids.length - position);
+        return new TemplateSlots(next);
+    }
+
+    /**
+     * These slots without {@code id}; the slots of the ids above it move down by one.
+     */
+    TemplateSlots without(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return this;
+        }
+        long[] next = new long[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, position);
+        System.arraycopy(ids, position + 1, next, position, ids.length - position - 1);
+        return new TemplateSlots(next);
+    }
+
+    /**
+     * @return the slot of the template, negative when it has none
+     */
+    public int slotOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    public long idAt(int slot) {
+        return ids[slot];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+}
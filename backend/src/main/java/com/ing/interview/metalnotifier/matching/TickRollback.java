@@ -0,0 +1,27 @@
+package com.ing.interview.metalnotifier.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What matching one tick changed in the per-metal state of {@link PriceWindows} and {@link MatchStateStore},
+ * so the tick can be taken back when its notifications were not handed off and the client is going to retry.
+ * <p>
+ * A store only reverts its part when no other tick of the metal has changed the state since. Ticks rolled
+ * back together must therefore be rolled back newest first.
+ */
+public final class TickRollback {
+
+    private final List<Runnable> steps = new ArrayList<>(2);
+
+    void add(Runnable step) {
+        steps.add(step);
+    }
+
+    public void run() {
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            steps.get(i).run();
+        }
+        steps.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package com.ing.interview.metalnotifier.matching;
+
+/**
+ * Rolling aggregate over the ticks of one metal, updated in constant time and space per tick.
+ */
+interface WindowAggregate {
+
+    /**
+     * Adds a tick and returns the value the window predicates of this tick are evaluated against.
+     *
+     * @param timestamp arrival time in millis, never lower than on the previous call
+     * @param scaled    tick price in {@link PriceScale} units
+     */
+    long advance(long timestamp, long scaled);
+
+    /**
+     * Captures the state the next {@link #advance} with this timestamp overwrites.
+     */
+    long[] checkpoint(long timestamp);
+
+    /**
+     * Reverts the {@link #advance} that followed {@code checkpoint}; several advances are reverted newest first.
+     */
+    void rollback(long[] checkpoint);
+}
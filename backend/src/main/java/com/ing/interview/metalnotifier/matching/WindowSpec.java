@@ -0,0 +1,74 @@
+package com.ing.interview.metalnotifier.matching;
+
+import java.util.Objects;
+
+/**
+ * Identifies one rolling aggregate kept per metal: either the price at the start of a time window or
+ * the moving average over a number of ticks. Rules with the same spec share one aggregate.
+ */
+public final class WindowSpec {
+
+    /**
+     * Window value of a tick for which the aggregate has nothing to report yet.
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    public static final int MAX_AVERAGE_TICKS = 10_000;
+
+    enum Kind {
+        CHANGE,
+        AVERAGE
+    }
+
+    private final Kind kind;
+    private final long length;
+
+    private WindowSpec(Kind kind, long length) {
+        this.kind = kind;
+        this.length = length;
+    }
+
+    static WindowSpec change(long windowMillis) {
+        return new WindowSpec(Kind.CHANGE, windowMillis);
+    }
+
+    static WindowSpec average(int ticks) {
+        return new WindowSpec(Kind.AVERAGE, ticks);
+    }
+
+    WindowAggregate newAggregate() {
+        return kind == Kind.CHANGE ? new ChangeWindow(length) : new MovingAverage((int) length);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Window length in milliseconds for a change window, in ticks for a moving average.
+     */
+    long getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WindowSpec other)) {
+            return false;
+        }
+        return kind == other.kind && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, length);
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.CHANGE ? "change(" + length + "ms)" : "average(" + length + " ticks)";
+    }
+}
@@ -0,0 +1,135 @@
+package com.ing.interview.metalnotifier.metrics;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the price processing path. Per-metal meters are registered up front and looked up by
+ * {@link Metal#ordinal()}, item types that are not a known metal share the {@value #UNKNOWN_METAL} tag
+ * so arbitrary input cannot grow the number of time series.
+ */
+@Component
+public class NotifierMetrics {
+
+    public static final String METAL_TAG = "metal";
+    public static final String UNKNOWN_METAL = "unknown";
+
+    private final MeterRegistry registry;
+    private final Timer processTimer;
+    private final Timer indexLoadTimer;
+    private final Timer recipientsLoadTimer;
+    private final Timer dispatchTimer;
+    private final PerMetal[] perMetal;
+
+    @Autowired
+    public NotifierMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.processTimer = Timer.builder("metal.notifier.process")
+                .description("Matching and dispatch of one request, single price or batch")
+                .register(registry);
+        this.indexLoadTimer = Timer.builder("metal.notifier.index.load")
+                .description("Loading templates with their rules and building the matching index")
+                .register(registry);
+        this.recipientsLoadTimer = Timer.builder("metal.notifier.recipients.load")
+                .description("Loading recipients of the firing templates")
+                .register(registry);
+        this.dispatchTimer = Timer.builder("metal.notifier.dispatch")
+                .description("Handing the notification jobs of one request to the dispatcher")
+                .register(registry);
+
+        Metal[] metals = Metal.values();
+        this.perMetal = new PerMetal[metals.length + 1];
+        for (Metal metal : metals) {
+            perMetal[metal.ordinal()] = new PerMetal(registry, metal.getCode());
+        }
+        perMetal[metals.length] = new PerMetal(registry, UNKNOWN_METAL);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public Timer processTimer() {
+        return processTimer;
+    }
+
+    public Timer indexLoadTimer() {
+        return indexLoadTimer;
+    }
+
+    public Timer recipientsLoadTimer() {
+        return recipientsLoadTimer;
+    }
+
+    public Timer dispatchTimer() {
+        return dispatchTimer;
+    }
+
+    public void tickMatched(String itemType, long matchNanos, int evaluated, int matched) {
+        PerMetal meters = forItemType(itemType);
+        meters.ticks.increment();
+        meters.match.record(matchNanos, TimeUnit.NANOSECONDS);
+        meters.evaluated.increment(evaluated);
+        meters.matched.increment(matched);
+    }
+
+    public void emailSent(String itemType, long sendNanos) {
+        PerMetal meters = forItemType(itemType);
+        meters.emailSend.record(sendNanos, TimeUnit.NANOSECONDS);
+        meters.emailsSent.increment();
+    }
+
+    public void emailFailed(String itemType) {
+        forItemType(itemType).emailsFailed.increment();
+    }
+
+    private PerMetal forItemType(String itemType) {
+        Metal metal = Metal.fromCode(itemType);
+        return perMetal[metal == null ? perMetal.length - 1 : metal.ordinal()];
+    }
+
+    private static final class PerMetal {
+
+        private final Counter ticks;
+        private final Counter evaluated;
+        private final Counter matched;
+        private final Counter emailsSent;
+        private final Counter emailsFailed;
+        private final Timer match;
+        private final Timer emailSend;
+
+        PerMetal(MeterRegistry registry, String metal) {
+            this.ticks = Counter.builder("metal.notifier.ticks")
+                    .description("Price ticks processed")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.evaluated = Counter.builder("metal.notifier.templates.evaluated")
+                    .description("Templates in the index a tick was evaluated against")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.matched = Counter.builder("metal.notifier.templates.matched")
+                    .description("Templates whose rules matched a tick")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.emailsSent = Counter.builder("metal.notifier.emails.sent")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.emailsFailed = Counter.builder("metal.notifier.emails.failed")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.match = Timer.builder("metal.notifier.match")
+                    .description("Rule evaluation of one tick")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+            this.emailSend = Timer.builder("metal.notifier.email.send")
+                    .tag(METAL_TAG, metal)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class BatchEntryResult {
+
+    public enum Status {
+        PROCESSED,
+        REJECTED
+    }
+
+    private int index;
+    private Status status;
+    private String tickId;
+    private int matchedTemplates;
+    private int notifications;
+
+    @Builder.Default
+    private List<ErrorResponse.ValidationError> errors = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResult {
+    private int received;
+    private int processed;
+    private int rejected;
+    private boolean asynchronous;
+    private List<BatchEntryResult> results;
+}
@@ -0,0 +1,19 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConflationStats {
+    private boolean enabled;
+    private long windowMillis;
+    private long conflated;
+    private long dropped;
+    private long evaluated;
+    private long failed;
+    private long abandoned;
+    private int pending;
+}
@@ -0,0 +1,16 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DispatchStats {
+    private boolean asynchronous;
+    private int workers;
+    private int busyWorkers;
+    private int queueDepth;
+    private int queueCapacity;
+}
@@ -0,0 +1,21 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A rendered email, ready to be handed to the mail transport.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailMessage {
+    private String to;
+    private String subject;
+    private String body;
+    private String itemType;
+    private BigDecimal price;
+}
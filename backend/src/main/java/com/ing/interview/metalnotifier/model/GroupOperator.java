@@ -0,0 +1,10 @@
+package com.ing.interview.metalnotifier.model;
+
+public enum GroupOperator {
+    /** Matches when every rule and subgroup of the group matches. */
+    AND,
+    /** Matches when at least one rule or subgroup of the group matches. */
+    OR,
+    /** Matches when not every rule and subgroup of the group matches, i.e. the negated AND. */
+    NOT
+}
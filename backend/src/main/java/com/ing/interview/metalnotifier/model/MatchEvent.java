@@ -0,0 +1,24 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One template firing for a tick, as pushed to the match stream.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MatchEvent {
+    private String tickId;
+    private Long templateId;
+    private String templateTitle;
+    private String itemType;
+    private BigDecimal price;
+    private int recipientCount;
+    private Instant matchedAt;
+}
@@ -0,0 +1,55 @@
+package com.ing.interview.metalnotifier.model;
+
+public enum Metal {
+    GOLD("gold", 1),
+    SILVER("silver", 2),
+    PLATINUM("platinum", 3);
+
+    private static final Metal[] VALUES = values();
+    private static final Metal[] BY_ID = new Metal[VALUES.length + 1];
+
+    static {
+        for (Metal metal : VALUES) {
+            BY_ID[metal.id] = metal;
+        }
+    }
+
+    private final String code;
+    private final int id;
+
+    Metal(String code, int id) {
+        this.code = code;
+        this.id = id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Stable numeric id used by binary formats: price history records and binary feed frames. Ids are part of
+     * those formats and must never change for an existing metal.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the metal with this {@link #getId() id}, {@code null} for an unknown id
+     */
+    public static Metal fromId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    public static Metal fromCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (Metal metal : VALUES) {
+            if (metal.code.equals(code)) {
+                return metal;
+            }
+        }
+        return null;
+    }
+}
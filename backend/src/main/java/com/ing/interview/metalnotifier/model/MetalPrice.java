@@ -5,7 +5,7 @@ import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
-import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -13,7 +13,6 @@ import java.math.BigDecimal;
 
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class MetalPrice {
     @NotBlank(message = "Typ metalu nie może być pusty")
@@ -24,4 +23,13 @@ public class MetalPrice {
     @DecimalMin(value = "0.0", message = "Cena nie może być ujemna")
     @Digits(integer = 10, fraction = 2, message = "Cena musi mieć maksymalnie 2 miejsca po przecinku")
     private BigDecimal price;
+
+    /** Optional id given by the feed, used as the tick id; {@code /api/new-price} processes a tick id only once. */
+    @Size(min = 1, max = 64, message = "Identyfikator ticka musi mieć od 1 do 64 znaków")
+    private String tickId;
+
+    public MetalPrice(String itemType, BigDecimal price) {
+        this.itemType = itemType;
+        this.price = price;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.ing.interview.metalnotifier.model;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class NotificationJob {
+    private String tickId;
+    private NotificationTemplate template;
+    private Recipient recipient;
+    private MetalPrice metalPrice;
+    /**
+     * All templates covered by this email, starting with {@link #template}; more than one for a digest.
+     */
+    private List<NotificationTemplate> templates;
+
+    public NotificationJob(String tickId, NotificationTemplate template, Recipient recipient, MetalPrice metalPrice) {
+        this(tickId, recipient, List.of(template), metalPrice);
+    }
+
+    public NotificationJob(String tickId, Recipient recipient, List<NotificationTemplate> templates, MetalPrice metalPrice) {
+        this.tickId = tickId;
+        this.template = templates.get(0);
+        this.recipient = recipient;
+        this.metalPrice = metalPrice;
+        this.templates = List.copyOf(templates);
+    }
+
+    public boolean isDigest() {
+        return templates != null && templates.size() > 1;
+    }
+}
@@ -7,7 +7,10 @@ public enum Operator {
     PRICE_IS_GREATER_THAN("Price is greater than"),
     PRICE_IS_GREATER_THAN_OR_EQUAL_TO("Price is greater than or equal to"),
     PRICE_IS_LESS_THAN("Price is less than"),
-    PRICE_IS_LESS_THAN_OR_EQUAL_TO("Price is less than or equal to");
+    PRICE_IS_LESS_THAN_OR_EQUAL_TO("Price is less than or equal to"),
+    PRICE_CHANGE_EXCEEDS_PERCENT("Price moved by more than percent within"),
+    PRICE_CROSSES_ABOVE_MOVING_AVERAGE("Price crosses above moving average of ticks"),
+    PRICE_CROSSES_BELOW_MOVING_AVERAGE("Price crosses below moving average of ticks");
 
     private final String displayName;
 
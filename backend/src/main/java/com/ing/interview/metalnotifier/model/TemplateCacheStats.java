@@ -0,0 +1,19 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplateCacheStats {
+    private long hits;
+    private long misses;
+    private long rebuilds;
+    private long updates;
+    private int size;
+    private boolean loaded;
+    /** Database change version the cached templates are known to include, see {@code TemplateChangeLog}. */
+    private long changeVersion;
+}
@@ -0,0 +1,29 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of an NDJSON template import. Only rejected lines are listed, by their position among the
+ * non-blank lines of the body.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplateImportResult {
+    private int received;
+    private int imported;
+    private int rejected;
+    private List<Rejection> rejections;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Rejection {
+        private int index;
+        private List<ErrorResponse.ValidationError> errors;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset listing. {@code nextCursor} is the value to pass as {@code after} for the
+ * following page, {@code null} once the last page has been returned.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplatePage {
+    private List<TemplateSummary> items;
+    private Long nextCursor;
+}
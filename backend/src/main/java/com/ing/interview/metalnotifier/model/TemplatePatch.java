@@ -0,0 +1,30 @@
+package com.ing.interview.metalnotifier.model;
+
+import com.ing.interview.metalnotifier.entity.Rule;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to apply to one template. Fields left {@code null} stay as they are; recipients and rules are
+ * added and removed one by one instead of replacing the lists. {@code version} is the version the client
+ * read, the patch is rejected when the template changed since.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplatePatch {
+    @NotNull
+    private Long version;
+    private String title;
+    private String content;
+    private TriggerMode triggerMode;
+    private List<String> addRecipients = new ArrayList<>();
+    private List<Long> removeRecipientIds = new ArrayList<>();
+    private List<Rule> addRules = new ArrayList<>();
+    private List<Long> removeRuleIds = new ArrayList<>();
+}
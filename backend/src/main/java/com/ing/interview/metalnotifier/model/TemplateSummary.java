@@ -0,0 +1,16 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TemplateSummary {
+    private Long id;
+    private String title;
+    private TriggerMode triggerMode;
+    private int ruleCount;
+    private int recipientCount;
+}
@@ -0,0 +1,25 @@
+package com.ing.interview.metalnotifier.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TickResult {
+    private String tickId;
+    private int matchedTemplates;
+    private int notifications;
+    private boolean asynchronous;
+    /** Why the notifications of the tick were not handed off, {@code null} when they were. */
+    private String rejection;
+
+    public TickResult(String tickId, int matchedTemplates, int notifications, boolean asynchronous) {
+        this(tickId, matchedTemplates, notifications, asynchronous, null);
+    }
+
+    public boolean isRejected() {
+        return rejection != null;
+    }
+}
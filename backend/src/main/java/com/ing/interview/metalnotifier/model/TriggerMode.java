@@ -0,0 +1,8 @@
+package com.ing.interview.metalnotifier.model;
+
+public enum TriggerMode {
+    /** Fires on every tick for which all rules match. */
+    LEVEL,
+    /** Fires only on the tick where the rules start to match, after at least one tick that did not. */
+    EDGE
+}
@@ -0,0 +1,70 @@
+package com.ing.interview.metalnotifier.rendering;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+
+import java.util.List;
+
+/**
+ * Title and content of a template in compiled form, plus the template-specific placeholder values.
+ * {@code {{threshold}}} is the operand of the template's first price rule, its plain rules coming before the
+ * rules of its groups, empty when it has none.
+ */
+public final class CompiledMessage {
+
+    private final CompiledText title;
+    private final CompiledText content;
+    private final String templateTitle;
+    private final String threshold;
+
+    private CompiledMessage(CompiledText title, CompiledText content, String templateTitle, String threshold) {
+        this.title = title;
+        this.content = content;
+        this.templateTitle = templateTitle;
+        this.threshold = threshold;
+    }
+
+    public static CompiledMessage compile(NotificationTemplate template) {
+        String threshold = firstThreshold(template.getRules(), template.getRuleGroups());
+        String templateTitle = template.getTitle() == null ? "" : template.getTitle();
+        return new CompiledMessage(CompiledText.compile(template.getTitle()), CompiledText.compile(template.getContent()),
+                templateTitle, threshold);
+    }
+
+    /**
+     * Looks at the plain rules before the groups, and at the groups depth first in their order.
+     */
+    private static String firstThreshold(List<Rule> rules, List<RuleGroup> groups) {
+        if (rules != null) {
+            for (Rule rule : rules) {
+                if (rule.getPredicate().isPriceRule() && rule.getOperand() != null) {
+                    return rule.getOperand().trim();
+                }
+            }
+        }
+        if (groups != null) {
+            for (RuleGroup group : groups) {
+                String threshold = firstThreshold(group.getRules(), group.getGroups());
+                if (!threshold.isEmpty()) {
+                    return threshold;
+                }
+            }
+        }
+        return "";
+    }
+
+    public RenderContext context(MetalPrice metalPrice) {
+        String price = metalPrice.getPrice() == null ? "" : metalPrice.getPrice().toPlainString();
+        return new RenderContext(metalPrice.getItemType(), price, threshold, templateTitle);
+    }
+
+    public CompiledText getTitle() {
+        return title;
+    }
+
+    public CompiledText getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ing.interview.metalnotifier.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text with {@code {{placeholder}}} markers parsed once into alternating literals and placeholders, so
+ * rendering is a single pass of appends. Unknown or unterminated markers are kept as literal text.
+ */
+public final class CompiledText {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final CompiledText EMPTY = new CompiledText(List.of(""), List.of());
+
+    /** One more literal than placeholders: literal, placeholder, literal, ..., literal. */
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+
+    private CompiledText(List<String> literals, List<Placeholder> placeholders) {
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new Placeholder[0]);
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledText compile(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < text.length()) {
+            int open = text.indexOf(OPEN, position);
+            int close = open < 0 ? -1 : text.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                literal.append(text, position, text.length());
+                break;
+            }
+            Placeholder placeholder = Placeholder.fromName(text.substring(open + OPEN.length(), close).trim());
+            if (placeholder == null) {
+                literal.append(text, position, close + CLOSE.length());
+            } else {
+                literal.append(text, position, open);
+                literals.add(literal.toString());
+                literal.setLength(0);
+                placeholders.add(placeholder);
+            }
+            position = close + CLOSE.length();
+        }
+        literals.add(literal.toString());
+        return new CompiledText(literals, placeholders);
+    }
+
+    public boolean hasPlaceholders() {
+        return placeholders.length > 0;
+    }
+
+    public String render(RenderContext context) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + 16 * placeholders.length);
+        renderTo(out, context);
+        return out.toString();
+    }
+
+    public void renderTo(StringBuilder out, RenderContext context) {
+        out.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = context.valueOf(placeholders[i]);
+            out.append(value == null ? "" : value).append(literals[i + 1]);
+        }
+    }
+}
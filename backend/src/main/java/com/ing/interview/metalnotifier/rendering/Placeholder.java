@@ -0,0 +1,36 @@
+package com.ing.interview.metalnotifier.rendering;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Values that can be substituted into a template title or content as {@code {{name}}}.
+ */
+public enum Placeholder {
+    ITEM_TYPE("itemType"),
+    PRICE("price"),
+    THRESHOLD("threshold"),
+    TEMPLATE_TITLE("templateTitle");
+
+    private static final Map<String, Placeholder> BY_NAME = Stream.of(values())
+            .collect(Collectors.toMap(Placeholder::getName, Function.identity()));
+
+    private final String name;
+
+    Placeholder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the placeholder with this name, {@code null} when there is none
+     */
+    public static Placeholder fromName(String name) {
+        return BY_NAME.get(name);
+    }
+}
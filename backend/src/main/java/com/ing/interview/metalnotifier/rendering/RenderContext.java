@@ -0,0 +1,28 @@
+package com.ing.interview.metalnotifier.rendering;
+
+/**
+ * Placeholder values of one message.
+ */
+public final class RenderContext {
+
+    private final String itemType;
+    private final String price;
+    private final String threshold;
+    private final String templateTitle;
+
+    public RenderContext(String itemType, String price, String threshold, String templateTitle) {
+        this.itemType = itemType;
+        this.price = price;
+        this.threshold = threshold;
+        this.templateTitle = templateTitle;
+    }
+
+    String valueOf(Placeholder placeholder) {
+        return switch (placeholder) {
+            case ITEM_TYPE -> itemType;
+            case PRICE -> price;
+            case THRESHOLD -> threshold;
+            case TEMPLATE_TITLE -> templateTitle;
+        };
+    }
+}
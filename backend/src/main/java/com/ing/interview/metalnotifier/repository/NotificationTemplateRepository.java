@@ -1,12 +1,62 @@
 package com.ing.interview.metalnotifier.repository;
 
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.model.TemplateSummary;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificationTemplateRepository extends JpaRepository<NotificationTemplate, Long> {
     List<NotificationTemplate> findAll();
-}
\ No newline at end of file
+
+    @Query("select distinct t from NotificationTemplate t left join fetch t.rules")
+    List<NotificationTemplate> findAllWithRules();
+
+    @Query("select distinct t from NotificationTemplate t left join fetch t.rules where t.id in :ids")
+    List<NotificationTemplate> findAllWithRulesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.ing.interview.metalnotifier.model.TemplateSummary("
+            + "t.id, t.title, t.triggerMode, size(t.rules), size(t.recipients)) "
+            + "from NotificationTemplate t where t.id > :after order by t.id")
+    List<TemplateSummary> findSummariesAfter(@Param("after") long after, Pageable pageable);
+
+    /**
+     * Number of rules inside the rule groups of each template, nested groups included, as
+     * {@code [templateId, count]} rows. Templates without grouped rules have no row.
+     */
+    @Query(value = "with recursive tree(id, template_id) as ("
+            + "select g.id, g.template_id from rule_group g where g.template_id in :ids "
+            + "union all select c.id, tree.template_id from rule_group c join tree on c.parent_id = tree.id) "
+            + "select tree.template_id, count(r.id) from tree join rule r on r.group_id = tree.id "
+            + "group by tree.template_id", nativeQuery = true)
+    List<Object[]> countGroupedRules(@Param("ids") Collection<Long> ids);
+
+    @Query("select t.id from NotificationTemplate t where t.id > :after order by t.id")
+    List<Long> findIdsAfter(@Param("after") long after, Pageable pageable);
+
+    List<NotificationTemplate> findByIdInOrderById(Collection<Long> ids);
+
+    /**
+     * Compare-and-set of the version: if it still is {@code version}, increments it and sets the given
+     * fields ({@code null} keeps a field), and holds the row lock until the transaction ends, so a concurrent
+     * patch of the same template waits and then fails. The persistence context is cleared, so the template
+     * is read back with the new values.
+     *
+     * @return 1 when the version matched, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update NotificationTemplate t set t.version = t.version + 1, "
+            + "t.title = coalesce(:title, t.title), t.content = coalesce(:content, t.content), "
+            + "t.triggerMode = coalesce(:triggerMode, t.triggerMode) "
+            + "where t.id = :id and t.version = :version")
+    int updateIfVersion(@Param("id") Long id, @Param("version") long version, @Param("title") String title,
+                        @Param("content") String content, @Param("triggerMode") TriggerMode triggerMode);
+}
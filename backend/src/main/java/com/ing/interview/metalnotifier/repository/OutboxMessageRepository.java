@@ -0,0 +1,64 @@
+package com.ing.interview.metalnotifier.repository;
+
+import com.ing.interview.metalnotifier.entity.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Pending rows that are due, plus claimed rows whose lease ran out, locked for update. A lock timeout of -2 is
+     * Hibernate's SKIP LOCKED, so concurrent relays get disjoint batches on databases that support it
+     * (Postgres); elsewhere the lock simply waits and the {@code @Version} check rejects a double claim.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select m from OutboxMessage m "
+            + "where (m.status = :pending and (m.nextAttemptAt is null or m.nextAttemptAt <= :now)) "
+            + "or (m.status = :claimed and m.claimedAt < :leaseExpiredBefore) "
+            + "order by m.id")
+    List<OutboxMessage> findClaimable(@Param("pending") OutboxMessage.Status pending,
+                                      @Param("claimed") OutboxMessage.Status claimed,
+                                      @Param("now") Instant now,
+                                      @Param("leaseExpiredBefore") Instant leaseExpiredBefore, Pageable pageable);
+
+    @Modifying
+    @Query("update OutboxMessage m set m.status = :status, m.sentAt = :sentAt, m.claimToken = null "
+            + "where m.id in :ids and m.claimToken = :claimToken")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken,
+                 @Param("status") OutboxMessage.Status status, @Param("sentAt") Instant sentAt);
+
+    /**
+     * Parks claimed rows as {@code FAILED}. Rows whose claim was taken over by another relay after the lease
+     * expired are left alone.
+     */
+    @Modifying
+    @Query("update OutboxMessage m set m.status = :status, m.claimToken = null "
+            + "where m.id in :ids and m.claimToken = :claimToken")
+    int release(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken,
+                @Param("status") OutboxMessage.Status status);
+
+    /**
+     * Hands claimed rows back as {@code PENDING}, not to be claimed again before {@code nextAttemptAt}.
+     */
+    @Modifying
+    @Query("update OutboxMessage m set m.status = :status, m.claimToken = null, m.nextAttemptAt = :nextAttemptAt "
+            + "where m.id in :ids and m.claimToken = :claimToken")
+    int retryLater(@Param("ids") Collection<Long> ids, @Param("claimToken") String claimToken,
+                   @Param("status") OutboxMessage.Status status, @Param("nextAttemptAt") Instant nextAttemptAt);
+
+    long countByStatus(OutboxMessage.Status status);
+}
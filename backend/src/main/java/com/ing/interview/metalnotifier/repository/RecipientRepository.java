@@ -0,0 +1,22 @@
+package com.ing.interview.metalnotifier.repository;
+
+import com.ing.interview.metalnotifier.entity.Recipient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecipientRepository extends JpaRepository<Recipient, Long> {
+
+    @Query("select r from Recipient r where r.template.id in :templateIds")
+    List<Recipient> findByTemplateIdIn(@Param("templateIds") Collection<Long> templateIds);
+
+    @Modifying
+    @Query("delete from Recipient r where r.template.id = :templateId and r.id in :ids")
+    int deleteByTemplateIdAndIdIn(@Param("templateId") Long templateId, @Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,21 @@
+package com.ing.interview.metalnotifier.repository;
+
+import com.ing.interview.metalnotifier.entity.Rule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface RuleRepository extends JpaRepository<Rule, Long> {
+
+    /**
+     * Deletes plain rules of the template; rules inside its groups have no template id and are left alone.
+     */
+    @Modifying
+    @Query("delete from Rule r where r.template.id = :templateId and r.id in :ids")
+    int deleteByTemplateIdAndIdIn(@Param("templateId") Long templateId, @Param("ids") Collection<Long> ids);
+}
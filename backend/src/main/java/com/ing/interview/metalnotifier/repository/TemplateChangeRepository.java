@@ -0,0 +1,26 @@
+package com.ing.interview.metalnotifier.repository;
+
+import com.ing.interview.metalnotifier.entity.TemplateChange;
+import com.ing.interview.metalnotifier.entity.TemplateChangeCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TemplateChangeRepository extends JpaRepository<TemplateChange, Long> {
+
+    @Query("select distinct c.templateId from TemplateChange c where c.version > :after and c.version <= :upTo")
+    List<Long> findTemplateIdsChangedBetween(@Param("after") long after, @Param("upTo") long upTo);
+
+    @Modifying
+    @Query("update TemplateChangeCounter c set c.version = c.version + 1 where c.id = " + TemplateChangeCounter.ID)
+    int incrementVersion();
+
+    @Query("select c.version from TemplateChangeCounter c where c.id = " + TemplateChangeCounter.ID)
+    Optional<Long> findVersion();
+}
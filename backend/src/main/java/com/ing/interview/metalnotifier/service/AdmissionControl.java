@@ -0,0 +1,137 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.AdmissionProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for price processing. At most {@code maxConcurrent} requests are processed at once
+ * and at most {@code maxQueued} more wait, each for no longer than {@code queueTimeout}; anything beyond
+ * that is shed with an {@link AdmissionRejectedException} right away. Latency of admitted requests stays
+ * bounded by the queue timeout plus processing time, instead of growing with the length of a burst.
+ * <p>
+ * Slots are handed out first come, first served: the semaphore is fair, and even the first, non-waiting
+ * attempt goes through the timed {@code tryAcquire(0, NANOSECONDS)}, which honours the fairness, rather than
+ * the untimed {@code tryAcquire()}, which would let a new request take a freed slot ahead of queued ones.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Permit NO_OP = () -> { };
+
+    private final boolean enabled;
+    private final int maxQueued;
+    private final Duration queueTimeout;
+    private final Duration retryAfter;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter admitted;
+    private final Counter shedQueueFull;
+    private final Counter shedTimeout;
+    private final Timer waitTimer;
+
+    @Autowired
+    public AdmissionControl(AdmissionProperties properties, NotifierMetrics metrics) {
+        this.enabled = properties.isEnabled();
+        this.maxQueued = Math.max(0, properties.getMaxQueued());
+        this.queueTimeout = properties.getQueueTimeout();
+        this.retryAfter = properties.getRetryAfter();
+        this.permits = new Semaphore(Math.max(1, properties.getMaxConcurrent()), true);
+
+        MeterRegistry registry = metrics.getRegistry();
+        this.admitted = Counter.builder("metal.notifier.admission.admitted")
+                .description("Price requests admitted for processing")
+                .register(registry);
+        this.shedQueueFull = shedCounter(registry, "queue_full");
+        this.shedTimeout = shedCounter(registry, "queue_timeout");
+        this.waitTimer = Timer.builder("metal.notifier.admission.wait")
+                .description("Time admitted price requests waited for a processing slot")
+                .register(registry);
+        Gauge.builder("metal.notifier.admission.in_flight", inFlight, AtomicInteger::get).register(registry);
+        Gauge.builder("metal.notifier.admission.queued", queued, AtomicInteger::get).register(registry);
+    }
+
+    private static Counter shedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("metal.notifier.admission.shed")
+                .description("Price requests rejected with 429 because processing was saturated")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Waits for a processing slot; close the returned permit when processing is done.
+     *
+     * @throws AdmissionRejectedException when the queue is full or the slot did not free up in time
+     */
+    public Permit acquire() {
+        if (!enabled) {
+            return NO_OP;
+        }
+        if (!tryAcquireNow()) {
+            awaitPermit();
+        }
+        inFlight.incrementAndGet();
+        admitted.increment();
+        return () -> {
+            inFlight.decrementAndGet();
+            permits.release();
+        };
+    }
+
+    private boolean tryAcquireNow() {
+        try {
+            return permits.tryAcquire(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void awaitPermit() {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            shedQueueFull.increment();
+            throw new AdmissionRejectedException("Price processing is saturated", retryAfter);
+        }
+        long started = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            queued.decrementAndGet();
+        }
+        if (!acquired) {
+            shedTimeout.increment();
+            throw new AdmissionRejectedException("Price processing is saturated", retryAfter);
+        }
+        waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces the jobs of one tick into one email per recipient address. A recipient matched by more
+ * than {@code maxTemplates} templates gets several digests; {@link MessageRenderer} renders them.
+ */
+@Component
+public class DigestComposer {
+
+    private final boolean enabled;
+    private final int maxTemplates;
+
+    @Autowired
+    public DigestComposer(DispatchProperties properties) {
+        this.enabled = properties.getDigest().isEnabled();
+        this.maxTemplates = Math.max(1, properties.getDigest().getMaxTemplates());
+    }
+
+    /**
+     * @param tickJobs single-template jobs of one tick
+     * @return the same jobs when digests are disabled, otherwise one job per recipient address and chunk
+     */
+    public List<NotificationJob> coalesce(List<NotificationJob> tickJobs) {
+        if (!enabled || tickJobs.size() < 2) {
+            return tickJobs;
+        }
+        Map<Object, List<NotificationJob>> byEmail = new LinkedHashMap<>();
+        for (NotificationJob job : tickJobs) {
+            byEmail.computeIfAbsent(emailKey(job.getRecipient()), key -> new ArrayList<>()).add(job);
+        }
+        if (byEmail.size() == tickJobs.size()) {
+            return tickJobs;
+        }
+
+        List<NotificationJob> coalesced = new ArrayList<>(byEmail.size());
+        for (List<NotificationJob> jobs : byEmail.values()) {
+            NotificationJob first = jobs.get(0);
+            List<NotificationTemplate> templates = new ArrayList<>(jobs.size());
+            Set<Object> seen = new HashSet<>();
+            for (NotificationJob job : jobs) {
+                NotificationTemplate template = job.getTemplate();
+                if (seen.add(template.getId() != null ? template.getId() : template)) {
+                    templates.add(template);
+                }
+            }
+            for (int from = 0; from < templates.size(); from += maxTemplates) {
+                List<NotificationTemplate> chunk = templates.subList(from, Math.min(from + maxTemplates, templates.size()));
+                coalesced.add(new NotificationJob(first.getTickId(), first.getRecipient(), chunk, first.getMetalPrice()));
+            }
+        }
+        return coalesced;
+    }
+
+    private static Object emailKey(Recipient recipient) {
+        String email = recipient.getEmail();
+        return email == null ? recipient : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
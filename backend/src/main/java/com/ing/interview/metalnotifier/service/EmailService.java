@@ -1,20 +1,41 @@
 package com.ing.interview.metalnotifier.service;
 
+import com.ing.interview.metalnotifier.mail.DeliveryResult;
+import com.ing.interview.metalnotifier.mail.EmailSender;
+import com.ing.interview.metalnotifier.model.EmailMessage;
 import com.ing.interview.metalnotifier.model.MetalPrice;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
 import com.ing.interview.metalnotifier.entity.Recipient;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
-@Slf4j
 public class EmailService {
+
+    private final MessageRenderer messageRenderer;
+    private final EmailSender emailSender;
+
+    @Autowired
+    public EmailService(MessageRenderer messageRenderer, EmailSender emailSender) {
+        this.messageRenderer = messageRenderer;
+        this.emailSender = emailSender;
+    }
     
     public void sendEmail(Recipient recipient, NotificationTemplate template, MetalPrice metalPrice) {
-        log.info("Recipient: {}", recipient.getEmail());
-        log.info("Title: {}", template.getTitle());
-        log.info("Content: {}", template.getContent());
-        log.info("Metal notification: {} : {}", metalPrice.getPrice(), metalPrice.getItemType());
-        log.info("-----------------------------------");
+        send(messageRenderer.render(recipient, template, metalPrice));
+    }
+
+    public void sendDigest(Recipient recipient, List<NotificationTemplate> templates, MetalPrice metalPrice) {
+        send(messageRenderer.renderDigest(recipient, templates, metalPrice));
+    }
+
+    public void send(EmailMessage message) {
+        emailSender.send(message);
+    }
+
+    public DeliveryResult sendBatch(List<EmailMessage> messages) {
+        return emailSender.sendBatch(messages);
     }
-}
\ No newline at end of file
+}
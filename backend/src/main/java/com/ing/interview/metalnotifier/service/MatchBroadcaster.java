@@ -0,0 +1,313 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.StreamProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MatchEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Fans match events out to server-sent event subscribers without ever blocking the publisher.
+ * <p>
+ * Every subscriber has a bounded queue, drained by a delivery thread of its own while it has events
+ * ({@link SseEmitter#send} blocks on the connection, so a stalled client only ever holds up itself).
+ * Publishing only offers to those queues: a subscriber whose queue is full is too slow to keep up and is
+ * dropped (its stream is completed, an {@code EventSource} reconnects on its own), and so is one whose
+ * current send has been blocked for longer than the send timeout. Heartbeat comments go through the same
+ * queues, so a connection that stopped reading is found even when nothing matches.
+ * <p>
+ * A subscriber holds one of the {@code maxSubscribers} slots from before its emitter is created until it is
+ * closed, or, when dropped, until its stuck send returns, which bounds the threads. Slots are reserved with a
+ * single atomic increment, so concurrent subscribes cannot go over the limit.
+ */
+@Slf4j
+@Component
+public class MatchBroadcaster {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    /** Open subscribers plus dropped ones whose delivery thread has not finished yet. */
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ExecutorService delivery;
+    private final ScheduledExecutorService heartbeats;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public MatchBroadcaster(NotifierMetrics metrics, StreamProperties properties) {
+        this.queueCapacity = Math.max(1, properties.getQueueCapacity());
+        this.maxSubscribers = properties.getMaxSubscribers();
+        Duration sendTimeout = properties.getSendTimeout();
+        Duration heartbeat = properties.getHeartbeat();
+        this.sendTimeoutNanos = Math.max(1, sendTimeout.toNanos());
+        // Threads only exist while subscribers have events to send, at most one per subscriber.
+        this.delivery = Executors.newCachedThreadPool(daemonThreads("match-stream-"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("match-stream-heartbeat-"));
+        long period = Math.max(1, heartbeat.toMillis());
+        heartbeats.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        long checkPeriod = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeats.scheduleAtFixedRate(this::dropStalled, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+        registerMeters(metrics.getRegistry());
+    }
+
+    /**
+     * Reserves a subscriber slot, then creates a stream and registers it; events published from now on are
+     * sent to it.
+     *
+     * @return the stream, {@code null} when the subscriber limit is reached
+     */
+    public SseEmitter subscribe(Supplier<? extends SseEmitter> emitters) {
+        if (slots.incrementAndGet() > maxSubscribers) {
+            slots.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter;
+        try {
+            emitter = emitters.get();
+        } catch (RuntimeException e) {
+            slots.decrementAndGet();
+            throw e;
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        // Added before the callbacks, so a callback always finds the subscriber to close and frees its slot.
+        subscribers.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Publishes the events once the surrounding transaction commits, right away without one.
+     */
+    public void publishAll(List<MatchEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(MatchBroadcaster.this::publish);
+                }
+            });
+        } else {
+            events.forEach(this::publish);
+        }
+    }
+
+    public void publish(MatchEvent event) {
+        published.increment();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                subscriber.drop(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.drop(false);
+        }
+        delivery.shutdown();
+    }
+
+    private void registerMeters(MeterRegistry registry) {
+        Gauge.builder("metal.notifier.stream.subscribers", subscribers, Set::size)
+                .description("Open match stream connections")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.stream.published", published, LongAdder::sum)
+                .description("Match events published to the stream")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.stream.delivered", delivered, LongAdder::sum)
+                .description("Match events written to subscribers")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.stream.dropped", dropped, LongAdder::sum)
+                .description("Subscribers dropped because their queue was full or a send timed out")
+                .register(registry);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean dropping = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile long sendStartedAt;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Object event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                drop(true);
+                return;
+            }
+            schedule();
+        }
+
+        /**
+         * Detaches the subscriber; the emitter is completed on its delivery thread, since completing waits
+         * for a send that may be stuck on the slow connection. Until then it keeps its slot.
+         */
+        void drop(boolean slow) {
+            if (!subscribers.remove(this)) {
+                return;
+            }
+            closed = true;
+            dropping.set(true);
+            if (slow) {
+                dropped.increment();
+                log.debug("Dropping match stream subscriber, {} events pending", queue.size());
+            }
+            schedule();
+        }
+
+        boolean isStalled(long now) {
+            long started = sendStartedAt;
+            return started != 0 && now - started > sendTimeoutNanos;
+        }
+
+        private void completed() {
+            if (dropping.compareAndSet(true, false)) {
+                slots.decrementAndGet();
+            }
+        }
+
+        /**
+         * Frees the slot unless the subscriber was dropped, whose slot is freed by {@link #completed()}.
+         */
+        void close() {
+            closed = true;
+            if (subscribers.remove(this)) {
+                slots.decrementAndGet();
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    close();
+                    completed();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    Object event;
+                    while (!closed && (event = queue.poll()) != null) {
+                        send(event);
+                    }
+                    if (closed) {
+                        queue.clear();
+                        emitter.complete();
+                        completed();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the container reports it through the emitter callbacks too.
+                    close();
+                    queue.clear();
+                    completed();
+                }
+                scheduled.set(false);
+                // An event offered, or a drop, after the last check but before the flag was cleared would be stranded.
+            } while ((dropping.get() || !closed && !queue.isEmpty()) && scheduled.compareAndSet(false, true));
+        }
+
+        private void send(Object event) throws IOException {
+            sendStartedAt = System.nanoTime();
+            try {
+                if (event == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(sequence.incrementAndGet()))
+                            .name("match")
+                            .data(event, MediaType.APPLICATION_JSON));
+                    delivered.increment();
+                }
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.rendering.CompiledMessage;
+import com.ing.interview.metalnotifier.rendering.RenderContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Turns templates into emails using their {@link NotificationTemplate#getCompiledMessage() compiled form}.
+ * A digest lists the rendered title and content of every template and stops adding templates once the
+ * body would exceed {@code maxContentLength} characters.
+ */
+@Component
+public class MessageRenderer {
+
+    private final int maxContentLength;
+
+    @Autowired
+    public MessageRenderer(DispatchProperties properties) {
+        this.maxContentLength = Math.max(1, properties.getDigest().getMaxContentLength());
+    }
+
+    public EmailMessage render(Recipient recipient, NotificationTemplate template, MetalPrice metalPrice) {
+        CompiledMessage compiled = template.getCompiledMessage();
+        RenderContext context = compiled.context(metalPrice);
+        return new EmailMessage(recipient.getEmail(), compiled.getTitle().render(context),
+                compiled.getContent().render(context), metalPrice.getItemType(), metalPrice.getPrice());
+    }
+
+    public EmailMessage renderDigest(Recipient recipient, List<NotificationTemplate> templates, MetalPrice metalPrice) {
+        StringBuilder body = new StringBuilder();
+        StringBuilder section = new StringBuilder();
+        int included = 0;
+        for (NotificationTemplate template : templates) {
+            CompiledMessage compiled = template.getCompiledMessage();
+            RenderContext context = compiled.context(metalPrice);
+            section.setLength(0);
+            compiled.getTitle().renderTo(section, context);
+            section.append('\n');
+            compiled.getContent().renderTo(section, context);
+            if (included > 0 && body.length() + 2 + section.length() > maxContentLength) {
+                break;
+            }
+            if (included > 0) {
+                body.append("\n\n");
+            }
+            body.append(section, 0, Math.min(section.length(), maxContentLength));
+            included++;
+        }
+        if (included < templates.size()) {
+            body.append("\n\n... and ").append(templates.size() - included).append(" more");
+        }
+        String subject = templates.size() + " price alerts for " + metalPrice.getItemType();
+        return new EmailMessage(recipient.getEmail(), subject, body.toString(), metalPrice.getItemType(), metalPrice.getPrice());
+    }
+}
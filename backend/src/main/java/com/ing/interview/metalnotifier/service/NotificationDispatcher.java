@@ -0,0 +1,31 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.model.DispatchStats;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+
+import java.util.List;
+
+public interface NotificationDispatcher {
+
+    void dispatch(List<NotificationJob> jobs);
+
+    /**
+     * @return {@code true} when {@link #dispatch} returns before the emails are sent
+     */
+    boolean isAsynchronous();
+
+    default DispatchStats getStats() {
+        return new DispatchStats(isAsynchronous(), 0, 0, 0, 0);
+    }
+
+    /**
+     * Sends one job as a plain email or, when it covers several templates, as a digest.
+     */
+    static void send(EmailService emailService, NotificationJob job) {
+        if (job.isDigest()) {
+            emailService.sendDigest(job.getRecipient(), job.getTemplates(), job.getMetalPrice());
+        } else {
+            emailService.sendEmail(job.getRecipient(), job.getTemplate(), job.getMetalPrice());
+        }
+    }
+}
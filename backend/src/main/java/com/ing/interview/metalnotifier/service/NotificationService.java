@@ -1,39 +1,378 @@
 package com.ing.interview.metalnotifier.service;
 
+import com.ing.interview.metalnotifier.model.MatchEvent;
+import com.ing.interview.metalnotifier.model.Metal;
 import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import com.ing.interview.metalnotifier.model.TemplatePage;
+import com.ing.interview.metalnotifier.model.TemplatePatch;
+import com.ing.interview.metalnotifier.model.TemplateSummary;
+import com.ing.interview.metalnotifier.model.TickResult;
+import com.ing.interview.metalnotifier.model.TriggerMode;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
 import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.matching.MatchStateStore;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.matching.PriceWindows;
+import com.ing.interview.metalnotifier.matching.TemplateIndex;
+import com.ing.interview.metalnotifier.matching.TemplateSlots;
+import com.ing.interview.metalnotifier.matching.TickRollback;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
 import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.repository.RecipientRepository;
+import com.ing.interview.metalnotifier.repository.RuleRepository;
+import jakarta.validation.ValidationException;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class NotificationService {
+
+    private static final int RECIPIENT_QUERY_CHUNK = 1000;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_GROUP_DEPTH = 16;
     
     private final NotificationTemplateRepository templateRepository;
-    private final EmailService emailService;
+    private final RecipientRepository recipientRepository;
+    private final RuleRepository ruleRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final DigestComposer digestComposer;
+    private final NotifierMetrics metrics;
+    private final PriceHistoryStore priceHistory;
+    private final MatchBroadcaster matchBroadcaster;
+    private final TemplateChangeLog changeLog;
+
+    private final TemplateCache templateCache;
+    private final MatchStateStore matchStateStore = new MatchStateStore();
+    private final PriceWindows priceWindows = new PriceWindows();
     
     @Autowired
-    public NotificationService(NotificationTemplateRepository templateRepository, EmailService emailService) {
+    public NotificationService(NotificationTemplateRepository templateRepository, RecipientRepository recipientRepository,
+                               RuleRepository ruleRepository,
+                               TemplateCache templateCache, NotificationDispatcher notificationDispatcher,
+                               DigestComposer digestComposer, NotifierMetrics metrics, PriceHistoryStore priceHistory,
+                               MatchBroadcaster matchBroadcaster, TemplateChangeLog changeLog) {
         this.templateRepository = templateRepository;
-        this.emailService = emailService;
+        this.recipientRepository = recipientRepository;
+        this.ruleRepository = ruleRepository;
+        this.templateCache = templateCache;
+        this.notificationDispatcher = notificationDispatcher;
+        this.digestComposer = digestComposer;
+        this.metrics = metrics;
+        this.priceHistory = priceHistory;
+        this.matchBroadcaster = matchBroadcaster;
+        this.changeLog = changeLog;
     }
     
-    public void processNewPrice(MetalPrice metalPrice) {
-        List<NotificationTemplate> templates = templateRepository.findAll();
-        
-        for (NotificationTemplate template : templates) {
-            if (template.matchesAllRules(metalPrice)) {
-                for (Recipient recipient : template.getRecipients()) {
-                    emailService.sendEmail(recipient, template, metalPrice);
+    /**
+     * Like {@link #processBatch(List)} for a single price, throwing why its jobs were not handed off.
+     */
+    public TickResult processNewPrice(MetalPrice metalPrice) {
+        RuntimeException[] failures = new RuntimeException[1];
+        TickResult result = processBatch(List.of(metalPrice), failures).get(0);
+        if (failures[0] != null) {
+            throw failures[0];
+        }
+        return result;
+    }
+
+    /**
+     * Matches every price and hands the jobs of each tick to the dispatcher on their own.
+     * <p>
+     * Deliberately not transactional: matching works on the template cache and only reads recipients, so the
+     * sync and queued dispatchers send without a transaction or connection held open, and never for ticks
+     * whose transaction could still roll back. The outbox dispatcher's {@code saveAll} is the only write and
+     * commits the rows of one tick together.
+     * <p>
+     * A tick whose jobs are not handed off is reported as rejected and leaves no trace: the window aggregates
+     * and edge states are rolled back and its price is not recorded in the history, so the client's retry is
+     * evaluated as if it came first. Later ticks of the same metal in the batch were matched on top of it and
+     * are rejected along with it; ticks of other metals are not affected.
+     */
+    public List<TickResult> processBatch(List<MetalPrice> metalPrices) {
+        return processBatch(metalPrices, new RuntimeException[metalPrices.size()]);
+    }
+
+    private List<TickResult> processBatch(List<MetalPrice> metalPrices, RuntimeException[] failures) {
+        List<String> tickIds = new ArrayList<>(metalPrices.size());
+        for (MetalPrice metalPrice : metalPrices) {
+            tickIds.add(tickId(metalPrice));
+        }
+        List<TickResult> results = processTicks(tickIds, metalPrices, failures);
+        if (results.stream().noneMatch(TickResult::isRejected)) {
+            priceHistory.record(metalPrices);
+            return results;
+        }
+        List<MetalPrice> accepted = new ArrayList<>(metalPrices.size());
+        for (int i = 0; i < metalPrices.size(); i++) {
+            if (!results.get(i).isRejected()) {
+                accepted.add(metalPrices.get(i));
+            }
+        }
+        priceHistory.record(accepted);
+        return results;
+    }
+
+    /**
+     * Like {@link #processBatch(List)}, for ticks whose ids were handed out, and which were recorded in the
+     * price history, before evaluation.
+     */
+    public List<TickResult> processTicks(List<String> tickIds, List<MetalPrice> metalPrices) {
+        return processTicks(tickIds, metalPrices, new RuntimeException[metalPrices.size()]);
+    }
+
+    private List<TickResult> processTicks(List<String> tickIds, List<MetalPrice> metalPrices, RuntimeException[] failures) {
+        long started = System.nanoTime();
+        try {
+            return processTicks(tickIds, metalPrices, templateCache.get().getIndex(), failures);
+        } finally {
+            metrics.processTimer().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The tick id given by the feed, or a new random one.
+     */
+    static String tickId(MetalPrice metalPrice) {
+        return metalPrice.getTickId() != null ? metalPrice.getTickId() : UUID.randomUUID().toString();
+    }
+
+    /**
+     * @param failures filled with the exception of every tick the dispatcher did not accept
+     */
+    private List<TickResult> processTicks(List<String> tickIds, List<MetalPrice> metalPrices, TemplateIndex index,
+                                          RuntimeException[] failures) {
+        boolean asynchronous = notificationDispatcher.isAsynchronous();
+
+        List<Metal> metals = new ArrayList<>(metalPrices.size());
+        List<TickRollback> rollbacks = new ArrayList<>(metalPrices.size());
+        List<List<NotificationTemplate>> matchedPerTick = new ArrayList<>(metalPrices.size());
+        List<List<NotificationTemplate>> firingPerTick = new ArrayList<>(metalPrices.size());
+        Set<Long> firingTemplateIds = new LinkedHashSet<>();
+        Map<Long, List<Recipient>> recipients;
+        try {
+            for (int i = 0; i < metalPrices.size(); i++) {
+                MetalPrice metalPrice = metalPrices.get(i);
+                long matchStarted = System.nanoTime();
+                Metal metal = Metal.fromCode(metalPrice.getItemType());
+                long scaled = PriceScale.toScaled(metalPrice.getPrice());
+                TickRollback rollback = new TickRollback();
+                metals.add(metal);
+                rollbacks.add(rollback);
+                long[] windowValues = priceWindows.advance(metal, scaled, index.getWindows(), rollback);
+                List<NotificationTemplate> matched = index.match(metal, scaled, windowValues);
+                List<NotificationTemplate> firing = index.hasEdgeTriggeredTemplates()
+                        ? applyEdgeTriggers(metalPrice, matched, index.getEdgeSlots(), rollback)
+                        : matched;
+                metrics.tickMatched(metalPrice.getItemType(), System.nanoTime() - matchStarted, index.size(), matched.size());
+                matchedPerTick.add(matched);
+                firingPerTick.add(firing);
+                for (NotificationTemplate template : firing) {
+                    if (template.getId() != null) {
+                        firingTemplateIds.add(template.getId());
+                    }
                 }
             }
+            recipients = metrics.recipientsLoadTimer().record(() -> loadRecipients(firingTemplateIds));
+        } catch (RuntimeException e) {
+            // Nothing was dispatched yet, so every tick is taken back.
+            for (int i = rollbacks.size() - 1; i >= 0; i--) {
+                rollbacks.get(i).run();
+            }
+            throw e;
         }
+
+        List<TickResult> results = new ArrayList<>(metalPrices.size());
+        List<Integer> rejectedTicks = new ArrayList<>();
+        Set<Metal> rejectedMetals = EnumSet.noneOf(Metal.class);
+        boolean streaming = matchBroadcaster.hasSubscribers();
+        List<MatchEvent> matchEvents = streaming ? new ArrayList<>() : List.of();
+        Instant matchedAt = Instant.now();
+        for (int i = 0; i < metalPrices.size(); i++) {
+            List<NotificationJob> tickJobs = new ArrayList<>();
+            List<MatchEvent> tickEvents = streaming ? new ArrayList<>() : List.of();
+            MetalPrice metalPrice = metalPrices.get(i);
+            for (NotificationTemplate template : firingPerTick.get(i)) {
+                List<Recipient> templateRecipients = recipients.getOrDefault(template.getId(), List.of());
+                for (Recipient recipient : templateRecipients) {
+                    tickJobs.add(new NotificationJob(tickIds.get(i), template, recipient, metalPrice));
+                }
+                if (streaming) {
+                    tickEvents.add(new MatchEvent(tickIds.get(i), template.getId(), template.getTitle(),
+                            metalPrice.getItemType(), metalPrice.getPrice(), templateRecipients.size(), matchedAt));
+                }
+            }
+            List<NotificationJob> coalesced = digestComposer.coalesce(tickJobs);
+
+            Metal metal = metals.get(i);
+            String rejection = null;
+            if (metal != null && rejectedMetals.contains(metal)) {
+                rejection = "An earlier " + metalPrice.getItemType() + " tick of the batch was rejected";
+            } else if (!coalesced.isEmpty()) {
+                try {
+                    metrics.dispatchTimer().record(() -> notificationDispatcher.dispatch(coalesced));
+                } catch (RuntimeException e) {
+                    failures[i] = e;
+                    rejection = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                }
+            }
+            if (rejection != null) {
+                if (metal != null) {
+                    rejectedMetals.add(metal);
+                }
+                rejectedTicks.add(i);
+                results.add(new TickResult(tickIds.get(i), matchedPerTick.get(i).size(), 0, asynchronous, rejection));
+            } else {
+                if (streaming) {
+                    matchEvents.addAll(tickEvents);
+                }
+                results.add(new TickResult(tickIds.get(i), matchedPerTick.get(i).size(), coalesced.size(), asynchronous));
+            }
+        }
+        for (int i = rejectedTicks.size() - 1; i >= 0; i--) {
+            rollbacks.get(rejectedTicks.get(i)).run();
+        }
+        matchBroadcaster.publishAll(matchEvents);
+        return results;
     }
-    
+
+    private Map<Long, List<Recipient>> loadRecipients(Set<Long> templateIds) {
+        Map<Long, List<Recipient>> recipients = new HashMap<>();
+        List<Long> ids = new ArrayList<>(templateIds);
+        for (int from = 0; from < ids.size(); from += RECIPIENT_QUERY_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + RECIPIENT_QUERY_CHUNK, ids.size()));
+            for (Recipient recipient : recipientRepository.findByTemplateIdIn(chunk)) {
+                recipients.computeIfAbsent(recipient.getTemplate().getId(), id -> new ArrayList<>()).add(recipient);
+            }
+        }
+        return recipients;
+    }
+
+    private List<NotificationTemplate> applyEdgeTriggers(MetalPrice metalPrice, List<NotificationTemplate> matched,
+                                                         TemplateSlots edgeSlots, TickRollback rollback) {
+        Metal metal = Metal.fromCode(metalPrice.getItemType());
+        if (metal == null) {
+            return matched;
+        }
+        List<NotificationTemplate> firing = new ArrayList<>(matched.size());
+        List<NotificationTemplate> edgeMatched = new ArrayList<>();
+        for (NotificationTemplate template : matched) {
+            if (template.getTriggerMode() == TriggerMode.EDGE && template.getId() != null) {
+                edgeMatched.add(template);
+            } else {
+                firing.add(template);
+            }
+        }
+        long[] ids = new long[edgeMatched.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = edgeMatched.get(i).getId();
+        }
+        boolean[] rising = matchStateStore.advance(metal, edgeSlots, ids, rollback);
+        for (int i = 0; i < rising.length; i++) {
+            if (rising[i]) {
+                firing.add(edgeMatched.get(i));
+            }
+        }
+        return firing;
+    }
+
+    @Transactional
     public NotificationTemplate saveTemplate(NotificationTemplate template) {
+        linkGraph(template);
+        NotificationTemplate saved = templateRepository.save(template);
+        changeLog.record(List.of(saved.getId()));
+        if (saved.getTriggerMode() != TriggerMode.EDGE && saved.getId() != null) {
+            matchStateStore.forget(saved.getId());
+        }
+        templateCache.put(saved);
+        return saved;
+    }
+    
+    /**
+     * Applies a patch touching only the rows it names. The version check, its increment and the changed
+     * fields are one update statement; removed recipients and rules then go in one delete statement each and
+     * added ones are inserted. The template entity itself is never modified, so Hibernate does not update
+     * its row a second time and the version moves by exactly one, also when only recipients or rules change.
+     *
+     * @return the patched template, {@code null} when there is no template with this id
+     */
+    @Transactional
+    public NotificationTemplate patchTemplate(Long id, TemplatePatch patch) {
+        if (templateRepository.updateIfVersion(id, patch.getVersion(), patch.getTitle(), patch.getContent(),
+                patch.getTriggerMode()) == 0) {
+            if (!templateRepository.existsById(id)) {
+                return null;
+            }
+            throw new ObjectOptimisticLockingFailureException(NotificationTemplate.class, id);
+        }
+
+        Set<Long> removeRecipientIds = patch.getRemoveRecipientIds() == null
+                ? Set.of() : new HashSet<>(patch.getRemoveRecipientIds());
+        if (!removeRecipientIds.isEmpty()
+                && recipientRepository.deleteByTemplateIdAndIdIn(id, removeRecipientIds) != removeRecipientIds.size()) {
+            throw new ValidationException("Not all recipients to remove belong to template " + id);
+        }
+        Set<Long> removeRuleIds = patch.getRemoveRuleIds() == null ? Set.of() : new HashSet<>(patch.getRemoveRuleIds());
+        if (!removeRuleIds.isEmpty() && ruleRepository.deleteByTemplateIdAndIdIn(id, removeRuleIds) != removeRuleIds.size()) {
+            throw new ValidationException("Not all rules to remove belong to template " + id);
+        }
+
+        NotificationTemplate template = templateRepository.findById(id)
+                .orElseThrow(() -> new ObjectOptimisticLockingFailureException(NotificationTemplate.class, id));
+        if (patch.getAddRecipients() != null && !patch.getAddRecipients().isEmpty()) {
+            List<Recipient> added = new ArrayList<>(patch.getAddRecipients().size());
+            for (String email : patch.getAddRecipients()) {
+                Recipient recipient = new Recipient(email);
+                recipient.setTemplate(template);
+                added.add(recipient);
+            }
+            recipientRepository.saveAll(added);
+        }
+
+        if (patch.getAddRules() != null && !patch.getAddRules().isEmpty()) {
+            for (Rule rule : patch.getAddRules()) {
+                rule.setId(null);
+                rule.setTemplate(template);
+            }
+            ruleRepository.saveAll(patch.getAddRules());
+        }
+        // The lazy collections are read from the database, so the inserts have to be there first.
+        ruleRepository.flush();
+        Hibernate.initialize(template.getRules());
+        Hibernate.initialize(template.getRuleGroups());
+
+        if (template.getTriggerMode() != TriggerMode.EDGE) {
+            matchStateStore.forget(id);
+        }
+        changeLog.record(List.of(id));
+        templateCache.put(template);
+        return template;
+    }
+
+    /**
+     * Points recipients, rules and groups of a template received as JSON back at their owners, validating
+     * the group tree on the way.
+     */
+    static void linkGraph(NotificationTemplate template) {
         if (template.getRecipients() != null) {
             template.getRecipients().forEach(recipient -> {
                 recipient.setTemplate(template);
@@ -46,18 +385,84 @@ public class NotificationService {
             });
         }
 
-        return templateRepository.save(template);
+        if (template.getRuleGroups() != null) {
+            template.getRuleGroups().forEach(group -> {
+                group.setTemplate(template);
+                group.setParent(null);
+                linkGroup(group, 1);
+            });
+        }
     }
-    
+
+    private static void linkGroup(RuleGroup group, int depth) {
+        if (depth > MAX_GROUP_DEPTH) {
+            throw new ValidationException("Rule groups can be nested at most " + MAX_GROUP_DEPTH + " levels deep");
+        }
+        if (group.getRules() == null) {
+            group.setRules(new ArrayList<>());
+        }
+        if (group.getGroups() == null) {
+            group.setGroups(new ArrayList<>());
+        }
+        if (group.getRules().isEmpty() && group.getGroups().isEmpty()) {
+            throw new ValidationException("A rule group needs at least one rule or group");
+        }
+        group.getRules().forEach(rule -> {
+            rule.setGroup(group);
+            rule.setTemplate(null);
+        });
+        group.getGroups().forEach(child -> {
+            child.setParent(group);
+            child.setTemplate(null);
+            linkGroup(child, depth + 1);
+        });
+    }
+
     public List<NotificationTemplate> getAllTemplates() {
         return templateRepository.findAll();
     }
     
+    /**
+     * Keyset page of template summaries ordered by id, starting after the given cursor.
+     */
+    public TemplatePage getTemplateSummaries(Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether another page exists without a count query.
+        List<TemplateSummary> rows = templateRepository.findSummariesAfter(
+                after == null ? Long.MIN_VALUE : after, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            addGroupedRules(rows);
+            return new TemplatePage(rows, null);
+        }
+        List<TemplateSummary> items = new ArrayList<>(rows.subList(0, pageSize));
+        addGroupedRules(items);
+        return new TemplatePage(items, items.get(pageSize - 1).getId());
+    }
+
+    /**
+     * The summary query only sizes the plain rules; rules inside (nested) groups are counted separately.
+     */
+    private void addGroupedRules(List<TemplateSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        Map<Long, TemplateSummary> byId = new HashMap<>();
+        summaries.forEach(summary -> byId.put(summary.getId(), summary));
+        for (Object[] row : templateRepository.countGroupedRules(byId.keySet())) {
+            TemplateSummary summary = byId.get(((Number) row[0]).longValue());
+            summary.setRuleCount(summary.getRuleCount() + ((Number) row[1]).intValue());
+        }
+    }
+    
     public NotificationTemplate getTemplateById(Long id) {
         return templateRepository.findById(id).orElse(null);
     }
     
+    @Transactional
     public void deleteTemplate(Long id) {
         templateRepository.deleteById(id);
+        changeLog.record(List.of(id));
+        matchStateStore.forget(id);
+        templateCache.remove(id);
     }
 }
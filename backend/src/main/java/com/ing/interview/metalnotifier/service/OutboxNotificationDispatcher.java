@@ -0,0 +1,65 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.entity.OutboxMessage;
+import com.ing.interview.metalnotifier.model.DispatchStats;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import com.ing.interview.metalnotifier.repository.OutboxMessageRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes notification jobs as outbox rows. The rows of one dispatch are saved in a single transaction, so
+ * they are committed together or not at all; the {@link OutboxRelay} delivers them afterwards.
+ */
+public class OutboxNotificationDispatcher implements NotificationDispatcher {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final MessageRenderer messageRenderer;
+
+    public OutboxNotificationDispatcher(OutboxMessageRepository outboxRepository, MessageRenderer messageRenderer) {
+        this.outboxRepository = outboxRepository;
+        this.messageRenderer = messageRenderer;
+    }
+
+    @Override
+    public void dispatch(List<NotificationJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<OutboxMessage> messages = new ArrayList<>(jobs.size());
+        for (NotificationJob job : jobs) {
+            // Rows store the rendered text, so later template edits do not change queued emails.
+            // A digest has no single template id.
+            EmailMessage email = job.isDigest()
+                    ? messageRenderer.renderDigest(job.getRecipient(), job.getTemplates(), job.getMetalPrice())
+                    : messageRenderer.render(job.getRecipient(), job.getTemplate(), job.getMetalPrice());
+            OutboxMessage message = new OutboxMessage();
+            message.setTickId(job.getTickId());
+            message.setTemplateId(job.isDigest() ? null : job.getTemplate().getId());
+            message.setRecipientId(job.getRecipient().getId());
+            message.setEmail(email.getTo());
+            message.setTitle(email.getSubject());
+            message.setContent(email.getBody());
+            message.setItemType(job.getMetalPrice().getItemType());
+            message.setPrice(job.getMetalPrice().getPrice());
+            message.setCreatedAt(now);
+            messages.add(message);
+        }
+        outboxRepository.saveAll(messages);
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    @Override
+    public DispatchStats getStats() {
+        int pending = (int) Math.min(Integer.MAX_VALUE, outboxRepository.countByStatus(OutboxMessage.Status.PENDING));
+        return new DispatchStats(true, 0, 0, pending, 0);
+    }
+}
@@ -0,0 +1,191 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.OutboxMessage;
+import com.ing.interview.metalnotifier.mail.DeliveryResult;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import com.ing.interview.metalnotifier.repository.OutboxMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the notification outbox. Each poll claims batches of rows in short transactions, sends each
+ * batch in one go outside of any transaction and then records the outcome under the claim token. Several instances can
+ * run side by side: claims skip rows locked by another relay, and a claim whose lease expired (the relay
+ * died mid-batch) is picked up again, so delivery is at least once.
+ * <p>
+ * A failed send is retried after {@code retryBackoff}, doubling with every further attempt up to
+ * {@code maxRetryBackoff}, so an unreachable mail server does not use up all attempts within one poll.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxRepository;
+    private final EmailService emailService;
+    private final NotifierMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration leaseTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final Duration shutdownTimeout;
+    private final ScheduledExecutorService scheduler;
+
+    public OutboxRelay(OutboxMessageRepository outboxRepository, EmailService emailService, NotifierMetrics metrics,
+                       PlatformTransactionManager transactionManager, DispatchProperties properties) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = properties.getOutbox().getBatchSize();
+        this.pollInterval = properties.getOutbox().getPollInterval();
+        this.leaseTimeout = properties.getOutbox().getLeaseTimeout();
+        this.maxAttempts = properties.getOutbox().getMaxAttempts();
+        this.retryBackoff = properties.getOutbox().getRetryBackoff();
+        this.maxRetryBackoff = properties.getOutbox().getMaxRetryBackoff();
+        this.shutdownTimeout = properties.getShutdownTimeout();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        long intervalMs = pollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::poll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Outbox relay polling every {} in batches of {}", pollInterval, batchSize);
+    }
+
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Claims and delivers batches until no claimable row is left or a batch had failed sends, in which
+     * case the rest waits for the next poll.
+     *
+     * @return number of emails sent
+     */
+    public int drain() {
+        int sent = 0;
+        while (true) {
+            String claimToken = UUID.randomUUID().toString();
+            List<OutboxMessage> claimed = claim(claimToken);
+            if (claimed.isEmpty()) {
+                return sent;
+            }
+            int delivered = deliver(claimed, claimToken);
+            sent += delivered;
+            if (claimed.size() < batchSize || delivered < claimed.size()) {
+                return sent;
+            }
+        }
+    }
+
+    private void poll() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.error("Outbox relay poll failed", e);
+        }
+    }
+
+    private List<OutboxMessage> claim(String claimToken) {
+        Instant now = Instant.now();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<OutboxMessage> batch = outboxRepository.findClaimable(OutboxMessage.Status.PENDING, OutboxMessage.Status.CLAIMED,
+                        now, now.minus(leaseTimeout), PageRequest.of(0, batchSize));
+                for (OutboxMessage message : batch) {
+                    message.setStatus(OutboxMessage.Status.CLAIMED);
+                    message.setClaimToken(claimToken);
+                    message.setClaimedAt(now);
+                    message.setAttempts(message.getAttempts() + 1);
+                }
+                return batch;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Outbox batch was claimed by another relay, retrying on the next poll");
+            return List.of();
+        }
+    }
+
+    private int deliver(List<OutboxMessage> claimed, String claimToken) {
+        List<Long> sent = new ArrayList<>(claimed.size());
+        // Rows of a batch can be at different attempts and so wait differently long.
+        Map<Integer, List<Long>> retry = new TreeMap<>();
+        List<Long> failed = new ArrayList<>();
+        List<EmailMessage> emails = new ArrayList<>(claimed.size());
+        for (OutboxMessage message : claimed) {
+            emails.add(email(message));
+        }
+        long started = System.nanoTime();
+        DeliveryResult result = emailService.sendBatch(emails);
+        // The batch shares one connection, so each email is accounted its share of the elapsed time.
+        long perEmail = (System.nanoTime() - started) / claimed.size();
+        for (int i = 0; i < claimed.size(); i++) {
+            OutboxMessage message = claimed.get(i);
+            if (result.isSent(i)) {
+                metrics.emailSent(message.getItemType(), perEmail);
+                sent.add(message.getId());
+            } else {
+                metrics.emailFailed(message.getItemType());
+                log.warn("Failed to send outbox message {} (attempt {} of {})", message.getId(), message.getAttempts(), maxAttempts,
+                        result.getError(i));
+                if (message.getAttempts() >= maxAttempts) {
+                    failed.add(message.getId());
+                } else {
+                    retry.computeIfAbsent(message.getAttempts(), attempts -> new ArrayList<>()).add(message.getId());
+                }
+            }
+        }
+
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxRepository.markSent(sent, claimToken, OutboxMessage.Status.SENT, now);
+            }
+            retry.forEach((attempts, ids) -> outboxRepository.retryLater(ids, claimToken, OutboxMessage.Status.PENDING,
+                    now.plus(backoff(attempts))));
+            if (!failed.isEmpty()) {
+                outboxRepository.release(failed, claimToken, OutboxMessage.Status.FAILED);
+            }
+        });
+        return sent.size();
+    }
+
+    /**
+     * Wait before the attempt after {@code attempts} failed ones: {@code retryBackoff}, doubled per further attempt.
+     */
+    private Duration backoff(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration backoff = retryBackoff.multipliedBy(1L << doublings);
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+
+    private static EmailMessage email(OutboxMessage message) {
+        return new EmailMessage(message.getEmail(), message.getTitle(), message.getContent(),
+                message.getItemType(), message.getPrice());
+    }
+}
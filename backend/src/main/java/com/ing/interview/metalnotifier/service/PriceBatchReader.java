@@ -0,0 +1,175 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ing.interview.metalnotifier.config.BatchProperties;
+import com.ing.interview.metalnotifier.model.BatchEntryResult;
+import com.ing.interview.metalnotifier.model.BatchResult;
+import com.ing.interview.metalnotifier.model.ErrorResponse;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a batch of prices from a JSON array or an NDJSON stream, validating every entry as soon as
+ * it is read. Invalid entries are recorded as rejected and never fail the rest of the batch.
+ */
+@Service
+public class PriceBatchReader {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int maxEntries;
+
+    @Autowired
+    public PriceBatchReader(ObjectMapper objectMapper, Validator validator, BatchProperties properties) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxEntries = properties.getMaxEntries();
+    }
+
+    public PriceBatch readJsonArray(InputStream body) throws IOException {
+        PriceBatch batch = new PriceBatch();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("Batch body must be a JSON array of prices");
+            }
+            while (true) {
+                JsonNode node;
+                try {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    node = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    batch.reject("entry", "Malformed JSON, remaining entries skipped: " + e.getOriginalMessage());
+                    break;
+                }
+                if (batch.isFull()) {
+                    batch.reject("entry", "Batch limit of " + maxEntries + " entries exceeded, remaining entries skipped");
+                    break;
+                }
+                try {
+                    accept(batch, objectMapper.treeToValue(node, MetalPrice.class));
+                } catch (JsonProcessingException e) {
+                    batch.reject("entry", "Invalid entry: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return batch;
+    }
+
+    public PriceBatch readNdjson(InputStream body) throws IOException {
+        PriceBatch batch = new PriceBatch();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (batch.isFull()) {
+                batch.reject("entry", "Batch limit of " + maxEntries + " entries exceeded, remaining entries skipped");
+                break;
+            }
+            try {
+                accept(batch, objectMapper.readValue(line, MetalPrice.class));
+            } catch (JsonProcessingException e) {
+                batch.reject("entry", "Invalid entry: " + e.getOriginalMessage());
+            }
+        }
+        return batch;
+    }
+
+    private void accept(PriceBatch batch, MetalPrice metalPrice) {
+        if (metalPrice == null) {
+            batch.reject("entry", "Entry must not be null");
+            return;
+        }
+        Set<ConstraintViolation<MetalPrice>> violations = validator.validate(metalPrice);
+        if (violations.isEmpty()) {
+            batch.accept(metalPrice);
+            return;
+        }
+        List<ErrorResponse.ValidationError> errors = new ArrayList<>();
+        for (ConstraintViolation<MetalPrice> violation : violations) {
+            errors.add(new ErrorResponse.ValidationError(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        batch.reject(errors);
+    }
+
+    public class PriceBatch {
+
+        private final List<BatchEntryResult> entries = new ArrayList<>();
+        private final List<MetalPrice> accepted = new ArrayList<>();
+        private final List<BatchEntryResult> acceptedEntries = new ArrayList<>();
+
+        private boolean isFull() {
+            return entries.size() >= maxEntries;
+        }
+
+        private void accept(MetalPrice metalPrice) {
+            BatchEntryResult entry = BatchEntryResult.builder()
+                    .index(entries.size())
+                    .status(BatchEntryResult.Status.PROCESSED)
+                    .build();
+            entries.add(entry);
+            acceptedEntries.add(entry);
+            accepted.add(metalPrice);
+        }
+
+        private void reject(String field, String message) {
+            reject(List.of(new ErrorResponse.ValidationError(field, message)));
+        }
+
+        private void reject(List<ErrorResponse.ValidationError> errors) {
+            entries.add(BatchEntryResult.builder()
+                    .index(entries.size())
+                    .status(BatchEntryResult.Status.REJECTED)
+                    .errors(errors)
+                    .build());
+        }
+
+        public List<MetalPrice> getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @param ticks results of processing {@link #getAccepted()}, in the same order
+         */
+        public BatchResult complete(List<TickResult> ticks, boolean asynchronous) {
+            int rejectedTicks = 0;
+            for (int i = 0; i < ticks.size(); i++) {
+                TickResult tick = ticks.get(i);
+                BatchEntryResult entry = acceptedEntries.get(i);
+                entry.setTickId(tick.getTickId());
+                entry.setMatchedTemplates(tick.getMatchedTemplates());
+                entry.setNotifications(tick.getNotifications());
+                if (tick.isRejected()) {
+                    entry.setStatus(BatchEntryResult.Status.REJECTED);
+                    entry.getErrors().add(new ErrorResponse.ValidationError("dispatch", tick.getRejection()));
+                    rejectedTicks++;
+                }
+            }
+            return new BatchResult(entries.size(), accepted.size() - rejectedTicks,
+                    entries.size() - accepted.size() + rejectedTicks, asynchronous, entries);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.ConflationProperties;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.ConflationStats;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latest-value-wins conflation of price ticks. When enabled, a tick only replaces the pending tick of its
+ * item type and is answered right away; once per window the pending ticks of all item types are evaluated
+ * together. A tick replaced before the window closed is dropped without ever reaching template matching.
+ * When evaluating a window fails, its ticks are counted as failed and put back for the next window, unless
+ * a newer tick of the same item type arrived meanwhile. A tick whose notifications were rejected is put back
+ * the same way. A tick that failed {@code max-attempts} times is abandoned, so a persistent failure does not
+ * retry the same ticks in every window.
+ */
+@Slf4j
+@Component
+public class PriceConflator {
+
+    private final NotificationService notificationService;
+    private final PriceHistoryStore priceHistory;
+    private final boolean enabled;
+    private final Duration window;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<String, PendingTick> pending = new ConcurrentHashMap<>();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PriceConflator(NotificationService notificationService, PriceHistoryStore priceHistory, NotifierMetrics metrics,
+                          ConflationProperties properties) {
+        this.notificationService = notificationService;
+        this.priceHistory = priceHistory;
+        this.enabled = properties.isEnabled();
+        this.window = properties.getWindow();
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+
+        MeterRegistry registry = metrics.getRegistry();
+        FunctionCounter.builder("metal.notifier.conflation.ticks", conflated, LongAdder::sum)
+                .description("Price ticks taken in by conflation")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.conflation.dropped", dropped, LongAdder::sum)
+                .description("Price ticks superseded by a newer tick of the same item type before evaluation")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.conflation.failed", failed, LongAdder::sum)
+                .description("Price ticks whose evaluation failed, retried in the next window unless superseded")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.conflation.abandoned", abandoned, LongAdder::sum)
+                .description("Price ticks given up on after their evaluation failed max-attempts times")
+                .register(registry);
+        Gauge.builder("metal.notifier.conflation.pending", pending, ConcurrentHashMap::size).register(registry);
+
+        if (enabled) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "price-conflator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long windowMs = Math.max(1, window.toMillis());
+            scheduler.scheduleWithFixedDelay(this::poll, windowMs, windowMs, TimeUnit.MILLISECONDS);
+            log.info("Conflating price ticks per item type every {}", window);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the tick in the price history and parks it as the latest price of its item type. The returned
+     * result only carries the tick id; matching happens when the window closes, and not at all if a newer
+     * tick arrives first.
+     */
+    public TickResult offer(MetalPrice metalPrice) {
+        priceHistory.record(metalPrice);
+        String tickId = NotificationService.tickId(metalPrice);
+        PendingTick previous = pending.put(key(metalPrice), new PendingTick(tickId, metalPrice, 0));
+        conflated.increment();
+        if (previous != null) {
+            dropped.increment();
+        }
+        return new TickResult(tickId, 0, 0, true);
+    }
+
+    public List<TickResult> offerAll(List<MetalPrice> metalPrices) {
+        List<TickResult> results = new ArrayList<>(metalPrices.size());
+        for (MetalPrice metalPrice : metalPrices) {
+            results.add(offer(metalPrice));
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates the pending ticks now.
+     *
+     * @return number of ticks evaluated
+     */
+    public int flush() {
+        List<String> keys = new ArrayList<>();
+        List<PendingTick> ticks = new ArrayList<>();
+        List<String> tickIds = new ArrayList<>();
+        List<MetalPrice> metalPrices = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            PendingTick tick = pending.remove(key);
+            if (tick != null) {
+                keys.add(key);
+                ticks.add(tick);
+                tickIds.add(tick.tickId);
+                metalPrices.add(tick.metalPrice);
+            }
+        }
+        if (tickIds.isEmpty()) {
+            return 0;
+        }
+        List<TickResult> results;
+        try {
+            results = notificationService.processTicks(tickIds, metalPrices);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < ticks.size(); i++) {
+                requeue(keys.get(i), ticks.get(i));
+            }
+            throw e;
+        }
+        int rejected = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isRejected()) {
+                requeue(keys.get(i), ticks.get(i));
+                rejected++;
+            }
+        }
+        evaluated.add(tickIds.size() - rejected);
+        return tickIds.size() - rejected;
+    }
+
+    private void requeue(String key, PendingTick tick) {
+        failed.increment();
+        int attempts = tick.attempts + 1;
+        if (attempts >= maxAttempts) {
+            abandoned.increment();
+            log.warn("Giving up on conflated tick {} of {} after {} failed evaluations", tick.tickId,
+                    tick.metalPrice.getItemType(), attempts);
+            return;
+        }
+        if (pending.putIfAbsent(key, new PendingTick(tick.tickId, tick.metalPrice, attempts)) != null) {
+            dropped.increment();
+        }
+    }
+
+    private void poll() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Evaluating conflated price ticks failed", e);
+        }
+    }
+
+    public ConflationStats getStats() {
+        return new ConflationStats(enabled, window.toMillis(), conflated.sum(), dropped.sum(), evaluated.sum(), failed.sum(),
+                abandoned.sum(), pending.size());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(window.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        // The last prices of the final window are still worth evaluating.
+        poll();
+    }
+
+    private static String key(MetalPrice metalPrice) {
+        return metalPrice.getItemType().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class PendingTick {
+
+        private final String tickId;
+        private final MetalPrice metalPrice;
+        /** Failed evaluations so far. */
+        private final int attempts;
+
+        PendingTick(String tickId, MetalPrice metalPrice, int attempts) {
+            this.tickId = tickId;
+            this.metalPrice = metalPrice;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.DispatchStats;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands notification jobs to a fixed pool of workers through a bounded queue. When the queue stays
+ * full for longer than the configured offer timeout the tick is rejected instead of growing the
+ * backlog without limit.
+ * <p>
+ * Admission is all-or-nothing: the queue slots for all jobs of a dispatch are reserved at once before any
+ * job is queued, so a rejected dispatch sends nothing and the client's retry notifies nobody twice.
+ * {@link NotificationService} dispatches every tick on its own, so one large tick never takes the other
+ * ticks of its batch down with it.
+ */
+@Slf4j
+public class QueuedNotificationDispatcher implements NotificationDispatcher {
+
+    private static final long POLL_INTERVAL_MS = 200;
+
+    private final EmailService emailService;
+    private final NotifierMetrics metrics;
+    private final BlockingQueue<NotificationJob> queue;
+    /** Free queue slots; taken before jobs are queued and given back when a worker takes a job. */
+    private final Semaphore freeSlots;
+    private final int queueCapacity;
+    private final Duration offerTimeout;
+    private final Duration shutdownTimeout;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public QueuedNotificationDispatcher(EmailService emailService, NotifierMetrics metrics, DispatchProperties properties) {
+        this.emailService = emailService;
+        this.metrics = metrics;
+        this.queueCapacity = properties.getQueueCapacity();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.freeSlots = new Semaphore(queueCapacity, true);
+        this.offerTimeout = properties.getOfferTimeout();
+        this.shutdownTimeout = properties.getShutdownTimeout();
+
+        ThreadFactory threadFactory = threadFactory(properties.getThreadType());
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Started {} {} notification workers with queue capacity {}",
+                workers.size(), properties.getThreadType(), queueCapacity);
+    }
+
+    @Override
+    public void dispatch(List<NotificationJob> jobs) {
+        if (!running) {
+            throw new RejectedExecutionException("Notification dispatcher is shutting down");
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
+        if (jobs.size() > queueCapacity) {
+            throw new RejectedExecutionException("Tick has " + jobs.size() + " notification jobs, more than the queue capacity "
+                    + queueCapacity);
+        }
+        try {
+            if (!freeSlots.tryAcquire(jobs.size(), offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Notification queue has no room for " + jobs.size() + " jobs");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while enqueuing notification jobs", e);
+        }
+        // The slots are reserved, so none of these offers can fail.
+        jobs.forEach(queue::add);
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    @Override
+    public DispatchStats getStats() {
+        return new DispatchStats(true, workers.size(), busyWorkers.get(), queue.size(), queueCapacity);
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Thread worker : workers) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs > 0) {
+                worker.join(remainingMs);
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Notification dispatcher stopped with {} undelivered jobs", queue.size());
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            NotificationJob job;
+            try {
+                job = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                continue;
+            }
+            freeSlots.release();
+            busyWorkers.incrementAndGet();
+            String itemType = job.getMetalPrice().getItemType();
+            long started = System.nanoTime();
+            try {
+                NotificationDispatcher.send(emailService, job);
+                metrics.emailSent(itemType, System.nanoTime() - started);
+            } catch (RuntimeException e) {
+                metrics.emailFailed(itemType);
+                log.error("Failed to send notification for tick {} to {}", job.getTickId(),
+                        job.getRecipient().getEmail(), e);
+            } finally {
+                busyWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(DispatchProperties.ThreadType threadType) {
+        if (threadType == DispatchProperties.ThreadType.VIRTUAL) {
+            try {
+                // Resolved reflectively so the code still compiles and runs on Java 17.
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "notification-worker-", 0L);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}, falling back to platform threads",
+                        Runtime.version().feature());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "notification-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+
+import java.util.List;
+
+public class SyncNotificationDispatcher implements NotificationDispatcher {
+
+    private final EmailService emailService;
+    private final NotifierMetrics metrics;
+
+    public SyncNotificationDispatcher(EmailService emailService, NotifierMetrics metrics) {
+        this.emailService = emailService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void dispatch(List<NotificationJob> jobs) {
+        for (NotificationJob job : jobs) {
+            String itemType = job.getMetalPrice().getItemType();
+            long started = System.nanoTime();
+            try {
+                NotificationDispatcher.send(emailService, job);
+            } catch (RuntimeException e) {
+                metrics.emailFailed(itemType);
+                throw e;
+            }
+            metrics.emailSent(itemType, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ing.interview.metalnotifier.config.TemplateProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.ErrorResponse;
+import com.ing.interview.metalnotifier.model.TemplateImportResult;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams templates in and out as NDJSON, one complete template graph per line.
+ * <p>
+ * An import is one transaction. Accepted templates are persisted in chunks that are flushed as JDBC
+ * batches (the entities take their ids from pooled sequences) and then detached, so neither the body
+ * nor the persistence context is ever held in memory as a whole. Lines that do not parse or validate
+ * are rejected on their own. Exported lines can be imported again; ids in an imported line are ignored
+ * and every line becomes a new template at its first version.
+ */
+@Slf4j
+@Service
+public class TemplateBulkService {
+
+    private final NotificationTemplateRepository templateRepository;
+    private final TemplateCache templateCache;
+    private final TemplateChangeLog changeLog;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int importChunkSize;
+    private final int exportPageSize;
+
+    @Autowired
+    public TemplateBulkService(NotificationTemplateRepository templateRepository, TemplateCache templateCache,
+                               TemplateChangeLog changeLog, EntityManager entityManager, ObjectMapper objectMapper,
+                               Validator validator, TemplateProperties properties) {
+        this.templateRepository = templateRepository;
+        this.templateCache = templateCache;
+        this.changeLog = changeLog;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.importChunkSize = Math.max(1, properties.getImportChunkSize());
+        this.exportPageSize = Math.max(1, properties.getExportPageSize());
+    }
+
+    @Transactional
+    public TemplateImportResult importNdjson(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<TemplateImportResult.Rejection> rejections = new ArrayList<>();
+        List<NotificationTemplate> chunk = new ArrayList<>(Math.min(importChunkSize, 1000));
+        int received = 0;
+        int imported = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int index = received++;
+            List<ErrorResponse.ValidationError> errors = new ArrayList<>();
+            NotificationTemplate template = read(line, errors);
+            if (template == null) {
+                rejections.add(new TemplateImportResult.Rejection(index, errors));
+                continue;
+            }
+            chunk.add(template);
+            if (chunk.size() >= importChunkSize) {
+                imported += persist(chunk);
+            }
+        }
+        imported += persist(chunk);
+        if (imported > 0) {
+            // One reload after commit instead of one snapshot copy per imported template.
+            templateCache.invalidate();
+        }
+        log.info("Imported {} of {} templates", imported, received);
+        return new TemplateImportResult(received, imported, rejections.size(), rejections);
+    }
+
+    /**
+     * Writes every template as one JSON line, in id order, loading {@code export-page-size} templates per
+     * keyset query and detaching them once written.
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream out) throws IOException {
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = templateRepository.findIdsAfter(after, PageRequest.of(0, exportPageSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (NotificationTemplate template : templateRepository.findByIdInOrderById(ids)) {
+                out.write(objectMapper.writeValueAsBytes(template));
+                out.write('\n');
+            }
+            out.flush();
+            entityManager.clear();
+            if (ids.size() < exportPageSize) {
+                break;
+            }
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * @return the linked template ready to persist, or {@code null} with {@code errors} filled in
+     */
+    private NotificationTemplate read(String line, List<ErrorResponse.ValidationError> errors) {
+        NotificationTemplate template;
+        try {
+            template = objectMapper.readValue(line, NotificationTemplate.class);
+        } catch (JsonProcessingException e) {
+            errors.add(new ErrorResponse.ValidationError("entry", "Invalid entry: " + e.getOriginalMessage()));
+            return null;
+        }
+        if (template == null) {
+            errors.add(new ErrorResponse.ValidationError("entry", "Entry must not be null"));
+            return null;
+        }
+        for (ConstraintViolation<NotificationTemplate> violation : validator.validate(template)) {
+            errors.add(new ErrorResponse.ValidationError(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        if (!errors.isEmpty()) {
+            return null;
+        }
+        try {
+            NotificationService.linkGraph(template);
+        } catch (ValidationException e) {
+            errors.add(new ErrorResponse.ValidationError("ruleGroups", e.getMessage()));
+            return null;
+        }
+        clearIds(template);
+        return template;
+    }
+
+    private int persist(List<NotificationTemplate> chunk) {
+        int persisted = chunk.size();
+        if (persisted > 0) {
+            templateRepository.saveAll(chunk);
+            List<Long> ids = new ArrayList<>(persisted);
+            chunk.forEach(template -> ids.add(template.getId()));
+            changeLog.record(ids);
+            entityManager.flush();
+            entityManager.clear();
+            chunk.clear();
+        }
+        return persisted;
+    }
+
+    private static void clearIds(NotificationTemplate template) {
+        template.setId(null);
+        template.setVersion(null);
+        if (template.getRecipients() != null) {
+            template.getRecipients().forEach(recipient -> recipient.setId(null));
+        }
+        if (template.getRules() != null) {
+            template.getRules().forEach(rule -> rule.setId(null));
+        }
+        if (template.getRuleGroups() != null) {
+            template.getRuleGroups().forEach(TemplateBulkService::clearIds);
+        }
+    }
+
+    private static void clearIds(RuleGroup group) {
+        group.setId(null);
+        group.getRules().forEach(rule -> rule.setId(null));
+        group.getGroups().forEach(TemplateBulkService::clearIds);
+    }
+}
@@ -0,0 +1,319 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.matching.TemplateIndex;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.TemplateCacheStats;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process copy of all templates together with their matching index.
+ * <p>
+ * Readers get an immutable {@link Snapshot} through a single volatile read and never wait for writers.
+ * The snapshot is loaded from the database once; afterwards saves and deletes derive the next snapshot
+ * from the current one, compiling only the changed template into its index (see {@link TemplateIndex#with}),
+ * and publish it with one reference swap. Changes made
+ * inside a transaction are applied after it commits, so a rolled back save never reaches the cache.
+ * <p>
+ * Every snapshot carries the database change version it is known to include. {@link #catchUp()} brings it
+ * forward by reloading only the templates changed after that version, which also picks up changes made by
+ * other instances, and {@link #install} starts from templates read elsewhere, such as a snapshot file.
+ */
+@Slf4j
+@Component
+public class TemplateCache {
+
+    private static final int RELOAD_CHUNK = 1000;
+    private static final int INCREMENTAL_CHANGES = 64;
+
+    private final NotificationTemplateRepository templateRepository;
+    private final TemplateChangeLog changeLog;
+    private final NotifierMetrics metrics;
+    private final TransactionOperations loadTransaction;
+    private final Object writeLock = new Object();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public TemplateCache(NotificationTemplateRepository templateRepository, TemplateChangeLog changeLog,
+                         NotifierMetrics metrics, PlatformTransactionManager transactionManager) {
+        this(templateRepository, changeLog, metrics, readOnly(transactionManager));
+    }
+
+    TemplateCache(NotificationTemplateRepository templateRepository, TemplateChangeLog changeLog,
+                  NotifierMetrics metrics, TransactionOperations loadTransaction) {
+        this.templateRepository = templateRepository;
+        this.changeLog = changeLog;
+        this.metrics = metrics;
+        this.loadTransaction = loadTransaction;
+        registerMeters(metrics.getRegistry());
+    }
+
+    private static TransactionOperations readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                // Ticks are matched outside any transaction; compiling the templates needs their lazy groups.
+                snapshot = metrics.indexLoadTimer().record(() -> loadTransaction.execute(status -> load()));
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * The current snapshot without loading one, {@code null} before the first load.
+     */
+    public Snapshot peek() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot with templates known to include every change up to {@code changeVersion}.
+     */
+    public void install(Collection<NotificationTemplate> templates, long changeVersion) {
+        Map<Long, NotificationTemplate> byId = new LinkedHashMap<>();
+        for (NotificationTemplate template : templates) {
+            byId.put(template.getId(), template);
+        }
+        Snapshot installed = new Snapshot(byId, changeVersion);
+        synchronized (writeLock) {
+            snapshot = installed;
+        }
+    }
+
+    /**
+     * Loads everything when nothing is cached yet, otherwise reloads the templates changed since the
+     * snapshot's version and drops the deleted ones.
+     *
+     * @return number of templates reloaded or dropped, or of templates loaded for a first load
+     */
+    @Transactional(readOnly = true)
+    public int catchUp() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return get().getTemplates().size();
+        }
+        // Read before the templates: whatever committed later is reloaded again by the next catch-up.
+        long target = changeLog.currentVersion();
+        if (target < current.version) {
+            // The snapshot is ahead of this database, it was not taken from it.
+            log.warn("Template cache is at change version {} but the database at {}, reloading all templates",
+                    current.version, target);
+            Snapshot reloaded = metrics.indexLoadTimer().record(this::load);
+            synchronized (writeLock) {
+                snapshot = reloaded;
+            }
+            return reloaded.getTemplates().size();
+        }
+        if (target == current.version) {
+            return 0;
+        }
+        List<Long> changed = changeLog.changedBetween(current.version, target);
+        Map<Long, NotificationTemplate> reloaded = new HashMap<>();
+        for (int from = 0; from < changed.size(); from += RELOAD_CHUNK) {
+            List<Long> chunk = changed.subList(from, Math.min(from + RELOAD_CHUNK, changed.size()));
+            for (NotificationTemplate template : templateRepository.findAllWithRulesByIdIn(chunk)) {
+                reloaded.put(template.getId(), template);
+            }
+        }
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                // Invalidated meanwhile, the next read loads everything.
+                return changed.size();
+            }
+            Map<Long, NotificationTemplate> templates = new LinkedHashMap<>(snapshot.templates);
+            TemplateIndex index = snapshot.index;
+            // A few changes are applied one by one, many in one rebuild.
+            boolean incremental = changed.size() <= INCREMENTAL_CHANGES;
+            for (Long id : changed) {
+                NotificationTemplate template = reloaded.get(id);
+                if (template == null) {
+                    templates.remove(id);
+                } else {
+                    templates.put(id, template);
+                }
+                if (incremental) {
+                    index = template == null ? index.without(id) : index.with(template);
+                }
+            }
+            snapshot = new Snapshot(templates, incremental ? index : TemplateIndex.build(templates.values()),
+                    Math.max(target, snapshot.version));
+            updates.increment();
+        }
+        log.debug("Template cache caught up from change version {} to {}, {} templates changed",
+                current.version, target, changed.size());
+        return changed.size();
+    }
+
+    public void put(NotificationTemplate template) {
+        afterCommit(() -> update(template.getId(), template));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> update(id, null));
+    }
+
+    /**
+     * Drops the snapshot so the next read reloads everything, for changes made behind the cache's back.
+     */
+    public void invalidate() {
+        afterCommit(() -> {
+            synchronized (writeLock) {
+                snapshot = null;
+            }
+        });
+    }
+
+    public TemplateCacheStats getStats() {
+        Snapshot current = snapshot;
+        return new TemplateCacheStats(hits.sum(), misses.sum(), rebuilds.sum(), updates.sum(),
+                current == null ? 0 : current.getIndex().size(), current != null, current == null ? 0 : current.version);
+    }
+
+    private Snapshot load() {
+        long version = changeLog.currentVersion();
+        Map<Long, NotificationTemplate> templates = new LinkedHashMap<>();
+        for (NotificationTemplate template : templateRepository.findAllWithRules()) {
+            templates.put(template.getId(), template);
+        }
+        rebuilds.increment();
+        log.debug("Loaded {} templates into the template cache", templates.size());
+        return new Snapshot(templates, version);
+    }
+
+    private void update(Long id, NotificationTemplate template) {
+        if (id == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                // Not loaded yet: the first read will load the committed state anyway.
+                return;
+            }
+            NotificationTemplate cached = current.templates.get(id);
+            if (template != null && cached != null && isOlder(template, cached)) {
+                // A catch-up already brought in a later version of this template.
+                return;
+            }
+            Map<Long, NotificationTemplate> templates = new LinkedHashMap<>(current.templates);
+            TemplateIndex index;
+            if (template == null) {
+                templates.remove(id);
+                index = current.index.without(id);
+            } else {
+                templates.put(id, template);
+                index = current.index.with(template);
+            }
+            snapshot = new Snapshot(templates, index, current.version);
+            updates.increment();
+        }
+    }
+
+    private static boolean isOlder(NotificationTemplate template, NotificationTemplate cached) {
+        return template.getVersion() != null && cached.getVersion() != null && template.getVersion() < cached.getVersion();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void registerMeters(MeterRegistry registry) {
+        FunctionCounter.builder("metal.notifier.template.cache.hits", hits, LongAdder::sum).register(registry);
+        FunctionCounter.builder("metal.notifier.template.cache.misses", misses, LongAdder::sum).register(registry);
+        FunctionCounter.builder("metal.notifier.template.cache.rebuilds", rebuilds, LongAdder::sum)
+                .description("Full loads of all templates from the database")
+                .register(registry);
+        FunctionCounter.builder("metal.notifier.template.cache.updates", updates, LongAdder::sum)
+                .description("Snapshots derived from the previous one after templates were saved, deleted or caught up")
+                .register(registry);
+        Gauge.builder("metal.notifier.templates.indexed", this, cache -> {
+                    Snapshot current = cache.snapshot;
+                    return current == null ? 0 : current.getIndex().size();
+                })
+                .description("Templates in the current matching index")
+                .register(registry);
+    }
+
+    /**
+     * Immutable view of all templates at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final Map<Long, NotificationTemplate> templates;
+        private final TemplateIndex index;
+        private final long version;
+
+        private Snapshot(Map<Long, NotificationTemplate> templates, long version) {
+            this(templates, TemplateIndex.build(templates.values()), version);
+        }
+
+        private Snapshot(Map<Long, NotificationTemplate> templates, TemplateIndex index, long version) {
+            this.templates = Collections.unmodifiableMap(templates);
+            this.index = index;
+            this.version = version;
+        }
+
+        /**
+         * Database change version this snapshot includes at least.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public Collection<NotificationTemplate> getTemplates() {
+            return templates.values();
+        }
+
+        public TemplateIndex getIndex() {
+            return index;
+        }
+
+        public NotificationTemplate get(Long id) {
+            return templates.get(id);
+        }
+    }
+}
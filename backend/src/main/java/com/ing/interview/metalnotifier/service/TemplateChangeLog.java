@@ -0,0 +1,69 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.entity.TemplateChange;
+import com.ing.interview.metalnotifier.entity.TemplateChangeCounter;
+import com.ing.interview.metalnotifier.repository.TemplateChangeRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Database change version of the templates and the log of which templates changed at which version.
+ * Writers record their changes in the transaction that makes them; readers take the current version and
+ * later ask which templates changed after it.
+ */
+@Component
+public class TemplateChangeLog {
+
+    private final TemplateChangeRepository changeRepository;
+    private final EntityManager entityManager;
+
+    @Autowired
+    public TemplateChangeLog(TemplateChangeRepository changeRepository, EntityManager entityManager) {
+        this.changeRepository = changeRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Takes the next version and logs the templates under it. The counter row stays locked until the
+     * surrounding transaction ends, which serializes template writers.
+     *
+     * @return the version of the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long record(Collection<Long> templateIds) {
+        long version;
+        if (changeRepository.incrementVersion() == 0) {
+            version = 1;
+            entityManager.persist(new TemplateChangeCounter(TemplateChangeCounter.ID, version));
+        } else {
+            version = currentVersion();
+        }
+        List<TemplateChange> changes = new ArrayList<>(templateIds.size());
+        for (Long templateId : templateIds) {
+            changes.add(new TemplateChange(version, templateId));
+        }
+        changeRepository.saveAll(changes);
+        return version;
+    }
+
+    /**
+     * Latest committed version, 0 before the first change.
+     */
+    public long currentVersion() {
+        return changeRepository.findVersion().orElse(0L);
+    }
+
+    /**
+     * Ids of the templates changed in {@code (after, upTo]}, each once.
+     */
+    public List<Long> changedBetween(long after, long upTo) {
+        return changeRepository.findTemplateIdsChangedBetween(after, upTo);
+    }
+}
@@ -0,0 +1,127 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.TemplateSnapshotProperties;
+import com.ing.interview.metalnotifier.snapshot.TemplateSnapshotFile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm restarts of the template cache from a snapshot file.
+ * <p>
+ * At startup the last snapshot is mapped and installed, then the cache catches up on the templates changed
+ * in the database after the snapshot's change version; without a usable snapshot everything is loaded from
+ * the database. This runs before the application reports readiness, so no tick is routed to an instance
+ * that is still loading. Afterwards the cache catches up every {@code refresh-interval}, which also brings in
+ * changes made through other instances, and the snapshot is rewritten whenever the cache changed, and once
+ * more on shutdown.
+ */
+@Slf4j
+@Component
+public class TemplateSnapshotService implements ApplicationRunner {
+
+    private final TemplateCache templateCache;
+    private final boolean enabled;
+    private final Path file;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler;
+    private final Object writeLock = new Object();
+    private TemplateCache.Snapshot written;
+
+    @Autowired
+    public TemplateSnapshotService(TemplateCache templateCache, TemplateSnapshotProperties properties) {
+        this.templateCache = templateCache;
+        this.enabled = properties.isEnabled();
+        this.file = Path.of(properties.getFile());
+        this.refreshInterval = properties.getRefreshInterval();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "template-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        warmUp();
+        long intervalMs = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Installs the snapshot file when there is a readable one and catches up with the database.
+     *
+     * @return whether the snapshot file was used
+     */
+    public boolean warmUp() {
+        long started = System.nanoTime();
+        boolean fromFile = false;
+        if (Files.exists(file)) {
+            try {
+                TemplateSnapshotFile.Contents contents = TemplateSnapshotFile.read(file);
+                templateCache.install(contents.getTemplates(), contents.getChangeVersion());
+                fromFile = true;
+                log.info("Installed {} templates at change version {} from {}", contents.getTemplates().size(),
+                        contents.getChangeVersion(), file);
+            } catch (IOException e) {
+                log.warn("Ignoring unusable template snapshot {}: {}", file, e.getMessage());
+            }
+        }
+        int changed = templateCache.catchUp();
+        log.info("Template cache ready at change version {} in {} ms ({} templates {})",
+                templateCache.peek().getVersion(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), changed,
+                fromFile ? "caught up from the database" : "loaded from the database");
+        writeSnapshot();
+        return fromFile;
+    }
+
+    /**
+     * Writes the current cache snapshot unless it was already written.
+     */
+    public void writeSnapshot() {
+        synchronized (writeLock) {
+            TemplateCache.Snapshot current = templateCache.peek();
+            if (current == null || current == written) {
+                return;
+            }
+            try {
+                TemplateSnapshotFile.write(file, current.getVersion(), current.getTemplates());
+                written = current;
+            } catch (IOException e) {
+                log.warn("Could not write template snapshot {}", file, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        if (enabled) {
+            writeSnapshot();
+        }
+    }
+
+    private void refresh() {
+        try {
+            templateCache.catchUp();
+            writeSnapshot();
+        } catch (RuntimeException e) {
+            log.error("Template cache refresh failed", e);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.IdempotencyProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of every price tick sent with an idempotency key, so a retried tick is answered with
+ * the original result instead of being processed, and its recipients notified, a second time.
+ * <p>
+ * Keys are spread over independently locked stripes, each an insertion-ordered map holding at most its share
+ * of {@code maxKeys}. Because every key lives for the same {@code ttl}, the eldest entry of a stripe is always
+ * the first to expire: expired keys are dropped from the head on every access and, when a stripe is full, the
+ * eldest key is evicted early. Memory therefore stays bounded by {@code maxKeys} whatever the key rate.
+ * <p>
+ * A duplicate that arrives while the first tick is still being processed waits for its result, but no longer
+ * than {@code inFlightWait}: a first tick stuck in dispatch must not pile up a request thread for every retry,
+ * so a duplicate that runs out of time fails with a {@link TickInProgressException}. A tick whose processing
+ * fails is forgotten, so the client's retry is processed again.
+ */
+@Component
+public class TickDeduplicator {
+
+    /** Longest accepted key, the size of the tick id columns. */
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Duration inFlightWait;
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final Counter replayed;
+
+    @Autowired
+    public TickDeduplicator(IdempotencyProperties properties, NotifierMetrics metrics) {
+        this(properties, metrics, Clock.systemUTC());
+    }
+
+    TickDeduplicator(IdempotencyProperties properties, NotifierMetrics metrics, Clock clock) {
+        this.enabled = properties.isEnabled();
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.inFlightWait = properties.getInFlightWait();
+        this.clock = clock;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(properties.getStripes(), properties.getMaxKeys())));
+        int stripeCapacity = Math.max(1, properties.getMaxKeys() / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+
+        MeterRegistry registry = metrics.getRegistry();
+        this.replayed = Counter.builder("metal.notifier.idempotency.replayed")
+                .description("Price ticks answered with the result of an earlier tick with the same idempotency key")
+                .register(registry);
+        Gauge.builder("metal.notifier.idempotency.keys", this, TickDeduplicator::size)
+                .description("Idempotency keys currently remembered")
+                .register(registry);
+    }
+
+    /**
+     * Runs {@code processing} unless a tick with the same key was processed within the ttl.
+     *
+     * @param key        idempotency key, {@code null} to always process
+     * @param metalPrice the tick, a replay is only allowed for the same item type and price
+     * @throws ValidationException     when the key is too long or was used for a different price
+     * @throws TickInProgressException when the tick with the same key is still being processed after the in-flight wait
+     */
+    public Outcome execute(String key, MetalPrice metalPrice, Supplier<TickResult> processing) {
+        if (!enabled || key == null) {
+            return new Outcome(processing.get(), false);
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException("Idempotency key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        Stripe stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+        Entry entry;
+        boolean first = false;
+        synchronized (stripe) {
+            long now = clock.millis();
+            stripe.expire(now);
+            entry = stripe.entries.get(key);
+            if (entry == null) {
+                entry = new Entry(now + ttlMillis, metalPrice);
+                stripe.entries.put(key, entry);
+                first = true;
+            }
+        }
+        if (!first) {
+            if (!entry.isSameTick(metalPrice)) {
+                throw new ValidationException("Idempotency key " + key + " was already used for another price");
+            }
+            TickResult result = await(key, entry);
+            replayed.increment();
+            return new Outcome(result, true);
+        }
+
+        try {
+            TickResult result = processing.get();
+            entry.result.complete(result);
+            return new Outcome(result, false);
+        } catch (RuntimeException | Error e) {
+            synchronized (stripe) {
+                stripe.entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private TickResult await(String key, Entry entry) {
+        try {
+            return entry.result.get(inFlightWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // The first tick failed; the duplicate fails the same way and the client retries.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new TickInProgressException("Tick with idempotency key " + key + " is still being processed", inFlightWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TickInProgressException("Tick with idempotency key " + key + " is still being processed", inFlightWait);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Result of {@link #execute}, {@code replayed} when it was taken from an earlier tick.
+     */
+    public static final class Outcome {
+
+        private final TickResult result;
+        private final boolean replayed;
+
+        Outcome(TickResult result, boolean replayed) {
+            this.result = result;
+            this.replayed = replayed;
+        }
+
+        public TickResult getResult() {
+            return result;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final LinkedHashMap<String, Entry> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        void expire(long now) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext() && iterator.next().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final long expiresAt;
+        private final String itemType;
+        private final BigDecimal price;
+        private final CompletableFuture<TickResult> result = new CompletableFuture<>();
+
+        Entry(long expiresAt, MetalPrice metalPrice) {
+            this.expiresAt = expiresAt;
+            this.itemType = metalPrice.getItemType();
+            this.price = metalPrice.getPrice();
+        }
+
+        boolean isSameTick(MetalPrice metalPrice) {
+            return itemType.equalsIgnoreCase(metalPrice.getItemType()) && price.compareTo(metalPrice.getPrice()) == 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ing.interview.metalnotifier.service;
+
+import java.time.Duration;
+
+/**
+ * A retried tick whose first attempt is still being processed and did not finish within the in-flight wait.
+ */
+public class TickInProgressException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TickInProgressException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
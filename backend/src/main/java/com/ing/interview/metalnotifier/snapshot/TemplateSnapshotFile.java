@@ -0,0 +1,304 @@
+package com.ing.interview.metalnotifier.snapshot;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the templates the matcher needs (title, content, trigger mode, rules and rule groups, no
+ * recipients), stamped with the database change version they reflect.
+ * <p>
+ * Layout: a 32 byte header {@code magic (4) | format (4) | change version (8) | templates (4) | body CRC32 (4) |
+ * body length (8)}, then the body: name tables of the enums used, so codes survive reordered constants, and
+ * one record per template with its rules and groups nested. Strings are length-prefixed UTF-8, -1 for null.
+ * The file is written next to its target and moved over it, and is read through a read-only memory map.
+ */
+public final class TemplateSnapshotFile {
+
+    static final int HEADER_SIZE = 32;
+
+    private static final int MAGIC = 0x4D4E5453; // "MNTS"
+    private static final int FORMAT = 1;
+    private static final int MAX_GROUP_DEPTH = 64;
+
+    private TemplateSnapshotFile() {
+    }
+
+    public static void write(Path path, long changeVersion, Collection<NotificationTemplate> templates) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            long bodyLength;
+            CRC32 crc = new CRC32();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                OutputStream body = Channels.newOutputStream(channel);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(body, crc), 1 << 16));
+                writeEnumTable(out, Operator.class);
+                writeEnumTable(out, GroupOperator.class);
+                writeEnumTable(out, TriggerMode.class);
+                for (NotificationTemplate template : templates) {
+                    writeTemplate(out, template);
+                }
+                out.flush();
+                bodyLength = channel.position() - HEADER_SIZE;
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT).putLong(changeVersion).putInt(templates.size())
+                        .putInt((int) crc.getValue()).putLong(bodyLength).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps and decodes a snapshot. The templates are detached: their ids and versions are the database ones,
+     * their recipients are left empty.
+     *
+     * @throws IOException when the file is missing, truncated, of another format or fails its checksum
+     */
+    public static Contents read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated template snapshot " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IOException("Not a template snapshot of format " + FORMAT + ": " + path);
+        }
+        long changeVersion = buffer.getLong(8);
+        int count = buffer.getInt(16);
+        int expectedCrc = buffer.getInt(20);
+        long bodyLength = buffer.getLong(24);
+        if (count < 0 || bodyLength < 0 || bodyLength > Integer.MAX_VALUE || HEADER_SIZE + bodyLength != buffer.capacity()) {
+            throw new IOException("Corrupt template snapshot header: " + path);
+        }
+        ByteBuffer body = buffer.slice(HEADER_SIZE, (int) bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Template snapshot checksum mismatch: " + path);
+        }
+
+        try {
+            Operator[] operators = readEnumTable(body, Operator.class);
+            GroupOperator[] groupOperators = readEnumTable(body, GroupOperator.class);
+            TriggerMode[] triggerModes = readEnumTable(body, TriggerMode.class);
+            Decoder decoder = new Decoder(body, operators, groupOperators);
+            List<NotificationTemplate> templates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                templates.add(decoder.template(triggerModes));
+            }
+            if (body.hasRemaining()) {
+                throw new IOException("Trailing bytes in template snapshot " + path);
+            }
+            return new Contents(changeVersion, templates);
+        } catch (RuntimeException e) {
+            // Only reachable with a body that passed the checksum but does not decode: a writer bug.
+            throw new IOException("Undecodable template snapshot " + path, e);
+        }
+    }
+
+    private static void writeTemplate(DataOutputStream out, NotificationTemplate template) throws IOException {
+        out.writeLong(template.getId());
+        out.writeLong(template.getVersion() == null ? -1 : template.getVersion());
+        out.writeByte(template.getTriggerMode().ordinal());
+        writeString(out, template.getTitle());
+        writeString(out, template.getContent());
+        writeRules(out, template.getRules());
+        List<RuleGroup> groups = template.getRuleGroups() == null ? List.of() : template.getRuleGroups();
+        out.writeInt(groups.size());
+        for (RuleGroup group : groups) {
+            writeGroup(out, group);
+        }
+    }
+
+    private static void writeGroup(DataOutputStream out, RuleGroup group) throws IOException {
+        out.writeLong(group.getId() == null ? -1 : group.getId());
+        out.writeByte(group.getOperator().ordinal());
+        writeRules(out, group.getRules());
+        List<RuleGroup> children = group.getGroups() == null ? List.of() : group.getGroups();
+        out.writeInt(children.size());
+        for (RuleGroup child : children) {
+            writeGroup(out, child);
+        }
+    }
+
+    private static void writeRules(DataOutputStream out, List<Rule> rules) throws IOException {
+        if (rules == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(rules.size());
+        for (Rule rule : rules) {
+            out.writeLong(rule.getId() == null ? -1 : rule.getId());
+            out.writeByte(rule.getOperator() == null ? -1 : rule.getOperator().ordinal());
+            writeString(out, rule.getOperand());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static <E extends Enum<E>> void writeEnumTable(DataOutputStream out, Class<E> type) throws IOException {
+        E[] constants = type.getEnumConstants();
+        out.writeShort(constants.length);
+        for (E constant : constants) {
+            writeString(out, constant.name());
+        }
+    }
+
+    /**
+     * @return the constant of this JVM for every code in the file
+     */
+    private static <E extends Enum<E>> E[] readEnumTable(ByteBuffer body, Class<E> type) throws IOException {
+        int size = body.getShort();
+        @SuppressWarnings("unchecked")
+        E[] table = (E[]) Array.newInstance(type, size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(body);
+            try {
+                table[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IOException("Template snapshot uses unknown " + type.getSimpleName() + " " + name);
+            }
+        }
+        return table;
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Long id(long value) {
+        return value < 0 ? null : value;
+    }
+
+    public static final class Contents {
+
+        private final long changeVersion;
+        private final List<NotificationTemplate> templates;
+
+        private Contents(long changeVersion, List<NotificationTemplate> templates) {
+            this.changeVersion = changeVersion;
+            this.templates = templates;
+        }
+
+        public long getChangeVersion() {
+            return changeVersion;
+        }
+
+        public List<NotificationTemplate> getTemplates() {
+            return templates;
+        }
+    }
+
+    private static final class Decoder {
+
+        private final ByteBuffer body;
+        private final Operator[] operators;
+        private final GroupOperator[] groupOperators;
+
+        Decoder(ByteBuffer body, Operator[] operators, GroupOperator[] groupOperators) {
+            this.body = body;
+            this.operators = operators;
+            this.groupOperators = groupOperators;
+        }
+
+        NotificationTemplate template(TriggerMode[] triggerModes) throws IOException {
+            NotificationTemplate template = new NotificationTemplate();
+            template.setId(body.getLong());
+            template.setVersion(id(body.getLong()));
+            template.setTriggerMode(triggerModes[body.get()]);
+            template.setTitle(readString(body));
+            template.setContent(readString(body));
+            List<Rule> rules = rules();
+            rules.forEach(rule -> rule.setTemplate(template));
+            template.setRules(rules);
+            int groupCount = body.getInt();
+            List<RuleGroup> groups = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                RuleGroup group = group(1);
+                group.setTemplate(template);
+                groups.add(group);
+            }
+            template.setRuleGroups(groups);
+            return template;
+        }
+
+        private RuleGroup group(int depth) throws IOException {
+            if (depth > MAX_GROUP_DEPTH) {
+                throw new IOException("Rule groups in template snapshot nested deeper than " + MAX_GROUP_DEPTH);
+            }
+            Long id = id(body.getLong());
+            GroupOperator operator = groupOperators[body.get()];
+            List<Rule> rules = rules();
+            int childCount = body.getInt();
+            List<RuleGroup> children = new ArrayList<>(childCount);
+            for (int i = 0; i < childCount; i++) {
+                children.add(group(depth + 1));
+            }
+            RuleGroup group = new RuleGroup(operator, rules, children);
+            group.setId(id);
+            group.getRules().forEach(rule -> rule.setGroup(group));
+            group.getGroups().forEach(child -> child.setParent(group));
+            return group;
+        }
+
+        private List<Rule> rules() {
+            int count = body.getInt();
+            List<Rule> rules = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Long id = id(body.getLong());
+                byte code = body.get();
+                Rule rule = new Rule(code < 0 ? null : operators[code], readString(body));
+                rule.setId(id);
+                rules.add(rule);
+            }
+            return rules;
+        }
+    }
+}
@@ -5,17 +5,30 @@ CREATE TYPE operator_enum AS ENUM (
     'PRICE_IS_GREATER_THAN',
     'PRICE_IS_GREATER_THAN_OR_EQUAL_TO',
     'PRICE_IS_LESS_THAN',
-    'PRICE_IS_LESS_THAN_OR_EQUAL_TO'
+    'PRICE_IS_LESS_THAN_OR_EQUAL_TO',
+    'PRICE_CHANGE_EXCEEDS_PERCENT',
+    'PRICE_CROSSES_ABOVE_MOVING_AVERAGE',
+    'PRICE_CROSSES_BELOW_MOVING_AVERAGE'
 );
 
+-- Ids are handed out by Hibernate in blocks of 50 (pooled optimizer), so INCREMENT BY must match allocationSize.
+-- Databases whose ids came from identity columns have their sequences moved past max(id) by IdSequenceMigration.
+CREATE SEQUENCE notification_template_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE recipient_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE rule_group_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE rule_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE notification_outbox_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE notification_template (
-                                       id BIGSERIAL PRIMARY KEY,
+                                       id BIGINT PRIMARY KEY,
+                                       version BIGINT NOT NULL DEFAULT 0,
                                        title VARCHAR(255) NOT NULL,
-                                       content TEXT
+                                       content TEXT,
+                                       trigger_mode VARCHAR(16) NOT NULL DEFAULT 'LEVEL'
 );
 
 CREATE TABLE recipient (
-                           id BIGSERIAL PRIMARY KEY,
+                           id BIGINT PRIMARY KEY,
                            email VARCHAR(255),
                            template_id BIGINT,
                            CONSTRAINT fk_recipient_template
@@ -24,13 +37,86 @@ CREATE TABLE recipient (
                                    ON DELETE CASCADE
 );
 
+-- Nested AND/OR/NOT expression; top-level groups reference the template, nested ones their parent.
+CREATE TABLE rule_group (
+                            id BIGINT PRIMARY KEY,
+                            operator VARCHAR(8) NOT NULL DEFAULT 'AND',
+                            template_id BIGINT,
+                            parent_id BIGINT,
+                            CONSTRAINT fk_rule_group_template
+                                FOREIGN KEY (template_id)
+                                    REFERENCES notification_template (id)
+                                    ON DELETE CASCADE,
+                            CONSTRAINT fk_rule_group_parent
+                                FOREIGN KEY (parent_id)
+                                    REFERENCES rule_group (id)
+                                    ON DELETE CASCADE
+);
+
 CREATE TABLE rule (
-                      id BIGSERIAL PRIMARY KEY,
+                      id BIGINT PRIMARY KEY,
                       operator operator_enum NOT NULL,
                       operand VARCHAR(255),
                       template_id BIGINT,
+                      group_id BIGINT,
                       CONSTRAINT fk_rule_template
                           FOREIGN KEY (template_id)
                               REFERENCES notification_template (id)
+                              ON DELETE CASCADE,
+                      CONSTRAINT fk_rule_group
+                          FOREIGN KEY (group_id)
+                              REFERENCES rule_group (id)
                               ON DELETE CASCADE
 );
+
+
+CREATE INDEX idx_recipient_template_id ON recipient (template_id);
+
+CREATE INDEX idx_rule_template_id ON rule (template_id);
+
+CREATE INDEX idx_rule_group_id ON rule (group_id);
+
+CREATE INDEX idx_rule_group_template_id ON rule_group (template_id);
+
+CREATE INDEX idx_rule_group_parent_id ON rule_group (parent_id);
+
+-- Database change version of the templates: one row, incremented by every transaction that changes templates.
+CREATE TABLE template_change_counter (
+                                         id INTEGER PRIMARY KEY,
+                                         version BIGINT NOT NULL
+);
+
+INSERT INTO template_change_counter (id, version) VALUES (1, 0);
+
+CREATE SEQUENCE template_change_seq START WITH 1 INCREMENT BY 50;
+
+-- Templates created, updated or deleted at each version; caches catch up by reloading the ones after theirs.
+CREATE TABLE template_change (
+                                 id BIGINT PRIMARY KEY,
+                                 version BIGINT NOT NULL,
+                                 template_id BIGINT NOT NULL
+);
+
+CREATE INDEX idx_template_change_version ON template_change (version);
+
+CREATE TABLE notification_outbox (
+                                     id BIGINT PRIMARY KEY,
+                                     version BIGINT NOT NULL DEFAULT 0,
+                                     status VARCHAR(16) NOT NULL,
+                                     tick_id VARCHAR(64),
+                                     template_id BIGINT,
+                                     recipient_id BIGINT,
+                                     email VARCHAR(255),
+                                     title VARCHAR(255),
+                                     content TEXT,
+                                     item_type VARCHAR(32),
+                                     price NUMERIC(12, 2),
+                                     attempts INT NOT NULL DEFAULT 0,
+                                     claim_token VARCHAR(64),
+                                     claimed_at TIMESTAMP WITH TIME ZONE,
+                                     next_attempt_at TIMESTAMP WITH TIME ZONE,
+                                     created_at TIMESTAMP WITH TIME ZONE,
+                                     sent_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_notification_outbox_status_id ON notification_outbox (status, id);
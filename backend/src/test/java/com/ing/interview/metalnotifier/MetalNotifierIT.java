@@ -20,7 +20,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -28,6 +30,8 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -87,6 +91,7 @@ public class MetalNotifierIT {
         
         // 2. Check if template exist in db thru API
         ensureTemplateSuccessfullySavedThrueAPI(templateId, "Gold price alert", 2);
+        ensureTemplateListedThrueAPI(templateId);
 
         // 3.Send gold price notificaiton which should trigger email
         sendNewPriceNotification(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
@@ -98,6 +103,13 @@ public class MetalNotifierIT {
         sendNewPriceNotification(new MetalPrice("gold", BigDecimal.valueOf(1400.00)));
         verifyNoInteractions(emailService);
 
+        // Both ticks are kept in the price history
+        mockMvc.perform(get("/api/prices/history").param("itemType", "gold"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].price", is(1600.0)))
+                .andExpect(jsonPath("$[1].price", is(1400.0)));
+
         // 5. Update template
         createdTemplate.setContent("Updated content");
         String updatedTemplateJson = objectMapper.writeValueAsString(createdTemplate);
@@ -117,6 +129,176 @@ public class MetalNotifierIT {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void testRuleGroups_StoredNestedAndEvaluatedOnPrices() throws Exception {
+        // Given: not platinum AND (price > 1500 OR (price < 1000 AND NOT silver))
+        String templateJson = """
+                {"title": "Metal range alert", "content": "Out of range",
+                 "recipients": [{"email": "testtest@ingtest.pl"}],
+                 "rules": [{"operator": "ITEM_IS_NOT", "operand": "platinum"}],
+                 "ruleGroups": [{"operator": "OR",
+                                 "rules": [{"operator": "PRICE_IS_GREATER_THAN", "operand": "1500"}],
+                                 "groups": [{"operator": "AND",
+                                             "rules": [{"operator": "PRICE_IS_LESS_THAN", "operand": "1000"}],
+                                             "groups": [{"operator": "NOT",
+                                                         "rules": [{"operator": "ITEM_IS", "operand": "silver"}]}]}]}]}
+                """;
+        String responseJson = mockMvc.perform(post("/api/templates")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(templateJson))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long templateId = objectMapper.readValue(responseJson, NotificationTemplate.class).getId();
+
+        mockMvc.perform(get("/api/templates/{id}", templateId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rules", hasSize(1)))
+                .andExpect(jsonPath("$.ruleGroups[0].operator", is("OR")))
+                .andExpect(jsonPath("$.ruleGroups[0].groups[0].groups[0].operator", is("NOT")))
+                .andExpect(jsonPath("$.ruleGroups[0].groups[0].groups[0].rules[0].operand", is("silver")));
+        mockMvc.perform(get("/api/templates"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].ruleCount", is(4)));
+
+        // When & Then
+        for (MetalPrice matching : List.of(new MetalPrice("gold", BigDecimal.valueOf(1600)),
+                new MetalPrice("gold", BigDecimal.valueOf(900)), new MetalPrice("silver", BigDecimal.valueOf(1600)))) {
+            sendNewPriceNotification(matching);
+            verify(emailService, times(1)).sendEmail(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+            Mockito.reset(emailService);
+        }
+        for (MetalPrice other : List.of(new MetalPrice("gold", BigDecimal.valueOf(1200)),
+                new MetalPrice("silver", BigDecimal.valueOf(900)), new MetalPrice("platinum", BigDecimal.valueOf(1600)))) {
+            sendNewPriceNotification(other);
+        }
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    public void testPriceTick_SendsEmailsOutsideAnyTransaction() throws Exception {
+        // Given
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold price alert");
+        template.setContent("Gold price has changed significantly!");
+        template.setRecipients(List.of(new Recipient("testtest@ingtest.pl")));
+        template.setRules(List.of(new Rule(Operator.ITEM_IS, "gold"), new Rule(Operator.PRICE_IS_GREATER_THAN, "1500")));
+        createNewTemplateThrueAPI(template);
+        List<Boolean> inTransaction = new ArrayList<>();
+        Mockito.doAnswer(invocation -> inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive()))
+                .when(emailService).sendEmail(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        // When
+        sendNewPriceNotification(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+
+        // Then
+        assertEquals(List.of(false), inTransaction);
+    }
+
+    @Test
+    public void testRuleGroups_EmptyGroupIsRejected() throws Exception {
+        mockMvc.perform(post("/api/templates")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Empty\", \"ruleGroups\": [{\"operator\": \"OR\"}]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testPatchTemplate_ChangesOnlyNamedRowsAndRejectsStaleVersion() throws Exception {
+        // Given
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold price alert");
+        template.setRecipients(new ArrayList<>(List.of(new Recipient("keep@ingtest.pl"), new Recipient("drop@ingtest.pl"))));
+        template.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, "1500"))));
+        NotificationTemplate created = createNewTemplateThrueAPI(template);
+        Long keptRecipientId = created.getRecipients().get(0).getId();
+        Long droppedRecipientId = created.getRecipients().get(1).getId();
+        Long droppedRuleId = created.getRules().get(1).getId();
+        String patch = "{\"version\": " + created.getVersion() + ", \"addRecipients\": [\"new@ingtest.pl\"],"
+                + " \"removeRecipientIds\": [" + droppedRecipientId + "],"
+                + " \"addRules\": [{\"operator\": \"PRICE_IS_LESS_THAN\", \"operand\": \"1000\"}],"
+                + " \"removeRuleIds\": [" + droppedRuleId + "]}";
+
+        // When
+        String patchedJson = mockMvc.perform(patch("/api/templates/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(patch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recipients[*].email", containsInAnyOrder("keep@ingtest.pl", "new@ingtest.pl")))
+                .andExpect(jsonPath("$.rules[*].operand", containsInAnyOrder("gold", "1000")))
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        NotificationTemplate patched = objectMapper.readValue(patchedJson, NotificationTemplate.class);
+        assertEquals(created.getVersion() + 1, patched.getVersion());
+        assertTrue(patched.getRecipients().stream().anyMatch(recipient -> recipient.getId().equals(keptRecipientId)));
+
+        mockMvc.perform(patch("/api/templates/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"version\": " + created.getVersion() + ", \"title\": \"Lost update\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/templates/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"version\": " + patched.getVersion() + ", \"title\": \"Gold below 1000\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Gold below 1000")))
+                .andExpect(jsonPath("$.version", is((int) (patched.getVersion() + 1))));
+
+        sendNewPriceNotification(new MetalPrice("gold", BigDecimal.valueOf(900)));
+        verify(emailService, times(2)).sendEmail(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testBulkImport_ThenExportRoundTrips() throws Exception {
+        // Given
+        String body = String.join("\n",
+                "{\"id\": 999, \"title\": \"Gold high\", \"recipients\": [{\"id\": 5, \"email\": \"a@ingtest.pl\"}],"
+                        + " \"rules\": [{\"operator\": \"ITEM_IS\", \"operand\": \"gold\"},"
+                        + " {\"operator\": \"PRICE_IS_GREATER_THAN\", \"operand\": \"1500\"}]}",
+                "",
+                "{\"content\": \"no title\"}",
+                "{not json",
+                "{\"title\": \"Silver out of range\", \"recipients\": [{\"email\": \"b@ingtest.pl\"}],"
+                        + " \"rules\": [{\"operator\": \"ITEM_IS\", \"operand\": \"silver\"}],"
+                        + " \"ruleGroups\": [{\"operator\": \"OR\", \"rules\": ["
+                        + "{\"operator\": \"PRICE_IS_GREATER_THAN\", \"operand\": \"30\"},"
+                        + " {\"operator\": \"PRICE_IS_LESS_THAN\", \"operand\": \"10\"}]}]}");
+
+        // When
+        mockMvc.perform(post("/api/templates/import")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(4)))
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.rejected", is(2)))
+                .andExpect(jsonPath("$.rejections[0].index", is(1)))
+                .andExpect(jsonPath("$.rejections[0].errors[0].field", is("title")))
+                .andExpect(jsonPath("$.rejections[1].index", is(2)));
+
+        // Then
+        List<NotificationTemplate> stored = templateRepository.findAll();
+        assertEquals(2, stored.size());
+        assertTrue(stored.stream().noneMatch(template -> template.getId() == 999L));
+
+        MvcResult export = mockMvc.perform(get("/api/templates/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String exported = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = exported.split("\n");
+        assertEquals(2, lines.length);
+        NotificationTemplate silver = objectMapper.readValue(lines[1], NotificationTemplate.class);
+        assertEquals("Silver out of range", silver.getTitle());
+        assertEquals(2, silver.getRuleGroups().get(0).getRules().size());
+        assertEquals("b@ingtest.pl", silver.getRecipients().get(0).getEmail());
+
+        sendNewPriceNotification(new MetalPrice("silver", BigDecimal.valueOf(35)));
+        verify(emailService, times(1)).sendEmail(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
     private void sendNewPriceNotification(MetalPrice highGoldPrice) throws Exception {
         String priceJson = objectMapper.writeValueAsString(highGoldPrice);
 
@@ -134,6 +316,16 @@ public class MetalNotifierIT {
                 .andExpect(jsonPath("$.rules", hasSize(size)));
     }
 
+    private void ensureTemplateListedThrueAPI(Long templateId) throws Exception {
+        mockMvc.perform(get("/api/templates"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(templateId.intValue())))
+                .andExpect(jsonPath("$.items[0].ruleCount", is(2)))
+                .andExpect(jsonPath("$.items[0].recipientCount", is(2)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
     private NotificationTemplate createNewTemplateThrueAPI(NotificationTemplate template) throws Exception {
         String templateJson = objectMapper.writeValueAsString(template);
 
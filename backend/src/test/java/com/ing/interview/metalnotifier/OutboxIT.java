@@ -0,0 +1,213 @@
+package com.ing.interview.metalnotifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.OutboxMessage;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.mail.EmailSender;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.repository.OutboxMessageRepository;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.OutboxRelay;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "metal-notifier.dispatch.mode=outbox",
+        "metal-notifier.dispatch.outbox.batch-size=10",
+        "metal-notifier.dispatch.outbox.poll-interval=1h",
+        "metal-notifier.dispatch.outbox.max-attempts=2",
+        "metal-notifier.dispatch.outbox.retry-backoff=200ms",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class OutboxIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationTemplateRepository templateRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private EmailSender emailSender;
+
+    @BeforeEach
+    public void setup() {
+        outboxRepository.deleteAll();
+        templateRepository.findAll().forEach(template -> notificationService.deleteTemplate(template.getId()));
+    }
+
+    @Test
+    public void testNewPrice_WritesOutboxRowsThatTheRelaySendsOnce() throws Exception {
+        // Given
+        saveGoldTemplate(2);
+
+        // When
+        mockMvc.perform(post("/api/new-price")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new MetalPrice("gold", BigDecimal.valueOf(1600.00)))))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.notifications", is(2)));
+
+        // Then
+        verifyNoInteractions(emailSender);
+        assertEquals(2, outboxRepository.countByStatus(OutboxMessage.Status.PENDING));
+
+        assertEquals(2, outboxRelay.drain());
+        assertEquals(0, outboxRelay.drain());
+        verify(emailSender, times(2)).send(any());
+        assertEquals(2, outboxRepository.countByStatus(OutboxMessage.Status.SENT));
+    }
+
+    @Test
+    public void testNewPrice_InsertsOutboxRowsInJdbcBatches() {
+        // Given
+        saveGoldTemplate(95);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
+
+        // Then: one statement per batch of 100 rows plus a couple of sequence calls, not one per row
+        assertEquals(95, statistics.getEntityStatistics(OutboxMessage.class.getName()).getInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 10,
+                statistics.getPrepareStatementCount() + " statements for 95 outbox rows");
+    }
+
+    @Test
+    public void testConcurrentDrains_SendEveryRowExactlyOnce() throws Exception {
+        // Given
+        saveGoldTemplate(95);
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        List<String> duplicates = new ArrayList<>();
+        doAnswer(invocation -> {
+            EmailMessage message = invocation.getArgument(0);
+            if (!delivered.add(message.getTo())) {
+                synchronized (duplicates) {
+                    duplicates.add(message.getTo());
+                }
+            }
+            return null;
+        }).when(emailSender).send(any());
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> drains = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            drains.add(executor.submit(outboxRelay::drain));
+        }
+        for (Future<Integer> drain : drains) {
+            drain.get();
+        }
+        executor.shutdown();
+        outboxRelay.drain();
+
+        // Then
+        assertTrue(duplicates.isEmpty(), "Sent more than once: " + duplicates);
+        assertEquals(95, delivered.size());
+        assertEquals(95, outboxRepository.countByStatus(OutboxMessage.Status.SENT));
+    }
+
+    @Test
+    public void testFailingSend_IsRetriedAfterBackoffAndThenParkedAsFailed() throws Exception {
+        // Given
+        saveGoldTemplate(1);
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
+        doThrow(new IllegalStateException("SMTP down")).when(emailSender).send(any());
+
+        // When
+        outboxRelay.drain();
+        long pendingAfterFirstAttempt = outboxRepository.countByStatus(OutboxMessage.Status.PENDING);
+        int sentBeforeBackoff = outboxRelay.drain();
+        verify(emailSender, times(1)).send(any());
+        Thread.sleep(300);
+        outboxRelay.drain();
+
+        // Then
+        assertEquals(1, pendingAfterFirstAttempt);
+        assertEquals(0, sentBeforeBackoff);
+        assertEquals(1, outboxRepository.countByStatus(OutboxMessage.Status.FAILED));
+        verify(emailSender, times(2)).send(any());
+    }
+
+    @Test
+    public void testFailingSends_EndTheDrainAfterTheFirstBatch() {
+        // Given
+        saveGoldTemplate(25);
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
+        doThrow(new IllegalStateException("SMTP down")).when(emailSender).send(any());
+
+        // When
+        int sent = outboxRelay.drain();
+
+        // Then
+        assertEquals(0, sent);
+        verify(emailSender, times(10)).send(any());
+        assertEquals(25, outboxRepository.countByStatus(OutboxMessage.Status.PENDING));
+    }
+
+    private void saveGoldTemplate(int recipientCount) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold price alert");
+        template.setContent("Gold is above 1500");
+        List<Recipient> recipients = new ArrayList<>();
+        for (int i = 0; i < recipientCount; i++) {
+            recipients.add(new Recipient("user" + i + "@ingtest.pl"));
+        }
+        template.setRecipients(recipients);
+        template.setRules(new ArrayList<>(List.of(
+                new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, "1500.00"))));
+        notificationService.saveTemplate(template);
+    }
+}
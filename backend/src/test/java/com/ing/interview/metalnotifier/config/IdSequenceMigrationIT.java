@@ -0,0 +1,60 @@
+package com.ing.interview.metalnotifier.config;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.service.EmailService;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class IdSequenceMigrationIT {
+
+    @Autowired
+    private IdSequenceMigration migration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NotificationTemplateRepository templateRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setup() {
+        templateRepository.deleteAll();
+    }
+
+    @Test
+    public void testMigrate_RowsFromIdentityIds_RestartsTheSequencePastThem() {
+        // Given
+        jdbcTemplate.update("INSERT INTO notification_template (id, version, title, trigger_mode) VALUES (120, 0, 'Old', 'LEVEL')");
+        jdbcTemplate.execute("ALTER SEQUENCE notification_template_seq RESTART WITH 1");
+
+        // When
+        boolean restarted = migration.migrate("notification_template_seq", "notification_template");
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("New");
+        NotificationTemplate saved = notificationService.saveTemplate(template);
+
+        // Then
+        assertTrue(restarted);
+        assertTrue(saved.getId() > 120);
+        assertFalse(migration.migrate("notification_template_seq", "notification_template"));
+    }
+}
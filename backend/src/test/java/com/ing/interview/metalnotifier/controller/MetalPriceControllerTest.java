@@ -1,38 +1,87 @@
 package com.ing.interview.metalnotifier.controller;
 
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.ing.interview.metalnotifier.config.AdmissionProperties;
+import com.ing.interview.metalnotifier.config.BatchProperties;
+import com.ing.interview.metalnotifier.config.ConflationProperties;
+import com.ing.interview.metalnotifier.config.IdempotencyProperties;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
 import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ing.interview.metalnotifier.service.AdmissionControl;
 import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.PriceBatchReader;
+import com.ing.interview.metalnotifier.service.PriceConflator;
+import com.ing.interview.metalnotifier.service.TickDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 @ExtendWith(MockitoExtension.class)
 public class MetalPriceControllerTest {
 
     @Mock
     private NotificationService notificationService;
 
-    @InjectMocks
     private MetalPriceController metalPriceController;
 
+    private AdmissionControl admissionControl;
+
     private MockMvc mockMvc;
 
     @BeforeEach
     public void setup() {
+        BatchProperties batchProperties = new BatchProperties();
+        batchProperties.setMaxEntries(100);
+        PriceBatchReader priceBatchReader = new PriceBatchReader(new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), batchProperties);
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setMaxConcurrent(1);
+        admissionProperties.setMaxQueued(0);
+        admissionProperties.setRetryAfter(Duration.ofSeconds(2));
+        NotifierMetrics metrics = new NotifierMetrics(new SimpleMeterRegistry());
+        admissionControl = new AdmissionControl(admissionProperties, metrics);
+        PriceConflator priceConflator = new PriceConflator(notificationService, PriceHistoryStore.disabled(), metrics, new ConflationProperties());
+        IdempotencyProperties idempotencyProperties = new IdempotencyProperties();
+        idempotencyProperties.setInFlightWait(Duration.ofMillis(100));
+        TickDeduplicator tickDeduplicator = new TickDeduplicator(idempotencyProperties, metrics);
+        metalPriceController = new MetalPriceController(notificationService, priceBatchReader, admissionControl, priceConflator,
+                tickDeduplicator);
         mockMvc = MockMvcBuilders.standaloneSetup(metalPriceController)
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
@@ -42,7 +91,8 @@ public class MetalPriceControllerTest {
     public void testReceiveNewPrice_ValidData_ReturnsOk() throws Exception {
         // Given
         String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}";
-        doNothing().when(notificationService).processNewPrice(any(MetalPrice.class));
+        when(notificationService.processNewPrice(any(MetalPrice.class)))
+                .thenReturn(new TickResult("tick-1", 1, 2, false));
 
         // When & Then
         mockMvc.perform(post("/api/new-price")
@@ -54,6 +104,142 @@ public class MetalPriceControllerTest {
         verify(notificationService).processNewPrice(any(MetalPrice.class));
     }
 
+    @Test
+    public void testReceiveNewPrice_AsyncDispatch_ReturnsAcceptedWithTickId() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}";
+        when(notificationService.processNewPrice(any(MetalPrice.class)))
+                .thenReturn(new TickResult("tick-1", 1, 2, true));
+
+        // When & Then
+        mockMvc.perform(post("/api/new-price")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.tickId", is("tick-1")))
+                .andExpect(jsonPath("$.notifications", is(2)));
+    }
+
+    @Test
+    public void testReceiveNewPrice_Saturated_ReturnsTooManyRequestsWithRetryAfter() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}";
+
+        // When & Then
+        try (AdmissionControl.Permit busy = admissionControl.acquire()) {
+            mockMvc.perform(post("/api/new-price")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "2"))
+                    .andExpect(jsonPath("$.error", is(GlobalExceptionHandler.TOO_MANY_REQUESTS)));
+        }
+        verify(notificationService, never()).processNewPrice(any(MetalPrice.class));
+    }
+
+    @Test
+    public void testReceiveNewPrice_RetriedWithIdempotencyKey_ReplaysOriginalResult() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}";
+        when(notificationService.processNewPrice(any(MetalPrice.class)))
+                .thenReturn(new TickResult("tick-1", 1, 2, true));
+
+        // When & Then
+        mockMvc.perform(post("/api/new-price")
+                        .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isAccepted())
+                .andExpect(header().doesNotExist(MetalPriceController.IDEMPOTENT_REPLAYED));
+        mockMvc.perform(post("/api/new-price")
+                        .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(MetalPriceController.IDEMPOTENT_REPLAYED, "true"))
+                .andExpect(jsonPath("$.tickId", is("tick-1")))
+                .andExpect(jsonPath("$.notifications", is(2)));
+
+        verify(notificationService, times(1)).processNewPrice(any(MetalPrice.class));
+    }
+
+    @Test
+    public void testReceiveNewPrice_RetriedWhileFirstHangs_ReturnsConflictWithRetryAfter() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}";
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(notificationService.processNewPrice(any(MetalPrice.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new TickResult("tick-1", 1, 2, true);
+        });
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                mockMvc.perform(post("/api/new-price")
+                        .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-44")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When & Then
+        try {
+            mockMvc.perform(post("/api/new-price")
+                            .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-44")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isConflict())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.error", is(GlobalExceptionHandler.CONFLICT)));
+        } finally {
+            release.countDown();
+        }
+        first.get(5, TimeUnit.SECONDS);
+        verify(notificationService, times(1)).processNewPrice(any(MetalPrice.class));
+    }
+
+    @Test
+    public void testReceiveNewPrice_RetriedWithTickId_ProcessedOnce() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\",\"tickId\":\"feed-43\"}";
+        when(notificationService.processNewPrice(any(MetalPrice.class)))
+                .thenReturn(new TickResult("feed-43", 1, 2, false));
+
+        // When & Then
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/new-price")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("Notification processed"));
+        }
+
+        verify(notificationService, times(1)).processNewPrice(any(MetalPrice.class));
+    }
+
+    @Test
+    public void testReceiveNewPrice_IdempotencyKeyReusedForOtherPrice_ReturnsBadRequest() throws Exception {
+        // Given
+        when(notificationService.processNewPrice(any(MetalPrice.class)))
+                .thenReturn(new TickResult("tick-1", 0, 0, false));
+        mockMvc.perform(post("/api/new-price")
+                        .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-44")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"itemType\":\"gold\",\"price\":\"1234.56\"}"))
+                .andExpect(status().isOk());
+
+        // When & Then
+        mockMvc.perform(post("/api/new-price")
+                        .header(MetalPriceController.IDEMPOTENCY_KEY, "feed-44")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"itemType\":\"silver\",\"price\":\"20.00\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testReceiveNewPrice_InvalidItemType_ReturnsBadRequest() throws Exception {
         // Given
@@ -113,4 +299,65 @@ public class MetalPriceControllerTest {
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReceiveNewPrices_NdjsonWithInvalidEntry_ProcessesValidEntries() throws Exception {
+        // Given
+        String requestBody = "{\"itemType\":\"gold\",\"price\":\"1234.56\"}\n"
+                + "{\"itemType\":\"invalid\",\"price\":\"1234.56\"}\n";
+        when(notificationService.processBatch(anyList()))
+                .thenReturn(List.of(new TickResult("tick-1", 1, 2, false)));
+
+        // When & Then
+        mockMvc.perform(post("/api/new-prices")
+                        .contentType(PriceBatchReader.APPLICATION_NDJSON_VALUE)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(2)))
+                .andExpect(jsonPath("$.processed", is(1)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.results[0].tickId", is("tick-1")))
+                .andExpect(jsonPath("$.results[1].status", is("REJECTED")));
+    }
+
+    @Test
+    public void testReceiveNewPrices_JsonArray_ReturnsPerEntryResults() throws Exception {
+        // Given
+        String requestBody = "[{\"itemType\":\"gold\",\"price\":\"1.00\"},{\"itemType\":\"silver\",\"price\":\"2.00\"}]";
+        when(notificationService.processBatch(anyList()))
+                .thenReturn(List.of(new TickResult("tick-1", 0, 0, true), new TickResult("tick-2", 1, 1, true)));
+
+        // When & Then
+        mockMvc.perform(post("/api/new-prices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.processed", is(2)))
+                .andExpect(jsonPath("$.results[1].matchedTemplates", is(1)));
+    }
+
+    @Test
+    public void testReceiveNewPrices_BodyIsReadBeforeTakingAProcessingSlot() throws Exception {
+        // Given
+        byte[] requestBody = "{\"itemType\":\"gold\",\"price\":\"1.00\"}\n".getBytes(StandardCharsets.UTF_8);
+        List<Integer> inFlightWhileReading = new ArrayList<>();
+        InputStream slowClient = new ByteArrayInputStream(requestBody) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                inFlightWhileReading.add(admissionControl.getInFlight());
+                return super.read(buffer, offset, length);
+            }
+        };
+        when(notificationService.processBatch(anyList())).thenAnswer(invocation -> {
+            assertEquals(1, admissionControl.getInFlight());
+            return List.of(new TickResult("tick-1", 0, 0, false));
+        });
+
+        // When
+        metalPriceController.receiveNewPrices(slowClient, PriceBatchReader.APPLICATION_NDJSON_VALUE);
+
+        // Then
+        assertFalse(inFlightWhileReading.isEmpty());
+        assertTrue(inFlightWhileReading.stream().allMatch(inFlight -> inFlight == 0));
+    }
+}
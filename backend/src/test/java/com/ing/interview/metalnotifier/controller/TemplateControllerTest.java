@@ -2,6 +2,10 @@ package com.ing.interview.metalnotifier.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.model.TemplatePage;
+import com.ing.interview.metalnotifier.model.TemplatePatch;
+import com.ing.interview.metalnotifier.model.TemplateSummary;
+import com.ing.interview.metalnotifier.model.TriggerMode;
 import com.ing.interview.metalnotifier.service.NotificationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +14,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -18,6 +23,7 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -45,32 +51,44 @@ public class TemplateControllerTest {
     }
 
     @Test
-    public void testGetAllTemplates_ReturnsListOfTemplates() throws Exception {
+    public void testGetTemplates_ReturnsPageOfSummaries() throws Exception {
         // Given
-        NotificationTemplate template1 = new NotificationTemplate();
-        template1.setId(1L);
-        template1.setTitle("Template 1");
-        template1.setContent("Content 1");
+        List<TemplateSummary> summaries = Arrays.asList(
+                new TemplateSummary(1L, "Template 1", TriggerMode.LEVEL, 2, 1),
+                new TemplateSummary(2L, "Template 2", TriggerMode.EDGE, 1, 3));
+        when(notificationService.getTemplateSummaries(null, 50)).thenReturn(new TemplatePage(summaries, 2L));
 
-        NotificationTemplate template2 = new NotificationTemplate();
-        template2.setId(2L);
-        template2.setTitle("Template 2");
-        template2.setContent("Content 2");
+        // When & Then
+        mockMvc.perform(get("/api/templates")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", is(1)))
+                .andExpect(jsonPath("$.items[0].title", is("Template 1")))
+                .andExpect(jsonPath("$.items[0].ruleCount", is(2)))
+                .andExpect(jsonPath("$.items[1].id", is(2)))
+                .andExpect(jsonPath("$.items[1].recipientCount", is(3)))
+                .andExpect(jsonPath("$.items[0].rules").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor", is(2)));
+
+        verify(notificationService).getTemplateSummaries(null, 50);
+    }
 
-        List<NotificationTemplate> templates = Arrays.asList(template1, template2);
-        when(notificationService.getAllTemplates()).thenReturn(templates);
+    @Test
+    public void testGetTemplates_WithCursor_PassesCursorAndLimit() throws Exception {
+        // Given
+        when(notificationService.getTemplateSummaries(2L, 10)).thenReturn(new TemplatePage(List.of(), null));
 
         // When & Then
         mockMvc.perform(get("/api/templates")
+                        .param("after", "2")
+                        .param("limit", "10")
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].id", is(1)))
-                .andExpect(jsonPath("$[0].title", is("Template 1")))
-                .andExpect(jsonPath("$[1].id", is(2)))
-                .andExpect(jsonPath("$[1].title", is("Template 2")));
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
 
-        verify(notificationService).getAllTemplates();
+        verify(notificationService).getTemplateSummaries(2L, 10);
     }
 
     @Test
@@ -200,6 +218,54 @@ public class TemplateControllerTest {
         verify(notificationService, never()).saveTemplate(any(NotificationTemplate.class));
     }
 
+    @Test
+    public void testPatchTemplate_ExistingId_ReturnsPatchedTemplate() throws Exception {
+        // Given
+        Long id = 1L;
+        NotificationTemplate patchedTemplate = new NotificationTemplate();
+        patchedTemplate.setId(id);
+        patchedTemplate.setVersion(4L);
+        patchedTemplate.setTitle("Patched Template");
+
+        when(notificationService.patchTemplate(eq(id), any(TemplatePatch.class))).thenReturn(patchedTemplate);
+
+        // When & Then
+        mockMvc.perform(patch("/api/templates/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"version\": 3, \"title\": \"Patched Template\", \"addRecipients\": [\"a@ingtest.pl\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(4)))
+                .andExpect(jsonPath("$.title", is("Patched Template")));
+
+        verify(notificationService).patchTemplate(eq(id), argThat(patch -> patch.getVersion() == 3L
+                && patch.getAddRecipients().equals(List.of("a@ingtest.pl"))));
+    }
+
+    @Test
+    public void testPatchTemplate_StaleVersion_ReturnsConflict() throws Exception {
+        // Given
+        when(notificationService.patchTemplate(eq(1L), any(TemplatePatch.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(NotificationTemplate.class, 1L));
+
+        // When & Then
+        mockMvc.perform(patch("/api/templates/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"version\": 1, \"removeRuleIds\": [7]}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status", is(409)));
+    }
+
+    @Test
+    public void testPatchTemplate_WithoutVersion_ReturnsBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(patch("/api/templates/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"No version\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(notificationService, never()).patchTemplate(any(), any());
+    }
+
     @Test
     public void testDeleteTemplate_ExistingId_ReturnsOk() throws Exception {
         // Given
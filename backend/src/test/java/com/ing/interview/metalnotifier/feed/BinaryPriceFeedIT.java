@@ -0,0 +1,152 @@
+package com.ing.interview.metalnotifier.feed;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.service.EmailService;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.TemplateCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"metal-notifier.feed.enabled=true", "metal-notifier.feed.port=0"})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BinaryPriceFeedIT {
+
+    private static final int REST_TICKS = 500;
+    private static final int FEED_TICKS = 20_000;
+
+    @LocalServerPort
+    private int httpPort;
+
+    @Autowired
+    private BinaryPriceFeed feed;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationTemplateRepository templateRepository;
+
+    @Autowired
+    private TemplateCache templateCache;
+
+    @Autowired
+    private PriceHistoryStore priceHistory;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setup() {
+        templateRepository.deleteAll();
+        templateCache.invalidate();
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold above 5000");
+        template.setContent("Gold price is {{price}}");
+        template.setRecipients(new ArrayList<>(List.of(new Recipient("feed@ingtest.pl"))));
+        template.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, "5000"))));
+        notificationService.saveTemplate(template);
+    }
+
+    @Test
+    public void testFeed_ProcessesFramesLikeRestAndOutperformsIt() throws Exception {
+        // Given
+        HttpClient http = HttpClient.newHttpClient();
+        postPrices(http, 100);
+        sendFrames(1_000);
+
+        // When
+        long restStarted = System.nanoTime();
+        postPrices(http, REST_TICKS);
+        double restRate = REST_TICKS / seconds(System.nanoTime() - restStarted);
+
+        long feedStarted = System.nanoTime();
+        sendFrames(FEED_TICKS);
+        double feedRate = FEED_TICKS / seconds(System.nanoTime() - feedStarted);
+
+        // Then
+        assertEquals(1_000 + FEED_TICKS, feed.getFrames());
+        assertEquals(0, feed.getRejected());
+        assertEquals(0, feed.getFailed());
+        assertTrue(priceHistory.query(Metal.GOLD, Instant.now().minusSeconds(600), Instant.now(), 100_000).size()
+                >= 100 + REST_TICKS + 1_000 + FEED_TICKS);
+        assertTrue(feedRate > restRate, String.format("Price ingestion, one local client: REST %.0f ticks/s, "
+                + "binary feed %.0f ticks/s", restRate, feedRate));
+    }
+
+    private void postPrices(HttpClient http, int count) throws Exception {
+        URI uri = URI.create("http://localhost:" + httpPort + "/api/new-price");
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"itemType\":\"gold\",\"price\":\"" + price(i) + "\"}"))
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), response.body());
+        }
+    }
+
+    /**
+     * Writes the frames and waits until the feed processed all of them.
+     */
+    private void sendFrames(int count) throws Exception {
+        long expected = feed.getFrames() + count;
+        ByteBuffer frames = ByteBuffer.allocateDirect(count * PriceFrame.SIZE);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            PriceFrame.encode(frames, Metal.GOLD, PriceScale.toScaled(new BigDecimal(price(i))), now);
+        }
+        frames.flip();
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()))) {
+            while (frames.hasRemaining()) {
+                client.write(frames);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (feed.getFrames() < expected) {
+                assertTrue(System.nanoTime() < deadline, "Processed " + feed.getFrames() + " of " + expected + " frames");
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    /**
+     * Mostly below the template's threshold, every hundredth tick above it.
+     */
+    private static String price(int i) {
+        return i % 100 == 0 ? "5100.00" : "4" + String.format("%03d", i % 1000) + ".50";
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
@@ -0,0 +1,143 @@
+package com.ing.interview.metalnotifier.feed;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryPriceFeedTest {
+
+    private final List<MetalPrice> received = new CopyOnWriteArrayList<>();
+    private BinaryPriceFeed feed;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (feed != null) {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void testFramesSplitAcrossWrites_AreDecodedInOrder() throws Exception {
+        // Given
+        feed = start(4, 2);
+        ByteBuffer frames = ByteBuffer.allocate(10 * PriceFrame.SIZE);
+        for (int i = 0; i < 10; i++) {
+            PriceFrame.encode(frames, Metal.GOLD, 150_000 + i, System.currentTimeMillis());
+        }
+        frames.flip();
+
+        // When
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()))) {
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            // Odd chunk sizes, so frames are split between reads.
+            while (frames.hasRemaining()) {
+                ByteBuffer chunk = frames.slice(frames.position(), Math.min(7, frames.remaining()));
+                client.write(chunk);
+                frames.position(frames.position() + chunk.capacity());
+                Thread.sleep(1);
+            }
+            awaitTrue(() -> received.size() == 10);
+        }
+
+        // Then
+        for (int i = 0; i < 10; i++) {
+            assertEquals("gold", received.get(i).getItemType());
+            assertEquals(new BigDecimal("1500.0" + i), received.get(i).getPrice());
+        }
+        assertEquals(10, feed.getFrames());
+        assertEquals(0, feed.getRejected());
+    }
+
+    @Test
+    public void testInvalidFrames_AreSkippedAndConnectionStaysOpen() throws Exception {
+        // Given
+        feed = start(16, 2);
+        ByteBuffer frames = ByteBuffer.allocate(3 * PriceFrame.SIZE);
+        PriceFrame.encode(frames, 42, 100, 1L);
+        PriceFrame.encode(frames, Metal.SILVER, -5, 1L);
+        PriceFrame.encode(frames, Metal.SILVER, 2_500, 1L);
+        frames.flip();
+
+        // When
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()))) {
+            client.write(frames);
+            awaitTrue(() -> received.size() == 1);
+            assertEquals(1, feed.getConnections());
+        }
+
+        // Then
+        assertEquals(new BigDecimal("25.00"), received.get(0).getPrice());
+        assertEquals(2, feed.getRejected());
+        awaitTrue(() -> feed.getConnections() == 0);
+    }
+
+    @Test
+    public void testConnectionsBeyondLimit_AreClosed() throws Exception {
+        // Given
+        feed = start(16, 1);
+
+        // When
+        try (SocketChannel first = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()));
+             SocketChannel second = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()))) {
+            awaitTrue(() -> feed.getConnections() == 1);
+
+            // Then
+            assertEquals(-1, second.read(ByteBuffer.allocate(1)));
+            assertTrue(first.isConnected());
+        }
+    }
+
+    @Test
+    public void testResetConnection_IsClosedAndOthersAreStillServed() throws Exception {
+        // Given
+        feed = start(16, 2);
+        try (SocketChannel healthy = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()))) {
+            SocketChannel reset = SocketChannel.open(new InetSocketAddress("127.0.0.1", feed.getPort()));
+            awaitTrue(() -> feed.getConnections() == 2);
+
+            // When: linger 0 makes close send a RST, failing the feed's next read on that connection
+            reset.write(ByteBuffer.allocate(PriceFrame.SIZE / 2));
+            reset.setOption(StandardSocketOptions.SO_LINGER, 0);
+            reset.close();
+            awaitTrue(() -> feed.getConnections() == 1);
+            ByteBuffer frame = ByteBuffer.allocate(PriceFrame.SIZE);
+            PriceFrame.encode(frame, Metal.GOLD, 150_000, 1L);
+            healthy.write(frame.flip());
+
+            // Then
+            awaitTrue(() -> received.size() == 1);
+            assertEquals(0, feed.getFailed());
+        }
+    }
+
+    private BinaryPriceFeed start(int maxBatch, int maxConnections) throws Exception {
+        BinaryPriceFeed started = new BinaryPriceFeed(new InetSocketAddress("127.0.0.1", 0), maxBatch, maxConnections,
+                batch -> {
+                    received.addAll(batch.toMetalPrices());
+                    return 0;
+                });
+        started.start();
+        return started;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ing.interview.metalnotifier.feed;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceFrameTest {
+
+    @Test
+    public void testDecode_ValidFrames_FillBatchAndLeavePartialFrame() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocate(3 * PriceFrame.SIZE);
+        PriceFrame.encode(buffer, Metal.GOLD, 150_000, 1000L);
+        PriceFrame.encode(buffer, Metal.PLATINUM, 99_999_999_999L, 1001L);
+        buffer.putLong(1002L);
+        buffer.flip();
+        FrameBatch batch = new FrameBatch(10);
+
+        // When
+        int rejected = PriceFrame.decode(buffer, batch);
+
+        // Then
+        assertEquals(0, rejected);
+        assertEquals(2, batch.size());
+        assertEquals(Metal.GOLD, batch.metalAt(0));
+        assertEquals(150_000, batch.scaledPriceAt(0));
+        assertEquals(1001L, batch.timestampAt(1));
+        assertEquals(8, buffer.remaining());
+        assertEquals("platinum", batch.toMetalPrices().get(1).getItemType());
+        assertEquals(new BigDecimal("999999999.99"), batch.toMetalPrices().get(1).getPrice());
+    }
+
+    @Test
+    public void testDecode_UnknownMetalOrPriceOutOfRange_IsRejected() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocate(4 * PriceFrame.SIZE);
+        PriceFrame.encode(buffer, 9, 100, 1L);
+        PriceFrame.encode(buffer, Metal.SILVER, -1, 1L);
+        PriceFrame.encode(buffer, Metal.SILVER, PriceFrame.MAX_SCALED_PRICE + 1, 1L);
+        PriceFrame.encode(buffer, Metal.SILVER, 2_000, 1L);
+        buffer.flip();
+        FrameBatch batch = new FrameBatch(10);
+
+        // When
+        int rejected = PriceFrame.decode(buffer, batch);
+
+        // Then
+        assertEquals(3, rejected);
+        assertEquals(1, batch.size());
+        assertEquals(Metal.SILVER, batch.metalAt(0));
+    }
+
+    @Test
+    public void testDecode_FullBatch_StopsAndLeavesRemainingFrames() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocate(3 * PriceFrame.SIZE);
+        for (int i = 0; i < 3; i++) {
+            PriceFrame.encode(buffer, Metal.GOLD, i, i);
+        }
+        buffer.flip();
+        FrameBatch batch = new FrameBatch(2);
+
+        // When
+        PriceFrame.decode(buffer, batch);
+
+        // Then
+        assertTrue(batch.isFull());
+        assertEquals(PriceFrame.SIZE, buffer.remaining());
+    }
+
+    @Test
+    public void testDecode_AllocatesNothingPerFrame() {
+        // Given
+        int frames = 1024;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frames * PriceFrame.SIZE);
+        for (int i = 0; i < frames; i++) {
+            PriceFrame.encode(buffer, Metal.values()[i % 3], 100_000 + i, i);
+        }
+        FrameBatch batch = new FrameBatch(frames);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        decodeRepeatedly(buffer, batch, 1_000);
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        decodeRepeatedly(buffer, batch, 100);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then
+        assertEquals(frames, batch.size());
+        assertTrue(allocated < 1024, "decoding 102400 frames allocated " + allocated + " bytes");
+    }
+
+    private static void decodeRepeatedly(ByteBuffer buffer, FrameBatch batch, int times) {
+        for (int i = 0; i < times; i++) {
+            buffer.clear();
+            batch.clear();
+            PriceFrame.decode(buffer, batch);
+        }
+    }
+}
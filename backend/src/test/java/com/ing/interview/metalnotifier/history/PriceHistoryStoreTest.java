@@ -0,0 +1,147 @@
+package com.ing.interview.metalnotifier.history;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.PricePoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceHistoryStoreTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(START);
+
+    @Test
+    public void testQuery_ReturnsOneMetalInRangeAcrossRolledSegments() throws IOException {
+        // Given
+        try (PriceHistoryStore store = PriceHistoryStore.open(directory, 3, Duration.ofHours(1), Duration.ofDays(7), clock)) {
+            for (int i = 0; i < 10; i++) {
+                clock.advance(Duration.ofSeconds(1));
+                store.record(List.of(new MetalPrice("gold", BigDecimal.valueOf(1500 + i)),
+                        new MetalPrice("silver", BigDecimal.valueOf(20 + i))));
+            }
+            store.record(new MetalPrice("copper", BigDecimal.ONE));
+
+            // When
+            List<PricePoint> gold = store.query(Metal.GOLD, START.plusSeconds(3), START.plusSeconds(7), 100);
+
+            // Then
+            assertEquals(7, store.getSegmentCount());
+            assertEquals(20, store.getAppended());
+            assertEquals(List.of(1502, 1503, 1504, 1505, 1506),
+                    gold.stream().map(point -> point.getPrice().intValue()).toList());
+            assertEquals(START.plusSeconds(3), gold.get(0).getTimestamp());
+            assertEquals(new BigDecimal("1502.00"), gold.get(0).getPrice());
+            assertEquals(2, store.query(Metal.GOLD, START, START.plusSeconds(100), 2).size());
+        }
+    }
+
+    @Test
+    public void testRecord_RollsByDurationAndDeletesExpiredSegments() throws IOException {
+        // Given
+        try (PriceHistoryStore store = PriceHistoryStore.open(directory, 1000, Duration.ofHours(1), Duration.ofHours(2), clock)) {
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1500)));
+            clock.advance(Duration.ofMinutes(90));
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+            assertEquals(2, store.getSegmentCount());
+
+            // When
+            clock.advance(Duration.ofHours(3));
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1700)));
+
+            // Then
+            assertEquals(1, store.getSegmentCount());
+            assertEquals(1, countSegmentFiles());
+            List<PricePoint> all = store.query(Metal.GOLD, START, clock.instant(), 100);
+            assertEquals(1, all.size());
+            assertEquals(new BigDecimal("1700.00"), all.get(0).getPrice());
+        }
+    }
+
+    @Test
+    public void testOpen_RecoversTicksAndKeepsAppendingToLastSegment() throws IOException {
+        // Given
+        try (PriceHistoryStore store = PriceHistoryStore.open(directory, 1000, Duration.ofHours(1), Duration.ofDays(7), clock)) {
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1500)));
+        }
+        clock.advance(Duration.ofSeconds(1));
+
+        // When
+        try (PriceHistoryStore store = PriceHistoryStore.open(directory, 1000, Duration.ofHours(1), Duration.ofDays(7), clock)) {
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+
+            // Then
+            List<PricePoint> gold = store.query(Metal.GOLD, START, clock.instant(), 100);
+            assertEquals(2, gold.size());
+            assertEquals(1, store.getSegmentCount());
+        }
+    }
+
+    @Test
+    public void testRecord_ClockGoingBackKeepsTimestampsOrdered() throws IOException {
+        try (PriceHistoryStore store = PriceHistoryStore.open(directory, 1000, Duration.ofHours(1), Duration.ofDays(7), clock)) {
+            // Given
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1500)));
+            clock.advance(Duration.ofSeconds(-5));
+
+            // When
+            store.record(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+
+            // Then
+            List<PricePoint> gold = store.query(Metal.GOLD, START, START, 100);
+            assertEquals(2, gold.size());
+        }
+    }
+
+    private long countSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
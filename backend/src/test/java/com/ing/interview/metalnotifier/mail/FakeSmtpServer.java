@@ -0,0 +1,163 @@
+package com.ing.interview.metalnotifier.mail;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server. Replies are held back for {@code latencyMillis} whenever the server has
+ * to wait for the client, which stands in for one network round trip. Recipients starting with
+ * {@code reject} are refused.
+ */
+final class FakeSmtpServer implements AutoCloseable {
+
+    record Received(String to, String data) {
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final boolean pipelining;
+    private final long latencyMillis;
+    private final Queue<Received> received = new ConcurrentLinkedQueue<>();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    FakeSmtpServer(boolean pipelining, long latencyMillis) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.pipelining = pipelining;
+        this.latencyMillis = latencyMillis;
+        executor.execute(this::accept);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    List<Received> getReceived() {
+        return new ArrayList<>(received);
+    }
+
+    /**
+     * Closes every open session without a goodbye, as a server restart would.
+     */
+    void dropConnections() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                sockets.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            reply(in, out, "220 fake.smtp ready");
+            String to = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(in, out, pipelining
+                            ? "250-fake.smtp\r\n250-PIPELINING\r\n250 8BITMIME"
+                            : "250-fake.smtp\r\n250 8BITMIME");
+                    case "MAIL" -> {
+                        to = null;
+                        reply(in, out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        String address = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+                        if (address.startsWith("reject")) {
+                            reply(in, out, "550 No such user");
+                        } else {
+                            to = address;
+                            reply(in, out, "250 OK");
+                        }
+                    }
+                    case "DATA" -> {
+                        if (to == null) {
+                            reply(in, out, "554 No valid recipients");
+                            break;
+                        }
+                        reply(in, out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        String dataLine;
+                        while ((dataLine = in.readLine()) != null && !dataLine.equals(".")) {
+                            data.append(dataLine).append("\r\n");
+                        }
+                        received.add(new Received(to, data.toString()));
+                        to = null;
+                        reply(in, out, "250 Queued");
+                    }
+                    case "RSET" -> {
+                        to = null;
+                        reply(in, out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(in, out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(in, out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // client went away or the server is closing
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Buffers the reply and only flushes once no further pipelined command is waiting, paying the
+     * simulated round trip once per flush.
+     */
+    private void reply(BufferedReader in, Writer out, String reply) throws IOException, InterruptedException {
+        out.write(reply);
+        out.write("\r\n");
+        if (!in.ready()) {
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropConnections();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.ing.interview.metalnotifier.mail;
+
+import com.ing.interview.metalnotifier.config.MailProperties;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpEmailSenderTest {
+
+    private static final int THREADS = 4;
+    private static final int BATCH_SIZE = 50;
+    private static final int BATCHES_PER_THREAD = 2;
+
+    @Test
+    public void testSendBatch_PipelinedPoolOutperformsConnectionPerMessage() throws Exception {
+        // Given
+        double perMessage;
+        double pooledSequential;
+        double pooledPipelined;
+        int pipelinedConnections;
+        try (FakeSmtpServer server = new FakeSmtpServer(false, 1)) {
+            perMessage = throughput(server, 1);
+        }
+        try (FakeSmtpServer server = new FakeSmtpServer(false, 1)) {
+            pooledSequential = throughput(server, 1_000);
+        }
+        try (FakeSmtpServer server = new FakeSmtpServer(true, 1)) {
+            pooledPipelined = throughput(server, 1_000);
+            pipelinedConnections = server.getConnections();
+        }
+
+        // Then
+        assertTrue(pipelinedConnections <= THREADS, "Opened " + pipelinedConnections + " connections");
+        assertTrue(pooledPipelined > perMessage, String.format("Messages per second with 1 ms round trips, %d threads: "
+                + "connection per message %.0f, pooled %.0f, pooled and pipelined %.0f",
+                THREADS, perMessage, pooledSequential, pooledPipelined));
+    }
+
+    @Test
+    public void testSendBatch_RejectedRecipientFailsOnlyThatMessage() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, 0);
+             SmtpEmailSender sender = new SmtpEmailSender(properties(server, 2, 100))) {
+            // Given
+            List<EmailMessage> messages = List.of(
+                    message("alice@example.com", "Złoto powyżej 1500", "Cena: 1600.00 zł"),
+                    message("reject@example.com", "Gold", "Body"),
+                    message("bad address@example.com", "Gold", "Body"),
+                    message("bob@example.com", "Gold", "Body"));
+
+            // When
+            DeliveryResult result = sender.sendBatch(messages);
+
+            // Then
+            assertTrue(result.isSent(0));
+            assertFalse(result.isSent(1));
+            assertTrue(result.getError(1).getMessage().contains("550"));
+            assertFalse(result.isSent(2));
+            assertTrue(result.isSent(3));
+            assertEquals(2, result.getSentCount());
+
+            List<FakeSmtpServer.Received> received = server.getReceived();
+            assertEquals(List.of("alice@example.com", "bob@example.com"), received.stream().map(FakeSmtpServer.Received::to).toList());
+            String data = received.get(0).data();
+            assertTrue(data.contains("Subject: =?UTF-8?B?"));
+            String body = data.substring(data.indexOf("\r\n\r\n") + 4).replace("\r\n", "");
+            assertEquals("Cena: 1600.00 zł", new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8));
+            assertEquals(1, server.getConnections());
+        }
+    }
+
+    @Test
+    public void testSendBatch_ReconnectsWhenPooledConnectionWasDropped() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, 0);
+             SmtpEmailSender sender = new SmtpEmailSender(properties(server, 1, 100))) {
+            // Given
+            sender.send(message("alice@example.com", "First", "Body"));
+            server.dropConnections();
+
+            // When
+            DeliveryResult result = sender.sendBatch(List.of(message("bob@example.com", "Second", "Body")));
+
+            // Then
+            assertTrue(result.isSent(0));
+            assertEquals(2, server.getConnections());
+            assertEquals(2, server.getReceived().size());
+        }
+    }
+
+    @Test
+    public void testSend_RetiresConnectionAfterMaxMessages() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(true, 0);
+             SmtpEmailSender sender = new SmtpEmailSender(properties(server, 1, 2))) {
+            // When
+            DeliveryResult result = sender.sendBatch(List.of(
+                    message("a@example.com", "A", "A"), message("b@example.com", "B", "B"), message("c@example.com", "C", "C")));
+
+            // Then
+            assertEquals(3, result.getSentCount());
+            assertEquals(2, server.getConnections());
+            assertEquals(1, sender.getOpenConnections());
+        }
+    }
+
+    private static double throughput(FakeSmtpServer server, int maxMessagesPerConnection) throws Exception {
+        try (SmtpEmailSender sender = new SmtpEmailSender(properties(server, THREADS, maxMessagesPerConnection))) {
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            long started = System.nanoTime();
+            List<Future<Integer>> sent = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                sent.add(executor.submit(() -> {
+                    int count = 0;
+                    for (int b = 0; b < BATCHES_PER_THREAD; b++) {
+                        List<EmailMessage> batch = new ArrayList<>(BATCH_SIZE);
+                        for (int i = 0; i < BATCH_SIZE; i++) {
+                            batch.add(message("user" + i + "@example.com", "Gold above 1500", "Gold is at 1600.00"));
+                        }
+                        count += sender.sendBatch(batch).getSentCount();
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : sent) {
+                total += future.get();
+            }
+            long elapsed = System.nanoTime() - started;
+            executor.shutdown();
+
+            assertEquals(THREADS * BATCHES_PER_THREAD * BATCH_SIZE, total);
+            assertEquals(total, server.getReceived().size());
+            return total * 1e9 / elapsed;
+        }
+    }
+
+    private static MailProperties.Smtp properties(FakeSmtpServer server, int poolSize, int maxMessagesPerConnection) {
+        MailProperties.Smtp properties = new MailProperties.Smtp();
+        properties.setHost("127.0.0.1");
+        properties.setPort(server.getPort());
+        properties.setHeloName("test.local");
+        properties.setPoolSize(poolSize);
+        properties.setMaxMessagesPerConnection(maxMessagesPerConnection);
+        properties.setReadTimeout(Duration.ofSeconds(5));
+        return properties;
+    }
+
+    private static EmailMessage message(String to, String subject, String body) {
+        return new EmailMessage(to, subject, body, "gold", BigDecimal.valueOf(1600));
+    }
+}
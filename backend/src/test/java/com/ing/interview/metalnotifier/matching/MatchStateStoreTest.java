@@ -0,0 +1,144 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchStateStoreTest {
+
+    /** The highest id the bitset could address while it was indexed by template id. */
+    private static final long MAX_ID_BEFORE_DENSE_SLOTS = ((long) Integer.MAX_VALUE << 6) | 63;
+
+    private final MatchStateStore store = new MatchStateStore();
+    private final TemplateSlots slots = TemplateSlots.of(List.of(1L, 2L, 3L, 5L, 7L, 200_000L));
+
+    @Test
+    public void testAdvance_ReportsOnlyRisingEdges() {
+        // When & Then
+        assertArrayEquals(new boolean[]{true, true}, store.advance(Metal.GOLD, slots, new long[]{1, 200_000}));
+        assertArrayEquals(new boolean[]{false, false}, store.advance(Metal.GOLD, slots, new long[]{1, 200_000}));
+        assertArrayEquals(new boolean[]{false}, store.advance(Metal.GOLD, slots, new long[]{200_000}));
+        assertArrayEquals(new boolean[]{true, false}, store.advance(Metal.GOLD, slots, new long[]{1, 200_000}));
+    }
+
+    @Test
+    public void testAdvance_KeepsStatePerMetal() {
+        // Given
+        store.advance(Metal.GOLD, slots, new long[]{7});
+
+        // When
+        store.advance(Metal.SILVER, slots, new long[0]);
+
+        // Then
+        assertTrue(store.isMatched(7, Metal.GOLD));
+        assertFalse(store.isMatched(7, Metal.SILVER));
+        assertArrayEquals(new boolean[]{false}, store.advance(Metal.GOLD, slots, new long[]{7}));
+    }
+
+    @Test
+    public void testForget_ClearsStateOnAllMetals() {
+        // Given
+        store.advance(Metal.GOLD, slots, new long[]{3});
+        store.advance(Metal.PLATINUM, slots, new long[]{3});
+
+        // When
+        store.forget(3);
+
+        // Then
+        assertFalse(store.isMatched(3, Metal.GOLD));
+        assertFalse(store.isMatched(3, Metal.PLATINUM));
+    }
+
+    @Test
+    public void testRollback_RestoresThePreviousState() {
+        // Given
+        store.advance(Metal.GOLD, slots, new long[]{1});
+        TickRollback rollback = new TickRollback();
+        store.advance(Metal.GOLD, slots, new long[]{2}, rollback);
+
+        // When
+        rollback.run();
+
+        // Then
+        assertTrue(store.isMatched(1, Metal.GOLD));
+        assertFalse(store.isMatched(2, Metal.GOLD));
+    }
+
+    @Test
+    public void testRollback_AfterALaterTick_KeepsTheLaterState() {
+        // Given
+        TickRollback rollback = new TickRollback();
+        store.advance(Metal.GOLD, slots, new long[]{1}, rollback);
+        store.advance(Metal.GOLD, slots, new long[]{2});
+
+        // When
+        rollback.run();
+
+        // Then
+        assertFalse(store.isMatched(1, Metal.GOLD));
+        assertTrue(store.isMatched(2, Metal.GOLD));
+    }
+
+    @Test
+    public void testAdvance_SparseVeryLargeId_UsesADenseSlot() {
+        // Given
+        long largeId = MAX_ID_BEFORE_DENSE_SLOTS + 1_000_000_000L;
+        TemplateSlots sparse = TemplateSlots.of(List.of(5L, largeId));
+
+        // When & Then
+        assertEquals(1, sparse.slotOf(largeId));
+        assertArrayEquals(new boolean[]{true, true}, store.advance(Metal.GOLD, sparse, new long[]{5, largeId}));
+        assertArrayEquals(new boolean[]{false}, store.advance(Metal.GOLD, sparse, new long[]{largeId}));
+        assertTrue(store.isMatched(largeId, Metal.GOLD));
+        assertFalse(store.isMatched(5, Metal.GOLD));
+        store.forget(largeId);
+        assertFalse(store.isMatched(largeId, Metal.GOLD));
+    }
+
+    @Test
+    public void testAdvance_NewerSlots_KeepStateOfRemainingTemplates() {
+        // Given
+        store.advance(Metal.GOLD, slots, new long[]{3, 7});
+        TemplateSlots withoutThree = slots.without(3).with(4);
+
+        // When
+        boolean[] rising = store.advance(Metal.GOLD, withoutThree, new long[]{4, 7});
+
+        // Then
+        assertArrayEquals(new boolean[]{true, false}, rising);
+        assertFalse(store.isMatched(3, Metal.GOLD));
+    }
+
+    @Test
+    public void testAdvance_OlderSlotsAfterNewerOnes_KeepTheNewerSlots() {
+        // Given
+        TemplateSlots withEight = slots.with(8);
+        store.advance(Metal.GOLD, withEight, new long[]{8});
+
+        // When
+        boolean[] rising = store.advance(Metal.GOLD, slots, new long[]{1});
+
+        // Then
+        assertArrayEquals(new boolean[]{true}, rising);
+        assertArrayEquals(new boolean[]{true}, store.advance(Metal.GOLD, withEight, new long[]{8}));
+        assertArrayEquals(new boolean[]{false}, store.advance(Metal.GOLD, withEight, new long[]{8}));
+    }
+
+    @Test
+    public void testRollback_AfterRemap_RestoresThePreviousState() {
+        // Given
+        store.advance(Metal.GOLD, slots, new long[]{2});
+        TickRollback rollback = new TickRollback();
+        store.advance(Metal.GOLD, slots.with(9), new long[]{9}, rollback);
+
+        // When
+        rollback.run();
+
+        // Then
+        assertTrue(store.isMatched(2, Metal.GOLD));
+        assertFalse(store.isMatched(9, Metal.GOLD));
+    }
+}
@@ -0,0 +1,29 @@
+package com.ing.interview.metalnotifier.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceScaleTest {
+
+    @Test
+    public void testToScaled_AtMostTwoFractionDigits_IsExact() {
+        // When & Then
+        assertEquals(150_000, PriceScale.toScaled(new BigDecimal("1500")));
+        assertEquals(150_050, PriceScale.toScaled(new BigDecimal("1500.5")));
+        assertEquals(150_055, PriceScale.toScaled(new BigDecimal("1500.55")));
+        assertEquals(-1, PriceScale.toScaled(new BigDecimal("-0.01")));
+        assertEquals(99_999_999_999_999_99L, PriceScale.toScaled(new BigDecimal("99999999999999.99")));
+    }
+
+    @Test
+    public void testToScaled_MoreDigitsOrNegativeScale_RoundsAndClamps() {
+        // When & Then
+        assertEquals(150_056, PriceScale.toScaled(new BigDecimal("1500.555")));
+        assertEquals(150_000, PriceScale.toScaled(new BigDecimal("1.5E+3")));
+        assertEquals(Long.MAX_VALUE, PriceScale.toScaled(new BigDecimal("1E+30")));
+        assertEquals(Long.MIN_VALUE, PriceScale.toScaled(new BigDecimal("-1E+30")));
+    }
+}
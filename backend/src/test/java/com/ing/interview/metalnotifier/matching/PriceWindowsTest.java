@@ -0,0 +1,164 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceWindowsTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final PriceWindows windows = new PriceWindows(clock);
+    private long nextId = 1;
+
+    @Test
+    public void testMatch_PriceChange_ComparesWithPriceAtWindowStart() {
+        // Given
+        NotificationTemplate moved = template(new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_CHANGE_EXCEEDS_PERCENT, "2/10m"));
+        TemplateIndex index = TemplateIndex.build(List.of(moved));
+
+        // When & Then
+        assertFalse(tick(index, Metal.GOLD, "1000.00"));
+        clock.advance(Duration.ofMinutes(1));
+        assertFalse(tick(index, Metal.GOLD, "1010.00"));
+        assertFalse(tick(index, Metal.SILVER, "1.00"));
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(tick(index, Metal.GOLD, "1021.00"));
+        clock.advance(Duration.ofMinutes(18));
+        assertFalse(tick(index, Metal.GOLD, "1022.00"));
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(tick(index, Metal.GOLD, "1000.00"));
+    }
+
+    @Test
+    public void testMatch_MovingAverageCross_FiresOnlyOnTheCrossingTick() {
+        // Given
+        NotificationTemplate above = template(new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "3"));
+        NotificationTemplate below = template(new Rule(Operator.PRICE_CROSSES_BELOW_MOVING_AVERAGE, "3"));
+        NotificationTemplate belowCheap = template(new Rule(Operator.PRICE_CROSSES_BELOW_MOVING_AVERAGE, "3"),
+                new Rule(Operator.PRICE_IS_LESS_THAN, "5"));
+        TemplateIndex index = TemplateIndex.build(List.of(above, below, belowCheap));
+
+        // When
+        List<List<NotificationTemplate>> matched = new ArrayList<>();
+        for (String price : List.of("10", "10", "10", "9", "12", "13", "11")) {
+            matched.add(match(index, Metal.GOLD, price));
+        }
+
+        // Then
+        assertEquals(List.of(List.of(), List.of(), List.of(), List.of(below), List.of(above), List.of(), List.of(below)),
+                matched);
+    }
+
+    @Test
+    public void testRollback_RolledBackTicksDoNotCountInTheWindows() {
+        // Given
+        NotificationTemplate above = template(new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "3"));
+        TemplateIndex index = TemplateIndex.build(List.of(above));
+        for (String price : List.of("10", "10", "10")) {
+            match(index, Metal.GOLD, price);
+        }
+        long scaled = PriceScale.toScaled(new BigDecimal("12"));
+        TickRollback first = new TickRollback();
+        TickRollback second = new TickRollback();
+        assertEquals(List.of(above), index.match(Metal.GOLD, scaled, windows.advance(Metal.GOLD, scaled, index.getWindows(), first)));
+        windows.advance(Metal.GOLD, scaled, index.getWindows(), second);
+
+        // When
+        second.run();
+        first.run();
+
+        // Then
+        assertEquals(List.of(above), match(index, Metal.GOLD, "12"));
+    }
+
+    @Test
+    public void testAdvance_DropsAggregatesNoLongerUsedByTheIndex() {
+        // Given
+        TemplateIndex both = TemplateIndex.build(List.of(
+                template(new Rule(Operator.PRICE_CHANGE_EXCEEDS_PERCENT, "1/1h")),
+                template(new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "50")),
+                template(new Rule(Operator.PRICE_CROSSES_BELOW_MOVING_AVERAGE, "50"))));
+        TemplateIndex one = TemplateIndex.build(List.of(template(new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "50"))));
+
+        // When
+        match(both, Metal.GOLD, "10");
+        int before = windows.size(Metal.GOLD);
+        match(one, Metal.GOLD, "10");
+
+        // Then
+        assertEquals(2, both.getWindows().size());
+        assertEquals(2, before);
+        assertEquals(1, windows.size(Metal.GOLD));
+        assertEquals(0, windows.size(Metal.SILVER));
+    }
+
+    @Test
+    public void testMatch_WithoutWindowValues_WindowRulesNeverMatch() {
+        // Given
+        TemplateIndex index = TemplateIndex.build(List.of(template(new Rule(Operator.PRICE_CHANGE_EXCEEDS_PERCENT, "0/1m"))));
+
+        // When & Then
+        assertTrue(index.match(Metal.GOLD, 100).isEmpty());
+        assertTrue(index.match(null, 100).isEmpty());
+    }
+
+    private boolean tick(TemplateIndex index, Metal metal, String price) {
+        return !match(index, metal, price).isEmpty();
+    }
+
+    private List<NotificationTemplate> match(TemplateIndex index, Metal metal, String price) {
+        long scaled = PriceScale.toScaled(new BigDecimal(price));
+        return index.match(metal, scaled, windows.advance(metal, scaled, index.getWindows()));
+    }
+
+    private NotificationTemplate template(Rule... rules) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(nextId++);
+        template.setTitle("Template " + template.getId());
+        template.setRules(new ArrayList<>(Arrays.asList(rules)));
+        return template;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
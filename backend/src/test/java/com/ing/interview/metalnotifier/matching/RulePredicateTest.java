@@ -0,0 +1,102 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RulePredicateTest {
+
+    @Test
+    public void testCompile_ItemRules_ResolveMetal() {
+        // Given
+        RulePredicate itemIs = RulePredicate.compile(Operator.ITEM_IS, "gold");
+        RulePredicate itemIsNot = RulePredicate.compile(Operator.ITEM_IS_NOT, "gold");
+
+        // When & Then
+        assertTrue(itemIs.test(Metal.GOLD, 0));
+        assertFalse(itemIs.test(Metal.SILVER, 0));
+        assertFalse(itemIsNot.test(Metal.GOLD, 0));
+        assertTrue(itemIsNot.test(Metal.PLATINUM, 0));
+    }
+
+    @Test
+    public void testCompile_NonNumericOperand_NeverMatches() {
+        // Given
+        RulePredicate predicate = RulePredicate.compile(Operator.PRICE_IS_GREATER_THAN, "abc");
+
+        // When & Then
+        assertFalse(predicate.test(Metal.GOLD, Long.MAX_VALUE));
+        assertFalse(predicate.test(Metal.GOLD, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testCompile_EqualToWithSubCentOperand_NeverMatches() {
+        // Given
+        RulePredicate predicate = RulePredicate.compile(Operator.PRICE_IS_EQUAL_TO, "10.005");
+
+        // When & Then
+        assertFalse(predicate.test(Metal.GOLD, 1000));
+        assertFalse(predicate.test(Metal.GOLD, 1001));
+    }
+
+    @Test
+    public void testCompile_WindowOperands_ParseWindowAndRejectMalformed() {
+        // Given
+        RulePredicate change = RulePredicate.compile(Operator.PRICE_CHANGE_EXCEEDS_PERCENT, "2.5% / 10m");
+        RulePredicate average = RulePredicate.compile(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "50");
+
+        // When & Then
+        assertEquals(WindowSpec.change(600_000), change.getWindow());
+        assertEquals(WindowSpec.average(50), average.getWindow());
+        assertFalse(change.isPriceRule());
+        assertTrue(change.testWindow(10_251, 10_000));
+        assertFalse(change.testWindow(10_250, 10_000));
+        assertTrue(change.testWindow(9_749, 10_000));
+        assertFalse(change.test(Metal.GOLD, 10_251));
+        for (String operand : new String[]{"2", "2/10", "2/0m", "2.001/1m", "abc/1h", null}) {
+            assertFalse(RulePredicate.compile(Operator.PRICE_CHANGE_EXCEEDS_PERCENT, operand).isWindowRule(), operand);
+        }
+        for (String operand : new String[]{"0", "-1", "10001", "1.5", null}) {
+            assertFalse(RulePredicate.compile(Operator.PRICE_CROSSES_BELOW_MOVING_AVERAGE, operand).isWindowRule(), operand);
+        }
+    }
+
+    @Test
+    public void testTest_PriceOperators_AgreeWithBigDecimalComparison() {
+        // Given
+        Random random = new Random(7);
+        Operator[] operators = {
+                Operator.PRICE_IS_EQUAL_TO,
+                Operator.PRICE_IS_GREATER_THAN,
+                Operator.PRICE_IS_GREATER_THAN_OR_EQUAL_TO,
+                Operator.PRICE_IS_LESS_THAN,
+                Operator.PRICE_IS_LESS_THAN_OR_EQUAL_TO
+        };
+
+        for (int i = 0; i < 10_000; i++) {
+            Operator operator = operators[random.nextInt(operators.length)];
+            BigDecimal operand = BigDecimal.valueOf(random.nextInt(2000) - 1000, random.nextInt(4));
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(2000) - 1000, 2);
+
+            // When
+            boolean actual = RulePredicate.compile(operator, operand.toPlainString())
+                    .test(Metal.GOLD, PriceScale.toScaled(price));
+
+            // Then
+            int cmp = price.compareTo(operand);
+            boolean expected = switch (operator) {
+                case PRICE_IS_EQUAL_TO -> cmp == 0;
+                case PRICE_IS_GREATER_THAN -> cmp > 0;
+                case PRICE_IS_GREATER_THAN_OR_EQUAL_TO -> cmp >= 0;
+                case PRICE_IS_LESS_THAN -> cmp < 0;
+                default -> cmp <= 0;
+            };
+            assertEquals(expected, actual, operator + " " + operand + " for price " + price);
+        }
+    }
+}
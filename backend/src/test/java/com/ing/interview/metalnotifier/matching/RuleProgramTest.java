@@ -0,0 +1,92 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleProgramTest {
+
+    private static final long[] NO_WINDOW_VALUES = new long[0];
+
+    @Test
+    public void testEvaluate_NestedGroups_ShortCircuitEachRuleOnce() {
+        // Given: gold AND (price > 1500 OR NOT (price > 1000))
+        RuleGroup group = new RuleGroup(GroupOperator.OR, List.of(new Rule(Operator.PRICE_IS_GREATER_THAN, "1500")),
+                List.of(new RuleGroup(GroupOperator.NOT, List.of(new Rule(Operator.PRICE_IS_GREATER_THAN, "1000")), List.of())));
+        RuleProgram program = RuleProgram.compile(List.of(RulePredicate.compile(Operator.ITEM_IS, "gold")), List.of(group),
+                window -> -1);
+
+        // When & Then
+        assertEquals(3, program.size());
+        assertTrue(program.evaluate(Metal.GOLD, 160_000, NO_WINDOW_VALUES));
+        assertFalse(program.evaluate(Metal.GOLD, 120_000, NO_WINDOW_VALUES));
+        assertTrue(program.evaluate(Metal.GOLD, 90_000, NO_WINDOW_VALUES));
+        assertFalse(program.evaluate(Metal.SILVER, 160_000, NO_WINDOW_VALUES));
+    }
+
+    @Test
+    public void testEvaluate_WindowRules_ReadTheirSlot() {
+        // Given
+        RuleGroup group = new RuleGroup(GroupOperator.OR, List.of(
+                new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, "5"),
+                new Rule(Operator.PRICE_CROSSES_BELOW_MOVING_AVERAGE, "5")), List.of());
+        RuleProgram program = RuleProgram.compile(List.of(), List.of(group), window -> 1);
+
+        // When & Then
+        assertTrue(program.evaluate(Metal.GOLD, 100, new long[]{0, MovingAverage.CROSSED_BELOW}));
+        assertFalse(program.evaluate(Metal.GOLD, 100, new long[]{MovingAverage.CROSSED_ABOVE, 0}));
+        assertFalse(program.evaluate(Metal.GOLD, 100, NO_WINDOW_VALUES));
+    }
+
+    @Test
+    public void testEvaluate_RandomExpressions_AgreeWithRecursiveEvaluation() {
+        // Given
+        Random random = new Random(19);
+        Metal[] metals = Metal.values();
+        for (int expression = 0; expression < 500; expression++) {
+            RuleGroup group = randomGroup(random, 0);
+            RuleProgram program = RuleProgram.compile(List.of(), List.of(group), window -> -1);
+
+            // When & Then
+            for (int tick = 0; tick < 20; tick++) {
+                Metal metal = metals[random.nextInt(metals.length)];
+                long price = random.nextInt(3_000) * 100L;
+                assertEquals(group.matches(metal, price), program.evaluate(metal, price, NO_WINDOW_VALUES),
+                        "expression " + expression + " at " + metal + " " + price);
+            }
+        }
+    }
+
+    private static RuleGroup randomGroup(Random random, int depth) {
+        GroupOperator[] operators = GroupOperator.values();
+        List<Rule> rules = new ArrayList<>();
+        List<RuleGroup> groups = new ArrayList<>();
+        int children = 1 + random.nextInt(3);
+        for (int i = 0; i < children; i++) {
+            if (depth < 4 && random.nextInt(3) == 0) {
+                groups.add(randomGroup(random, depth + 1));
+            } else {
+                rules.add(randomRule(random));
+            }
+        }
+        return new RuleGroup(operators[random.nextInt(operators.length)], rules, groups);
+    }
+
+    private static Rule randomRule(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> new Rule(Operator.ITEM_IS, Metal.values()[random.nextInt(Metal.values().length)].getCode());
+            case 1 -> new Rule(Operator.ITEM_IS_NOT, Metal.values()[random.nextInt(Metal.values().length)].getCode());
+            case 2 -> new Rule(Operator.PRICE_IS_GREATER_THAN, String.valueOf(random.nextInt(3_000)));
+            default -> new Rule(Operator.PRICE_IS_LESS_THAN_OR_EQUAL_TO, String.valueOf(random.nextInt(3_000)));
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package com.ing.interview.metalnotifier.matching;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateIndexTest {
+
+    private long nextId = 1;
+
+    @Test
+    public void testMatch_ItemRules_BucketTemplatesByMetal() {
+        // Given
+        NotificationTemplate gold = template(new Rule(Operator.ITEM_IS, "gold"));
+        NotificationTemplate notGold = template(new Rule(Operator.ITEM_IS_NOT, "gold"));
+        NotificationTemplate contradictory = template(new Rule(Operator.ITEM_IS, "gold"), new Rule(Operator.ITEM_IS, "silver"));
+        TemplateIndex index = TemplateIndex.build(Arrays.asList(gold, notGold, contradictory));
+
+        // When & Then
+        assertEquals(List.of(gold), index.match(new MetalPrice("gold", new BigDecimal("10.00"))));
+        assertEquals(List.of(notGold), index.match(new MetalPrice("silver", new BigDecimal("10.00"))));
+    }
+
+    @Test
+    public void testMatch_PriceThresholds_RespectBoundInclusiveness() {
+        // Given
+        NotificationTemplate greater = template(new Rule(Operator.PRICE_IS_GREATER_THAN, "100"));
+        NotificationTemplate greaterOrEqual = template(new Rule(Operator.PRICE_IS_GREATER_THAN_OR_EQUAL_TO, "100.00"));
+        NotificationTemplate less = template(new Rule(Operator.PRICE_IS_LESS_THAN, "100"));
+        NotificationTemplate lessOrEqual = template(new Rule(Operator.PRICE_IS_LESS_THAN_OR_EQUAL_TO, "100"));
+        NotificationTemplate equal = template(new Rule(Operator.PRICE_IS_EQUAL_TO, "100.0"));
+        TemplateIndex index = TemplateIndex.build(Arrays.asList(greater, greaterOrEqual, less, lessOrEqual, equal));
+
+        // When
+        List<NotificationTemplate> matched = index.match(new MetalPrice("gold", new BigDecimal("100.00")));
+
+        // Then
+        assertEquals(3, matched.size());
+        assertTrue(matched.containsAll(List.of(greaterOrEqual, lessOrEqual, equal)));
+    }
+
+    @Test
+    public void testMatch_RuleGroups_BucketedByEnvelopeAndEvaluatedAsResidual() {
+        // Given: (gold AND price > 1500) OR (silver AND price < 20)
+        NotificationTemplate either = template();
+        either.setRuleGroups(new ArrayList<>(List.of(new RuleGroup(GroupOperator.OR, List.of(), List.of(
+                new RuleGroup(GroupOperator.AND, List.of(new Rule(Operator.ITEM_IS, "gold"),
+                        new Rule(Operator.PRICE_IS_GREATER_THAN, "1500")), List.of()),
+                new RuleGroup(GroupOperator.AND, List.of(new Rule(Operator.ITEM_IS, "silver"),
+                        new Rule(Operator.PRICE_IS_LESS_THAN, "20")), List.of()))))));
+        TemplateIndex index = TemplateIndex.build(List.of(either));
+
+        // When & Then
+        assertEquals(List.of(either), index.match(new MetalPrice("gold", new BigDecimal("1600"))));
+        assertEquals(List.of(either), index.match(new MetalPrice("silver", new BigDecimal("10"))));
+        assertTrue(index.match(new MetalPrice("gold", new BigDecimal("10"))).isEmpty());
+        assertTrue(index.match(new MetalPrice("silver", new BigDecimal("1600"))).isEmpty());
+        assertTrue(index.match(new MetalPrice("platinum", new BigDecimal("1600"))).isEmpty());
+        assertTrue(CompiledTemplate.compile(either).accepts(Metal.GOLD));
+        assertFalse(CompiledTemplate.compile(either).accepts(Metal.PLATINUM));
+    }
+
+    @Test
+    public void testMatch_TemplateWithoutRules_NeverMatches() {
+        // Given
+        TemplateIndex index = TemplateIndex.build(List.of(template()));
+
+        // When & Then
+        assertTrue(index.match(new MetalPrice("gold", BigDecimal.ONE)).isEmpty());
+    }
+
+    @Test
+    public void testMatch_RandomTemplates_AgreesWithRuleEvaluation() {
+        // Given
+        Random random = new Random(42);
+        Operator[] operators = Operator.values();
+        String[] metals = {"gold", "silver", "platinum"};
+        List<NotificationTemplate> templates = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Rule[] rules = new Rule[1 + random.nextInt(3)];
+            for (int r = 0; r < rules.length; r++) {
+                Operator operator = operators[random.nextInt(operators.length)];
+                String operand = operator.name().startsWith("ITEM")
+                        ? metals[random.nextInt(metals.length)]
+                        : String.valueOf(random.nextInt(20));
+                rules[r] = new Rule(operator, operand);
+            }
+            templates.add(template(rules));
+        }
+        TemplateIndex index = TemplateIndex.build(templates);
+
+        for (int tick = 0; tick < 200; tick++) {
+            MetalPrice price = new MetalPrice(metals[random.nextInt(metals.length)],
+                    BigDecimal.valueOf(random.nextInt(2000), 2));
+
+            // When
+            List<NotificationTemplate> matched = index.match(price);
+
+            // Then
+            List<NotificationTemplate> expected = templates.stream().filter(t -> t.matchesAllRules(price)).toList();
+            assertEquals(expected.size(), matched.size());
+            assertTrue(matched.containsAll(expected));
+        }
+    }
+
+    @Test
+    public void testWithAndWithout_RandomChanges_MatchLikeAFullBuild() {
+        // Given
+        Random random = new Random(7);
+        Operator[] operators = Arrays.copyOfRange(Operator.values(), 0, Operator.PRICE_IS_LESS_THAN_OR_EQUAL_TO.ordinal() + 1);
+        String[] metals = {"gold", "silver", "platinum", "copper"};
+        Map<Long, NotificationTemplate> current = new LinkedHashMap<>();
+        TemplateIndex index = TemplateIndex.empty();
+
+        for (int change = 0; change < 300; change++) {
+            // When
+            long id = 1 + random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                current.remove(id);
+                index = index.without(id);
+            } else {
+                Rule[] rules = new Rule[random.nextInt(3)];
+                for (int r = 0; r < rules.length; r++) {
+                    Operator operator = operators[random.nextInt(operators.length)];
+                    String operand = operator.name().startsWith("ITEM")
+                            ? metals[random.nextInt(3)]
+                            : String.valueOf(random.nextInt(20));
+                    rules[r] = new Rule(operator, operand);
+                }
+                NotificationTemplate template = template(rules);
+                template.setId(id);
+                if (random.nextInt(5) == 0) {
+                    template.setRuleGroups(new ArrayList<>(List.of(new RuleGroup(GroupOperator.OR, List.of(
+                            new Rule(Operator.PRICE_IS_LESS_THAN, String.valueOf(random.nextInt(20))),
+                            new Rule(Operator.PRICE_CROSSES_ABOVE_MOVING_AVERAGE, String.valueOf(2 + random.nextInt(3)))),
+                            List.of()))));
+                }
+                current.put(id, template);
+                index = index.with(template);
+            }
+
+            // Then
+            TemplateIndex built = TemplateIndex.build(current.values());
+            assertEquals(built.size(), index.size());
+            assertEquals(Set.copyOf(built.getWindows()), Set.copyOf(index.getWindows()));
+            assertEquals(built.hasEdgeTriggeredTemplates(), index.hasEdgeTriggeredTemplates());
+            for (int tick = 0; tick < 10; tick++) {
+                MetalPrice price = new MetalPrice(metals[random.nextInt(metals.length)], BigDecimal.valueOf(random.nextInt(2000), 2));
+                assertEquals(ids(built.match(price)), ids(index.match(price)), "after change " + change + " at " + price);
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeSlots_DenseOverEdgeTemplatesAndKeptByOtherChanges() {
+        // Given
+        NotificationTemplate level = template(new Rule(Operator.ITEM_IS, "gold"));
+        NotificationTemplate edge = template(new Rule(Operator.ITEM_IS, "gold"));
+        edge.setTriggerMode(TriggerMode.EDGE);
+        NotificationTemplate sparseEdge = template(new Rule(Operator.ITEM_IS, "silver"));
+        sparseEdge.setId(1L << 40);
+        sparseEdge.setTriggerMode(TriggerMode.EDGE);
+        TemplateIndex index = TemplateIndex.build(List.of(level, edge));
+
+        // When
+        TemplateIndex added = index.with(sparseEdge);
+        TemplateIndex levelChanged = added.with(template(new Rule(Operator.ITEM_IS, "silver")));
+        TemplateIndex removed = levelChanged.without(edge.getId());
+
+        // Then
+        assertEquals(0, index.getEdgeSlots().slotOf(edge.getId()));
+        assertEquals(2, added.getEdgeSlots().size());
+        assertEquals(1, added.getEdgeSlots().slotOf(sparseEdge.getId()));
+        assertTrue(added.getEdgeSlots().slotOf(level.getId()) < 0);
+        assertSame(added.getEdgeSlots(), levelChanged.getEdgeSlots());
+        assertEquals(0, removed.getEdgeSlots().slotOf(sparseEdge.getId()));
+    }
+
+    private static List<Long> ids(List<NotificationTemplate> templates) {
+        return templates.stream().map(NotificationTemplate::getId).sorted().toList();
+    }
+
+    private NotificationTemplate template(Rule... rules) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(nextId++);
+        template.setTitle("Template " + template.getId());
+        template.setRules(new ArrayList<>(Arrays.asList(rules)));
+        return template;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ing.interview.metalnotifier.rendering;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledMessageTest {
+
+    private static final MetalPrice PRICE = new MetalPrice("gold", new BigDecimal("1600.00"));
+
+    @Test
+    public void testCompile_ThresholdOfPlainRuleComesFirst() {
+        // Given
+        NotificationTemplate template = template("Above {{threshold}}");
+        template.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, " 1500 "))));
+        template.setRuleGroups(new ArrayList<>(List.of(group(new Rule(Operator.PRICE_IS_LESS_THAN, "2000")))));
+
+        // When
+        CompiledMessage message = CompiledMessage.compile(template);
+
+        // Then
+        assertEquals("Above 1500", message.getContent().render(message.context(PRICE)));
+    }
+
+    @Test
+    public void testCompile_ThresholdIsTakenFromNestedGroups() {
+        // Given
+        NotificationTemplate template = template("Above {{threshold}}");
+        RuleGroup nested = group(new Rule(Operator.PRICE_IS_GREATER_THAN, "1500"));
+        RuleGroup outer = group(new Rule(Operator.ITEM_IS, "gold"));
+        outer.setGroups(new ArrayList<>(List.of(nested)));
+        template.setRuleGroups(new ArrayList<>(List.of(outer)));
+
+        // When
+        CompiledMessage message = CompiledMessage.compile(template);
+
+        // Then
+        assertEquals("Above 1500", message.getContent().render(message.context(PRICE)));
+    }
+
+    @Test
+    public void testCompile_ThresholdIsEmptyWithoutPriceRules() {
+        // Given
+        NotificationTemplate template = template("Above {{threshold}}");
+        template.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"))));
+
+        // When
+        CompiledMessage message = CompiledMessage.compile(template);
+
+        // Then
+        assertEquals("Above ", message.getContent().render(message.context(PRICE)));
+    }
+
+    @Test
+    public void testGetCompiledMessage_RuleGroupsReplaced_IsCompiledAgain() {
+        // Given
+        NotificationTemplate template = template("Above {{threshold}}");
+        template.setRuleGroups(new ArrayList<>(List.of(group(new Rule(Operator.PRICE_IS_GREATER_THAN, "1500")))));
+        template.getCompiledMessage();
+
+        // When
+        template.setRuleGroups(new ArrayList<>(List.of(group(new Rule(Operator.PRICE_IS_GREATER_THAN, "1550")))));
+        CompiledMessage message = template.getCompiledMessage();
+
+        // Then
+        assertEquals("Above 1550", message.getContent().render(message.context(PRICE)));
+    }
+
+    private static NotificationTemplate template(String content) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold alert");
+        template.setContent(content);
+        return template;
+    }
+
+    private static RuleGroup group(Rule rule) {
+        return new RuleGroup(GroupOperator.OR, new ArrayList<>(List.of(rule)), new ArrayList<>());
+    }
+}
@@ -0,0 +1,46 @@
+package com.ing.interview.metalnotifier.rendering;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledTextTest {
+
+    private static final RenderContext CONTEXT = new RenderContext("gold", "1600.00", "1500", "Gold alert");
+
+    @Test
+    public void testRender_SubstitutesKnownPlaceholders() {
+        // Given
+        CompiledText text = CompiledText.compile("{{itemType}} is at {{ price }}, above {{threshold}} ({{templateTitle}})");
+
+        // When
+        String rendered = text.render(CONTEXT);
+
+        // Then
+        assertTrue(text.hasPlaceholders());
+        assertEquals("gold is at 1600.00, above 1500 (Gold alert)", rendered);
+    }
+
+    @Test
+    public void testRender_KeepsUnknownAndUnterminatedMarkersAsText() {
+        // Given
+        CompiledText text = CompiledText.compile("{{unknown}} {{price}} {{price");
+
+        // When
+        String rendered = text.render(CONTEXT);
+
+        // Then
+        assertEquals("{{unknown}} 1600.00 {{price", rendered);
+    }
+
+    @Test
+    public void testRender_PlainTextIsReturnedAsIs() {
+        // Given
+        CompiledText text = CompiledText.compile("No placeholders here");
+
+        // When & Then
+        assertFalse(text.hasPlaceholders());
+        assertEquals("No placeholders here", text.render(CONTEXT));
+        assertEquals("", CompiledText.compile(null).render(CONTEXT));
+    }
+}
@@ -0,0 +1,74 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.AdmissionProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testAcquire_QueueFull_ShedsImmediately() {
+        // Given
+        AdmissionControl admission = admission(1, 0, Duration.ofSeconds(5));
+
+        // When & Then
+        try (AdmissionControl.Permit held = admission.acquire()) {
+            long started = System.nanoTime();
+            AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, admission::acquire);
+            assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(Duration.ofSeconds(1), rejected.getRetryAfter());
+            assertEquals(1, admission.getInFlight());
+        }
+        assertEquals(0, admission.getInFlight());
+        assertEquals(1.0, registry.get("metal.notifier.admission.shed").tag("reason", "queue_full").counter().count());
+    }
+
+    @Test
+    public void testAcquire_QueuedRequest_AdmittedWhenSlotFrees() throws Exception {
+        // Given
+        AdmissionControl admission = admission(1, 1, Duration.ofSeconds(5));
+        AdmissionControl.Permit held = admission.acquire();
+
+        // When
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> admission.acquire().close());
+        while (admission.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        held.close();
+
+        // Then
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(2.0, registry.get("metal.notifier.admission.admitted").counter().count());
+        assertEquals(0, admission.getQueued());
+    }
+
+    @Test
+    public void testAcquire_QueueTimeout_Sheds() {
+        // Given
+        AdmissionControl admission = admission(1, 10, Duration.ofMillis(20));
+
+        // When & Then
+        try (AdmissionControl.Permit held = admission.acquire()) {
+            assertThrows(AdmissionRejectedException.class, admission::acquire);
+        }
+        assertEquals(1.0, registry.get("metal.notifier.admission.shed").tag("reason", "queue_timeout").counter().count());
+        assertEquals(0, admission.getQueued());
+    }
+
+    private AdmissionControl admission(int maxConcurrent, int maxQueued, Duration queueTimeout) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setMaxQueued(maxQueued);
+        properties.setQueueTimeout(queueTimeout);
+        return new AdmissionControl(properties, new NotifierMetrics(registry));
+    }
+}
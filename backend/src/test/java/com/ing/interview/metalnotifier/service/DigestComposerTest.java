@@ -0,0 +1,75 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DigestComposerTest {
+
+    private static final MetalPrice GOLD = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+
+    @Test
+    public void testCoalesce_GroupsByAddressAndSplitsAtMaxTemplates() {
+        // Given
+        DigestComposer composer = composer(true, 2);
+        Recipient alice = new Recipient("alice@example.com");
+        Recipient bob = new Recipient("bob@example.com");
+        List<NotificationJob> jobs = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            jobs.add(job(template(id, "Alert " + id), alice));
+        }
+        jobs.add(job(template(4L, "Alert 4"), bob));
+        jobs.add(job(template(1L, "Alert 1"), new Recipient("Alice@Example.com")));
+
+        // When
+        List<NotificationJob> coalesced = composer.coalesce(jobs);
+
+        // Then
+        assertEquals(3, coalesced.size());
+        assertEquals(2, coalesced.get(0).getTemplates().size());
+        assertTrue(coalesced.get(0).isDigest());
+        assertEquals(1, coalesced.get(1).getTemplates().size());
+        assertSame(alice, coalesced.get(1).getRecipient());
+        assertSame(bob, coalesced.get(2).getRecipient());
+        assertFalse(coalesced.get(2).isDigest());
+    }
+
+    @Test
+    public void testCoalesce_Disabled_KeepsOneJobPerTemplate() {
+        // Given
+        DigestComposer composer = composer(false, 20);
+        Recipient alice = new Recipient("alice@example.com");
+        List<NotificationJob> jobs = List.of(job(template(1L, "A"), alice), job(template(2L, "B"), alice));
+
+        // When & Then
+        assertSame(jobs, composer.coalesce(jobs));
+    }
+
+    private static DigestComposer composer(boolean enabled, int maxTemplates) {
+        DispatchProperties properties = new DispatchProperties();
+        properties.getDigest().setEnabled(enabled);
+        properties.getDigest().setMaxTemplates(maxTemplates);
+        return new DigestComposer(properties);
+    }
+
+    private static NotificationJob job(NotificationTemplate template, Recipient recipient) {
+        return new NotificationJob("tick", template, recipient, GOLD);
+    }
+
+    private static NotificationTemplate template(Long id, String title) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(id);
+        template.setTitle(title);
+        template.setContent(title + " body");
+        return template;
+    }
+}
@@ -0,0 +1,265 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.StreamProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MatchEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchBroadcasterTest {
+
+    private static final int QUEUE_CAPACITY = 4;
+
+    private final MatchBroadcaster broadcaster = new MatchBroadcaster(new NotifierMetrics(new SimpleMeterRegistry()),
+            properties(2, Duration.ofSeconds(10)));
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void testPublish_DeliversEventsInOrder() throws Exception {
+        // Given
+        CapturingEmitter emitter = new CapturingEmitter();
+        assertNotNull(broadcaster.subscribe(() -> emitter));
+
+        // When
+        for (long id = 1; id <= 3; id++) {
+            broadcaster.publish(event(id));
+        }
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), emitter.take(3).stream().map(MatchEvent::getTemplateId).toList());
+    }
+
+    @Test
+    public void testPublish_SlowSubscriberIsDroppedWithoutBlockingPublisherOrOthers() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CapturingEmitter slow = new CapturingEmitter(release);
+        CapturingEmitter fast = new CapturingEmitter();
+        broadcaster.subscribe(() -> slow);
+        broadcaster.subscribe(() -> fast);
+
+        // When
+        long started = System.nanoTime();
+        int published = QUEUE_CAPACITY * 3;
+        for (long id = 1; id <= published; id++) {
+            broadcaster.publish(event(id));
+            if (id % QUEUE_CAPACITY == 0) {
+                // Let the fast subscriber catch up; the slow one is stuck in its first send.
+                fast.take(QUEUE_CAPACITY);
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        release.countDown();
+
+        // Then
+        assertTrue(elapsedMillis < 2_000, "Publishing took " + elapsedMillis + " ms");
+        assertEquals(1, broadcaster.getDroppedCount());
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPublish_TwoStalledSubscribersDoNotHoldUpAHealthyOne() throws Exception {
+        // Given
+        MatchBroadcaster stalling = new MatchBroadcaster(new NotifierMetrics(new SimpleMeterRegistry()),
+                properties(3, Duration.ofMillis(200)));
+        CountDownLatch release = new CountDownLatch(1);
+        CapturingEmitter stalled1 = new CapturingEmitter(release);
+        CapturingEmitter stalled2 = new CapturingEmitter(release);
+        CapturingEmitter healthy = new CapturingEmitter();
+        stalling.subscribe(() -> stalled1);
+        stalling.subscribe(() -> stalled2);
+        stalling.subscribe(() -> healthy);
+
+        try {
+            // When
+            for (long id = 1; id <= QUEUE_CAPACITY - 1; id++) {
+                stalling.publish(event(id));
+            }
+
+            // Then: the healthy subscriber gets every event while both others are stuck in their first send
+            assertEquals(List.of(1L, 2L, 3L), healthy.take(QUEUE_CAPACITY - 1).stream().map(MatchEvent::getTemplateId).toList());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (stalling.getSubscriberCount() > 1) {
+                assertTrue(System.nanoTime() < deadline, "Stalled subscribers were not dropped after the send timeout");
+                Thread.sleep(10);
+            }
+            assertEquals(2, stalling.getDroppedCount());
+            // Their stuck sends still count against the limit.
+            assertNull(stalling.subscribe(() -> new CapturingEmitter()));
+
+            release.countDown();
+            assertTrue(stalled1.completed.await(5, TimeUnit.SECONDS));
+            assertTrue(stalled2.completed.await(5, TimeUnit.SECONDS));
+            stalling.publish(event(QUEUE_CAPACITY));
+            assertEquals(QUEUE_CAPACITY, healthy.take(1).get(0).getTemplateId());
+        } finally {
+            stalling.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscribe_RejectsBeyondLimit() {
+        assertNotNull(broadcaster.subscribe(() -> new CapturingEmitter()));
+        assertNotNull(broadcaster.subscribe(() -> new CapturingEmitter()));
+        assertNull(broadcaster.subscribe(() -> new CapturingEmitter()));
+    }
+
+    @Test
+    public void testSubscribe_AtLimit_DoesNotCreateEmitter() {
+        // Given
+        broadcaster.subscribe(CapturingEmitter::new);
+        broadcaster.subscribe(CapturingEmitter::new);
+
+        // When
+        SseEmitter emitter = broadcaster.subscribe(() -> {
+            throw new AssertionError("Emitter created beyond the subscriber limit");
+        });
+
+        // Then
+        assertNull(emitter);
+    }
+
+    @Test
+    public void testSubscribe_ClosedSubscriberFreesItsSlot() {
+        // Given
+        CapturingEmitter first = new CapturingEmitter();
+        broadcaster.subscribe(() -> first);
+        broadcaster.subscribe(CapturingEmitter::new);
+
+        // When
+        first.closeByClient();
+
+        // Then
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertNotNull(broadcaster.subscribe(CapturingEmitter::new));
+        assertNull(broadcaster.subscribe(CapturingEmitter::new));
+    }
+
+    @Test
+    public void testSubscribe_Concurrently_NeverExceedsLimit() throws Exception {
+        // Given
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SseEmitter>> subscribes = new ArrayList<>();
+
+        try {
+            // When
+            for (int i = 0; i < threads; i++) {
+                subscribes.add(executor.submit(() -> {
+                    start.await();
+                    return broadcaster.subscribe(CapturingEmitter::new);
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for (Future<SseEmitter> subscribe : subscribes) {
+                if (subscribe.get(5, TimeUnit.SECONDS) != null) {
+                    accepted++;
+                }
+            }
+
+            // Then
+            assertEquals(2, accepted);
+            assertEquals(2, broadcaster.getSubscriberCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static StreamProperties properties(int maxSubscribers, Duration sendTimeout) {
+        StreamProperties properties = new StreamProperties();
+        properties.setQueueCapacity(QUEUE_CAPACITY);
+        properties.setMaxSubscribers(maxSubscribers);
+        properties.setSendTimeout(sendTimeout);
+        properties.setHeartbeat(Duration.ofMinutes(1));
+        return properties;
+    }
+
+    private static MatchEvent event(long templateId) {
+        return new MatchEvent("tick-" + templateId, templateId, "Template " + templateId, "gold",
+                BigDecimal.valueOf(1600), 1, Instant.now());
+    }
+
+    /**
+     * Records the match events it is asked to send; optionally blocks every send until released, like a
+     * client that stopped reading.
+     */
+    static final class CapturingEmitter extends SseEmitter {
+
+        private final BlockingQueue<MatchEvent> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch release;
+        final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Runnable onCompletion;
+
+        CapturingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        CapturingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            builder.build().stream()
+                    .filter(part -> part.getData() instanceof MatchEvent)
+                    .forEach(part -> events.add((MatchEvent) part.getData()));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            super.onCompletion(callback);
+            this.onCompletion = callback;
+        }
+
+        /** What the container does when the client disconnects. */
+        void closeByClient() {
+            onCompletion.run();
+        }
+
+        List<MatchEvent> take(int count) throws InterruptedException {
+            List<MatchEvent> taken = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                MatchEvent event = events.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "Only " + taken.size() + " of " + count + " events arrived");
+                taken.add(event);
+            }
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.model.EmailMessage;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageRendererTest {
+
+    private static final MetalPrice GOLD = new MetalPrice("gold", new BigDecimal("1600.00"));
+    private static final Recipient ALICE = new Recipient("alice@example.com");
+
+    @Test
+    public void testRender_FillsPlaceholdersFromPriceAndRules() {
+        // Given
+        NotificationTemplate template = template(1L, "{{itemType}} above {{threshold}}", "Now {{price}} ({{templateTitle}})");
+        template.setRules(List.of(new Rule(Operator.ITEM_IS, "gold"), new Rule(Operator.PRICE_IS_GREATER_THAN, "1500")));
+
+        // When
+        EmailMessage message = renderer(10_000).render(ALICE, template, GOLD);
+
+        // Then
+        assertEquals("alice@example.com", message.getTo());
+        assertEquals("gold above 1500", message.getSubject());
+        assertEquals("Now 1600.00 ({{itemType}} above {{threshold}})", message.getBody());
+    }
+
+    @Test
+    public void testRender_RecompilesAfterContentChange() {
+        // Given
+        NotificationTemplate template = template(1L, "Alert", "Old {{price}}");
+        MessageRenderer renderer = renderer(10_000);
+        renderer.render(ALICE, template, GOLD);
+
+        // When
+        template.setContent("New {{itemType}}");
+
+        // Then
+        assertEquals("New gold", renderer.render(ALICE, template, GOLD).getBody());
+    }
+
+    @Test
+    public void testRenderDigest_StopsAddingTemplatesAtMaxContentLength() {
+        // Given
+        List<NotificationTemplate> templates = List.of(
+                template(1L, "First", "First body"), template(2L, "Second", "Second body"), template(3L, "Third", "Third body"));
+
+        // When
+        EmailMessage digest = renderer(30).renderDigest(ALICE, templates, GOLD);
+
+        // Then
+        assertEquals("3 price alerts for gold", digest.getSubject());
+        assertTrue(digest.getBody().startsWith("First\nFirst body"));
+        assertFalse(digest.getBody().contains("Second"));
+        assertTrue(digest.getBody().endsWith("... and 2 more"));
+    }
+
+    private static MessageRenderer renderer(int maxContentLength) {
+        DispatchProperties properties = new DispatchProperties();
+        properties.getDigest().setMaxContentLength(maxContentLength);
+        return new MessageRenderer(properties);
+    }
+
+    private static NotificationTemplate template(Long id, String title, String content) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(id);
+        template.setTitle(title);
+        template.setContent(content);
+        return template;
+    }
+}
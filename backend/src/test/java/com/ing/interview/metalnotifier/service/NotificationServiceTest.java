@@ -1,21 +1,33 @@
 package com.ing.interview.metalnotifier.service;
 
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.config.StreamProperties;
 import com.ing.interview.metalnotifier.entity.NotificationTemplate;
 import com.ing.interview.metalnotifier.entity.Recipient;
 import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
 import com.ing.interview.metalnotifier.model.*;
 import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.repository.RecipientRepository;
+import com.ing.interview.metalnotifier.repository.RuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,11 +40,22 @@ public class NotificationServiceTest {
     @Mock
     private NotificationTemplateRepository templateRepository;
 
+    @Mock
+    private RecipientRepository recipientRepository;
+
+    @Mock
+    private RuleRepository ruleRepository;
+
     @Mock
     private EmailService emailService;
 
-    @InjectMocks
+    @Mock
+    private TemplateChangeLog changeLog;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private NotificationService notificationService;
+    private MatchBroadcaster matchBroadcaster;
 
     private NotificationTemplate template1;
     private NotificationTemplate template2;
@@ -44,6 +67,18 @@ public class NotificationServiceTest {
 
     @BeforeEach
     public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        NotifierMetrics metrics = new NotifierMetrics(meterRegistry);
+        StreamProperties streamProperties = new StreamProperties();
+        streamProperties.setQueueCapacity(16);
+        streamProperties.setMaxSubscribers(4);
+        streamProperties.setHeartbeat(Duration.ofMinutes(1));
+        matchBroadcaster = new MatchBroadcaster(metrics, streamProperties);
+        notificationService = new NotificationService(templateRepository, recipientRepository, ruleRepository,
+                new TemplateCache(templateRepository, changeLog, metrics, TransactionOperations.withoutTransaction()), new SyncNotificationDispatcher(emailService, metrics),
+                new DigestComposer(new DispatchProperties()), metrics, PriceHistoryStore.disabled(),
+                matchBroadcaster, changeLog);
+
         template1 = new NotificationTemplate();
         template1.setId(1L);
         template1.setTitle("Gold price alert");
@@ -100,25 +135,55 @@ public class NotificationServiceTest {
         template2.setRecipients(recipients2);
     }
 
+    @AfterEach
+    public void tearDown() {
+        matchBroadcaster.shutdown();
+    }
+
     @Test
     public void testProcessNewPrice_MatchingTemplate_SendsNotification() {
         // Given
         MetalPrice metalPrice = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
-        when(templateRepository.findAll()).thenReturn(Arrays.asList(template1, template2));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
 
         // When
-        notificationService.processNewPrice(metalPrice);
+        TickResult result = notificationService.processNewPrice(metalPrice);
 
         // Then
+        assertEquals(1, result.getMatchedTemplates());
+        assertEquals(1, result.getNotifications());
+        assertFalse(result.isAsynchronous());
         verify(emailService, times(1)).sendEmail(recipient1, template1, metalPrice);
         verify(emailService, never()).sendEmail(recipient2, template2, metalPrice);
     }
 
+    @Test
+    public void testProcessNewPrice_MatchingTemplate_PublishesMatchEvent() throws Exception {
+        // Given
+        MetalPrice metalPrice = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+        MatchBroadcasterTest.CapturingEmitter subscriber = new MatchBroadcasterTest.CapturingEmitter();
+        matchBroadcaster.subscribe(() -> subscriber);
+
+        // When
+        TickResult result = notificationService.processNewPrice(metalPrice);
+
+        // Then
+        MatchEvent event = subscriber.take(1).get(0);
+        assertEquals(result.getTickId(), event.getTickId());
+        assertEquals(1L, event.getTemplateId());
+        assertEquals("gold", event.getItemType());
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(event.getPrice()));
+        assertEquals(1, event.getRecipientCount());
+    }
+
     @Test
     public void testProcessNewPrice_NoMatchingTemplate_DoesNotSendNotification() {
         // Given
         MetalPrice metalPrice = new MetalPrice("gold", BigDecimal.valueOf(500.00)); // Cena poniżej warunku
-        when(templateRepository.findAll()).thenReturn(Arrays.asList(template1, template2));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
 
         // When
         notificationService.processNewPrice(metalPrice);
@@ -127,6 +192,166 @@ public class NotificationServiceTest {
         verify(emailService, never()).sendEmail(any(), any(), any());
     }
 
+    @Test
+    public void testProcessBatch_EvaluatesEveryPriceAgainstOneTemplateLoad() {
+        // Given
+        MetalPrice goldPrice = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+        MetalPrice silverPrice = new MetalPrice("silver", BigDecimal.valueOf(20.00));
+        MetalPrice lowGoldPrice = new MetalPrice("gold", BigDecimal.valueOf(500.00));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+
+        // When
+        List<TickResult> results = notificationService.processBatch(Arrays.asList(goldPrice, silverPrice, lowGoldPrice));
+
+        // Then
+        assertEquals(3, results.size());
+        assertEquals(1, results.get(0).getNotifications());
+        assertEquals(1, results.get(1).getNotifications());
+        assertEquals(0, results.get(2).getMatchedTemplates());
+        verify(templateRepository, times(1)).findAllWithRules();
+        verify(recipientRepository, times(1)).findByTemplateIdIn(anyCollection());
+        verify(emailService).sendEmail(recipient1, template1, goldPrice);
+        verify(emailService).sendEmail(recipient2, template2, silverPrice);
+    }
+
+    @Test
+    public void testProcessBatch_RecordsPerMetalMetrics() {
+        // Given
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+
+        // When
+        notificationService.processBatch(Arrays.asList(
+                new MetalPrice("gold", BigDecimal.valueOf(1500.00)),
+                new MetalPrice("gold", BigDecimal.valueOf(500.00)),
+                new MetalPrice("silver", BigDecimal.valueOf(20.00))));
+
+        // Then
+        assertEquals(2.0, meterRegistry.get("metal.notifier.ticks").tag("metal", "gold").counter().count());
+        assertEquals(1.0, meterRegistry.get("metal.notifier.ticks").tag("metal", "silver").counter().count());
+        assertEquals(4.0, meterRegistry.get("metal.notifier.templates.evaluated").tag("metal", "gold").counter().count());
+        assertEquals(1.0, meterRegistry.get("metal.notifier.templates.matched").tag("metal", "gold").counter().count());
+        assertEquals(1.0, meterRegistry.get("metal.notifier.emails.sent").tag("metal", "silver").counter().count());
+        assertEquals(2, meterRegistry.get("metal.notifier.match").tag("metal", "gold").timer().count());
+        assertEquals(1, meterRegistry.get("metal.notifier.process").timer().count());
+        assertEquals(1, meterRegistry.get("metal.notifier.index.load").timer().count());
+        assertEquals(2.0, meterRegistry.get("metal.notifier.templates.indexed").gauge().value());
+    }
+
+    @Test
+    public void testProcessNewPrice_RecipientOnSeveralMatchingTemplates_GetsOneDigest() {
+        // Given
+        NotificationTemplate template3 = new NotificationTemplate();
+        template3.setId(3L);
+        template3.setTitle("Any gold price");
+        template3.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"))));
+        Recipient sameAddress = new Recipient("TEST1@example.com");
+        sameAddress.setId(3L);
+        sameAddress.setTemplate(template3);
+        MetalPrice metalPrice = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2, template3));
+        when(recipientRepository.findByTemplateIdIn(anyCollection())).thenReturn(Arrays.asList(recipient1, sameAddress));
+
+        // When
+        TickResult result = notificationService.processNewPrice(metalPrice);
+
+        // Then
+        assertEquals(2, result.getMatchedTemplates());
+        assertEquals(1, result.getNotifications());
+        ArgumentCaptor<List<NotificationTemplate>> digestCaptor = ArgumentCaptor.forClass(List.class);
+        verify(emailService).sendDigest(any(Recipient.class), digestCaptor.capture(), eq(metalPrice));
+        assertEquals(2, digestCaptor.getValue().size());
+        assertTrue(digestCaptor.getValue().containsAll(List.of(template1, template3)));
+        verify(emailService, never()).sendEmail(any(), any(), any());
+    }
+
+    @Test
+    public void testProcessNewPrice_EdgeTriggeredTemplate_FiresOnlyWhenConditionBecomesTrue() {
+        // Given
+        template1.setTriggerMode(TriggerMode.EDGE);
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+
+        // When
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1500.00)));
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1600.00)));
+        notificationService.processNewPrice(new MetalPrice("silver", BigDecimal.valueOf(20.00)));
+        TickResult stillAbove = notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1700.00)));
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(900.00)));
+        notificationService.processNewPrice(new MetalPrice("gold", BigDecimal.valueOf(1100.00)));
+
+        // Then
+        assertEquals(1, stillAbove.getMatchedTemplates());
+        assertEquals(0, stillAbove.getNotifications());
+        verify(emailService, times(2)).sendEmail(eq(recipient1), eq(template1), any());
+    }
+
+    @Test
+    public void testProcessNewPrice_EdgeTriggeredTemplate_DispatchFails_RetryStillFiresTheEdge() {
+        // Given
+        template1.setTriggerMode(TriggerMode.EDGE);
+        MetalPrice metalPrice = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+        doThrow(new IllegalStateException("SMTP is down")).doNothing()
+                .when(emailService).sendEmail(recipient1, template1, metalPrice);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> notificationService.processNewPrice(metalPrice));
+        TickResult retried = notificationService.processNewPrice(metalPrice);
+
+        // Then
+        assertEquals(1, retried.getNotifications());
+        verify(emailService, times(2)).sendEmail(recipient1, template1, metalPrice);
+    }
+
+    @Test
+    public void testProcessBatch_MoreJobsThanQueueCapacity_AdmitsTickByTick() throws Exception {
+        // Given
+        QueuedNotificationDispatcher dispatcher = queuedDispatcher(1, 1, Duration.ofSeconds(5));
+        NotificationService service = serviceWith(dispatcher);
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+
+        // When
+        List<TickResult> results = service.processBatch(Arrays.asList(
+                new MetalPrice("gold", BigDecimal.valueOf(1500.00)),
+                new MetalPrice("silver", BigDecimal.valueOf(20.00)),
+                new MetalPrice("gold", BigDecimal.valueOf(1600.00))));
+        dispatcher.shutdown();
+
+        // Then
+        assertTrue(results.stream().noneMatch(TickResult::isRejected));
+        assertEquals(3, results.stream().mapToInt(TickResult::getNotifications).sum());
+        verify(emailService, times(3)).sendEmail(any(), any(), any());
+    }
+
+    @Test
+    public void testProcessBatch_TickNotAdmitted_IsRejectedWithoutFailingOtherMetals() throws Exception {
+        // Given
+        QueuedNotificationDispatcher dispatcher = queuedDispatcher(0, 1, Duration.ofMillis(10));
+        NotificationService service = serviceWith(dispatcher);
+        when(templateRepository.findAllWithRules()).thenReturn(Arrays.asList(template1, template2));
+        stubRecipients();
+
+        // When
+        List<TickResult> results = service.processBatch(Arrays.asList(
+                new MetalPrice("silver", BigDecimal.valueOf(20.00)),
+                new MetalPrice("gold", BigDecimal.valueOf(1500.00)),
+                new MetalPrice("gold", BigDecimal.valueOf(500.00)),
+                new MetalPrice("platinum", BigDecimal.valueOf(900.00))));
+        dispatcher.shutdown();
+
+        // Then
+        assertFalse(results.get(0).isRejected());
+        assertEquals(1, results.get(0).getNotifications());
+        assertTrue(results.get(1).isRejected());
+        assertEquals(0, results.get(1).getNotifications());
+        assertTrue(results.get(2).isRejected());
+        assertFalse(results.get(3).isRejected());
+    }
+
     @Test
     public void testSaveTemplate_NewTemplate_SetsRelations() {
         // Given
@@ -195,6 +420,38 @@ public class NotificationServiceTest {
         verify(templateRepository).findAll();
     }
 
+    @Test
+    public void testGetTemplateSummaries_MoreRowsThanLimit_ReturnsCursorOfLastItem() {
+        // Given
+        when(templateRepository.findSummariesAfter(eq(5L), any(Pageable.class))).thenReturn(Arrays.asList(
+                new TemplateSummary(6L, "A", TriggerMode.LEVEL, 1, 1),
+                new TemplateSummary(7L, "B", TriggerMode.LEVEL, 1, 1),
+                new TemplateSummary(8L, "C", TriggerMode.LEVEL, 1, 1)));
+
+        // When
+        TemplatePage page = notificationService.getTemplateSummaries(5L, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals(7L, page.getNextCursor());
+        verify(templateRepository).findSummariesAfter(5L, PageRequest.of(0, 3));
+    }
+
+    @Test
+    public void testGetTemplateSummaries_LastPage_HasNoCursor() {
+        // Given
+        when(templateRepository.findSummariesAfter(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(
+                List.of(new TemplateSummary(1L, "A", TriggerMode.LEVEL, 1, 1)));
+
+        // When
+        TemplatePage page = notificationService.getTemplateSummaries(null, 10_000);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        verify(templateRepository).findSummariesAfter(Long.MIN_VALUE, PageRequest.of(0, NotificationService.MAX_PAGE_SIZE + 1));
+    }
+
     @Test
     public void testGetTemplateById_ExistingId_ReturnsTemplate() {
         // Given
@@ -236,4 +493,31 @@ public class NotificationServiceTest {
         // Then
         verify(templateRepository).deleteById(id);
     }
-}
\ No newline at end of file
+
+    private NotificationService serviceWith(NotificationDispatcher dispatcher) {
+        NotifierMetrics metrics = new NotifierMetrics(meterRegistry);
+        return new NotificationService(templateRepository, recipientRepository, ruleRepository,
+                new TemplateCache(templateRepository, changeLog, metrics, TransactionOperations.withoutTransaction()), dispatcher,
+                new DigestComposer(new DispatchProperties()), metrics, PriceHistoryStore.disabled(),
+                matchBroadcaster, changeLog);
+    }
+
+    private QueuedNotificationDispatcher queuedDispatcher(int workers, int queueCapacity, Duration offerTimeout) {
+        DispatchProperties properties = new DispatchProperties();
+        properties.setMode(DispatchProperties.Mode.ASYNC);
+        properties.setWorkers(workers);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setOfferTimeout(offerTimeout);
+        properties.setShutdownTimeout(Duration.ofMillis(100));
+        return new QueuedNotificationDispatcher(emailService, new NotifierMetrics(meterRegistry), properties);
+    }
+
+    private void stubRecipients() {
+        when(recipientRepository.findByTemplateIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> templateIds = invocation.getArgument(0);
+            return Arrays.asList(recipient1, recipient2).stream()
+                    .filter(recipient -> templateIds.contains(recipient.getTemplate().getId()))
+                    .toList();
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ing.interview.metalnotifier.config.BatchProperties;
+import com.ing.interview.metalnotifier.model.BatchEntryResult;
+import com.ing.interview.metalnotifier.model.BatchResult;
+import com.ing.interview.metalnotifier.model.TickResult;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceBatchReaderTest {
+
+    private PriceBatchReader reader;
+
+    @BeforeEach
+    public void setup() {
+        BatchProperties properties = new BatchProperties();
+        properties.setMaxEntries(3);
+        reader = new PriceBatchReader(new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), properties);
+    }
+
+    @Test
+    public void testReadJsonArray_InvalidEntries_AreRejectedIndividually() throws Exception {
+        // Given
+        String body = "[{\"itemType\":\"gold\",\"price\":\"1.00\"},"
+                + "{\"itemType\":\"copper\",\"price\":\"1.00\"},"
+                + "{\"itemType\":\"silver\",\"price\":\"abc\"}]";
+
+        // When
+        PriceBatchReader.PriceBatch batch = reader.readJsonArray(stream(body));
+        BatchResult result = batch.complete(List.of(new TickResult("t1", 2, 3, false)), false);
+
+        // Then
+        assertEquals(1, batch.getAccepted().size());
+        assertEquals(new BigDecimal("1.00"), batch.getAccepted().get(0).getPrice());
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getProcessed());
+        assertEquals(2, result.getRejected());
+        assertEquals(BatchEntryResult.Status.PROCESSED, result.getResults().get(0).getStatus());
+        assertEquals("t1", result.getResults().get(0).getTickId());
+        assertEquals(3, result.getResults().get(0).getNotifications());
+        assertEquals("itemType", result.getResults().get(1).getErrors().get(0).getField());
+        assertEquals(BatchEntryResult.Status.REJECTED, result.getResults().get(2).getStatus());
+    }
+
+    @Test
+    public void testComplete_RejectedTick_IsReportedInItsOwnEntry() throws Exception {
+        // Given
+        String body = "[{\"itemType\":\"gold\",\"price\":\"1.00\"},{\"itemType\":\"silver\",\"price\":\"2.00\"}]";
+        PriceBatchReader.PriceBatch batch = reader.readJsonArray(stream(body));
+
+        // When
+        BatchResult result = batch.complete(List.of(new TickResult("t1", 1, 1, true),
+                new TickResult("t2", 1, 0, true, "Notification queue has no room for 1 jobs")), true);
+
+        // Then
+        assertEquals(1, result.getProcessed());
+        assertEquals(1, result.getRejected());
+        assertEquals(BatchEntryResult.Status.PROCESSED, result.getResults().get(0).getStatus());
+        assertEquals(BatchEntryResult.Status.REJECTED, result.getResults().get(1).getStatus());
+        assertEquals("t2", result.getResults().get(1).getTickId());
+        assertEquals("dispatch", result.getResults().get(1).getErrors().get(0).getField());
+    }
+
+    @Test
+    public void testReadJsonArray_NotAnArray_Throws() {
+        assertThrows(ValidationException.class,
+                () -> reader.readJsonArray(stream("{\"itemType\":\"gold\",\"price\":\"1.00\"}")));
+    }
+
+    @Test
+    public void testReadNdjson_MalformedLine_DoesNotStopTheStream() throws Exception {
+        // Given
+        String body = "{\"itemType\":\"gold\",\"price\":\"1.00\"}\n"
+                + "{not json\n"
+                + "\n"
+                + "{\"itemType\":\"platinum\",\"price\":\"2.50\"}\n";
+
+        // When
+        PriceBatchReader.PriceBatch batch = reader.readNdjson(stream(body));
+        BatchResult result = batch.complete(List.of(new TickResult("t1", 0, 0, false), new TickResult("t2", 0, 0, false)), false);
+
+        // Then
+        assertEquals(2, batch.getAccepted().size());
+        assertEquals(3, result.getReceived());
+        assertEquals(BatchEntryResult.Status.REJECTED, result.getResults().get(1).getStatus());
+        assertEquals("t2", result.getResults().get(2).getTickId());
+    }
+
+    @Test
+    public void testReadNdjson_TooManyEntries_RemainingAreSkipped() throws Exception {
+        // Given
+        String line = "{\"itemType\":\"gold\",\"price\":\"1.00\"}\n";
+
+        // When
+        PriceBatchReader.PriceBatch batch = reader.readNdjson(stream(line.repeat(5)));
+
+        // Then
+        assertEquals(3, batch.getAccepted().size());
+        assertEquals(1, batch.complete(List.of(), false).getRejected());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
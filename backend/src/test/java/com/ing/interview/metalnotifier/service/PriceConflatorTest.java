@@ -0,0 +1,164 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.ConflationProperties;
+import com.ing.interview.metalnotifier.history.PriceHistoryStore;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.ConflationStats;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceConflatorTest {
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlush_EvaluatesOnlyLatestTickPerItemType() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofHours(1));
+        conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1500)));
+        conflator.offer(new MetalPrice("silver", BigDecimal.valueOf(20)));
+        conflator.offer(new MetalPrice("GOLD", BigDecimal.valueOf(1550)));
+        TickResult latestGold = conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+
+        // When
+        int evaluated = conflator.flush();
+
+        // Then
+        ArgumentCaptor<List<String>> tickIds = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<MetalPrice>> prices = ArgumentCaptor.forClass(List.class);
+        verify(notificationService).processTicks(tickIds.capture(), prices.capture());
+        assertEquals(2, evaluated);
+        int gold = prices.getValue().indexOf(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+        assertTrue(gold >= 0);
+        assertEquals(latestGold.getTickId(), tickIds.getValue().get(gold));
+        assertTrue(latestGold.isAsynchronous());
+
+        ConflationStats stats = conflator.getStats();
+        assertEquals(4, stats.getConflated());
+        assertEquals(2, stats.getDropped());
+        assertEquals(2, stats.getEvaluated());
+        assertEquals(0, stats.getPending());
+        conflator.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlush_FailedEvaluation_PutsBackTicksThatWereNotSuperseded() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofHours(1));
+        TickResult gold = conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+        conflator.offer(new MetalPrice("silver", BigDecimal.valueOf(20)));
+        doAnswer(invocation -> {
+            // A newer silver tick arrives while the window is being evaluated.
+            conflator.offer(new MetalPrice("silver", BigDecimal.valueOf(21)));
+            throw new IllegalStateException("Database down");
+        }).doReturn(List.of()).when(notificationService).processTicks(anyList(), anyList());
+
+        // When
+        assertThrows(IllegalStateException.class, conflator::flush);
+        ConflationStats afterFailure = conflator.getStats();
+        int evaluated = conflator.flush();
+
+        // Then
+        assertEquals(2, afterFailure.getFailed());
+        assertEquals(2, afterFailure.getPending());
+        assertEquals(1, afterFailure.getDropped());
+        ArgumentCaptor<List<String>> tickIds = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<MetalPrice>> prices = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(2)).processTicks(tickIds.capture(), prices.capture());
+        assertEquals(2, evaluated);
+        assertTrue(tickIds.getValue().contains(gold.getTickId()));
+        assertTrue(prices.getValue().contains(new MetalPrice("silver", BigDecimal.valueOf(21))));
+        assertEquals(2, conflator.getStats().getEvaluated());
+        conflator.shutdown();
+    }
+
+    @Test
+    public void testFlush_PersistentFailure_AbandonsTheTickAfterMaxAttempts() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofHours(1));
+        conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+        when(notificationService.processTicks(anyList(), anyList())).thenThrow(new IllegalStateException("SMTP down"));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, conflator::flush);
+        }
+        int evaluated = conflator.flush();
+
+        // Then
+        ConflationStats stats = conflator.getStats();
+        assertEquals(0, evaluated);
+        assertEquals(3, stats.getFailed());
+        assertEquals(1, stats.getAbandoned());
+        assertEquals(0, stats.getPending());
+        verify(notificationService, times(3)).processTicks(anyList(), anyList());
+        conflator.shutdown();
+    }
+
+    @Test
+    public void testFlush_RejectedTick_IsPutBack() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofHours(1));
+        TickResult gold = conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+        when(notificationService.processTicks(anyList(), anyList()))
+                .thenReturn(List.of(new TickResult(gold.getTickId(), 1, 0, true, "Notification queue has no room for 1 jobs")));
+
+        // When
+        int evaluated = conflator.flush();
+
+        // Then
+        assertEquals(0, evaluated);
+        assertEquals(1, conflator.getStats().getFailed());
+        assertEquals(1, conflator.getStats().getPending());
+        conflator.shutdown();
+    }
+
+    @Test
+    public void testFlush_NothingPending_SkipsEvaluation() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofHours(1));
+
+        // When & Then
+        assertEquals(0, conflator.flush());
+        verify(notificationService, never()).processTicks(anyList(), anyList());
+        conflator.shutdown();
+    }
+
+    @Test
+    public void testWindow_EvaluatesPendingTicksWithoutExplicitFlush() throws Exception {
+        // Given
+        PriceConflator conflator = conflator(Duration.ofMillis(20));
+
+        // When
+        conflator.offer(new MetalPrice("gold", BigDecimal.valueOf(1600)));
+
+        // Then
+        verify(notificationService, timeout(2000)).processTicks(anyList(), anyList());
+        conflator.shutdown();
+    }
+
+    private PriceConflator conflator(Duration window) {
+        ConflationProperties properties = new ConflationProperties();
+        properties.setEnabled(true);
+        properties.setWindow(window);
+        return new PriceConflator(notificationService, PriceHistoryStore.disabled(), new NotifierMetrics(new SimpleMeterRegistry()), properties);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class QueuedNotificationDispatcherTest {
+
+    @Mock
+    private EmailService emailService;
+
+    private QueuedNotificationDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testDispatch_DeliversAllJobsOnWorkerThreads() throws Exception {
+        // Given
+        dispatcher = new QueuedNotificationDispatcher(emailService, new NotifierMetrics(new SimpleMeterRegistry()), properties(3, 100));
+        CountDownLatch delivered = new CountDownLatch(10);
+        doAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("notification-worker-"));
+            delivered.countDown();
+            return null;
+        }).when(emailService).sendEmail(any(), any(), any());
+
+        // When
+        dispatcher.dispatch(jobs(10));
+
+        // Then
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(3, dispatcher.getStats().getWorkers());
+        assertTrue(dispatcher.isAsynchronous());
+    }
+
+    @Test
+    public void testDispatch_QueueFull_RejectsAllJobsOfTheTick() throws Exception {
+        // Given
+        dispatcher = new QueuedNotificationDispatcher(emailService, new NotifierMetrics(new SimpleMeterRegistry()), properties(1, 2));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(emailService).sendEmail(any(), any(), any());
+        dispatcher.dispatch(jobs(1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When & Then
+        dispatcher.dispatch(jobs(1));
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch(jobs(2)));
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch(jobs(3)));
+        assertEquals(1, dispatcher.getStats().getQueueDepth());
+        release.countDown();
+        dispatcher.shutdown();
+        verify(emailService, times(2)).sendEmail(any(), any(), any());
+    }
+
+    @Test
+    public void testShutdown_DrainsQueuedJobs() throws Exception {
+        // Given
+        dispatcher = new QueuedNotificationDispatcher(emailService, new NotifierMetrics(new SimpleMeterRegistry()), properties(2, 100));
+        dispatcher.dispatch(jobs(20));
+
+        // When
+        dispatcher.shutdown();
+
+        // Then
+        verify(emailService, times(20)).sendEmail(any(), any(), any());
+    }
+
+    private static DispatchProperties properties(int workers, int queueCapacity) {
+        DispatchProperties properties = new DispatchProperties();
+        properties.setMode(DispatchProperties.Mode.ASYNC);
+        properties.setWorkers(workers);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setOfferTimeout(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private static List<NotificationJob> jobs(int count) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle("Gold price alert");
+        MetalPrice metalPrice = new MetalPrice("gold", new BigDecimal("1500.00"));
+        List<NotificationJob> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jobs.add(new NotificationJob("tick", template, new Recipient("user" + i + "@example.com"), metalPrice));
+        }
+        return jobs;
+    }
+}
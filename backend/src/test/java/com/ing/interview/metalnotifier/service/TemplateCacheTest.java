@@ -0,0 +1,172 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.model.TemplateCacheStats;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplateCacheTest {
+
+    private static final MetalPrice GOLD_TICK = new MetalPrice("gold", BigDecimal.valueOf(1500.00));
+
+    @Mock
+    private NotificationTemplateRepository templateRepository;
+
+    @Mock
+    private TemplateChangeLog changeLog;
+
+    private TemplateCache templateCache;
+
+    @BeforeEach
+    public void setup() {
+        templateCache = new TemplateCache(templateRepository, changeLog, new NotifierMetrics(new SimpleMeterRegistry()),
+                TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    public void testGet_LoadsOnceAndCountsHitsAndMisses() {
+        // Given
+        when(templateRepository.findAllWithRules()).thenReturn(List.of(goldTemplate(1L)));
+
+        // When
+        TemplateCache.Snapshot first = templateCache.get();
+        TemplateCache.Snapshot second = templateCache.get();
+
+        // Then
+        assertSame(first, second);
+        assertEquals(1, first.getIndex().size());
+        verify(templateRepository, times(1)).findAllWithRules();
+        TemplateCacheStats stats = templateCache.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getRebuilds());
+        assertTrue(stats.isLoaded());
+    }
+
+    @Test
+    public void testPutAndRemove_SwapSnapshotWithoutReloading() {
+        // Given
+        when(templateRepository.findAllWithRules()).thenReturn(List.of(goldTemplate(1L)));
+        TemplateCache.Snapshot before = templateCache.get();
+
+        // When
+        templateCache.put(goldTemplate(2L));
+        TemplateCache.Snapshot afterPut = templateCache.get();
+        templateCache.remove(1L);
+        TemplateCache.Snapshot afterRemove = templateCache.get();
+
+        // Then
+        assertEquals(1, before.getIndex().match(GOLD_TICK).size());
+        assertEquals(2, afterPut.getIndex().match(GOLD_TICK).size());
+        assertNull(afterRemove.get(1L));
+        assertNotNull(afterRemove.get(2L));
+        verify(templateRepository, times(1)).findAllWithRules();
+        assertEquals(2, templateCache.getStats().getUpdates());
+    }
+
+    @Test
+    public void testPut_InsideTransaction_AppliedOnlyAfterCommit() {
+        // Given
+        when(templateRepository.findAllWithRules()).thenReturn(new ArrayList<>());
+        templateCache.get();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            templateCache.put(goldTemplate(1L));
+            int sizeBeforeCommit = templateCache.get().getIndex().size();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Then
+            assertEquals(0, sizeBeforeCommit);
+            assertEquals(1, templateCache.get().getIndex().size());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testPut_BeforeFirstLoad_IsLeftToTheLoad() {
+        // Given
+        when(templateRepository.findAllWithRules()).thenReturn(List.of(goldTemplate(1L)));
+
+        // When
+        templateCache.put(goldTemplate(1L));
+        TemplateCache.Snapshot snapshot = templateCache.get();
+
+        // Then
+        assertEquals(1, snapshot.getIndex().size());
+        assertEquals(0, templateCache.getStats().getUpdates());
+    }
+
+    @Test
+    public void testCatchUp_ReloadsOnlyTemplatesChangedAfterSnapshotVersion() {
+        // Given
+        NotificationTemplate stale = goldTemplate(1L);
+        templateCache.install(List.of(stale, goldTemplate(2L), goldTemplate(3L)), 7);
+        NotificationTemplate updated = goldTemplate(1L);
+        updated.setTitle("Gold 1 updated");
+        when(changeLog.currentVersion()).thenReturn(9L);
+        when(changeLog.changedBetween(7, 9)).thenReturn(List.of(1L, 3L));
+        when(templateRepository.findAllWithRulesByIdIn(List.of(1L, 3L))).thenReturn(List.of(updated));
+
+        // When
+        int changed = templateCache.catchUp();
+        int unchanged = templateCache.catchUp();
+
+        // Then
+        TemplateCache.Snapshot snapshot = templateCache.peek();
+        assertEquals(2, changed);
+        assertEquals(0, unchanged);
+        assertEquals(9, snapshot.getVersion());
+        assertSame(updated, snapshot.get(1L));
+        assertNotNull(snapshot.get(2L));
+        assertNull(snapshot.get(3L));
+        verify(templateRepository, never()).findAllWithRules();
+    }
+
+    @Test
+    public void testPut_OlderVersionThanCached_IsIgnored() {
+        // Given
+        NotificationTemplate current = goldTemplate(1L);
+        current.setVersion(5L);
+        templateCache.install(List.of(current), 3);
+        NotificationTemplate older = goldTemplate(1L);
+        older.setVersion(4L);
+
+        // When
+        templateCache.put(older);
+
+        // Then
+        assertSame(current, templateCache.get().get(1L));
+    }
+
+    private static NotificationTemplate goldTemplate(Long id) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(id);
+        template.setTitle("Gold " + id);
+        template.setRules(new ArrayList<>(List.of(
+                new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, "1000"))));
+        return template;
+    }
+}
@@ -0,0 +1,232 @@
+package com.ing.interview.metalnotifier.service;
+
+import com.ing.interview.metalnotifier.config.IdempotencyProperties;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.TickResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TickDeduplicatorTest {
+
+    private static final MetalPrice GOLD = new MetalPrice("gold", new BigDecimal("1500.00"));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    private final AtomicInteger processed = new AtomicInteger();
+
+    @Test
+    public void testExecute_SameKey_ReplaysOriginalResultWithoutProcessing() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+
+        // When
+        TickDeduplicator.Outcome first = deduplicator.execute("feed-1", GOLD, this::process);
+        TickDeduplicator.Outcome retry = deduplicator.execute("feed-1", new MetalPrice("gold", new BigDecimal("1500")), this::process);
+
+        // Then
+        assertEquals(1, processed.get());
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertSame(first.getResult(), retry.getResult());
+        assertEquals(1.0, registry.get("metal.notifier.idempotency.replayed").counter().count());
+    }
+
+    @Test
+    public void testExecute_WithoutKey_AlwaysProcesses() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+
+        // When
+        deduplicator.execute(null, GOLD, this::process);
+        deduplicator.execute(null, GOLD, this::process);
+
+        // Then
+        assertEquals(2, processed.get());
+        assertEquals(0, deduplicator.size());
+    }
+
+    @Test
+    public void testExecute_KeyExpired_ProcessesAgain() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+        deduplicator.execute("feed-1", GOLD, this::process);
+
+        // When
+        clock.advance(Duration.ofMinutes(1));
+        TickDeduplicator.Outcome outcome = deduplicator.execute("feed-1", GOLD, this::process);
+
+        // Then
+        assertFalse(outcome.isReplayed());
+        assertEquals(2, processed.get());
+        assertEquals(1, deduplicator.size());
+    }
+
+    @Test
+    public void testExecute_MoreKeysThanCapacity_EvictsEldestAndStaysBounded() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(64, Duration.ofHours(1));
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            deduplicator.execute("feed-" + i, GOLD, this::process);
+        }
+
+        // Then
+        assertTrue(deduplicator.size() <= 64);
+        assertTrue(deduplicator.execute("feed-999", GOLD, this::process).isReplayed());
+        assertFalse(deduplicator.execute("feed-0", GOLD, this::process).isReplayed());
+    }
+
+    @Test
+    public void testExecute_ProcessingFailed_RetryIsProcessed() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+        assertThrows(AdmissionRejectedException.class, () -> deduplicator.execute("feed-1", GOLD, () -> {
+            throw new AdmissionRejectedException("Price processing is saturated", Duration.ofSeconds(1));
+        }));
+
+        // When
+        TickDeduplicator.Outcome outcome = deduplicator.execute("feed-1", GOLD, this::process);
+
+        // Then
+        assertFalse(outcome.isReplayed());
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    public void testExecute_SameKeyOtherPrice_IsRejected() {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+        deduplicator.execute("feed-1", GOLD, this::process);
+
+        // When & Then
+        assertThrows(ValidationException.class,
+                () -> deduplicator.execute("feed-1", new MetalPrice("gold", new BigDecimal("1501.00")), this::process));
+        assertThrows(ValidationException.class, () -> deduplicator.execute("x".repeat(65), GOLD, this::process));
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    public void testExecute_DuplicateWhileFirstInFlight_WaitsForItsResult() throws Exception {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TickDeduplicator.Outcome> first = CompletableFuture.supplyAsync(() ->
+                deduplicator.execute("feed-1", GOLD, () -> {
+                    started.countDown();
+                    await(release);
+                    return process();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<TickDeduplicator.Outcome> duplicate = CompletableFuture.supplyAsync(() ->
+                deduplicator.execute("feed-1", GOLD, this::process));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        // Then
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS).isReplayed());
+        assertSame(first.get(5, TimeUnit.SECONDS).getResult(), duplicate.get().getResult());
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    public void testExecute_DuplicateWhileFirstHangs_GivesUpAfterInFlightWait() throws Exception {
+        // Given
+        TickDeduplicator deduplicator = deduplicator(100, Duration.ofMinutes(1), Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TickDeduplicator.Outcome> first = CompletableFuture.supplyAsync(() ->
+                deduplicator.execute("feed-1", GOLD, () -> {
+                    started.countDown();
+                    await(release);
+                    return process();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When & Then
+            long waitStarted = System.nanoTime();
+            TickInProgressException inProgress = assertThrows(TickInProgressException.class,
+                    () -> deduplicator.execute("feed-1", GOLD, this::process));
+            assertTrue(System.nanoTime() - waitStarted < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(Duration.ofMillis(50), inProgress.getRetryAfter());
+            assertEquals(0.0, registry.get("metal.notifier.idempotency.replayed").counter().count());
+        } finally {
+            release.countDown();
+        }
+        assertFalse(first.get(5, TimeUnit.SECONDS).isReplayed());
+        assertTrue(deduplicator.execute("feed-1", GOLD, this::process).isReplayed());
+        assertEquals(1, processed.get());
+    }
+
+    private TickDeduplicator deduplicator(int maxKeys, Duration ttl) {
+        return deduplicator(maxKeys, ttl, Duration.ofSeconds(5));
+    }
+
+    private TickDeduplicator deduplicator(int maxKeys, Duration ttl, Duration inFlightWait) {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMaxKeys(maxKeys);
+        properties.setTtl(ttl);
+        properties.setInFlightWait(inFlightWait);
+        return new TickDeduplicator(properties, new NotifierMetrics(registry), clock);
+    }
+
+    private TickResult process() {
+        return new TickResult("tick-" + processed.incrementAndGet(), 1, 1, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
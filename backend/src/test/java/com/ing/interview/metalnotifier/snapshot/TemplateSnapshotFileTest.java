@@ -0,0 +1,95 @@
+package com.ing.interview.metalnotifier.snapshot;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.entity.RuleGroup;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.model.GroupOperator;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.model.TriggerMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testWriteThenRead_RestoresTemplatesRulesAndNestedGroups() throws IOException {
+        // Given
+        NotificationTemplate plain = template(1L, "Gold > 1500", new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, "1500"));
+        plain.setContent(null);
+        NotificationTemplate grouped = template(2L, "Złoto poza zakresem", new Rule(Operator.ITEM_IS, "gold"));
+        grouped.setTriggerMode(TriggerMode.EDGE);
+        RuleGroup inner = new RuleGroup(GroupOperator.NOT, List.of(new Rule(Operator.PRICE_IS_LESS_THAN, "1000")), List.of());
+        grouped.setRuleGroups(new ArrayList<>(List.of(new RuleGroup(GroupOperator.OR,
+                List.of(new Rule(Operator.PRICE_IS_GREATER_THAN, "2000")), List.of(inner)))));
+        Path file = directory.resolve("templates.bin");
+
+        // When
+        TemplateSnapshotFile.write(file, 42, List.of(plain, grouped));
+        TemplateSnapshotFile.Contents contents = TemplateSnapshotFile.read(file);
+
+        // Then
+        assertEquals(42, contents.getChangeVersion());
+        assertEquals(2, contents.getTemplates().size());
+        NotificationTemplate first = contents.getTemplates().get(0);
+        assertEquals(1L, first.getId());
+        assertEquals(3L, first.getVersion());
+        assertEquals("Gold > 1500", first.getTitle());
+        assertNull(first.getContent());
+        assertEquals(Operator.PRICE_IS_GREATER_THAN, first.getRules().get(1).getOperator());
+        assertSame(first, first.getRules().get(0).getTemplate());
+        NotificationTemplate second = contents.getTemplates().get(1);
+        assertEquals("Złoto poza zakresem", second.getTitle());
+        assertEquals(TriggerMode.EDGE, second.getTriggerMode());
+        RuleGroup group = second.getRuleGroups().get(0);
+        assertEquals(GroupOperator.OR, group.getOperator());
+        assertEquals(GroupOperator.NOT, group.getGroups().get(0).getOperator());
+        assertSame(group, group.getGroups().get(0).getParent());
+        for (long price : new long[]{500, 1200, 2500}) {
+            assertEquals(grouped.matchesAllRules(Metal.GOLD, PriceScale.toScaled(BigDecimal.valueOf(price))),
+                    second.matchesAllRules(Metal.GOLD, PriceScale.toScaled(BigDecimal.valueOf(price))));
+        }
+    }
+
+    @Test
+    public void testRead_CorruptedBody_IsRejected() throws IOException {
+        // Given
+        Path file = directory.resolve("templates.bin");
+        TemplateSnapshotFile.write(file, 1, List.of(template(1L, "Gold", new Rule(Operator.ITEM_IS, "gold"))));
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            long last = raw.length() - 1;
+            raw.seek(last);
+            int value = raw.read();
+            raw.seek(last);
+            raw.write(value ^ 0x1);
+        }
+
+        // When & Then
+        IOException e = assertThrows(IOException.class, () -> TemplateSnapshotFile.read(file));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    private static NotificationTemplate template(Long id, String title, Rule... rules) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setId(id);
+        template.setVersion(3L);
+        template.setTitle(title);
+        template.setContent("Price is {{price}}");
+        template.setRules(new ArrayList<>(List.of(rules)));
+        return template;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ing.interview.metalnotifier.snapshot;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.model.Operator;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.service.EmailService;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import com.ing.interview.metalnotifier.service.TemplateCache;
+import com.ing.interview.metalnotifier.service.TemplateChangeLog;
+import com.ing.interview.metalnotifier.service.TemplateSnapshotService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class TemplateSnapshotIT {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationTemplateRepository templateRepository;
+
+    @Autowired
+    private TemplateCache templateCache;
+
+    @Autowired
+    private TemplateChangeLog changeLog;
+
+    @Autowired
+    private TemplateSnapshotService snapshotService;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setup() {
+        templateRepository.deleteAll();
+        templateCache.invalidate();
+    }
+
+    @Test
+    public void testWarmUp_InstallsSnapshotFileAndCatchesUpOnLaterChanges() {
+        // Given
+        NotificationTemplate kept = notificationService.saveTemplate(template("Gold above 1500"));
+        NotificationTemplate deleted = notificationService.saveTemplate(template("Gold above 1600"));
+        templateCache.catchUp();
+        snapshotService.writeSnapshot();
+        NotificationTemplate added = notificationService.saveTemplate(template("Gold above 1700"));
+        notificationService.deleteTemplate(deleted.getId());
+        templateCache.invalidate();
+
+        // When
+        boolean fromFile = snapshotService.warmUp();
+
+        // Then
+        TemplateCache.Snapshot snapshot = templateCache.peek();
+        assertTrue(fromFile);
+        assertEquals(changeLog.currentVersion(), snapshot.getVersion());
+        assertEquals(2, snapshot.getTemplates().size());
+        assertEquals("Gold above 1500", snapshot.get(kept.getId()).getTitle());
+        assertEquals("Gold above 1700", snapshot.get(added.getId()).getTitle());
+        assertNull(snapshot.get(deleted.getId()));
+        assertEquals(2, snapshot.getIndex().size());
+    }
+
+    private static NotificationTemplate template(String title) {
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTitle(title);
+        template.setContent("Gold price is {{price}}");
+        template.setRecipients(new ArrayList<>(List.of(new Recipient("snapshot@ingtest.pl"))));
+        template.setRules(new ArrayList<>(List.of(new Rule(Operator.ITEM_IS, "gold"),
+                new Rule(Operator.PRICE_IS_GREATER_THAN, title.substring(title.length() - 4)))));
+        return template;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ing.interview.metalnotifier.benchmarks;
+
+import com.ing.interview.metalnotifier.config.DispatchProperties;
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.mail.LoggingEmailSender;
+import com.ing.interview.metalnotifier.metrics.NotifierMetrics;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.NotificationJob;
+import com.ing.interview.metalnotifier.service.EmailService;
+import com.ing.interview.metalnotifier.service.MessageRenderer;
+import com.ing.interview.metalnotifier.service.NotificationDispatcher;
+import com.ing.interview.metalnotifier.service.QueuedNotificationDispatcher;
+import com.ing.interview.metalnotifier.service.SyncNotificationDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing the jobs of one tick to the dispatcher. The email sender only spins for
+ * {@code sendCostNanos} to stand in for delivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"SYNC", "ASYNC"})
+    public DispatchProperties.Mode mode;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    @Param({"100"})
+    public int jobsPerTick;
+
+    @Param({"1000"})
+    public long sendCostNanos;
+
+    private NotificationDispatcher dispatcher;
+    private List<NotificationJob> jobs;
+
+    @Setup
+    public void setup() {
+        DispatchProperties properties = new DispatchProperties();
+        EmailService emailService = new EmailService(new MessageRenderer(properties), new LoggingEmailSender()) {
+            @Override
+            public void sendEmail(Recipient recipient, NotificationTemplate template, MetalPrice metalPrice) {
+                Blackhole.consumeCPU(sendCostNanos);
+            }
+        };
+        properties.setMode(mode);
+        properties.setWorkers(workers);
+        properties.setQueueCapacity(10_000);
+        properties.setOfferTimeout(Duration.ofSeconds(30));
+        NotifierMetrics metrics = new NotifierMetrics(new SimpleMeterRegistry());
+        dispatcher = mode == DispatchProperties.Mode.ASYNC
+                ? new QueuedNotificationDispatcher(emailService, metrics, properties)
+                : new SyncNotificationDispatcher(emailService, metrics);
+
+        NotificationTemplate template = TemplateFixtures.templates(1, TemplateFixtures.RuleMix.THRESHOLDS, 1.0, true).get(0);
+        jobs = new ArrayList<>(jobsPerTick);
+        for (int i = 0; i < jobsPerTick; i++) {
+            jobs.add(new NotificationJob("tick", template, new Recipient("user" + i + "@example.com"), TemplateFixtures.TICK));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (dispatcher instanceof QueuedNotificationDispatcher queued) {
+            queued.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void dispatchTick() {
+        dispatcher.dispatch(jobs);
+    }
+}
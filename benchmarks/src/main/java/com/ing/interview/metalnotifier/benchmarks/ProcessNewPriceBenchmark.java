@@ -0,0 +1,76 @@
+package com.ing.interview.metalnotifier.benchmarks;
+
+import com.ing.interview.metalnotifier.MetalNotifierApplication;
+import com.ing.interview.metalnotifier.model.TickResult;
+import com.ing.interview.metalnotifier.repository.NotificationTemplateRepository;
+import com.ing.interview.metalnotifier.service.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link NotificationService#processNewPrice} against an in-memory H2 database, with
+ * the default (synchronous) dispatcher and email logging switched off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessNewPriceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int templateCount;
+
+    @Param({"MIXED", "THRESHOLDS"})
+    public TemplateFixtures.RuleMix ruleMix;
+
+    @Param({"0.01", "0.1"})
+    public double hitRatio;
+
+    private ConfigurableApplicationContext context;
+    private NotificationService notificationService;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(MetalNotifierApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--metal-notifier.template-snapshot.enabled=false",
+                        "--logging.level.root=WARN");
+        notificationService = context.getBean(NotificationService.class);
+
+        context.getBean(NotificationTemplateRepository.class)
+                .saveAll(TemplateFixtures.templates(templateCount, ruleMix, hitRatio, false));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TickResult processNewPrice() {
+        return notificationService.processNewPrice(TemplateFixtures.TICK);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ing.interview.metalnotifier.benchmarks;
+
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.matching.RulePredicate;
+import com.ing.interview.metalnotifier.model.Metal;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEvaluationBenchmark {
+
+    @Param({
+            "ITEM_IS",
+            "ITEM_IS_NOT",
+            "PRICE_IS_EQUAL_TO",
+            "PRICE_IS_GREATER_THAN",
+            "PRICE_IS_GREATER_THAN_OR_EQUAL_TO",
+            "PRICE_IS_LESS_THAN",
+            "PRICE_IS_LESS_THAN_OR_EQUAL_TO"
+    })
+    public Operator operator;
+
+    private Rule rule;
+    private RulePredicate predicate;
+    private MetalPrice metalPrice;
+    private Metal metal;
+    private long scaledPrice;
+
+    @Setup
+    public void setup() {
+        String operand = operator == Operator.ITEM_IS || operator == Operator.ITEM_IS_NOT ? "gold" : "999.99";
+        rule = new Rule(operator, operand);
+        predicate = rule.getPredicate();
+        metalPrice = TemplateFixtures.TICK;
+        metal = Metal.fromCode(metalPrice.getItemType());
+        scaledPrice = PriceScale.toScaled(metalPrice.getPrice());
+    }
+
+    /**
+     * Rule evaluation as the original implementation did it: parse the operand on every call.
+     */
+    @Benchmark
+    public boolean parseOperandPerEvaluation() {
+        return switch (operator) {
+            case ITEM_IS -> metalPrice.getItemType().equals(rule.getOperand());
+            case ITEM_IS_NOT -> !metalPrice.getItemType().equals(rule.getOperand());
+            case PRICE_IS_EQUAL_TO -> metalPrice.getPrice().compareTo(new BigDecimal(rule.getOperand())) == 0;
+            case PRICE_IS_GREATER_THAN -> metalPrice.getPrice().compareTo(new BigDecimal(rule.getOperand())) > 0;
+            case PRICE_IS_GREATER_THAN_OR_EQUAL_TO -> metalPrice.getPrice().compareTo(new BigDecimal(rule.getOperand())) >= 0;
+            case PRICE_IS_LESS_THAN -> metalPrice.getPrice().compareTo(new BigDecimal(rule.getOperand())) < 0;
+            default -> metalPrice.getPrice().compareTo(new BigDecimal(rule.getOperand())) <= 0;
+        };
+    }
+
+    @Benchmark
+    public boolean evaluateMetalPrice() {
+        return rule.evaluate(metalPrice);
+    }
+
+    @Benchmark
+    public boolean evaluateCompiledPredicate() {
+        return predicate.test(metal, scaledPrice);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ing.interview.metalnotifier.benchmarks;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.entity.Recipient;
+import com.ing.interview.metalnotifier.entity.Rule;
+import com.ing.interview.metalnotifier.model.MetalPrice;
+import com.ing.interview.metalnotifier.model.Operator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates templates for a fixed gold tick so that exactly {@code hitRatio} of them match it.
+ */
+public final class TemplateFixtures {
+
+    public static final MetalPrice TICK = new MetalPrice("gold", new BigDecimal("1000.00"));
+
+    private static final int TICK_CENTS = 100_000;
+
+    public enum RuleMix {
+        /** ITEM_IS plus one price threshold, misses split between wrong metal and wrong price. */
+        ITEM_AND_THRESHOLD,
+        /** A single greater-than or less-than threshold. */
+        THRESHOLDS,
+        /** A two-sided price range. */
+        RANGES,
+        /** Each template picks one of the shapes above. */
+        MIXED
+    }
+
+    private TemplateFixtures() {
+    }
+
+    public static List<NotificationTemplate> templates(int count, RuleMix mix, double hitRatio, boolean withIds) {
+        Random random = new Random(42);
+        int hits = (int) Math.round(count * hitRatio);
+        List<Boolean> outcomes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            outcomes.add(i < hits);
+        }
+        Collections.shuffle(outcomes, random);
+
+        RuleMix[] shapes = {RuleMix.ITEM_AND_THRESHOLD, RuleMix.THRESHOLDS, RuleMix.RANGES};
+        List<NotificationTemplate> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RuleMix shape = mix == RuleMix.MIXED ? shapes[random.nextInt(shapes.length)] : mix;
+            NotificationTemplate template = new NotificationTemplate();
+            if (withIds) {
+                template.setId((long) i + 1);
+            }
+            template.setTitle("Benchmark template " + i);
+            template.setContent("Generated for benchmarks");
+            template.setRules(rules(shape, outcomes.get(i), random));
+            template.setRecipients(new ArrayList<>(List.of(
+                    new Recipient("first" + i + "@example.com"),
+                    new Recipient("second" + i + "@example.com"))));
+            template.getRules().forEach(rule -> rule.setTemplate(template));
+            template.getRecipients().forEach(recipient -> recipient.setTemplate(template));
+            templates.add(template);
+        }
+        return templates;
+    }
+
+    private static List<Rule> rules(RuleMix shape, boolean hit, Random random) {
+        List<Rule> rules = new ArrayList<>();
+        switch (shape) {
+            case ITEM_AND_THRESHOLD -> {
+                boolean wrongMetal = !hit && random.nextBoolean();
+                rules.add(new Rule(Operator.ITEM_IS, wrongMetal ? "silver" : "gold"));
+                rules.add(new Rule(Operator.PRICE_IS_GREATER_THAN, price(hit || wrongMetal ? below(random) : above(random))));
+            }
+            case THRESHOLDS -> {
+                boolean greater = random.nextBoolean();
+                int bound = hit == greater ? below(random) : above(random);
+                rules.add(new Rule(greater ? Operator.PRICE_IS_GREATER_THAN : Operator.PRICE_IS_LESS_THAN, price(bound)));
+            }
+            default -> {
+                int lower;
+                int upper;
+                if (hit) {
+                    lower = below(random);
+                    upper = above(random);
+                } else if (random.nextBoolean()) {
+                    upper = below(random);
+                    lower = upper - 1 - random.nextInt(50_000);
+                } else {
+                    lower = above(random);
+                    upper = lower + 1 + random.nextInt(50_000);
+                }
+                rules.add(new Rule(Operator.PRICE_IS_GREATER_THAN_OR_EQUAL_TO, price(lower)));
+                rules.add(new Rule(Operator.PRICE_IS_LESS_THAN_OR_EQUAL_TO, price(upper)));
+            }
+        }
+        return rules;
+    }
+
+    private static int below(Random random) {
+        return TICK_CENTS - 1 - random.nextInt(50_000);
+    }
+
+    private static int above(Random random) {
+        return TICK_CENTS + 1 + random.nextInt(50_000);
+    }
+
+    private static String price(int cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+}
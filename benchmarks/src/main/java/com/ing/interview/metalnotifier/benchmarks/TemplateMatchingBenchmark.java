@@ -0,0 +1,75 @@
+package com.ing.interview.metalnotifier.benchmarks;
+
+import com.ing.interview.metalnotifier.entity.NotificationTemplate;
+import com.ing.interview.metalnotifier.matching.PriceScale;
+import com.ing.interview.metalnotifier.matching.TemplateIndex;
+import com.ing.interview.metalnotifier.model.Metal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateMatchingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int templateCount;
+
+    @Param({"MIXED", "ITEM_AND_THRESHOLD", "THRESHOLDS", "RANGES"})
+    public TemplateFixtures.RuleMix ruleMix;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double hitRatio;
+
+    private List<NotificationTemplate> templates;
+    private TemplateIndex index;
+    private Metal metal;
+    private long scaledPrice;
+
+    @Setup
+    public void setup() {
+        templates = TemplateFixtures.templates(templateCount, ruleMix, hitRatio, true);
+        index = TemplateIndex.build(templates);
+        metal = Metal.fromCode(TemplateFixtures.TICK.getItemType());
+        scaledPrice = PriceScale.toScaled(TemplateFixtures.TICK.getPrice());
+    }
+
+    @Benchmark
+    public void matchesAllRulesLinearScan(Blackhole blackhole) {
+        for (NotificationTemplate template : templates) {
+            if (template.matchesAllRules(metal, scaledPrice)) {
+                blackhole.consume(template);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<NotificationTemplate> templateIndexMatch() {
+        return index.match(metal, scaledPrice);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public TemplateIndex templateIndexBuild() {
+        return TemplateIndex.build(templates);
+    }
+}
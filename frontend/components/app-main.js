@@ -1,13 +1,15 @@
 import { LitElement, html, css } from 'lit';
 import './template-list.js';
 import './template-detail.js';
+import './match-feed.js';
 import apiService from '../services/api-service.js';
 
 
 export class AppMain extends LitElement {
   static properties = {
     selectedTemplate: { type: Object },
-    templates: { type: Array }
+    templates: { type: Array },
+    nextCursor: { type: Number }
   };
 
   static styles = css`
@@ -36,30 +38,50 @@ export class AppMain extends LitElement {
     super();
     this.templates = [];
     this.selectedTemplate = null;
+    this.nextCursor = null;
     this.loadTemplates();
   }
 
-  async loadTemplates() {
+  async loadTemplates(after = null) {
     try {
-      this.templates = await apiService.getAllTemplates();
+      const page = await apiService.getTemplates(after);
+      this.templates = after === null ? page.items : [...this.templates, ...page.items];
+      this.nextCursor = page.nextCursor;
     } catch (error) {
       console.error('Error loading templates:', error);
     }
   }
 
-  handleTemplateSelect(e) {
-    this.selectedTemplate = e.detail;
+  handleLoadMore() {
+    this.loadTemplates(this.nextCursor);
+  }
+
+  toSummary(template) {
+    return {
+      id: template.id,
+      title: template.title,
+      triggerMode: template.triggerMode,
+      ruleCount: template.rules ? template.rules.length : 0,
+      recipientCount: template.recipients ? template.recipients.length : 0
+    };
+  }
+
+  async handleTemplateSelect(e) {
+    try {
+      this.selectedTemplate = await apiService.getTemplate(e.detail.id);
+    } catch (error) {
+      console.error('Error loading template:', error);
+    }
   }
 
   handleTemplateCreated(e) {
-    this.templates = [...this.templates, e.detail];
+    this.templates = [...this.templates, this.toSummary(e.detail)];
     this.selectedTemplate = e.detail;
   }
   handleTemplateUpdated(e) {
     const updatedTemplate = e.detail;
-    console.log("got data")
     this.templates = this.templates.map(template =>
-        template.id === updatedTemplate.id ? updatedTemplate : template
+        template.id === updatedTemplate.id ? this.toSummary(updatedTemplate) : template
     );
     if (this.selectedTemplate?.id === updatedTemplate.id) {
       this.selectedTemplate = updatedTemplate;
@@ -78,9 +100,12 @@ export class AppMain extends LitElement {
         <div class="list-panel">
           <template-list 
             .templates=${this.templates}
+            .hasMore=${this.nextCursor !== null && this.nextCursor !== undefined}
+            @load-more=${this.handleLoadMore}
             @template-selected=${this.handleTemplateSelect}
             @template-created=${this.handleTemplateCreated}
           ></template-list>
+          <match-feed></match-feed>
         </div>
         <div class="detail-panel">
           ${this.selectedTemplate 
@@ -0,0 +1,88 @@
+import { LitElement, html, css } from 'lit';
+import apiService from '../services/api-service.js';
+
+const MAX_MATCHES = 50;
+
+export class MatchFeed extends LitElement {
+  static properties = {
+    matches: { type: Array },
+    connected: { type: Boolean }
+  };
+
+  static styles = css`
+    :host {
+      display: block;
+      margin-top: 1rem;
+      border-top: 1px solid #ccc;
+      padding-top: 0.5rem;
+    }
+    h3 {
+      margin: 0 0 0.5rem 0;
+      font-size: 1rem;
+    }
+    .status {
+      font-size: 0.8rem;
+      color: #607D8B;
+    }
+    .status.live {
+      color: #4CAF50;
+    }
+    .match {
+      padding: 0.3rem 0.5rem;
+      margin-bottom: 0.3rem;
+      border-left: 3px solid #2196F3;
+      background-color: #f5f5f5;
+      font-size: 0.85rem;
+    }
+    .time {
+      color: #777;
+      margin-right: 0.5rem;
+    }
+  `;
+
+  constructor() {
+    super();
+    this.matches = [];
+    this.connected = false;
+    this.source = null;
+  }
+
+  connectedCallback() {
+    super.connectedCallback();
+    this.source = apiService.streamMatches(
+        match => {
+          this.matches = [match, ...this.matches].slice(0, MAX_MATCHES);
+        },
+        connected => {
+          this.connected = connected;
+        });
+  }
+
+  disconnectedCallback() {
+    super.disconnectedCallback();
+    if (this.source) {
+      this.source.close();
+      this.source = null;
+    }
+  }
+
+  render() {
+    return html`
+      <h3>
+        Dopasowania na żywo
+        <span class="status ${this.connected ? 'live' : ''}">${this.connected ? '● połączono' : '○ łączenie...'}</span>
+      </h3>
+      ${this.matches.length === 0
+        ? html`<p class="status">Brak dopasowań od otwarcia strony.</p>`
+        : this.matches.map(match => html`
+          <div class="match">
+            <span class="time">${new Date(match.matchedAt).toLocaleTimeString()}</span>
+            <strong>${match.templateTitle || `#${match.templateId}`}</strong>
+            - ${match.itemType} ${match.price}, odbiorców: ${match.recipientCount}
+          </div>
+        `)}
+    `;
+  }
+}
+
+customElements.define('match-feed', MatchFeed);
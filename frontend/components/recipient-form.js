@@ -54,17 +54,15 @@ export class RecipientForm extends LitElement {
     try {
       console.log('Adding new recipient:', newRecipient);
 
-      const updatedTemplate = {
-        ...this.template,
-        recipients: [...(this.template.recipients || []), newRecipient]
-      };
-
       const response = await fetch(`http://localhost:8080/api/templates/${this.template.id}`, {
-        method: 'PUT',
+        method: 'PATCH',
         headers: {
           'Content-Type': 'application/json'
         },
-        body: JSON.stringify(updatedTemplate)
+        body: JSON.stringify({
+          version: this.template.version,
+          addRecipients: [newRecipient.email]
+        })
       });
 
       if (!response.ok) {
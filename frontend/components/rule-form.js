@@ -7,6 +7,12 @@ const PRICE_IS_GREATER_THAN = 'Price is greater than';
 const PRICE_IS_GREATER_THAN_OR_EQUAL = 'Price is greater than or equal';
 const PRICE_IS_LESS_THAN = 'Price is less than';
 const PRICE_IS_LESS_THAN_OR_EQUAL = 'Price is less than or equal';
+const PRICE_CHANGE_EXCEEDS_PERCENT = 'Price moved by more than % within';
+const PRICE_CROSSES_ABOVE_MOVING_AVERAGE = 'Price crosses above moving average of ticks';
+const PRICE_CROSSES_BELOW_MOVING_AVERAGE = 'Price crosses below moving average of ticks';
+
+const CHANGE_OPERAND = /^\s*\d+(\.\d{1,2})?\s*%?\s*\/\s*\d+\s*[smhd]\s*$/;
+const MOVING_AVERAGE_OPERATORS = ['PRICE_CROSSES_ABOVE_MOVING_AVERAGE', 'PRICE_CROSSES_BELOW_MOVING_AVERAGE'];
 
 export class RuleForm extends LitElement {
   static properties = {
@@ -92,7 +98,18 @@ export class RuleForm extends LitElement {
     const isItemOperator = this.operatorValue === 'ITEM_IS' || this.operatorValue === 'ITEM_IS_NOT';
     const operand = isItemOperator ? this.metalType : this.operandValue;
 
-    if (!isItemOperator && (this.operandValue === '' || isNaN(parseFloat(this.operandValue)))) {
+    if (this.operatorValue === 'PRICE_CHANGE_EXCEEDS_PERCENT') {
+      if (!CHANGE_OPERAND.test(this.operandValue)) {
+        alert('Podaj zmianę w formacie procent/okno, np. 2/10m (jednostki: s, m, h, d).');
+        return;
+      }
+    } else if (MOVING_AVERAGE_OPERATORS.includes(this.operatorValue)) {
+      const ticks = Number(this.operandValue);
+      if (!Number.isInteger(ticks) || ticks < 1 || ticks > 10000) {
+        alert('Podaj liczbę notowań średniej kroczącej od 1 do 10000.');
+        return;
+      }
+    } else if (!isItemOperator && (this.operandValue === '' || isNaN(parseFloat(this.operandValue)))) {
       alert('Proszę podać poprawną wartość liczbową dla ceny.');
       return;
     }
@@ -105,19 +122,15 @@ export class RuleForm extends LitElement {
     try {
       console.log('Dodawanie reguły:', newRule);
 
-      const updatedTemplate = {
-        ...this.template,
-        rules: [...(this.template.rules || []), newRule]
-      };
-
-      console.log('Aktualizacja szablonu:', updatedTemplate);
-
       const response = await fetch(`http://localhost:8080/api/templates/${this.template.id}`, {
-        method: 'PUT',
+        method: 'PATCH',
         headers: {
           'Content-Type': 'application/json'
         },
-        body: JSON.stringify(updatedTemplate)
+        body: JSON.stringify({
+          version: this.template.version,
+          addRules: [newRule]
+        })
       });
 
       if (!response.ok) {
@@ -147,7 +160,10 @@ export class RuleForm extends LitElement {
               'PRICE_IS_GREATER_THAN': PRICE_IS_GREATER_THAN,
               'PRICE_IS_GREATER_THAN_OR_EQUAL_TO': PRICE_IS_GREATER_THAN_OR_EQUAL,
               'PRICE_IS_LESS_THAN': PRICE_IS_LESS_THAN,
-              'PRICE_IS_LESS_THAN_OR_EQUAL_TO': PRICE_IS_LESS_THAN_OR_EQUAL
+              'PRICE_IS_LESS_THAN_OR_EQUAL_TO': PRICE_IS_LESS_THAN_OR_EQUAL,
+              'PRICE_CHANGE_EXCEEDS_PERCENT': PRICE_CHANGE_EXCEEDS_PERCENT,
+              'PRICE_CROSSES_ABOVE_MOVING_AVERAGE': PRICE_CROSSES_ABOVE_MOVING_AVERAGE,
+              'PRICE_CROSSES_BELOW_MOVING_AVERAGE': PRICE_CROSSES_BELOW_MOVING_AVERAGE
   };
 
     return operatorMap[operatorId] || operatorId;
@@ -155,6 +171,8 @@ export class RuleForm extends LitElement {
 
   render() {
     const isItemOperator = this.operatorValue === 'ITEM_IS' || this.operatorValue === 'ITEM_IS_NOT';
+    const isChangeOperator = this.operatorValue === 'PRICE_CHANGE_EXCEEDS_PERCENT';
+    const isMovingAverageOperator = MOVING_AVERAGE_OPERATORS.includes(this.operatorValue);
 
     return html`
       <div class="rules-info">
@@ -175,6 +193,9 @@ export class RuleForm extends LitElement {
                 <option value="PRICE_IS_GREATER_THAN_OR_EQUAL_TO">${PRICE_IS_GREATER_THAN_OR_EQUAL}</option>
                 <option value="PRICE_IS_LESS_THAN">${PRICE_IS_LESS_THAN}</option>
                 <option value="PRICE_IS_LESS_THAN_OR_EQUAL_TO">${PRICE_IS_LESS_THAN_OR_EQUAL}</option>
+                <option value="PRICE_CHANGE_EXCEEDS_PERCENT">${PRICE_CHANGE_EXCEEDS_PERCENT}</option>
+                <option value="PRICE_CROSSES_ABOVE_MOVING_AVERAGE">${PRICE_CROSSES_ABOVE_MOVING_AVERAGE}</option>
+                <option value="PRICE_CROSSES_BELOW_MOVING_AVERAGE">${PRICE_CROSSES_BELOW_MOVING_AVERAGE}</option>
               </select>
             </div>
             
@@ -188,6 +209,27 @@ export class RuleForm extends LitElement {
                     <option value="platinum">platinum</option>
                   </select>
                 `
+            : isChangeOperator
+            ? html`
+                  <input
+                    type="text"
+                    placeholder="np. 2/10m"
+                    .value=${this.operandValue}
+                    @input=${this.handleOperandChange}
+                  >
+                `
+            : isMovingAverageOperator
+            ? html`
+                  <input
+                    type="number"
+                    step="1"
+                    min="1"
+                    max="10000"
+                    placeholder="Liczba notowań"
+                    .value=${this.operandValue}
+                    @input=${this.handleOperandChange}
+                  >
+                `
             : html`
                   <input 
                     type="number" 
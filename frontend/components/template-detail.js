@@ -21,7 +21,7 @@ export class TemplateDetail extends LitElement {
       margin-bottom: 0.5rem;
       font-weight: bold;
     }
-    input, textarea {
+    input, textarea, select {
       width: 100%;
       padding: 0.5rem;
       border: 1px solid #ddd;
@@ -178,12 +178,21 @@ export class TemplateDetail extends LitElement {
       'PRICE_IS_GREATER_THAN': 'Cena jest większa niż',
       'PRICE_IS_GREATER_THAN_OR_EQUAL_TO': 'Cena jest większa lub równa',
       'PRICE_IS_LESS_THAN': 'Cena jest mniejsza niż',
-      'PRICE_IS_LESS_THAN_OR_EQUAL_TO': 'Cena jest mniejsza lub równa'
+      'PRICE_IS_LESS_THAN_OR_EQUAL_TO': 'Cena jest mniejsza lub równa',
+      'PRICE_CHANGE_EXCEEDS_PERCENT': 'Cena zmieniła się o więcej niż % w czasie',
+      'PRICE_CROSSES_ABOVE_MOVING_AVERAGE': 'Cena przebija w górę średnią kroczącą z notowań',
+      'PRICE_CROSSES_BELOW_MOVING_AVERAGE': 'Cena przebija w dół średnią kroczącą z notowań'
     };
 
     return operatorMap[operatorId] || operatorId;
   }
 
+  getTriggerModeDisplayName(triggerMode) {
+    return triggerMode === 'EDGE'
+      ? 'Tylko gdy warunek zaczyna być spełniony'
+      : 'Przy każdej cenie spełniającej warunek';
+  }
+
   renderRule(rule) {
     const operatorDisplay = this.getOperatorDisplayName(rule.operator);
 
@@ -199,6 +208,7 @@ export class TemplateDetail extends LitElement {
     return html`
       <h1>${this.template.title}</h1>
       <p><strong>Treść:</strong> ${this.template.content}</p>
+      <p><strong>Wyzwalanie:</strong> ${this.getTriggerModeDisplayName(this.template.triggerMode)}</p>
       <div class="button-group">
         <button @click=${this.startEditing}>Edytuj</button>
         <button class="delete" @click=${this.deleteTemplate}>Usuń</button>
@@ -225,6 +235,17 @@ export class TemplateDetail extends LitElement {
           @input=${e => this.handleInputChange(e, 'content')}
         ></textarea>
       </div>
+      <div class="form-group">
+        <label for="triggerMode">Wyzwalanie</label>
+        <select
+          id="triggerMode"
+          .value=${this.editData.triggerMode || 'LEVEL'}
+          @change=${e => this.handleInputChange(e, 'triggerMode')}
+        >
+          <option value="LEVEL">${this.getTriggerModeDisplayName('LEVEL')}</option>
+          <option value="EDGE">${this.getTriggerModeDisplayName('EDGE')}</option>
+        </select>
+      </div>
       <div class="button-group">
         <button @click=${this.saveTemplate}>Zapisz</button>
         <button class="cancel" @click=${this.cancelEditing}>Anuluj</button>
@@ -233,13 +254,11 @@ export class TemplateDetail extends LitElement {
   }
 
   async removeRecipient(id) {
-    const updatedTemplate = {
-      ...this.template,
-      recipients: this.template.recipients.filter(recipient => recipient.id !== id)
-    };
-    
     try {
-      const savedTemplate = await apiService.updateTemplate(this.template.id, updatedTemplate);
+      const savedTemplate = await apiService.patchTemplate(this.template.id, {
+        version: this.template.version,
+        removeRecipientIds: [id]
+      });
       this.template = savedTemplate;
       this.dispatchEvent(new CustomEvent('template-updated', {
         detail: savedTemplate
@@ -250,13 +269,11 @@ export class TemplateDetail extends LitElement {
   }
 
   async removeRule(id) {
-    const updatedTemplate = {
-      ...this.template,
-      rules: this.template.rules.filter(rule => rule.id !== id)
-    };
-
     try {
-      const savedTemplate = await apiService.updateTemplate(this.template.id, updatedTemplate);
+      const savedTemplate = await apiService.patchTemplate(this.template.id, {
+        version: this.template.version,
+        removeRuleIds: [id]
+      });
       this.template = savedTemplate;
 
       this.dispatchEvent(new CustomEvent('template-updated', {
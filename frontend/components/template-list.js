@@ -3,7 +3,8 @@ import apiService from "../services/api-service";
 
 export class TemplateList extends LitElement {
   static properties = {
-    templates: { type: Array }
+    templates: { type: Array },
+    hasMore: { type: Boolean }
   };
 
   static styles = css`
@@ -36,6 +37,11 @@ export class TemplateList extends LitElement {
   constructor() {
     super();
     this.templates = [];
+    this.hasMore = false;
+  }
+
+  loadMore() {
+    this.dispatchEvent(new CustomEvent('load-more'));
   }
 
   selectTemplate(template) {
@@ -72,6 +78,9 @@ export class TemplateList extends LitElement {
           </div>
         `)}
       </div>
+      ${this.hasMore
+        ? html`<button @click=${this.loadMore}>Załaduj więcej</button>`
+        : ''}
     `;
   }
 }
@@ -26,8 +26,16 @@ class ApiService {
     }
   }
 
-  async getAllTemplates() {
-    return this.fetchWithErrorHandling(`${this.baseUrl}/templates`);
+  async getTemplates(after = null, limit = 50) {
+    const params = new URLSearchParams({ limit });
+    if (after !== null) {
+      params.set('after', after);
+    }
+    return this.fetchWithErrorHandling(`${this.baseUrl}/templates?${params}`);
+  }
+
+  async getTemplate(id) {
+    return this.fetchWithErrorHandling(`${this.baseUrl}/templates/${id}`);
   }
 
   async createTemplate(template) {
@@ -62,12 +70,42 @@ class ApiService {
     return response.json();
   }
 
+  /**
+   * Adds or removes single recipients and rules; `patch.version` is the version the template was read with,
+   * a 409 means someone else changed it in the meantime.
+   */
+  async patchTemplate(templateId, patch) {
+    const response = await fetch(`${this.baseUrl}/templates/${templateId}`, {
+      method: 'PATCH',
+      headers: { 'Content-Type': 'application/json' },
+      body: JSON.stringify(patch),
+    });
+    if (response.status === 409) {
+      throw new Error('Szablon został zmieniony w międzyczasie, odśwież go i spróbuj ponownie.');
+    }
+    if (!response.ok) {
+      throw new Error(`Error patching template: ${response.statusText}`);
+    }
+    return response.json();
+  }
+
   async deleteTemplate(id) {
     return this.fetchWithErrorHandling(`${this.baseUrl}/templates/${id}`, {
       method: 'DELETE',
     });
   }
 
+  /**
+   * Opens the live stream of matches; the browser reconnects on its own when it drops.
+   */
+  streamMatches(onMatch, onStatus = () => {}) {
+    const source = new EventSource(`${this.baseUrl}/matches/stream`);
+    source.addEventListener('match', event => onMatch(JSON.parse(event.data)));
+    source.onopen = () => onStatus(true);
+    source.onerror = () => onStatus(false);
+    return source;
+  }
+
 }
 
 export default new ApiService();
\ No newline at end of file